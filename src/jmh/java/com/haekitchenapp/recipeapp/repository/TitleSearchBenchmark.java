@@ -0,0 +1,103 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title search latency on a Testcontainers Postgres with synthetic titles: the previous unindexable
+ * {@code LIKE '%..%'} query against {@link RecipeRepositoryCustom#searchTitles} on the {@code pg_trgm} GIN index,
+ * for the first page and for a page after a cursor. Needs Docker; run with
+ * {@code ./gradlew jmh -PjmhIncludes=TitleSearch}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TitleSearchBenchmark {
+
+    private static final String[] ADJECTIVES = {"Spicy", "Creamy", "Roasted", "Grilled", "Quick", "Classic", "Smoky", "Lemon"};
+    private static final String[] PROTEINS = {"Chicken", "Tofu", "Beef", "Salmon", "Shrimp", "Lentil", "Pork", "Chickpea"};
+    private static final String[] DISHES = {"Curry", "Tacos", "Stir Fry", "Soup", "Salad", "Pasta", "Bowl", "Stew"};
+    private static final String[] EXTRAS = {"with Rice", "with Basil", "with Garlic Bread", "for Two", "Skillet",
+            "with Coconut Milk", "and Greens", "Casserole"};
+
+    // The case-insensitive contains search title lookups ran before the trigram index, first page of 20
+    private static final String LIKE_CONTAINS = """
+            SELECT id, title
+            FROM recipes
+            WHERE lower(title) LIKE lower('%' || ? || '%')
+            OFFSET 0 LIMIT 20
+            """;
+
+    private static final String CREATE_TABLE = "CREATE TABLE recipes (id bigserial PRIMARY KEY, title text)";
+
+    private static final String INSERT_TITLES = """
+            INSERT INTO recipes (title)
+            SELECT a[1 + (g * 7) %% 8] || ' ' || p[1 + (g / 8 * 5) %% 8] || ' ' || d[1 + (g / 64 * 3) %% 8]
+                   || ' ' || e[1 + (g / 512) %% 8] || ' ' || (g / 4096)
+            FROM generate_series(1, %d) g,
+                 (SELECT %s AS a, %s AS p, %s AS d, %s AS e) words
+            """;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"chicken curry", "lemon basil", "chiken cury"})
+    public String query;
+
+    private PostgreSQLContainer<?> postgres;
+    private JdbcTemplate jdbcTemplate;
+    private RecipeRepositoryCustomImpl repository;
+    private RecipeRepositoryCustom.TitleCursor secondPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute(CREATE_TABLE);
+        jdbcTemplate.execute(INSERT_TITLES.formatted(rows,
+                array(ADJECTIVES), array(PROTEINS), array(DISHES), array(EXTRAS)));
+        new RecipeTitleTrigramIndex(jdbcTemplate).migrate();
+        jdbcTemplate.execute("ANALYZE recipes");
+
+        repository = new RecipeRepositoryCustomImpl(jdbcTemplate);
+        List<RecipeRepositoryCustom.TitleMatch> first = repository.searchTitles(query, null, 20);
+        secondPage = first.isEmpty() ? null : first.get(first.size() - 1).cursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    @Benchmark
+    public List<?> likeContains() {
+        return jdbcTemplate.queryForList(LIKE_CONTAINS, query);
+    }
+
+    @Benchmark
+    public List<?> trigramFirstPage() {
+        return repository.searchTitles(query, null, 20);
+    }
+
+    @Benchmark
+    public List<?> trigramNextPage() {
+        return repository.searchTitles(query, secondPage, 20);
+    }
+
+    private static String array(String[] words) {
+        StringBuilder sb = new StringBuilder("ARRAY[");
+        for (int i = 0; i < words.length; i++) {
+            sb.append(i == 0 ? "'" : ", '").append(words[i]).append('\'');
+        }
+        return sb.append(']').toString();
+    }
+}
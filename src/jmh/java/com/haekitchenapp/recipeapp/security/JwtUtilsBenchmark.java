@@ -0,0 +1,68 @@
+package com.haekitchenapp.recipeapp.security;
+
+import com.haekitchenapp.recipeapp.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token work done by the security filter: validating the bearer token and reading the user back out of it.
+ * The public methods hit the verified-token cache after the first call; {@link #parseUncached} is the full
+ * verification every cache miss pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtUtilsBenchmark {
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        byte[] secret = new byte[64]; // HS512-sized key, same as the configured secret
+        new Random(42).nextBytes(secret);
+        setField("jwtSecret", Base64.getEncoder().encodeToString(secret));
+        setField("jwtExpirationMs", 86_400_000);
+
+        User user = new User("benchmark-user", "bench@example.com", "password123");
+        user.setId(42L);
+        token = jwtUtils.generateJwtToken(user);
+    }
+
+    @Benchmark
+    public boolean validateJwtToken() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public String getUserNameFromJwtToken() {
+        return jwtUtils.getUserNameFromJwtToken(token);
+    }
+
+    @Benchmark
+    public Long getUserIdFromJwtToken() {
+        return jwtUtils.getUserIdFromJwtToken(token);
+    }
+
+    @Benchmark
+    public UserDetails getUserDetailsFromJwtToken() {
+        return jwtUtils.getUserDetailsFromJwtToken(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser parseUncached() {
+        return jwtUtils.parseAuthenticatedUser(token);
+    }
+
+    private void setField(String name, Object value) {
+        var field = ReflectionUtils.findField(JwtUtils.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, jwtUtils, value);
+    }
+}
@@ -0,0 +1,84 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended {@code isAllowed} throughput of the GCRA limiter against the previous timestamp-deque implementation,
+ * with the authenticated-user limits (100/minute, 1000/hour). One key is the worst case for the deque, which holds
+ * up to 1000 timestamps and scans them under a lock on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "1000"})
+    public int keys;
+
+    private String[] keyNames;
+    private RateLimiterService gcra;
+    private DequeRateLimiter deque;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "USER:" + i;
+        }
+        gcra = new RateLimiterService();
+        deque = new DequeRateLimiter();
+    }
+
+    @Benchmark
+    public boolean gcra() {
+        return gcra.isAllowed(nextKey(), 100, 1000);
+    }
+
+    @Benchmark
+    public boolean timestampDeque() {
+        return deque.isAllowed(nextKey(), 100, 1000);
+    }
+
+    private String nextKey() {
+        return keyNames[ThreadLocalRandom.current().nextInt(keys)];
+    }
+
+    /**
+     * The limiter as it was before the GCRA rewrite, kept here as the baseline.
+     */
+    static class DequeRateLimiter {
+
+        private static final long ONE_MINUTE = TimeUnit.MINUTES.toSeconds(1);
+        private static final long ONE_HOUR = TimeUnit.HOURS.toSeconds(1);
+
+        private final ConcurrentMap<String, Deque<Long>> userRequests = new ConcurrentHashMap<>();
+
+        boolean isAllowed(String userKey, int maxPerMinute, int maxPerHour) {
+            long now = Instant.now().getEpochSecond();
+            Deque<Long> timestamps = userRequests.computeIfAbsent(userKey, k -> new ConcurrentLinkedDeque<>());
+
+            synchronized (timestamps) {
+                timestamps.removeIf(ts -> now - ts > ONE_HOUR);
+
+                long countLastMinute = timestamps.stream().filter(ts -> now - ts <= ONE_MINUTE).count();
+                long countLastHour = timestamps.size();
+
+                if (countLastMinute >= maxPerMinute || countLastHour >= maxPerHour) {
+                    return false;
+                }
+
+                timestamps.addLast(now);
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeSimilarityRequest;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDetailsDto;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranking throughput for the candidate counts the similarity search sees: the default result window, the title
+ * candidate window and a large filtered window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RecipeRankerBenchmark {
+
+    private static final String[] ADJECTIVES = {"Spicy", "Creamy", "Roasted", "Grilled", "Quick", "Classic", "Smoky", "Lemon"};
+    private static final String[] PROTEINS = {"Chicken", "Tofu", "Beef", "Salmon", "Shrimp", "Lentil", "Pork", "Chickpea"};
+    private static final String[] DISHES = {"Curry", "Tacos", "Stir Fry", "Soup", "Salad", "Pasta", "Bowl", "Stew"};
+    private static final String[] CUISINES = {"Indian", "Mexican", "Thai", "Italian", "American", "Japanese"};
+    private static final String[] INGREDIENTS = {"garlic", "onion", "olive oil", "rice", "tomato", "ginger", "cilantro",
+            "lime", "peanuts", "coconut milk", "soy sauce", "cumin", "butter", "spinach", "potato", "basil"};
+
+    @Param({"50", "200", "1000"})
+    public int candidates;
+
+    private final RecipeRanker ranker = new RecipeRanker();
+    private List<RecipeSimilarityDto> recipes;
+    private List<RecipeDetailsDto> details;
+    private RecipeSimilarityRequest query;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        recipes = new ArrayList<>(candidates);
+        details = new ArrayList<>(candidates);
+        for (long id = 1; id <= candidates; id++) {
+            String title = pick(random, ADJECTIVES) + " " + pick(random, PROTEINS) + " " + pick(random, DISHES);
+            String summary = "A " + title.toLowerCase() + " with " + pick(random, INGREDIENTS) + " and "
+                    + pick(random, INGREDIENTS) + ", ready in " + (15 + random.nextInt(60)) + " minutes for a weeknight dinner.";
+            recipes.add(new RecipeSimilarityDto(id, title, summary, 1d - random.nextDouble() * 0.5d));
+
+            List<String> ingredients = new ArrayList<>();
+            for (int i = 0, n = 5 + random.nextInt(8); i < n; i++) {
+                ingredients.add(pick(random, INGREDIENTS));
+            }
+            details.add(new RecipeDetailsDto(title, ingredients, List.of(pick(random, CUISINES)), null, id));
+        }
+
+        query = new RecipeSimilarityRequest();
+        query.setTitle("Spicy Chicken Curry");
+        query.setCuisine("Indian");
+        query.setIncludeIngredients("ginger garlic");
+        query.setExcludeIngredients("peanuts, shrimp");
+        query.setMealType("dinner");
+        query.setLimit(20);
+    }
+
+    @Benchmark
+    public List<RecipeSimilarityDto> rankAndSort() {
+        List<RecipeSimilarityDto> deduped = ranker.removeDuplicates(recipes);
+        List<RecipeSimilarityDto> ranked = ranker.rank(deduped, details, query);
+        return ranker.sortAndLimit(ranked, query.getLimit());
+    }
+
+    @Benchmark
+    public List<RecipeSimilarityDto> rankOnly() {
+        return ranker.rank(recipes, details, query);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
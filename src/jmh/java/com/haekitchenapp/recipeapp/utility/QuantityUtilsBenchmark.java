@@ -0,0 +1,34 @@
+package com.haekitchenapp.recipeapp.utility;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quantity conversion for ingredient lists, using the quantities recipes are actually entered with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuantityUtilsBenchmark {
+
+    private static final float[] FLOATS = {0.25f, 0.5f, 0.33333334f, 0.75f, 1f, 1.5f, 2.25f, 0.125f, 3f, 1.6666666f, 0.0625f, 12f};
+    private static final String[] STRINGS = {"1/4", "1/2", "1/3", "3/4", "1", "1 1/2", "2 1/4", "1/8", "3", "1 2/3", "to taste", "0.5"};
+
+    @Benchmark
+    @OperationsPerInvocation(12)
+    public void floatToFraction(Blackhole blackhole) {
+        for (float value : FLOATS) {
+            blackhole.consume(QuantityUtils.floatToFraction(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(12)
+    public void fractionToFloat(Blackhole blackhole) {
+        for (String value : STRINGS) {
+            blackhole.consume(QuantityUtils.fractionToFloat(value));
+        }
+    }
+}
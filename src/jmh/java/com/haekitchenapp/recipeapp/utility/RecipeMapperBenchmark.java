@@ -0,0 +1,126 @@
+package com.haekitchenapp.recipeapp.utility;
+
+import com.haekitchenapp.recipeapp.entity.Ingredient;
+import com.haekitchenapp.recipeapp.entity.Recipe;
+import com.haekitchenapp.recipeapp.entity.Unit;
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeIngredientRequest;
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeRequest;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeResponse;
+import com.haekitchenapp.recipeapp.service.IngredientService;
+import com.haekitchenapp.recipeapp.service.UnitService;
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request to entity and entity to response mapping for a typical recipe. Unit and ingredient lookups are served from
+ * in-memory maps, the same as the warmed caches in the services, so only the mapping itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecipeMapperBenchmark {
+
+    private static final String[][] INGREDIENTS = {
+            {"chicken thighs", "1 1/2", "1"}, {"yellow onion", "1", "2"}, {"garlic", "3", "2"},
+            {"ginger", "1", "3"}, {"garam masala", "2", "4"}, {"ground turmeric", "1/2", "5"},
+            {"crushed tomatoes", "1", "6"}, {"coconut milk", "3/4", "7"}, {"olive oil", "2", "4"},
+            {"salt", "to taste", "5"}, {"cilantro", "1/4", "7"}, {"basmati rice", "1 1/2", "7"}};
+
+    @Param({"12"})
+    public int ingredientCount;
+
+    private RecipeMapper recipeMapper;
+    private RecipeRequest request;
+    private Recipe recipe;
+
+    @Setup
+    public void setUp() {
+        Map<Long, String> units = Map.of(1L, "lb", 2L, "whole", 3L, "inch", 4L, "tbsp", 5L, "tsp", 6L, "can", 7L, "cup");
+        recipeMapper = new RecipeMapper(new InMemoryUnitService(units), new InMemoryIngredientService());
+
+        Set<RecipeIngredientRequest> ingredients = new HashSet<>();
+        for (int i = 0; i < ingredientCount; i++) {
+            String[] row = INGREDIENTS[i % INGREDIENTS.length];
+            ingredients.add(new RecipeIngredientRequest(null, row[0] + (i < INGREDIENTS.length ? "" : " " + i), row[1], Long.valueOf(row[2])));
+        }
+        request = new RecipeRequest();
+        request.setCreatedBy(1L);
+        request.setTitle("Weeknight Chicken Curry");
+        request.setSummary("A one-pot chicken curry with coconut milk and warm spices, ready in under an hour.");
+        request.setInstructions("Brown the chicken. Soften the onion, garlic and ginger. Add spices, tomatoes and coconut milk. Simmer 25 minutes.");
+        request.setPrepTime(15);
+        request.setCookTime(35);
+        request.setServings(4);
+        request.setIngredients(ingredients);
+
+        recipe = recipeMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public Recipe toEntity() {
+        return recipeMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public RecipeResponse toRecipeResponse() {
+        return recipeMapper.toRecipeResponse(recipe, false);
+    }
+
+    @Benchmark
+    public RecipeResponse toRecipeResponseRaw() {
+        return recipeMapper.toRecipeResponse(recipe, true);
+    }
+
+    private static final class InMemoryUnitService extends UnitService {
+        private final Map<Long, String> units;
+
+        InMemoryUnitService(Map<Long, String> units) {
+            // The lookups the mapper makes are overridden, so the cache's repositories are never queried
+            super(null, new ReferenceDataCache(null, null, null, null, 0));
+            this.units = units;
+        }
+
+        @Override
+        public String getUnitNameById(Long unitId) {
+            return units.get(unitId);
+        }
+
+        @Override
+        public boolean existsById(Long unitId) {
+            return units.containsKey(unitId);
+        }
+
+        @Override
+        public Unit getUnitByName(String unitName) {
+            return null;
+        }
+    }
+
+    private static final class InMemoryIngredientService extends IngredientService {
+        private final Map<String, Ingredient> byName = new ConcurrentHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+
+        InMemoryIngredientService() {
+            // Only the dictionary gauges are registered; the repositories behind the overridden lookup are unused
+            super(null, null, null, new SimpleMeterRegistry(), 0);
+        }
+
+        @Override
+        public Ingredient getIngredientElseInsert(String ingredientName) {
+            return byName.computeIfAbsent(ingredientName.toLowerCase(), name -> {
+                Ingredient ingredient = new Ingredient();
+                ingredient.setId(ids.incrementAndGet());
+                ingredient.setName(name);
+                return ingredient;
+            });
+        }
+    }
+}
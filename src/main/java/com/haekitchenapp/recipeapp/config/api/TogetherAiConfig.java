@@ -32,4 +32,21 @@ public class TogetherAiConfig {
     }
 
     private Client client = new Client();
+
+    @Data
+    public static class EmbedCache {
+        private long maxSize = 10000;
+        private long ttlMinutes = 60;
+    }
+
+    private EmbedCache embedCache = new EmbedCache();
+
+    @Data
+    public static class EmbedBatch {
+        private boolean enabled = true;
+        private long windowMillis = 5;
+        private int maxSize = 64;
+    }
+
+    private EmbedBatch embedBatch = new EmbedBatch();
 }
\ No newline at end of file
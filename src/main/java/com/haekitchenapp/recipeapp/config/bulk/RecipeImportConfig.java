@@ -0,0 +1,21 @@
+package com.haekitchenapp.recipeapp.config.bulk;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "recipe-import")
+public class RecipeImportConfig {
+
+    /**
+     * Recipes written per JDBC batch and transaction. A failing batch is retried one recipe at a time.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Upper bound on the per-record failures returned in the import response; the failed count is always exact.
+     */
+    private int maxReportedFailures = 1000;
+}
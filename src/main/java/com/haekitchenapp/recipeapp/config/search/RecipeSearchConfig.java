@@ -0,0 +1,68 @@
+package com.haekitchenapp.recipeapp.config.search;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "recipe-search")
+public class RecipeSearchConfig {
+
+    public enum Engine {
+        PGVECTOR,
+        HNSW
+    }
+
+    /**
+     * Engine used for similarity search. HNSW falls back to pgvector while the in-memory index is not built.
+     */
+    private Engine engine = Engine.PGVECTOR;
+
+    @Data
+    public static class Hnsw {
+        private boolean enabled = false;
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 100;
+        private int loadFetchSize = 1000;
+        private long seed = 42L;
+        /**
+         * Rebuild the index once tombstoned nodes exceed this fraction of the live ones.
+         */
+        private double maxDeletedRatio = 0.2;
+    }
+
+    private Hnsw hnsw = new Hnsw();
+
+    @Data
+    public static class Probes {
+        private int defaultProbes = 20;
+        private int min = 1;
+        private int max = 100;
+        /**
+         * Lower probes while p95 search latency is above the threshold, and raise them for a query whose candidate
+         * set is too small after filtering.
+         */
+        private boolean adaptive = false;
+        private long latencyThresholdMs = 200;
+        private int step = 5;
+        private long adjustIntervalSeconds = 10;
+        private int maxEscalations = 2;
+        private int maxCandidates = 400;
+    }
+
+    private Probes probes = new Probes();
+
+    @Data
+    public static class Filter {
+        /**
+         * First candidate window for filtered queries, as a multiple of the requested candidates. The window doubles
+         * until enough rows pass the filter, the table is exhausted or {@link #maxWindow} is reached.
+         */
+        private int initialWindowFactor = 4;
+        private int maxWindow = 2000;
+    }
+
+    private Filter filter = new Filter();
+}
@@ -70,7 +70,11 @@ public class WebSecurityConfig {
                 .authorizeHttpRequests(auth ->
                         auth
                                 .requestMatchers("/api/auth/**").permitAll()
-                                .requestMatchers("/actuator/**", "/api/health").permitAll()
+                                .requestMatchers("/actuator/health", "/actuator/health/**", "/api/health").permitAll()
+                                // Metrics and Prometheus reveal per-model usage and cost, so only admins may read them
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                                // Spends paid embedding calls and exact index scans per query
+                                .requestMatchers("/api/recipe-ai/searchSimilarity/compare-engines").hasRole("ADMIN")
                                 .requestMatchers("/api/public/**").permitAll()
                                 .anyRequest().authenticated()
                 );
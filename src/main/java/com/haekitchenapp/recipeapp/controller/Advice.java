@@ -2,6 +2,7 @@ package com.haekitchenapp.recipeapp.controller;
 
 import com.haekitchenapp.recipeapp.exception.*;
 import com.haekitchenapp.recipeapp.model.response.ApiResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mail.MailAuthenticationException;
@@ -25,6 +26,13 @@ public class Advice {
                 .body(ApiResponse.error("Embedding failed: " + ex.getMessage()));
     }
 
+    @ExceptionHandler(LlmBudgetExceededException.class)
+    public ResponseEntity<ApiResponse<Object>> handleLlmBudgetExceeded(LlmBudgetExceededException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(UserEmailExistsException.class)
     public ResponseEntity<ApiResponse<Object>> handleUserEmailExists(UserEmailExistsException ex) {
         return ResponseEntity.status(HttpStatus.CONFLICT)
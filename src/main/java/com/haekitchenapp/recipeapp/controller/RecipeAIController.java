@@ -3,18 +3,22 @@ package com.haekitchenapp.recipeapp.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.haekitchenapp.recipeapp.exception.RecipeSearchFoundNoneException;
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeSimilarityRequest;
+import com.haekitchenapp.recipeapp.model.request.recipe.SearchEngineComparisonRequest;
 import com.haekitchenapp.recipeapp.model.response.ApiResponse;
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAISkeletonId;
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityDto;
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleDto;
+import com.haekitchenapp.recipeapp.model.response.recipe.SearchEngineComparisonDto;
 import com.haekitchenapp.recipeapp.service.JwtTokenService;
 import com.haekitchenapp.recipeapp.service.RecipeAIService;
+import com.haekitchenapp.recipeapp.service.search.SearchEngineComparisonService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -26,19 +30,26 @@ public class RecipeAIController {
 
     private final RecipeAIService recipeAIService;
     private final JwtTokenService jwtTokenService;
+    private final SearchEngineComparisonService searchEngineComparisonService;
 
     @GetMapping("/titles/random")
-    public ResponseEntity<ApiResponse<List<RecipeTitleDto>>> getRandomTitles(@RequestParam Integer count) {
+    public ResponseEntity<ApiResponse<List<RecipeTitleDto>>> getRandomTitles(@RequestParam Integer count, HttpServletRequest request) {
         log.info("Request for random recipe titles");
-        return recipeAIService.generateRandomRecipeTitles(count);
+        return recipeAIService.generateRandomRecipeTitles(count, jwtTokenService.getUserIdFromRequest(request));
     }
 
     @PostMapping("/searchSimilarity/object")
-    public ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>> searchRecipesByTitleSimilarity(@RequestBody @Valid RecipeSimilarityRequest query) throws RecipeSearchFoundNoneException {
+    public Mono<ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>>> searchRecipesByTitleSimilarity(@RequestBody @Valid RecipeSimilarityRequest query) throws RecipeSearchFoundNoneException {
         log.info("Received request to search recipes by query similarity: {}", query);
-        return recipeAIService.searchByAdvancedEmbeddingObject(query);
+        // Completed asynchronously, the servlet thread is released while the query embedding is fetched
+        return recipeAIService.searchByAdvancedEmbeddingObjectAsync(query);
     }
 
+    @PostMapping("/searchSimilarity/compare-engines")
+    public ResponseEntity<ApiResponse<SearchEngineComparisonDto>> compareSearchEngines(@RequestBody @Valid SearchEngineComparisonRequest request) {
+        log.info("Received request to compare search engines over {} queries", request.getQueries().size());
+        return searchEngineComparisonService.compare(request);
+    }
 
     @PostMapping("/chat/recipe")
     public ResponseEntity<ApiResponse<Long>> recipeChat(@RequestBody @Valid String query, HttpServletRequest request) throws JsonProcessingException {
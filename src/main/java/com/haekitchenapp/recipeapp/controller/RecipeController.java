@@ -9,16 +9,20 @@ import com.haekitchenapp.recipeapp.model.request.recipe.RecipeRequest;
 import com.haekitchenapp.recipeapp.model.response.ApiResponse;
 import com.haekitchenapp.recipeapp.model.response.recipe.*;
 import com.haekitchenapp.recipeapp.service.JwtTokenService;
+import com.haekitchenapp.recipeapp.service.RecipeImportService;
 import com.haekitchenapp.recipeapp.service.RecipeService;
 import com.haekitchenapp.recipeapp.service.UnitService;
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -32,6 +36,8 @@ public class RecipeController {
     private final RecipeService recipeService;
     private final UnitService unitService;
     private final JwtTokenService jwtTokenService;
+    private final RecipeImportService recipeImportService;
+    private final TypeaheadService typeaheadService;
     // Create endpoints
     @PostMapping
     public ResponseEntity<ApiResponse<Recipe>> createRecipe(@RequestBody @Valid RecipeRequest recipeRequest) {
@@ -52,6 +58,13 @@ public class RecipeController {
         return recipeService.createBulk(recipeRequests);
     }
 
+    // Streaming import, one RecipeRequest JSON object per line
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<ApiResponse<RecipeImportResponse>> importRecipes(HttpServletRequest request) throws IOException {
+        log.info("Received request to import recipes from NDJSON");
+        return recipeImportService.importNdjson(request.getInputStream());
+    }
+
     // Update endpoints
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<Recipe>> updateRecipe(@PathVariable Long id, @RequestBody @Valid RecipeRequest recipeRequest) {
@@ -74,9 +87,17 @@ public class RecipeController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<RecipeTitleDto>>> searchRecipesByTitle(@RequestParam String title) throws RecipeSearchFoundNoneException {
+    public ResponseEntity<ApiResponse<RecipeTitleSearchResponse>> searchRecipesByTitle(@RequestParam String title,
+                                                                                      @RequestParam(required = false) String after) throws RecipeSearchFoundNoneException {
         log.info("Received request to search recipes by title: {}", title);
-        return recipeService.searchByTitle(title);
+        return recipeService.searchByTitle(title, after);
+    }
+
+    @GetMapping("/typeahead")
+    public ResponseEntity<ApiResponse<TypeaheadResponse>> typeahead(@RequestParam String q,
+                                                                   @RequestParam(defaultValue = "10") int limit) {
+        log.debug("Received typeahead request: {}", q);
+        return ResponseEntity.ok(ApiResponse.success("Suggestions retrieved successfully", typeaheadService.suggest(q, limit)));
     }
 
     @GetMapping("/findByTitle/{title}")
@@ -106,10 +127,10 @@ public class RecipeController {
         return recipeService.getRecipeDetailsResponse(id);
     }
 
-    @GetMapping("/duplicates/{page}")
-    public ResponseEntity<ApiResponse<RecipeDuplicatesByTitleResponse>> getDuplicateRecipes(@PathVariable int page) {
+    @GetMapping("/duplicates")
+    public ResponseEntity<ApiResponse<RecipeDuplicatesByTitleResponse>> getDuplicateRecipes(@RequestParam(required = false) String after) {
         log.info("Received request to get duplicate recipes");
-        return recipeService.findDuplicateTitles(page);
+        return recipeService.findDuplicateTitles(after);
     }
 
     @PostMapping("/deleteList")
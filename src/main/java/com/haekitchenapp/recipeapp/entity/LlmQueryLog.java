@@ -40,6 +40,10 @@ public class LlmQueryLog {
     @Column(name = "recipe_id", nullable = false)
     private Long recipeId;
 
+    // The user whose request made the query, null for background work
+    @Column(name = "user_id")
+    private Long userId;
+
     @Column(nullable = false, length = 100)
     private String model;
 
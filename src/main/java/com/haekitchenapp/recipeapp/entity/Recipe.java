@@ -2,13 +2,12 @@ package com.haekitchenapp.recipeapp.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.haekitchenapp.recipeapp.utility.VectorUtils;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.Arrays;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Entity
 @Getter
@@ -45,13 +44,8 @@ public class Recipe extends BaseEntity {
     private Set<RecipeIngredient> ingredients;
 
     @JsonIgnore
-    public String getEmbedString(){
-        if (embedding == null || embedding.length == 0) {
-            return null;
-        }
-        return Arrays.stream(embedding)
-                .map(String::valueOf)
-                .collect(Collectors.joining(",", "[", "]"));
+    public float[] getEmbeddingVector() {
+        return VectorUtils.toFloatArray(embedding);
     }
 
     @Override
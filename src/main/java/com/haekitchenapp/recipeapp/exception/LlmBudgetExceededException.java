@@ -0,0 +1,16 @@
+package com.haekitchenapp.recipeapp.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class LlmBudgetExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public LlmBudgetExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -1,12 +1,11 @@
 package com.haekitchenapp.recipeapp.model.request.recipe;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.haekitchenapp.recipeapp.utility.VectorUtils;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
 
 @Data
 public class EmbedUpdateRequest {
@@ -17,12 +16,7 @@ public class EmbedUpdateRequest {
     private Double[] embedding;
 
     @JsonIgnore
-    public String getEmbedString(){
-        if (embedding == null || embedding.length == 0) {
-            return null;
-        }
-        return Arrays.stream(embedding)
-                .map(String::valueOf)
-                .collect(Collectors.joining(",", "[", "]"));
+    public float[] getEmbeddingVector() {
+        return VectorUtils.toFloatArray(embedding);
     }
 }
@@ -1,5 +1,6 @@
 package com.haekitchenapp.recipeapp.model.request.recipe;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -21,6 +22,11 @@ public class RecipeSimilarityRequest {
 
     private String cuisine;
 
+    /**
+     * When set, only recipes of the requested cuisine are returned instead of merely ranking them higher.
+     */
+    private boolean requireCuisine;
+
     private String includeIngredients;
 
     private String excludeIngredients;
@@ -32,6 +38,12 @@ public class RecipeSimilarityRequest {
     @NotNull
     private Integer limit;
 
+    /**
+     * ivfflat probes for this query; the configured (or adaptive) default is used when null.
+     */
+    @Min(1)
+    private Integer probes;
+
     public boolean isPromptBased(){
         this.prompt = this.prompt != null ? this.prompt.trim() : null;
         return this.prompt != null && !this.prompt.isEmpty();
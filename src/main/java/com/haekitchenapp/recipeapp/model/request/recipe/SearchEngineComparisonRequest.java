@@ -0,0 +1,25 @@
+package com.haekitchenapp.recipeapp.model.request.recipe;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SearchEngineComparisonRequest {
+
+    // Every query costs an embedding call, an exact scan of the in-memory index and a pgvector query
+    @NotEmpty
+    @Size(max = 50, message = "At most 50 queries can be compared per request")
+    private List<String> queries;
+
+    @Min(1)
+    @Max(200)
+    private int k = 10;
+
+    @Min(1)
+    private Integer probes;
+}
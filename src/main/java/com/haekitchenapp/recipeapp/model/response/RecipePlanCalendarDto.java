@@ -0,0 +1,25 @@
+package com.haekitchenapp.recipeapp.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Calendar row for a recipe plan, already joined with the planned recipe's title.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipePlanCalendarDto {
+
+    private Long id;
+    private LocalDate planDate;
+    private Short mealTypeId;
+    private Long recipeId;
+    private String recipeTitle;
+    private String customTitle;
+    private String notes;
+    private Boolean saved;
+}
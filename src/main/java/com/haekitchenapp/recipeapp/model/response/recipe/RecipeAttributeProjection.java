@@ -0,0 +1,9 @@
+package com.haekitchenapp.recipeapp.model.response.recipe;
+
+/**
+ * One (recipe, name) pair, used when loading ingredient or cuisine names for many recipes at once.
+ */
+public interface RecipeAttributeProjection {
+    Long getRecipeId();
+    String getName();
+}
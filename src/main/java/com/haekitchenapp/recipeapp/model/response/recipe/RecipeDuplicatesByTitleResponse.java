@@ -12,4 +12,9 @@ public class RecipeDuplicatesByTitleResponse {
     private List<RecipeDuplicatesByTitleDto> duplicates;
 
     boolean isLastPage;
+
+    /**
+     * Cursor for the next page, passed back as {@code after}; null on the last page.
+     */
+    private String next;
 }
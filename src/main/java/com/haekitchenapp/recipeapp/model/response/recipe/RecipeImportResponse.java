@@ -0,0 +1,31 @@
+package com.haekitchenapp.recipeapp.model.response.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class RecipeImportResponse {
+
+    private long received;
+    private long imported;
+    private long failed;
+    private long durationMs;
+    private List<Failure> failures = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+        /**
+         * 1-based line of the record in the NDJSON body.
+         */
+        private long line;
+        private String title;
+        private String error;
+    }
+}
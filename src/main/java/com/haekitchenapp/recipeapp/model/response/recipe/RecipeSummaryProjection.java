@@ -1,6 +1,7 @@
 package com.haekitchenapp.recipeapp.model.response.recipe;
 
 public interface RecipeSummaryProjection {
+    Long getId();
     String getTitle();
     String getInstructions();
-}
\ No newline at end of file
+}
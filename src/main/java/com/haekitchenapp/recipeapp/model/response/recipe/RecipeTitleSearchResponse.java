@@ -0,0 +1,18 @@
+package com.haekitchenapp.recipeapp.model.response.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class RecipeTitleSearchResponse {
+
+    private List<RecipeTitleDto> titles;
+
+    /**
+     * Cursor for the next page, passed back as {@code after}; null on the last page.
+     */
+    private String next;
+}
@@ -0,0 +1,35 @@
+package com.haekitchenapp.recipeapp.model.response.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Recall@k and latency of the pgvector and in-memory HNSW engines over the same queries. Ground truth is an exact
+ * linear scan of the in-memory vectors.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchEngineComparisonDto {
+
+    private int queries;
+    private int k;
+    private int probes;
+    private int indexedRecipes;
+    private EngineResult pgvector;
+    private EngineResult hnsw;
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class EngineResult {
+        private double recallAtK;
+        private double meanLatencyMs;
+        private double p50LatencyMs;
+        private double p95LatencyMs;
+    }
+}
@@ -0,0 +1,16 @@
+package com.haekitchenapp.recipeapp.model.response.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypeaheadResponse {
+
+    private List<TypeaheadSuggestion> titles;
+    private List<TypeaheadSuggestion> ingredients;
+}
@@ -0,0 +1,19 @@
+package com.haekitchenapp.recipeapp.model.response.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypeaheadSuggestion {
+
+    /**
+     * Recipe id for titles, ingredient id for ingredients. Titles shared by several recipes are suggested once,
+     * with the lowest id.
+     */
+    private Long id;
+    private String text;
+    private double score;
+}
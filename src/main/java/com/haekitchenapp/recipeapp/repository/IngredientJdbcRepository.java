@@ -0,0 +1,54 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Set-based ingredient writes. Names are inserted with {@code ON CONFLICT DO NOTHING}, so any number of instances
+ * can insert the same new name at once and all of them get back the one row that won.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngredientJdbcRepository {
+
+    private static final String UPSERT_INGREDIENTS = """
+            INSERT INTO ingredients (name, created_at, updated_at)
+            SELECT n, now(), now() FROM unnest(?) AS n
+            ON CONFLICT (name) DO NOTHING
+            """;
+
+    private static final String SELECT_INGREDIENT_IDS = "SELECT id, name FROM ingredients WHERE name = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts any missing ingredient names and returns the id of every requested name.
+     *
+     * @param names normalized (trimmed, lower case) ingredient names
+     */
+    @Transactional
+    public Map<String, Long> upsertIngredients(Collection<String> names) {
+        if (names.isEmpty()) return Map.of();
+        String[] values = names.toArray(String[]::new);
+        jdbcTemplate.update(connection -> {
+            var ps = connection.prepareStatement(UPSERT_INGREDIENTS);
+            ps.setArray(1, connection.createArrayOf("text", values));
+            return ps;
+        });
+        Map<String, Long> ids = new HashMap<>(values.length * 2);
+        jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(SELECT_INGREDIENT_IDS);
+            ps.setArray(1, connection.createArrayOf("text", values));
+            return ps;
+        }, rs -> {
+            ids.put(rs.getString("name"), rs.getLong("id"));
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,115 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import com.haekitchenapp.recipeapp.entity.LlmQueryLog;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Batched inserts of {@link LlmQueryLog}s, one statement per log with costs already set. A log whose id is already
+ * stored is skipped rather than failing the batch it was sent in.
+ * <p>
+ * Also owns the {@code user_id} column and its index, added at startup, that per-user usage is summed from.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class LlmQueryLogJdbcRepository {
+
+    private static final String INSERT_LOG = """
+            INSERT INTO llm_query_logs (id, recipe_id, model, user_prompt, sys_prompt, response, total_tokens,
+                                        response_tokens, prompt_tokens, reasoning_tokens, input_cost, output_cost,
+                                        total_cost, created_at, user_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String ADD_USER_COLUMN = "ALTER TABLE llm_query_logs ADD COLUMN IF NOT EXISTS user_id bigint";
+
+    private static final String CREATE_USER_INDEX = """
+            CREATE INDEX CONCURRENTLY IF NOT EXISTS llm_query_logs_user_created_idx
+            ON llm_query_logs (user_id, created_at) WHERE user_id IS NOT NULL
+            """;
+
+    private static final String SUM_BY_USER = """
+            SELECT user_id,
+                   coalesce(sum(total_tokens) FILTER (WHERE created_at >= ?), 0) AS day_tokens,
+                   coalesce(sum(total_cost) FILTER (WHERE created_at >= ?), 0) AS day_cost,
+                   coalesce(sum(total_tokens), 0) AS month_tokens,
+                   coalesce(sum(total_cost), 0) AS month_cost
+            FROM llm_query_logs
+            WHERE user_id IS NOT NULL AND created_at >= ?
+            GROUP BY user_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void addUserColumn() {
+        // Nullable with no default, so this only changes the catalog
+        jdbcTemplate.execute(ADD_USER_COLUMN);
+    }
+
+    /**
+     * Builds the per-user index without blocking startup or log inserts; until it exists, summing usage scans the
+     * logs since the start of the month.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void createUserIndex() {
+        try {
+            jdbcTemplate.execute(CREATE_USER_INDEX);
+        } catch (DataAccessException e) {
+            log.warn("Could not create index on llm_query_logs.user_id", e);
+        }
+    }
+
+    public void insertBatch(List<LlmQueryLog> logs) {
+        jdbcTemplate.batchUpdate(INSERT_LOG, logs, logs.size(), (ps, queryLog) -> {
+            ps.setString(1, queryLog.getId());
+            ps.setObject(2, queryLog.getRecipeId(), Types.BIGINT);
+            ps.setString(3, queryLog.getModel());
+            ps.setString(4, queryLog.getUserPrompt());
+            ps.setString(5, queryLog.getSystemPrompt());
+            ps.setString(6, queryLog.getResponse());
+            ps.setInt(7, queryLog.getTotalTokens());
+            ps.setInt(8, queryLog.getResponseTokens());
+            ps.setInt(9, queryLog.getPromptTokens());
+            ps.setObject(10, queryLog.getReasoningTokens(), Types.INTEGER);
+            ps.setObject(11, queryLog.getInputCost(), Types.DOUBLE);
+            ps.setObject(12, queryLog.getOutputCost(), Types.DOUBLE);
+            ps.setObject(13, queryLog.getTotalCost(), Types.DOUBLE);
+            LocalDateTime createdAt = queryLog.getCreatedAt() != null ? queryLog.getCreatedAt() : LocalDateTime.now();
+            ps.setTimestamp(14, Timestamp.valueOf(createdAt));
+            ps.setObject(15, queryLog.getUserId(), Types.BIGINT);
+        });
+    }
+
+    /**
+     * Tokens and cost logged per user since the start of a day and of a month.
+     *
+     * @param dayStart   start of the current day, no earlier than {@code monthStart}
+     * @param monthStart start of the current month
+     */
+    public List<UserUsage> sumUsageByUser(LocalDateTime dayStart, LocalDateTime monthStart) {
+        return jdbcTemplate.query(SUM_BY_USER, (rs, rowNum) -> new UserUsage(
+                        rs.getLong("user_id"),
+                        rs.getLong("day_tokens"), rs.getDouble("day_cost"),
+                        rs.getLong("month_tokens"), rs.getDouble("month_cost")),
+                Timestamp.valueOf(dayStart), Timestamp.valueOf(dayStart), Timestamp.valueOf(monthStart));
+    }
+
+    public record UserUsage(long userId, long dayTokens, double dayCost, long monthTokens, double monthCost) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Hourly LLM usage per model, provider and feature in {@code llm_usage_hourly}. Instances add their own totals to
+ * the shared rows, so dashboards read one row per hour and dimension instead of aggregating {@code llm_query_logs}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LlmUsageRollupRepository {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS llm_usage_hourly (
+                hour             timestamptz NOT NULL,
+                model            text NOT NULL,
+                provider         text NOT NULL,
+                feature          text NOT NULL,
+                calls            bigint NOT NULL,
+                prompt_tokens    bigint NOT NULL,
+                response_tokens  bigint NOT NULL,
+                reasoning_tokens bigint NOT NULL,
+                cost_usd         double precision NOT NULL,
+                PRIMARY KEY (hour, model, provider, feature)
+            )
+            """;
+
+    private static final String ADD_USAGE = """
+            INSERT INTO llm_usage_hourly AS u
+                (hour, model, provider, feature, calls, prompt_tokens, response_tokens, reasoning_tokens, cost_usd)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (hour, model, provider, feature) DO UPDATE SET
+                calls = u.calls + EXCLUDED.calls,
+                prompt_tokens = u.prompt_tokens + EXCLUDED.prompt_tokens,
+                response_tokens = u.response_tokens + EXCLUDED.response_tokens,
+                reasoning_tokens = u.reasoning_tokens + EXCLUDED.reasoning_tokens,
+                cost_usd = u.cost_usd + EXCLUDED.cost_usd
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    public void add(List<HourlyUsage> usage) {
+        jdbcTemplate.batchUpdate(ADD_USAGE, usage, usage.size(), (ps, row) -> {
+            ps.setTimestamp(1, Timestamp.from(row.hour()));
+            ps.setString(2, row.model());
+            ps.setString(3, row.provider());
+            ps.setString(4, row.feature());
+            ps.setLong(5, row.calls());
+            ps.setLong(6, row.promptTokens());
+            ps.setLong(7, row.responseTokens());
+            ps.setLong(8, row.reasoningTokens());
+            ps.setDouble(9, row.costUsd());
+        });
+    }
+
+    public record HourlyUsage(Instant hour, String model, String provider, String feature, long calls,
+                              long promptTokens, long responseTokens, long reasoningTokens, double costUsd) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import com.haekitchenapp.recipeapp.utility.VectorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * JDBC parameter type for pgvector's {@code vector} column type.
+ * <p>
+ * When binary transfer is enabled for the {@code vector} OID on the connection (see {@link #enableBinarySend}),
+ * the driver sends the embedding in pgvector's {@code vector_recv} wire format: an int16 dimension count, an
+ * unused int16 and then each component as a big-endian float4. Otherwise the driver falls back to the text
+ * literal returned by {@link #getValue()}; either way the parameter is typed, so no {@code CAST} is needed.
+ */
+@Slf4j
+public class PgVector extends PGobject implements PGBinaryObject {
+
+    public static final String TYPE_NAME = "vector";
+
+    private static final int HEADER_BYTES = 4;
+
+    private float[] vector;
+
+    public PgVector() {
+        setType(TYPE_NAME);
+    }
+
+    public PgVector(float[] vector) {
+        this();
+        this.vector = vector;
+    }
+
+    public float[] toArray() {
+        return vector;
+    }
+
+    @Override
+    public String getValue() {
+        return VectorUtils.toVectorLiteral(vector);
+    }
+
+    @Override
+    public void setValue(String value) throws SQLException {
+        vector = value == null ? null : VectorUtils.parseVectorLiteral(value);
+    }
+
+    @Override
+    public boolean isNull() {
+        return vector == null;
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return vector == null ? 0 : HEADER_BYTES + vector.length * Float.BYTES;
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, lengthInBytes());
+        buffer.putShort((short) vector.length);
+        buffer.putShort((short) 0);
+        for (float component : vector) {
+            buffer.putFloat(component);
+        }
+    }
+
+    @Override
+    public void setByteValue(byte[] bytes, int offset) throws SQLException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, bytes.length - offset);
+        int dimensions = buffer.getShort() & 0xFFFF;
+        buffer.getShort();
+        float[] result = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            result[i] = buffer.getFloat();
+        }
+        vector = result;
+    }
+
+    /**
+     * Registers the {@code vector} OID for binary parameter transfer on the given connection. The setting lives on
+     * the physical connection, so calling this for every statement is cheap after the first time. Connections that
+     * are not pgjdbc connections, or databases without the pgvector extension, are left on the text protocol.
+     *
+     * @param connection the (possibly pooled) JDBC connection
+     */
+    public static void enableBinarySend(Connection connection) {
+        try {
+            if (!connection.isWrapperFor(BaseConnection.class)) {
+                return;
+            }
+            BaseConnection pgConnection = connection.unwrap(BaseConnection.class);
+            int oid = pgConnection.getTypeInfo().getPGType(TYPE_NAME);
+            if (oid != Oid.UNSPECIFIED && !pgConnection.binaryTransferSend(oid)) {
+                pgConnection.getQueryExecutor().addBinarySendOid(oid);
+            }
+        } catch (SQLException e) {
+            log.warn("Could not enable binary transfer for pgvector parameters, using text format: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof PgVector other && Arrays.equals(vector, other.vector);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(vector);
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        PgVector copy = (PgVector) super.clone();
+        copy.vector = vector == null ? null : vector.clone();
+        return copy;
+    }
+}
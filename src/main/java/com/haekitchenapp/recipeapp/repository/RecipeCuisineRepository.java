@@ -2,11 +2,13 @@ package com.haekitchenapp.recipeapp.repository;
 
 import com.haekitchenapp.recipeapp.entity.composite.RecipeCuisine;
 import com.haekitchenapp.recipeapp.entity.composite.RecipeCuisineId;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAttributeProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface RecipeCuisineRepository extends JpaRepository<RecipeCuisine, RecipeCuisineId> {
@@ -15,6 +17,9 @@ public interface RecipeCuisineRepository extends JpaRepository<RecipeCuisine, Re
 
     List<RecipeCuisine> findByCuisineId(Integer cuisineId);
 
+    @Query("SELECT rc.recipe.id AS recipeId, c.name AS name FROM RecipeCuisine rc JOIN rc.cuisine c WHERE rc.recipe.id IN :recipeIds")
+    List<RecipeAttributeProjection> findCuisineNamesByRecipeIds(@Param("recipeIds") Collection<Long> recipeIds);
+
     @Transactional
     void deleteByRecipeId(Long recipeId);
 
@@ -0,0 +1,211 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDuplicatesByTitleDto;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * How many recipes share each title, kept in {@code recipe_title_counts} by statement-level triggers on
+ * {@code recipes}. Every insert, update and delete adjusts only the counts of the titles it touched, whichever
+ * instance or import made it, and a partial index covers just the titles held by more than one recipe, so paging
+ * through duplicates costs the number of duplicates rather than a {@code GROUP BY} over the catalog.
+ * <p>
+ * Titles are keyed by the md5 of the exact title, the same grouping {@code findIdsByTitle} resolves them with.
+ */
+@Slf4j
+@Repository
+public class RecipeDuplicateTitleRepository {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS recipe_title_counts (
+                title_hash uuid PRIMARY KEY,
+                title      text NOT NULL,
+                count      bigint NOT NULL
+            )
+            """;
+
+    private static final String CREATE_INDEX = """
+            CREATE INDEX IF NOT EXISTS recipe_title_counts_duplicates_idx
+            ON recipe_title_counts (count DESC, title_hash) WHERE count > 1
+            """;
+
+    // Transition tables hold every row the statement changed, so a batch import is one grouped upsert. Each branch
+    // only names the transition tables its trigger declares.
+    private static final String CREATE_FUNCTION = """
+            CREATE OR REPLACE FUNCTION recipe_title_counts_maintain() RETURNS trigger LANGUAGE plpgsql AS $$
+            BEGIN
+                IF TG_OP = 'INSERT' THEN
+                    INSERT INTO recipe_title_counts AS c (title_hash, title, count)
+                    SELECT md5(title)::uuid, min(title), count(*)
+                    FROM new_rows
+                    WHERE title IS NOT NULL
+                    GROUP BY 1
+                    ORDER BY 1
+                    ON CONFLICT (title_hash) DO UPDATE SET count = c.count + EXCLUDED.count;
+                ELSIF TG_OP = 'DELETE' THEN
+                    UPDATE recipe_title_counts c
+                    SET count = c.count - removed.n
+                    FROM (SELECT md5(title)::uuid AS title_hash, count(*) AS n
+                          FROM old_rows
+                          WHERE title IS NOT NULL
+                          GROUP BY 1) removed
+                    WHERE c.title_hash = removed.title_hash;
+                    DELETE FROM recipe_title_counts
+                    WHERE count <= 0 AND title_hash IN (SELECT md5(title)::uuid FROM old_rows WHERE title IS NOT NULL);
+                ELSE
+                    UPDATE recipe_title_counts c
+                    SET count = c.count - removed.n
+                    FROM (SELECT md5(o.title)::uuid AS title_hash, count(*) AS n
+                          FROM old_rows o
+                          JOIN new_rows n ON n.id = o.id
+                          WHERE o.title IS NOT NULL AND o.title IS DISTINCT FROM n.title
+                          GROUP BY 1) removed
+                    WHERE c.title_hash = removed.title_hash;
+                    DELETE FROM recipe_title_counts
+                    WHERE count <= 0 AND title_hash IN (
+                        SELECT md5(o.title)::uuid
+                        FROM old_rows o
+                        JOIN new_rows n ON n.id = o.id
+                        WHERE o.title IS NOT NULL AND o.title IS DISTINCT FROM n.title);
+                    INSERT INTO recipe_title_counts AS c (title_hash, title, count)
+                    SELECT md5(n.title)::uuid, min(n.title), count(*)
+                    FROM new_rows n
+                    JOIN old_rows o ON o.id = n.id
+                    WHERE n.title IS NOT NULL AND n.title IS DISTINCT FROM o.title
+                    GROUP BY 1
+                    ORDER BY 1
+                    ON CONFLICT (title_hash) DO UPDATE SET count = c.count + EXCLUDED.count;
+                END IF;
+                RETURN NULL;
+            END
+            $$
+            """;
+
+    private static final List<String> CREATE_TRIGGERS = List.of(
+            "DROP TRIGGER IF EXISTS recipe_title_counts_insert ON recipes",
+            "DROP TRIGGER IF EXISTS recipe_title_counts_update ON recipes",
+            "DROP TRIGGER IF EXISTS recipe_title_counts_delete ON recipes",
+            """
+            CREATE TRIGGER recipe_title_counts_insert AFTER INSERT ON recipes
+            REFERENCING NEW TABLE AS new_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION recipe_title_counts_maintain()
+            """,
+            """
+            CREATE TRIGGER recipe_title_counts_update AFTER UPDATE ON recipes
+            REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION recipe_title_counts_maintain()
+            """,
+            """
+            CREATE TRIGGER recipe_title_counts_delete AFTER DELETE ON recipes
+            REFERENCING OLD TABLE AS old_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION recipe_title_counts_maintain()
+            """);
+
+    private static final String BACKFILL = """
+            INSERT INTO recipe_title_counts (title_hash, title, count)
+            SELECT md5(title)::uuid, min(title), count(*)
+            FROM recipes
+            WHERE title IS NOT NULL
+            GROUP BY 1
+            """;
+
+    private static final String FIRST_PAGE = """
+            SELECT title, count, title_hash
+            FROM recipe_title_counts
+            WHERE count > 1
+            ORDER BY count DESC, title_hash
+            LIMIT ?
+            """;
+
+    private static final String PAGE_AFTER = """
+            SELECT title, count, title_hash
+            FROM recipe_title_counts
+            WHERE count > 1 AND (count < ? OR (count = ? AND title_hash > ?))
+            ORDER BY count DESC, title_hash
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public RecipeDuplicateTitleRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates the table and triggers, and fills the table the first time. Instances starting together serialize on
+     * an advisory lock, and creating the triggers locks out writes to {@code recipes} until the backfill commits, so
+     * no row is counted twice or missed.
+     */
+    @PostConstruct
+    void install() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext('recipe_title_counts'))");
+            Boolean exists = jdbcTemplate.queryForObject(
+                    "SELECT to_regclass('recipe_title_counts') IS NOT NULL", Boolean.class);
+            jdbcTemplate.execute(CREATE_TABLE);
+            jdbcTemplate.execute(CREATE_INDEX);
+            jdbcTemplate.execute(CREATE_FUNCTION);
+            CREATE_TRIGGERS.forEach(jdbcTemplate::execute);
+            if (!Boolean.TRUE.equals(exists)) {
+                int titles = jdbcTemplate.update(BACKFILL);
+                log.info("Backfilled recipe_title_counts with {} distinct titles", titles);
+            }
+        });
+    }
+
+    /**
+     * Titles held by more than one recipe, most duplicated first.
+     *
+     * @param after last row of the previous page, or null for the first page
+     * @param limit rows to return
+     */
+    public List<DuplicateTitle> findDuplicates(DuplicateCursor after, int limit) {
+        if (after == null) {
+            return jdbcTemplate.query(FIRST_PAGE, (rs, rowNum) -> mapRow(rs), limit);
+        }
+        return jdbcTemplate.query(PAGE_AFTER, (rs, rowNum) -> mapRow(rs),
+                after.count(), after.count(), after.titleHash(), limit);
+    }
+
+    private static DuplicateTitle mapRow(ResultSet rs) throws SQLException {
+        return new DuplicateTitle(new RecipeDuplicatesByTitleDto(rs.getString("title"), rs.getLong("count")),
+                new DuplicateCursor(rs.getLong("count"), rs.getObject("title_hash", UUID.class)));
+    }
+
+    public record DuplicateTitle(RecipeDuplicatesByTitleDto duplicate, DuplicateCursor cursor) {
+    }
+
+    /**
+     * Keyset position in the duplicates ordered by count descending, then title hash.
+     */
+    public record DuplicateCursor(long count, UUID titleHash) {
+
+        public String encode() {
+            return count + ":" + titleHash;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+         */
+        public static DuplicateCursor decode(String cursor) {
+            int separator = cursor.indexOf(':');
+            try {
+                return new DuplicateCursor(Long.parseLong(cursor.substring(0, separator)),
+                        UUID.fromString(cursor.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid duplicates cursor: " + cursor);
+            }
+        }
+    }
+}
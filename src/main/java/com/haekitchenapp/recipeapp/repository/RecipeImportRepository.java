@@ -0,0 +1,87 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Set-based writes for the NDJSON recipe import. Recipe ids are reserved from the {@code recipes.id} sequence up
+ * front so recipes and their ingredient rows can both go out as JDBC batches, which Hibernate cannot do for
+ * IDENTITY ids.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RecipeImportRepository {
+
+    private static final String RESERVE_RECIPE_IDS = """
+            SELECT nextval(pg_get_serial_sequence('recipes', 'id')) FROM generate_series(1, ?)
+            """;
+
+    private static final String INSERT_RECIPE = """
+            INSERT INTO recipes (id, title, instructions, summary, embedding, prep_time, cook_time, servings,
+                                 created_by, ai_generated, cleaned_from, created_at, updated_at)
+            OVERRIDING SYSTEM VALUE
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_RECIPE_INGREDIENT = """
+            INSERT INTO recipe_ingredients (recipe_id, ingredient_id, quantity, unit_id) VALUES (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record RecipeRow(long id, RecipeRequest recipe, float[] embedding) {}
+
+    public record IngredientRow(long recipeId, long ingredientId, float quantity, Long unitId) {}
+
+    /**
+     * Takes {@code count} ids from the {@code recipes.id} sequence. Ids of recipes that later fail to insert are
+     * simply skipped, as with any rolled back sequence value.
+     */
+    public List<Long> reserveRecipeIds(int count) {
+        return jdbcTemplate.queryForList(RESERVE_RECIPE_IDS, Long.class, count);
+    }
+
+    /**
+     * Writes the recipes and their ingredient rows as two JDBC batches in one transaction.
+     */
+    @Transactional
+    public void insertBatch(List<RecipeRow> recipes, List<IngredientRow> ingredients) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_RECIPE, recipes, recipes.size(), (ps, row) -> {
+            PgVector.enableBinarySend(ps.getConnection());
+            RecipeRequest recipe = row.recipe();
+            ps.setLong(1, row.id());
+            ps.setString(2, recipe.getTitle());
+            ps.setString(3, recipe.getInstructions());
+            ps.setString(4, recipe.getSummary() != null ? recipe.getSummary() : "");
+            if (row.embedding() != null) {
+                ps.setObject(5, new PgVector(row.embedding()));
+            } else {
+                ps.setNull(5, Types.OTHER);
+            }
+            ps.setObject(6, recipe.getPrepTime(), Types.INTEGER);
+            ps.setObject(7, recipe.getCookTime(), Types.INTEGER);
+            ps.setObject(8, recipe.getServings(), Types.INTEGER);
+            ps.setObject(9, recipe.getCreatedBy(), Types.BIGINT);
+            ps.setBoolean(10, Boolean.TRUE.equals(recipe.getAiGenerated()));
+            ps.setObject(11, recipe.getCleanedFrom(), Types.BIGINT);
+            ps.setTimestamp(12, now);
+            ps.setTimestamp(13, now);
+        });
+        if (ingredients.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_RECIPE_INGREDIENT, ingredients, ingredients.size(), (ps, row) -> {
+            ps.setLong(1, row.recipeId());
+            ps.setLong(2, row.ingredientId());
+            ps.setFloat(3, row.quantity());
+            ps.setObject(4, row.unitId(), Types.BIGINT);
+        });
+    }
+}
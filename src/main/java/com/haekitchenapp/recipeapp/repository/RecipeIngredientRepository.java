@@ -1,10 +1,13 @@
 package com.haekitchenapp.recipeapp.repository;
 
 import com.haekitchenapp.recipeapp.entity.RecipeIngredient;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAttributeProjection;
 import lombok.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +20,7 @@ public interface RecipeIngredientRepository extends JpaRepository<RecipeIngredie
 
     @Query("SELECT ri.ingredient.id FROM RecipeIngredient ri WHERE ri.recipe.id = :recipeId")
     List<Long> findIngredientIdsByRecipeId(@NonNull Long recipeId);
+
+    @Query("SELECT ri.recipe.id AS recipeId, i.name AS name FROM RecipeIngredient ri JOIN ri.ingredient i WHERE ri.recipe.id IN :recipeIds")
+    List<RecipeAttributeProjection> findIngredientNamesByRecipeIds(@Param("recipeIds") Collection<Long> recipeIds);
 }
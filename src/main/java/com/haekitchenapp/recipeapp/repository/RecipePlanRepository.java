@@ -1,6 +1,7 @@
 package com.haekitchenapp.recipeapp.repository;
 
 import com.haekitchenapp.recipeapp.entity.RecipePlan;
+import com.haekitchenapp.recipeapp.model.response.RecipePlanCalendarDto;
 import com.haekitchenapp.recipeapp.model.response.RecipePlanSimple;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -48,6 +49,23 @@ public interface RecipePlanRepository extends JpaRepository<RecipePlan, Long> {
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
 
+    /**
+     * Calendar view of a user's recipe plans within a date range, joined with the recipe title in the same query
+     * @param userId The user ID
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return List of calendar rows ordered by date and meal type
+     */
+    @Query("SELECT new com.haekitchenapp.recipeapp.model.response.RecipePlanCalendarDto(" +
+           "rp.id, rp.planDate, rp.mealType.id, r.id, r.title, rp.customTitle, rp.notes, rp.saved) " +
+           "FROM RecipePlan rp LEFT JOIN rp.recipe r " +
+           "WHERE rp.user.id = :userId AND rp.planDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY rp.planDate, rp.mealType.id")
+    List<RecipePlanCalendarDto> findCalendarByUserIdAndPlanDateBetween(
+            @Param("userId") Long userId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
     /**
      * Find all recipe plans for a specific recipe
      * @param recipeId The recipe ID
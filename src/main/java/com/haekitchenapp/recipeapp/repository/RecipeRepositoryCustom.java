@@ -0,0 +1,130 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityView;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Vector queries against {@code recipes.embedding}. These bind the embedding as a typed {@link PgVector} parameter
+ * instead of a serialized string, which Spring Data's native {@code @Query} support cannot do.
+ */
+public interface RecipeRepositoryCustom {
+
+    /**
+     * Nearest rows {@link #findTopByCosineWithTitle} re-orders by title match. Searches that emulate it use the same
+     * window so title matches rank the same way.
+     */
+    int TITLE_CANDIDATES = 200;
+
+    List<RecipeSimilarityView> findTopByCosine(float[] queryVector, int limit, int probes);
+
+    List<RecipeSimilarityView> findTopByCosineWithTitle(float[] queryVector, int limit, String titlePattern, int probes);
+
+    /**
+     * Nearest recipes that pass the filter. The filter is applied to the {@code candidateWindow} nearest rows inside
+     * the query, so excluded recipes are never returned or hydrated.
+     *
+     * @param candidateWindow nearest rows considered before filtering
+     * @return up to {@code limit} matches plus how many candidates were scanned; fewer scanned than the window means
+     * the table is exhausted and a larger window cannot find more
+     */
+    FilteredSimilarity findTopByCosineFiltered(float[] queryVector, VectorFilter filter, int limit, int candidateWindow,
+                                               int probes);
+
+    void updateEmbedding(Long id, float[] vector);
+
+    /**
+     * Streams every stored embedding to the consumer without materializing the result set.
+     *
+     * @param fetchSize rows fetched per round trip
+     * @param consumer  receives the recipe id and its embedding
+     */
+    void streamEmbeddings(int fetchSize, BiConsumer<Long, float[]> consumer);
+
+    /**
+     * Streams every recipe title to the consumer without materializing the result set.
+     *
+     * @param fetchSize rows fetched per round trip
+     * @param consumer  receives the recipe id and its title
+     */
+    void streamTitles(int fetchSize, BiConsumer<Long, String> consumer);
+
+    /**
+     * Streams every recipe id to the consumer without materializing the result set.
+     *
+     * @param fetchSize rows fetched per round trip
+     */
+    void streamIds(int fetchSize, LongConsumer consumer);
+
+    /**
+     * Titles that contain the query or are trigram-similar to it, best {@code similarity()} first. Both conditions
+     * are served by the {@code pg_trgm} GIN index on {@code recipes.title}.
+     *
+     * @param after last row of the previous page, or null for the first page
+     * @param limit rows to return
+     */
+    List<TitleMatch> searchTitles(String query, TitleCursor after, int limit);
+
+    /**
+     * @param titlePattern        SQL {@code LIKE} pattern for titles ranked first, escaped with a backslash, or null
+     * @param excludedIngredients lower-case ingredient names a recipe must not contain
+     * @param cuisine             lower-case cuisine a recipe must belong to (substring match either way), or null
+     */
+    record VectorFilter(String titlePattern, List<String> excludedIngredients, String cuisine) {
+
+        public VectorFilter {
+            excludedIngredients = excludedIngredients == null ? List.of() : List.copyOf(excludedIngredients);
+        }
+
+        public boolean filtersRows() {
+            return !excludedIngredients.isEmpty() || cuisine != null;
+        }
+    }
+
+    record FilteredSimilarity(List<RecipeSimilarityView> recipes, int candidatesScanned) {
+    }
+
+    /**
+     * @return a {@code LIKE} pattern matching any value that contains {@code text}, with its metacharacters escaped
+     */
+    static String containsPattern(String text) {
+        return "%" + escapeLike(text) + "%";
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    record TitleMatch(long id, String title, float score) {
+
+        public TitleCursor cursor() {
+            return new TitleCursor(score, id);
+        }
+    }
+
+    /**
+     * Keyset position in a title search ordered by score descending, then id. Scores are Postgres {@code real}
+     * values, which survive the round trip through {@link #encode()} exactly.
+     */
+    record TitleCursor(float score, long id) {
+
+        public String encode() {
+            return score + ":" + id;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+         */
+        public static TitleCursor decode(String cursor) {
+            int separator = cursor.lastIndexOf(':');
+            try {
+                return new TitleCursor(Float.parseFloat(cursor.substring(0, separator)),
+                        Long.parseLong(cursor.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityView;
+import com.haekitchenapp.recipeapp.utility.VectorUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+@RequiredArgsConstructor
+public class RecipeRepositoryCustomImpl implements RecipeRepositoryCustom {
+
+    private static final String TOP_BY_COSINE = """
+            WITH _probes AS (
+              SELECT set_config('ivfflat.probes', ?, true)
+            )
+            SELECT r.id,
+                   r.title,
+                   r.summary,
+                   (r.embedding <=> ?)       AS cosine_distance,
+                   1 - (r.embedding <=> ?)   AS similarity
+            FROM public.recipes r, _probes
+            ORDER BY r.embedding <=> ?
+            LIMIT ?
+            """;
+
+    private static final String TOP_BY_COSINE_WITH_TITLE = """
+            WITH _probes AS (
+              SELECT set_config('ivfflat.probes', ?, true)
+            ),
+            cand AS (
+              SELECT r.id, r.title, r.summary,
+                     (r.embedding <=> ?)       AS cosine_distance,
+                     1 - (r.embedding <=> ?)   AS similarity
+              FROM public.recipes r, _probes
+              ORDER BY r.embedding <=> ?
+              LIMIT %d
+            )
+            SELECT id, title, summary, cosine_distance, similarity
+            FROM cand
+            ORDER BY CASE WHEN lower(title) LIKE lower(?) ESCAPE '\\' THEN 0 ELSE 1 END,
+                     cosine_distance
+            LIMIT ?
+            """.formatted(TITLE_CANDIDATES);
+
+    private static final String TOP_BY_COSINE_FILTERED = """
+            WITH _probes AS (
+              SELECT set_config('ivfflat.probes', ?, true)
+            ),
+            cand AS (
+              SELECT r.id, r.title, r.summary,
+                     (r.embedding <=> ?) AS cosine_distance
+              FROM public.recipes r, _probes
+              ORDER BY r.embedding <=> ?
+              LIMIT ?
+            ),
+            filtered AS (
+              SELECT c.*
+              FROM cand c
+              WHERE NOT EXISTS (
+                      SELECT 1
+                      FROM recipe_ingredients ri
+                      JOIN ingredients i ON i.id = ri.ingredient_id
+                      WHERE ri.recipe_id = c.id
+                        AND lower(i.name) = ANY (?)
+                    )
+                AND (CAST(? AS text) IS NULL OR EXISTS (
+                      SELECT 1
+                      FROM recipe_cuisine rc
+                      JOIN cuisine cu ON cu.id = rc.cuisine_id
+                      WHERE rc.recipe_id = c.id
+                        AND (lower(cu.name) LIKE '%' || CAST(? AS text) || '%' ESCAPE '\\'
+                             OR strpos(CAST(? AS text), lower(cu.name)) > 0)
+                    ))
+            )
+            SELECT f.id, f.title, f.summary, f.cosine_distance, 1 - f.cosine_distance AS similarity, s.scanned
+            FROM (SELECT count(*) AS scanned FROM cand) s
+            LEFT JOIN (
+              SELECT filtered.*,
+                     row_number() OVER (
+                       ORDER BY CASE WHEN CAST(? AS text) IS NOT NULL AND lower(title) LIKE lower(CAST(? AS text)) ESCAPE '\\' THEN 0 ELSE 1 END,
+                                cosine_distance
+                     ) AS rank
+              FROM filtered
+            ) f ON f.rank <= ?
+            ORDER BY f.rank
+            """;
+
+    private static final String UPDATE_EMBEDDING = "UPDATE recipes SET embedding = ? WHERE id = ?";
+
+    private static final String ALL_EMBEDDINGS = "SELECT id, embedding::text AS embedding FROM recipes WHERE embedding IS NOT NULL";
+
+    private static final String ALL_TITLES = "SELECT id, title FROM recipes WHERE title IS NOT NULL";
+
+    private static final String ALL_IDS = "SELECT id FROM recipes";
+
+    // ILIKE keeps the old substring semantics for long titles whose similarity to a short query is low; % adds typos
+    private static final String TITLE_MATCHES = """
+            SELECT id, title, similarity(title, ?) AS score
+            FROM recipes
+            WHERE title ILIKE ? ESCAPE '\\' OR title % ?
+            """;
+
+    private static final String SEARCH_TITLES = "SELECT id, title, score FROM (" + TITLE_MATCHES + """
+            ) m
+            ORDER BY score DESC, id
+            LIMIT ?
+            """;
+
+    private static final String SEARCH_TITLES_AFTER = "SELECT id, title, score FROM (" + TITLE_MATCHES + """
+            ) m
+            WHERE score < ? OR (score = ? AND id > ?)
+            ORDER BY score DESC, id
+            LIMIT ?
+            """;
+
+    private static final RowMapper<RecipeSimilarityView> SIMILARITY_ROW_MAPPER = (rs, rowNum) -> new SimilarityRow(
+            rs.getLong("id"),
+            rs.getString("title"),
+            rs.getString("summary"),
+            rs.getDouble("cosine_distance"),
+            rs.getDouble("similarity"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<RecipeSimilarityView> findTopByCosine(float[] queryVector, int limit, int probes) {
+        PgVector vector = new PgVector(queryVector);
+        return jdbcTemplate.query(connection -> {
+            PgVector.enableBinarySend(connection);
+            PreparedStatement ps = connection.prepareStatement(TOP_BY_COSINE);
+            ps.setString(1, String.valueOf(probes));
+            ps.setObject(2, vector);
+            ps.setObject(3, vector);
+            ps.setObject(4, vector);
+            ps.setInt(5, limit);
+            return ps;
+        }, SIMILARITY_ROW_MAPPER);
+    }
+
+    @Override
+    public List<RecipeSimilarityView> findTopByCosineWithTitle(float[] queryVector, int limit, String titlePattern, int probes) {
+        PgVector vector = new PgVector(queryVector);
+        return jdbcTemplate.query(connection -> {
+            PgVector.enableBinarySend(connection);
+            PreparedStatement ps = connection.prepareStatement(TOP_BY_COSINE_WITH_TITLE);
+            ps.setString(1, String.valueOf(probes));
+            ps.setObject(2, vector);
+            ps.setObject(3, vector);
+            ps.setObject(4, vector);
+            ps.setString(5, titlePattern);
+            ps.setInt(6, limit);
+            return ps;
+        }, SIMILARITY_ROW_MAPPER);
+    }
+
+    @Override
+    public FilteredSimilarity findTopByCosineFiltered(float[] queryVector, VectorFilter filter, int limit,
+                                                      int candidateWindow, int probes) {
+        PgVector vector = new PgVector(queryVector);
+        int[] scanned = new int[1];
+        List<RecipeSimilarityView> rows = jdbcTemplate.query(connection -> {
+            PgVector.enableBinarySend(connection);
+            PreparedStatement ps = connection.prepareStatement(TOP_BY_COSINE_FILTERED);
+            ps.setString(1, String.valueOf(probes));
+            ps.setObject(2, vector);
+            ps.setObject(3, vector);
+            ps.setInt(4, candidateWindow);
+            ps.setArray(5, connection.createArrayOf("text", filter.excludedIngredients().toArray()));
+            ps.setString(6, filter.cuisine());
+            ps.setString(7, filter.cuisine() == null ? null : RecipeRepositoryCustom.escapeLike(filter.cuisine()));
+            ps.setString(8, filter.cuisine());
+            ps.setString(9, filter.titlePattern());
+            ps.setString(10, filter.titlePattern());
+            ps.setInt(11, limit);
+            return ps;
+        }, (rs, rowNum) -> {
+            scanned[0] = rs.getInt("scanned");
+            // the LEFT JOIN yields one all-null row when nothing passes the filter
+            return rs.getObject("id") == null ? null : SIMILARITY_ROW_MAPPER.mapRow(rs, rowNum);
+        });
+        return new FilteredSimilarity(rows.stream().filter(Objects::nonNull).toList(), scanned[0]);
+    }
+
+    @Override
+    public List<TitleMatch> searchTitles(String query, TitleCursor after, int limit) {
+        String pattern = RecipeRepositoryCustom.containsPattern(query);
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(after == null ? SEARCH_TITLES : SEARCH_TITLES_AFTER);
+            int i = 1;
+            ps.setString(i++, query);
+            ps.setString(i++, pattern);
+            ps.setString(i++, query);
+            if (after != null) {
+                ps.setFloat(i++, after.score());
+                ps.setFloat(i++, after.score());
+                ps.setLong(i++, after.id());
+            }
+            ps.setInt(i, limit);
+            return ps;
+        }, (rs, rowNum) -> new TitleMatch(rs.getLong("id"), rs.getString("title"), rs.getFloat("score")));
+    }
+
+    @Override
+    public void updateEmbedding(Long id, float[] vector) {
+        PgVector embedding = new PgVector(vector);
+        jdbcTemplate.update(connection -> {
+            PgVector.enableBinarySend(connection);
+            PreparedStatement ps = connection.prepareStatement(UPDATE_EMBEDDING);
+            ps.setObject(1, embedding);
+            ps.setLong(2, id);
+            return ps;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamEmbeddings(int fetchSize, BiConsumer<Long, float[]> consumer) {
+        // pgjdbc only honours the fetch size inside a transaction, hence readOnly rather than auto-commit
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ALL_EMBEDDINGS);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong("id"),
+                VectorUtils.parseVectorLiteral(rs.getString("embedding"))));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamTitles(int fetchSize, BiConsumer<Long, String> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ALL_TITLES);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong("id"), rs.getString("title")));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamIds(int fetchSize, LongConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ALL_IDS);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1)));
+    }
+
+    private record SimilarityRow(Long id, String title, String summary, Double cosineDistance, Double similarity)
+            implements RecipeSimilarityView {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String getSummary() {
+            return summary;
+        }
+
+        @Override
+        public Double getCosineDistance() {
+            return cosineDistance;
+        }
+
+        @Override
+        public Double getSimilarity() {
+            return similarity;
+        }
+    }
+}
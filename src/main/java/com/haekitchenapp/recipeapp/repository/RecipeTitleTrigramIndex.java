@@ -0,0 +1,95 @@
+package com.haekitchenapp.recipeapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Schema migration for {@link RecipeRepositoryCustom#searchTitles}: the {@code pg_trgm} extension and a GIN index on
+ * {@code recipes.title}. The index is built concurrently after startup so neither startup nor writes to
+ * {@code recipes} wait for it; until it is valid, title search still works with a sequential scan.
+ * <p>
+ * Instances starting together serialize on a session advisory lock. An index still being built by another instance
+ * is invalid too, so only the lock holder may drop and rebuild one; the others leave the migration to it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "title-search", name = "create-index", havingValue = "true", matchIfMissing = true)
+public class RecipeTitleTrigramIndex {
+
+    static final String INDEX_NAME = "recipes_title_trgm_idx";
+
+    static final String CREATE_EXTENSION = "CREATE EXTENSION IF NOT EXISTS pg_trgm";
+
+    static final String CREATE_INDEX =
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + INDEX_NAME + " ON recipes USING gin (title gin_trgm_ops)";
+
+    private static final String INDEX_VALID = """
+            SELECT i.indisvalid
+            FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indexrelid
+            WHERE c.relname = ?
+            """;
+
+    private static final String DROP_INDEX = "DROP INDEX CONCURRENTLY IF EXISTS " + INDEX_NAME;
+
+    // Session level, since CREATE INDEX CONCURRENTLY cannot run inside a transaction
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock(hashtext('" + INDEX_NAME + "'))";
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(hashtext('" + INDEX_NAME + "'))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        migrate();
+    }
+
+    void migrate() {
+        try {
+            // The advisory lock belongs to the session, so every statement runs on the connection holding it
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                if (!Boolean.TRUE.equals(session.queryForObject(TRY_LOCK, Boolean.class))) {
+                    log.info("Another instance is migrating index {}, leaving it to that one", INDEX_NAME);
+                    return null;
+                }
+                try {
+                    migrate(session);
+                } finally {
+                    session.queryForObject(UNLOCK, Boolean.class);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not create trigram index on recipes.title, title search will scan the table", e);
+        }
+    }
+
+    private static void migrate(JdbcTemplate session) {
+        session.execute(CREATE_EXTENSION);
+        List<Boolean> valid = session.queryForList(INDEX_VALID, Boolean.class, INDEX_NAME);
+        if (!valid.isEmpty() && valid.get(0)) {
+            return;
+        }
+        if (!valid.isEmpty()) {
+            // Holding the lock, an invalid index is an interrupted concurrent build that IF NOT EXISTS would keep
+            log.warn("Rebuilding invalid index {}", INDEX_NAME);
+            session.execute(DROP_INDEX);
+        }
+        long start = System.nanoTime();
+        session.execute(CREATE_INDEX);
+        log.info("Built index {} in {} ms", INDEX_NAME, (System.nanoTime() - start) / 1_000_000);
+    }
+}
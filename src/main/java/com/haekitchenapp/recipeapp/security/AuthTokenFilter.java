@@ -9,7 +9,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -39,11 +38,10 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             String jwt = parseJwt(request);
             log.debug("Extracted JWT token: {}", jwt != null ? "Present" : "Not found");
 
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
+            // Verified once (or served from the verified-token cache); the principal carries the user id
+            AuthenticatedUser userDetails = jwt != null ? jwtUtils.resolveJwtToken(jwt).orElse(null) : null;
+            if (userDetails != null) {
                 log.debug("JWT token is valid");
-
-                // Get user details directly from JWT token instead of database query
-                UserDetails userDetails = jwtUtils.getUserDetailsFromJwtToken(jwt);
                 log.debug("Username from JWT: {}", userDetails.getUsername());
 
                 UsernamePasswordAuthenticationToken authentication =
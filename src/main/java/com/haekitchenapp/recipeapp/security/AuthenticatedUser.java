@@ -0,0 +1,25 @@
+package com.haekitchenapp.recipeapp.security;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal built from a verified JWT. Carries the {@code userId} claim so callers can read it from the security
+ * context instead of parsing the token again.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class AuthenticatedUser extends User {
+
+    private final Long userId;
+
+    public AuthenticatedUser(Long userId, String username, boolean enabled,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, "", enabled, true, true, true, authorities);
+        this.userId = userId;
+    }
+}
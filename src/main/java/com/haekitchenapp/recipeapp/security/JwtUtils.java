@@ -1,5 +1,8 @@
 package com.haekitchenapp.recipeapp.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -8,16 +11,22 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.util.Collection;
-import java.util.Date;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies JWTs. The signing key and parser are built once. Verified tokens are cached by their SHA-256
+ * digest until their {@code exp}, so a client reusing a token costs one digest per request instead of an HMAC
+ * verification and a claims parse. A forged or altered token has a different digest and is always verified.
+ */
 @Component
 @Slf4j
 public class JwtUtils {
@@ -28,6 +37,17 @@ public class JwtUtils {
     @Value("${spring.security.jwt.expiration}")
     private int jwtExpirationMs;
 
+    @Value("${spring.security.jwt.verified-cache-size:10000}")
+    private long verifiedCacheSize = 10_000;
+
+    private volatile Verifier verifier;
+
+    private record Verifier(SecretKey key, JwtParser parser, Cache<String, VerifiedToken> verified) {
+    }
+
+    private record VerifiedToken(AuthenticatedUser user, long expiresAtMillis) {
+    }
+
     public String generateJwtToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
         return generateJwtToken(userPrincipal);
@@ -44,45 +64,89 @@ public class JwtUtils {
                 .claim("enabled", userPrincipal.isEnabled())
                 .issuedAt(new Date())
                 .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key())
+                .signWith(verifier().key())
                 .compact();
     }
 
-    private SecretKey key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    // Built on first use rather than in @PostConstruct so the class also works outside Spring, e.g. in benchmarks
+    private Verifier verifier() {
+        Verifier current = verifier;
+        if (current == null) {
+            synchronized (this) {
+                current = verifier;
+                if (current == null) {
+                    SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+                    Cache<String, VerifiedToken> verified = Caffeine.newBuilder()
+                            .maximumSize(verifiedCacheSize)
+                            .expireAfter(Expiry.creating((String digest, VerifiedToken token) ->
+                                    TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAtMillis() - System.currentTimeMillis()))))
+                            .build();
+                    current = new Verifier(key, Jwts.parser().verifyWith(key).build(), verified);
+                    verifier = current;
+                }
+            }
+        }
+        return current;
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser().verifyWith(key()).build()
-                .parseSignedClaims(token).getPayload().getSubject();
+    /**
+     * Returns the user a token was issued for, verifying the token only if it is not already cached.
+     *
+     * @throws JwtException if the token is invalid or expired
+     * @throws IllegalArgumentException if the token is empty
+     */
+    public AuthenticatedUser getAuthenticatedUser(String token) {
+        Verifier current = verifier();
+        String digest = digest(token);
+        VerifiedToken cached = current.verified().getIfPresent(digest);
+        if (cached != null && cached.expiresAtMillis() > System.currentTimeMillis()) {
+            return cached.user();
+        }
+        VerifiedToken verified = verify(current.parser(), token);
+        current.verified().put(digest, verified);
+        return verified.user();
     }
 
-    public Long getUserIdFromJwtToken(String token) {
-        return Jwts.parser().verifyWith(key()).build()
-                .parseSignedClaims(token).getPayload().get("userId", Long.class);
+    /**
+     * Parses and verifies a token without the cache.
+     */
+    AuthenticatedUser parseAuthenticatedUser(String token) {
+        return verify(verifier().parser(), token).user();
     }
 
-    public UserDetails getUserDetailsFromJwtToken(String token) {
-        Claims claims = Jwts.parser().verifyWith(key()).build()
-                .parseSignedClaims(token).getPayload();
-
-        String username = claims.getSubject();
-        boolean enabled = claims.get("enabled", Boolean.class);
+    private static VerifiedToken verify(JwtParser parser, String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
 
         @SuppressWarnings("unchecked")
         List<String> authorities = claims.get("authorities", List.class);
-
         Collection<SimpleGrantedAuthority> grantedAuthorities = authorities.stream()
                 .map(SimpleGrantedAuthority::new)
                 .collect(Collectors.toList());
 
-        return new User(username, "", enabled, true, true, true, grantedAuthorities);
+        AuthenticatedUser user = new AuthenticatedUser(claims.get("userId", Long.class), claims.getSubject(),
+                claims.get("enabled", Boolean.class), grantedAuthorities);
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        return new VerifiedToken(user, expiresAt);
     }
 
-    public boolean validateJwtToken(String authToken) {
+    public String getUserNameFromJwtToken(String token) {
+        return getAuthenticatedUser(token).getUsername();
+    }
+
+    public Long getUserIdFromJwtToken(String token) {
+        return getAuthenticatedUser(token).getUserId();
+    }
+
+    public UserDetails getUserDetailsFromJwtToken(String token) {
+        return getAuthenticatedUser(token);
+    }
+
+    /**
+     * Verifies a token once and returns its user, logging why when the token is rejected.
+     */
+    public Optional<AuthenticatedUser> resolveJwtToken(String authToken) {
         try {
-            Jwts.parser().verifyWith(key()).build().parseSignedClaims(authToken);
-            return true;
+            return Optional.of(getAuthenticatedUser(authToken));
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -93,6 +157,22 @@ public class JwtUtils {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return Optional.empty();
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return resolveJwtToken(authToken).isPresent();
+    }
+
+    private static String digest(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT token must not be empty");
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
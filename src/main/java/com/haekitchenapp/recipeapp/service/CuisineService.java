@@ -67,5 +67,11 @@ public interface CuisineService {
      * @return true if exists, false otherwise
      */
     boolean existsByName(String name);
-}
 
+    /**
+     * Check if a cuisine with the given ID exists
+     * @param id the cuisine ID
+     * @return true if exists, false otherwise
+     */
+    boolean existsById(Integer id);
+}
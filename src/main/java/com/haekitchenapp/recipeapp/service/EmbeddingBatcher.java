@@ -0,0 +1,148 @@
+package com.haekitchenapp.recipeapp.service;
+
+import com.haekitchenapp.recipeapp.exception.LlmApiException;
+import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmData;
+import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Gathers single-text embed calls that arrive within {@code windowMillis} of each other, up to {@code maxBatchSize},
+ * into one embeddings request and hands each caller its own vector. A burst of searches then takes one pooled
+ * connection instead of one each, for at most the window's added latency.
+ * <p>
+ * Results are matched to callers by each item's {@code index}, falling back to response order. A failed request
+ * fails every caller in the batch; a missing vector fails only its own caller.
+ */
+@Slf4j
+final class EmbeddingBatcher {
+
+    private final Function<List<String>, Mono<LlmResponse>> sender;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final DistributionSummary batchSize;
+    private final Timer queueDelay;
+
+    // Batch still taking calls, guarded by this
+    private List<Pending> open;
+
+    // Monotonic, in nanoseconds
+    LongSupplier clock = System::nanoTime;
+
+    /**
+     * @param sender sends the texts of one batch and returns the response with a vector per text
+     */
+    EmbeddingBatcher(Function<List<String>, Mono<LlmResponse>> sender, long windowMillis, int maxBatchSize,
+                     Scheduler scheduler, MeterRegistry meterRegistry) {
+        this.sender = sender;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.scheduler = scheduler;
+        this.batchSize = DistributionSummary.builder("llm.embed.batch.size")
+                .description("Texts sent per batched embeddings request")
+                .register(meterRegistry);
+        this.queueDelay = Timer.builder("llm.embed.batch.queue.delay")
+                .description("Time an embed call waited for its batch to be sent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the text's embedding, or an error signal with {@link LlmApiException} if none came back
+     */
+    Mono<Double[]> embed(String input) {
+        return Mono.create(sink -> add(new Pending(input, sink, clock.getAsLong())));
+    }
+
+    private void add(Pending pending) {
+        List<Pending> full = null;
+        List<Pending> opened = null;
+        synchronized (this) {
+            if (open == null) {
+                open = new ArrayList<>(maxBatchSize);
+                opened = open;
+            }
+            open.add(pending);
+            if (open.size() >= maxBatchSize) {
+                full = open;
+                open = null;
+            }
+        }
+        if (full != null) {
+            send(full);
+        } else if (opened != null) {
+            List<Pending> batch = opened;
+            scheduler.schedule(() -> sendIfOpen(batch), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the batch when its window closes, unless it already filled up and went out.
+     */
+    private void sendIfOpen(List<Pending> batch) {
+        synchronized (this) {
+            if (open != batch) {
+                return;
+            }
+            open = null;
+        }
+        send(batch);
+    }
+
+    private void send(List<Pending> batch) {
+        long now = clock.getAsLong();
+        batchSize.record(batch.size());
+        for (Pending pending : batch) {
+            queueDelay.record(now - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+        log.debug("Sending {} texts in one embeddings request", batch.size());
+        sender.apply(batch.stream().map(Pending::input).toList())
+                .defaultIfEmpty(new LlmResponse())
+                .subscribe(response -> complete(batch, response),
+                        e -> batch.forEach(pending -> pending.sink().error(e)));
+    }
+
+    private static void complete(List<Pending> batch, LlmResponse response) {
+        Double[][] embeddings = new Double[batch.size()][];
+        List<LlmData> data = response.getData() == null ? List.of() : response.getData();
+        for (int i = 0; i < data.size(); i++) {
+            int index = indexOf(data.get(i), i);
+            if (index >= 0 && index < embeddings.length) {
+                embeddings[index] = data.get(i).getEmbedding();
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Double[] embedding = embeddings[i];
+            if (embedding == null || embedding.length == 0) {
+                batch.get(i).sink().error(new LlmApiException("Context not returned in the response"));
+            } else {
+                batch.get(i).sink().success(embedding);
+            }
+        }
+    }
+
+    private static int indexOf(LlmData data, int position) {
+        if (data.getIndex() == null) {
+            return position;
+        }
+        try {
+            return Integer.parseInt(data.getIndex());
+        } catch (NumberFormatException e) {
+            return position;
+        }
+    }
+
+    private record Pending(String input, MonoSink<Double[]> sink, long enqueuedAt) {
+    }
+}
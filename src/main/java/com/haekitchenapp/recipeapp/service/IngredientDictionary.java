@@ -0,0 +1,198 @@
+package com.haekitchenapp.recipeapp.service;
+
+/**
+ * Append-only id to name dictionary for ingredients, kept in parallel arrays with two open-addressing indexes
+ * (name to entry, id to entry) instead of maps of boxed ids and entities. Each name is held once, so the instance
+ * returned by lookups is shared by every caller.
+ * <p>
+ * Names are looked up by their lower case form. Rows whose names differ only in case keep their own entries, so each
+ * id still resolves to its stored name; a lower case lookup prefers the row stored exactly in lower case.
+ * <p>
+ * Writers are serialized; readers take no lock. A writer fills the arrays and index slots first and then publishes
+ * the entry by bumping the volatile {@code size}, so a reader only ever follows slots to entries below the size it
+ * read. Slots are only ever filled, never moved or cleared, which keeps probe chains valid under concurrent appends.
+ * Growing builds a complete new table and swaps it in.
+ */
+final class IngredientDictionary {
+
+    static final long NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final class Table {
+        final long[] ids;
+        final String[] names;
+        // Lower case names, the same instance as in names when the stored name already is lower case
+        final String[] keys;
+        // Entry index + 1 per slot, 0 marks an empty slot; twice the capacity keeps the load factor at most 0.5
+        final int[] byName;
+        final int[] byId;
+        volatile int size;
+        long nameBytes;
+
+        Table(int capacity) {
+            ids = new long[capacity];
+            names = new String[capacity];
+            keys = new String[capacity];
+            byName = new int[capacity * 2];
+            byId = new int[capacity * 2];
+        }
+    }
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    /**
+     * @param name the normalized (lower case) ingredient name
+     * @return the id, or {@link #NOT_FOUND}
+     */
+    long idOf(String name) {
+        Table t = table;
+        int entry = findByName(t, t.size, name);
+        return entry < 0 ? NOT_FOUND : t.ids[entry];
+    }
+
+    /**
+     * @return the shared name instance, or {@code null} if the id is unknown
+     */
+    String nameOf(long id) {
+        Table t = table;
+        int entry = findById(t, t.size, id);
+        return entry < 0 ? null : t.names[entry];
+    }
+
+    /**
+     * @param name the normalized (lower case) ingredient name
+     * @return the shared instance of {@code name}, or {@code null} if the name is unknown
+     */
+    String canonicalName(String name) {
+        Table t = table;
+        int entry = findByName(t, t.size, name);
+        return entry < 0 ? null : t.keys[entry];
+    }
+
+    /**
+     * Adds an ingredient unless its id or its exact name is already present.
+     *
+     * @param name the name as stored
+     * @return the shared instance of the name now in the dictionary
+     */
+    synchronized String put(long id, String name) {
+        String lowerCase = name.toLowerCase();
+        String key = lowerCase.equals(name) ? name : lowerCase;
+        Table t = table;
+        int size = t.size;
+        int existing = findById(t, size, id);
+        if (existing < 0) {
+            existing = findByExactName(t, size, key, name);
+        }
+        if (existing >= 0) {
+            return t.names[existing];
+        }
+        if (size == t.ids.length) {
+            t = grow(t);
+        }
+        append(t, size, id, name, key);
+        t.size = size + 1;
+        table = t;
+        return name;
+    }
+
+    int size() {
+        return table.size;
+    }
+
+    /**
+     * Approximate heap used by the dictionary, assuming compressed references and Latin-1 compact strings.
+     */
+    synchronized long estimatedBytes() {
+        Table t = table;
+        return 5 * 16L + 8L * t.ids.length + 4L * t.names.length + 4L * t.keys.length + 4L * t.byName.length
+                + 4L * t.byId.length + t.nameBytes;
+    }
+
+    /**
+     * @return the entry stored exactly as {@code key}, else the first one whose name differs from it only in case
+     */
+    private static int findByName(Table t, int size, String key) {
+        int mask = t.byName.length - 1;
+        int first = -1;
+        for (int slot = spread(key.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = t.byName[slot] - 1;
+            if (entry < 0) {
+                return first;
+            }
+            // An entry at or past size is still being appended and not visible yet
+            if (entry < size && key.equals(t.keys[entry])) {
+                if (key.equals(t.names[entry])) {
+                    return entry;
+                }
+                if (first < 0) {
+                    first = entry;
+                }
+            }
+        }
+    }
+
+    private static int findByExactName(Table t, int size, String key, String name) {
+        int mask = t.byName.length - 1;
+        for (int slot = spread(key.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = t.byName[slot] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (entry < size && name.equals(t.names[entry])) {
+                return entry;
+            }
+        }
+    }
+
+    private static int findById(Table t, int size, long id) {
+        int mask = t.byId.length - 1;
+        for (int slot = spread(Long.hashCode(id)) & mask; ; slot = (slot + 1) & mask) {
+            int entry = t.byId[slot] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (entry < size && t.ids[entry] == id) {
+                return entry;
+            }
+        }
+    }
+
+    private static Table grow(Table t) {
+        int size = t.size;
+        Table grown = new Table(t.ids.length * 2);
+        for (int entry = 0; entry < size; entry++) {
+            append(grown, entry, t.ids[entry], t.names[entry], t.keys[entry]);
+        }
+        grown.size = size;
+        return grown;
+    }
+
+    private static void append(Table t, int entry, long id, String name, String key) {
+        t.ids[entry] = id;
+        t.names[entry] = name;
+        t.keys[entry] = key;
+        int mask = t.byName.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (t.byName[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        t.byName[slot] = entry + 1;
+        slot = spread(Long.hashCode(id)) & mask;
+        while (t.byId[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        t.byId[slot] = entry + 1;
+        t.nameBytes += stringBytes(name) + (key == name ? 0 : stringBytes(key));
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // String object plus its byte[] value, each padded to 8 bytes
+    private static long stringBytes(String name) {
+        return 24 + ((16L + name.length() + 7) & ~7L);
+    }
+}
@@ -2,76 +2,107 @@ package com.haekitchenapp.recipeapp.service;
 
 import com.haekitchenapp.recipeapp.entity.Ingredient;
 import com.haekitchenapp.recipeapp.exception.IngredientException;
+import com.haekitchenapp.recipeapp.repository.IngredientJdbcRepository;
 import com.haekitchenapp.recipeapp.repository.IngredientRepository;
-import lombok.RequiredArgsConstructor;
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
+/**
+ * Resolves ingredient names and ids through an in-memory {@link IngredientDictionary}. The dictionary is filled
+ * incrementally with rows above the highest id loaded so far, on a schedule and when an id lookup misses, so rows
+ * inserted by other instances show up without reloading the table. A row whose transaction commits after a row with
+ * a higher id has been read falls below that mark, so an id the refresh does not bring in is read on its own.
+ * Unknown names are inserted with one upsert, which is safe against concurrent inserts of the same name.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class IngredientService {
 
     private final IngredientRepository ingredientRepository;
+    private final IngredientJdbcRepository ingredientJdbcRepository;
+    private final TypeaheadService typeaheadService;
+    private final IngredientDictionary dictionary = new IngredientDictionary();
+    private final long minRefreshIntervalNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
-    private Map<Long, Ingredient> ingredientCache = new ConcurrentHashMap<>();
-    private Map<String, Ingredient> ingredientNameCache = new ConcurrentHashMap<>();
+    private volatile long refreshedThroughId = 0;
+    private volatile boolean refreshed;
+    private volatile long lastRefreshNanos;
 
-    private long countOnLoad = 0;
-    private long lastIdOnLoad = 0;
+    // Replaced in tests to step past the refresh interval
+    LongSupplier clock = System::nanoTime;
 
-    @EventListener(ApplicationReadyEvent.class)
-    private void initializeCache() {
-        loadCache(0);
-        log.info("Ingredient cache initialized with {} ingredients.", countOnLoad);
-    }
-
-    private void loadCache(long startingId) {
-        if (ingredientCache.isEmpty()) {
-            List<Ingredient> ingredients = fetchNewIngredients(startingId);
-            countOnLoad = ingredients.size();
-            if (!ingredients.isEmpty()) {
-                lastIdOnLoad = ingredients.stream()
-                        .mapToLong(ingredient -> ingredient.getId().intValue())
-                        .max()
-                        .orElse(0);
-            }
-            ingredientCache = ingredients.stream()
-                    .collect(Collectors.toMap(Ingredient::getId, ingredient -> ingredient));
-            ingredientNameCache = ingredients.stream()
-                    .collect(Collectors.toMap(
-                            ingredient -> ingredient.getName().toLowerCase(),
-                            ingredient -> ingredient
-                    ));
-        }
+    public IngredientService(IngredientRepository ingredientRepository,
+                             IngredientJdbcRepository ingredientJdbcRepository,
+                             TypeaheadService typeaheadService,
+                             MeterRegistry meterRegistry,
+                             @Value("${ingredient-dictionary.min-refresh-interval-ms:5000}") long minRefreshIntervalMs) {
+        this.ingredientRepository = ingredientRepository;
+        this.ingredientJdbcRepository = ingredientJdbcRepository;
+        this.typeaheadService = typeaheadService;
+        this.minRefreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minRefreshIntervalMs);
+        Gauge.builder("ingredient.dictionary.size", dictionary, IngredientDictionary::size)
+                .description("Ingredients held in the in-memory dictionary")
+                .register(meterRegistry);
+        Gauge.builder("ingredient.dictionary.memory", dictionary, IngredientDictionary::estimatedBytes)
+                .description("Estimated heap used by the ingredient dictionary")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("ingredient.dictionary.lookups", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("ingredient.dictionary.lookups", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("ingredient.dictionary.hit.ratio", this, IngredientService::hitRatio)
+                .description("Share of ingredient lookups answered from memory")
+                .register(meterRegistry);
     }
 
-    private List<Ingredient> fetchNewIngredients(long lastId) {
-        return ingredientRepository.findAllGreaterThanId(lastId);
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeCache() {
+        refresh();
+        log.info("Ingredient dictionary initialized with {} ingredients, ~{} KB.",
+                dictionary.size(), dictionary.estimatedBytes() / 1024);
     }
 
-    private boolean refreshCacheIfNeeded() {
-        if (sizeChanged()) {
-            loadCache(lastIdOnLoad);
-            return true;
+    /**
+     * Loads ingredients added since the last refresh.
+     *
+     * @return the number of rows read
+     */
+    @Scheduled(fixedDelayString = "${ingredient-dictionary.refresh-interval-ms:60000}",
+            initialDelayString = "${ingredient-dictionary.refresh-interval-ms:60000}")
+    public synchronized int refresh() {
+        lastRefreshNanos = clock.getAsLong();
+        refreshed = true;
+        List<Ingredient> ingredients = ingredientRepository.findAllGreaterThanId(refreshedThroughId);
+        long maxId = refreshedThroughId;
+        for (Ingredient ingredient : ingredients) {
+            dictionary.put(ingredient.getId(), ingredient.getName());
+            maxId = Math.max(maxId, ingredient.getId());
         }
-        return false;
-    }
-
-    private boolean sizeChanged() {
-        long currentCount = ingredientRepository.count();
-        if (currentCount != countOnLoad) {
-            countOnLoad = currentCount;
-            return true;
+        refreshedThroughId = maxId;
+        if (!ingredients.isEmpty()) {
+            log.debug("Ingredient dictionary picked up {} new ingredients, now {}", ingredients.size(), dictionary.size());
         }
-        return false;
+        return ingredients.size();
     }
 
     public Ingredient getIngredientElseInsert(String ingredientName) {
@@ -79,61 +110,99 @@ public class IngredientService {
             throw new IngredientException("Ingredient name cannot be null or empty");
         }
         String normalizedName = ingredientName.trim().toLowerCase();
-        Ingredient ingredient = getIngredientRefreshIfNeeded(normalizedName);
-        if (ingredient != null) {
-            return ingredient;
-        } else {
-            Ingredient newIngredient = new Ingredient();
-            newIngredient.setName(normalizedName);
-            Ingredient savedIngredient = ingredientRepository.save(newIngredient);
-            // Update caches
-            ingredientCache.put(savedIngredient.getId(), savedIngredient);
-            ingredientNameCache.put(normalizedName, savedIngredient);
-            lastIdOnLoad = Math.max(lastIdOnLoad, savedIngredient.getId());
-            countOnLoad++;
-            return savedIngredient;
+        long id = dictionary.idOf(normalizedName);
+        if (id != IngredientDictionary.NOT_FOUND) {
+            hits.increment();
+            return toIngredient(id, dictionary.canonicalName(normalizedName));
         }
+        misses.increment();
+        Long insertedId = ingredientJdbcRepository.upsertIngredients(List.of(normalizedName)).get(normalizedName);
+        if (insertedId == null) {
+            throw new IngredientException("Failed to insert ingredient: " + normalizedName);
+        }
+        remember(Map.of(normalizedName, insertedId));
+        return toIngredient(insertedId, normalizedName);
     }
 
-    private Ingredient getIngredientRefreshIfNeeded(String name) {
-        if (name == null) {
-            throw new IngredientException("Ingredient name cannot be null");
-        }
-        boolean refreshed = false;
-        Ingredient ingredient = ingredientNameCache.get(name);
-        if (ingredient == null) {
-            refreshed = refreshCacheIfNeeded();
+    /**
+     * Resolves many ingredient names at once, inserting the unknown ones with a single upsert.
+     *
+     * @param normalizedNames trimmed, lower case ingredient names
+     * @return the id of every requested name
+     */
+    public Map<String, Long> getIngredientIdsElseInsert(Collection<String> normalizedNames) {
+        Map<String, Long> ids = new HashMap<>(normalizedNames.size() * 2);
+        List<String> unknown = new ArrayList<>();
+        for (String name : normalizedNames) {
+            long id = dictionary.idOf(name);
+            if (id != IngredientDictionary.NOT_FOUND) {
+                ids.put(name, id);
+            } else {
+                unknown.add(name);
+            }
         }
-        if (refreshed) {
-            ingredient = ingredientNameCache.get(name);
+        hits.add(ids.size());
+        misses.add(unknown.size());
+        if (!unknown.isEmpty()) {
+            Map<String, Long> inserted = ingredientJdbcRepository.upsertIngredients(unknown);
+            remember(inserted);
+            ids.putAll(inserted);
         }
-        return ingredient;
+        return ids;
     }
 
     public String getIngredientNameById(Long ingredientId) {
         if (ingredientId == null) {
             throw new IngredientException("Ingredient ID cannot be null");
         }
-        boolean refreshed = false;
-        Ingredient ingredient = ingredientCache.get(ingredientId);
-        if (ingredient == null) {
-            refreshed = refreshCacheIfNeeded();
+        String name = dictionary.nameOf(ingredientId);
+        if (name == null && (!refreshed || clock.getAsLong() - lastRefreshNanos >= minRefreshIntervalNanos)) {
+            refresh();
+            name = dictionary.nameOf(ingredientId);
         }
-        if (refreshed) {
-            ingredient = ingredientCache.get(ingredientId);
+        if (name == null) {
+            misses.increment();
+            // Committed below the refresh mark, or not there at all
+            return ingredientRepository.findById(ingredientId)
+                    .map(ingredient -> dictionary.put(ingredient.getId(), ingredient.getName()))
+                    .orElse(null);
         }
-        return ingredient != null ? ingredient.getName() : null;
+        hits.increment();
+        return name;
     }
 
     public String getIngredientNameByName(String ingredientName) {
         if (ingredientName == null) {
             throw new IngredientException("Ingredient name cannot be null");
         }
-        Ingredient ingredient = ingredientNameCache.get(ingredientName.toLowerCase());
-        if (ingredient != null) {
-            return ingredient.getName();
+        return dictionary.canonicalName(ingredientName.toLowerCase());
+    }
+
+    double hitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 1.0 : (double) hitCount / total;
+    }
+
+    // Rows inserted inside a caller's transaction only become real on commit
+    private void remember(Map<String, Long> ids) {
+        ids.forEach((name, id) -> typeaheadService.ingredientSaved(id, name));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach((name, id) -> dictionary.put(id, name));
+                }
+            });
         } else {
-            return null;
+            ids.forEach((name, id) -> dictionary.put(id, name));
         }
     }
+
+    private static Ingredient toIngredient(long id, String name) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setId(id);
+        ingredient.setName(name);
+        return ingredient;
+    }
 }
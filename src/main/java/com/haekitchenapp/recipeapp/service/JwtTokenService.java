@@ -1,8 +1,11 @@
 package com.haekitchenapp.recipeapp.service;
 
+import com.haekitchenapp.recipeapp.security.AuthenticatedUser;
 import com.haekitchenapp.recipeapp.security.JwtUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -14,6 +17,10 @@ public class JwtTokenService {
     private final UserService userService;
 
     public Long getUserIdFromRequest(HttpServletRequest request) {
+        Long userId = getCurrentUserId();
+        if (userId != null) {
+            return userId;
+        }
         String jwt = parseJwtFromRequest(request);
         if (jwt != null) {
             return jwtUtils.getUserIdFromJwtToken(jwt);
@@ -21,6 +28,18 @@ public class JwtTokenService {
         return null;
     }
 
+    /**
+     * The user authenticated for the request on this thread, or null outside a request or for anonymous requests.
+     */
+    public Long getCurrentUserId() {
+        // Set by AuthTokenFilter for this request, no need to parse the token again
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getUserId();
+        }
+        return null;
+    }
+
     private String parseJwtFromRequest(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
         if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
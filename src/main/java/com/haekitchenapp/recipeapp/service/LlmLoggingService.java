@@ -3,7 +3,11 @@ package com.haekitchenapp.recipeapp.service;
 import com.haekitchenapp.recipeapp.entity.LlmQueryLog;
 import com.haekitchenapp.recipeapp.model.request.togetherAi.RoleContent;
 import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmResponse;
-import com.haekitchenapp.recipeapp.repository.LlmQueryLogRepository;
+import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmUsage;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmBudgetService;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmFeature;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmProvider;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmUsageMetrics;
 import com.openai.models.chat.completions.ChatCompletion;
 import com.openai.models.completions.CompletionUsage;
 import lombok.RequiredArgsConstructor;
@@ -18,18 +22,22 @@ import java.util.List;
 @RequiredArgsConstructor
 public class LlmLoggingService {
 
-    private final LlmQueryLogRepository llmQueryLogRepository;
-    private final LlmPricingService llmPricingService;
+    private final LlmQueryLogWriter llmQueryLogWriter;
+    private final LlmUsageMetrics llmUsageMetrics;
+    private final LlmBudgetService llmBudgetService;
 
     /**
-     * Saves a log of an LLM query to the database and calculates pricing
+     * Queues a log of an LLM query to be priced and saved to the database
      *
      * @param model The model used for the query
      * @param systemPrompt The system prompt used
      * @param userPrompt The user prompt used
      * @param completion The completion response from the LLM
+     * @param feature What the query was made for
+     * @param userId The user the query was made for, charged against their LLM budget, or null
      */
-    public void saveQueryLog(String model, String systemPrompt, String userPrompt, ChatCompletion completion) {
+    public void saveQueryLog(String model, String systemPrompt, String userPrompt, ChatCompletion completion,
+                             LlmFeature feature, Long userId) {
         try {
             String text = completion.choices().isEmpty() ? "" :
                     completion.choices().get(0).message().content().orElse("");
@@ -50,6 +58,8 @@ public class LlmLoggingService {
             } else {
                 log.warn("No usage info in completion response");
             }
+            llmUsageMetrics.record(LlmProvider.OPENAI, model, feature, promptTokens, completionTokens, reasoningTokens);
+            llmBudgetService.charge(userId, model, promptTokens, completionTokens, reasoningTokens);
 
             // Create and save the LlmQueryLog with the correct constructor signature
             LlmQueryLog queryLog = new LlmQueryLog(
@@ -66,32 +76,31 @@ public class LlmLoggingService {
                     0.0,                  // outputCost
                     0.0                   // totalCost
             );
+            queryLog.setUserId(userId);
 
-            // Save the log to get an ID
-            LlmQueryLog savedLog = llmQueryLogRepository.save(queryLog);
+            // Priced and inserted in the background
+            llmQueryLogWriter.submit(queryLog);
 
-            log.info("Saved LLM query log with ID: {}", savedLog.getId());
-
-            // Calculate and update the pricing information
-            llmPricingService.calculateAndUpdateQueryPrice(savedLog.getId());
-
-            log.debug("Saved query log with ID: {} and calculated pricing", savedLog.getId());
+            log.debug("Queued LLM query log with ID: {}", queryLog.getId());
         } catch (Exception e) {
             log.warn("Failed to save LLM log: {}", e.getMessage(), e);
         }
     }
 
     /**
-     * Saves a log of an LLM query to the database and calculates pricing
+     * Queues a log of an LLM query to be priced and saved to the database
      *
      * @param model The model used for the query
      * @param systemPrompt The system prompt used
      * @param messages The list of role content messages
      * @param completion The completion response from the LLM
+     * @param feature What the query was made for
+     * @param userId The user the query was made for, charged against their LLM budget, or null
      */
-    public void saveQueryLog(String model, String systemPrompt, List<RoleContent> messages, ChatCompletion completion) {
+    public void saveQueryLog(String model, String systemPrompt, List<RoleContent> messages, ChatCompletion completion,
+                             LlmFeature feature, Long userId) {
         String userPrompt = extractUserPrompt(messages);
-        saveQueryLog(model, systemPrompt, userPrompt, completion);
+        saveQueryLog(model, systemPrompt, userPrompt, completion, feature, userId);
     }
 
     /**
@@ -106,14 +115,17 @@ public class LlmLoggingService {
     }
 
     /**
-     * Saves a log of a Together AI LLM query to the database and calculates pricing
+     * Queues a log of a Together AI LLM query to be priced and saved to the database
      *
      * @param model The model used for the query
      * @param prompt The prompt used (will be treated as user prompt)
      * @param response The LlmResponse from Together AI
      * @param recipeId The associated recipe ID
+     * @param feature What the query was made for
      */
-    public void saveTogetherAiQueryLog(String model, String prompt, LlmResponse response, Long recipeId) {
+    public void saveTogetherAiQueryLog(String model, String prompt, LlmResponse response, Long recipeId,
+                                       LlmFeature feature) {
+        recordTogetherAiUsage(model, feature, response);
         try {
             String llmResponse = response.getChoices() == null ?
                     Arrays.toString(response.getData().get(0).getEmbedding()) :
@@ -141,17 +153,31 @@ public class LlmLoggingService {
                     recipeId                                         // recipeId
             );
 
-            // Save the log to get an ID
-            LlmQueryLog savedLog = llmQueryLogRepository.save(queryLog);
-
-            log.info("Saved Together AI LLM query log with ID: {}", savedLog.getId());
+            // Priced and inserted in the background
+            llmQueryLogWriter.submit(queryLog);
 
-            // Calculate and update the pricing information
-            llmPricingService.calculateAndUpdateQueryPrice(savedLog.getId());
-
-            log.debug("Saved Together AI query log with ID: {} and calculated pricing", savedLog.getId());
+            log.debug("Queued Together AI LLM query log with ID: {}", queryLog.getId());
         } catch (Exception e) {
             log.warn("Failed to save Together AI LLM log: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * Records the tokens and cost of a Together AI call without logging the query, for calls whose prompt is not kept
+     *
+     * @param model The model used for the query
+     * @param feature What the query was made for
+     * @param response The LlmResponse from Together AI
+     */
+    public void recordTogetherAiUsage(String model, LlmFeature feature, LlmResponse response) {
+        LlmUsage usage = response.getUsage();
+        if (usage == null) {
+            log.warn("No usage info in Together AI response {}", response.getId());
+            return;
+        }
+        llmUsageMetrics.record(LlmProvider.TOGETHER, model, feature,
+                usage.getPromptTokens() != null ? usage.getPromptTokens() : 0L,
+                usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0L,
+                0L);
+    }
 }
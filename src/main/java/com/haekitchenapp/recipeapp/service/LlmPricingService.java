@@ -1,5 +1,7 @@
 package com.haekitchenapp.recipeapp.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.haekitchenapp.recipeapp.entity.LlmModelPrice;
 import com.haekitchenapp.recipeapp.entity.LlmQueryLog;
 import com.haekitchenapp.recipeapp.repository.LlmModelPriceRepository;
@@ -9,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.Optional;
 
 @Service
@@ -19,6 +22,33 @@ public class LlmPricingService {
     private final LlmModelPriceRepository modelPriceRepository;
     private final LlmQueryLogRepository queryLogRepository;
 
+    // Prices change rarely; a missing price is cached too so unpriced models do not query on every log
+    private final Cache<String, Optional<LlmModelPrice>> prices = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+
+    /**
+     * Sets the costs of a query log from the cached price of its model, without touching the database unless the
+     * price is not cached.
+     *
+     * @return whether a price was found for the model
+     */
+    public boolean applyCosts(LlmQueryLog queryLog) {
+        Optional<LlmModelPrice> modelPrice = findPrice(queryLog.getModel());
+        if (modelPrice.isEmpty()) {
+            log.debug("No price found for model family: {}", queryLog.getModel());
+            return false;
+        }
+        calculateCosts(queryLog, modelPrice.get());
+        return true;
+    }
+
+    public Optional<LlmModelPrice> findPrice(String modelFamily) {
+        if (modelFamily == null) return Optional.empty();
+        return prices.get(modelFamily, modelPriceRepository::findById);
+    }
+
     /**
      * Calculates the cost for a given LLM query log and updates the record in the database
      *
@@ -41,7 +71,7 @@ public class LlmPricingService {
         String modelFamily = queryLog.getModel();
 
         // Find the matching model price
-        Optional<LlmModelPrice> modelPrice = modelPriceRepository.findById(modelFamily);
+        Optional<LlmModelPrice> modelPrice = findPrice(modelFamily);
 
         if (modelPrice.isEmpty()) {
             log.warn("No price found for model family: {}", modelFamily);
@@ -55,6 +85,15 @@ public class LlmPricingService {
         return Optional.of(queryLogRepository.save(queryLog));
     }
 
+    /**
+     * Cost of a call from the cached price of its model.
+     *
+     * @return empty if the model has no price
+     */
+    public Optional<Cost> costOf(String modelFamily, long promptTokens, long responseTokens, long reasoningTokens) {
+        return findPrice(modelFamily).map(price -> costOf(price, promptTokens, responseTokens, reasoningTokens));
+    }
+
     /**
      * Helper method to calculate the costs for a query log based on a model price
      *
@@ -62,11 +101,20 @@ public class LlmPricingService {
      * @param modelPrice The model price to use for calculation
      */
     private void calculateCosts(LlmQueryLog queryLog, LlmModelPrice modelPrice) {
+        Cost cost = costOf(modelPrice, queryLog.getPromptTokens(), queryLog.getResponseTokens(),
+                queryLog.getReasoningTokens() != null ? queryLog.getReasoningTokens() : 0);
+
+        // Update the query log
+        queryLog.setInputCost(cost.inputCost());
+        queryLog.setOutputCost(cost.outputCost());
+        queryLog.setTotalCost(cost.totalCost());
+    }
+
+    private static Cost costOf(LlmModelPrice modelPrice, long promptTokens, long responseTokens, long reasoningTokens) {
         // Convert tokens to millions of tokens
-        double promptTokensInMillions = queryLog.getPromptTokens() / 1000000.0;
-        double responseTokensInMillions = queryLog.getResponseTokens() / 1000000.0;
-        double reasoningTokensInMillions = queryLog.getReasoningTokens() != null ?
-                                          queryLog.getReasoningTokens() / 1000000.0 : 0.0;
+        double promptTokensInMillions = promptTokens / 1000000.0;
+        double responseTokensInMillions = responseTokens / 1000000.0;
+        double reasoningTokensInMillions = reasoningTokens / 1000000.0;
 
         // Calculate input cost (prompt + reasoning tokens)
         double inputCost = (promptTokensInMillions + reasoningTokensInMillions) *
@@ -75,13 +123,16 @@ public class LlmPricingService {
         // Calculate output cost
         double outputCost = responseTokensInMillions * modelPrice.getOutputPerMtokUsd();
 
-        // Calculate total cost
-        double totalCost = inputCost + outputCost;
-
-        // Update the query log
-        queryLog.setInputCost(inputCost);
-        queryLog.setOutputCost(outputCost);
-        queryLog.setTotalCost(totalCost);
+        return new Cost(inputCost, outputCost);
     }
 
+    /**
+     * Cost of one call in USD.
+     */
+    public record Cost(double inputCost, double outputCost) {
+
+        public double totalCost() {
+            return inputCost + outputCost;
+        }
+    }
 }
@@ -0,0 +1,198 @@
+package com.haekitchenapp.recipeapp.service;
+
+import com.haekitchenapp.recipeapp.entity.LlmQueryLog;
+import com.haekitchenapp.recipeapp.repository.LlmQueryLogJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link LlmQueryLog}s off the request thread. Logs wait in a bounded queue; one background thread prices
+ * them from {@link LlmPricingService}'s cached model prices and inserts them in JDBC batches, so each log is a single
+ * insert and an LLM call never waits on the database.
+ * <p>
+ * When the queue is full a submit waits up to {@code llm-log.offer-timeout-ms} (0 drops at once) and then drops the
+ * log, counted in {@code llm.query.log.dropped{reason=queue_full}}. Logs in a batch that fails to insert are counted
+ * with {@code reason=write_failed}. On shutdown the writer stops after the web server, so in-flight requests can still
+ * log, and drains the queue for up to {@code llm-log.shutdown-timeout-ms}.
+ */
+@Slf4j
+@Service
+public class LlmQueryLogWriter implements SmartLifecycle {
+
+    private final LlmQueryLogJdbcRepository llmQueryLogJdbcRepository;
+    private final LlmPricingService llmPricingService;
+    private final BlockingQueue<LlmQueryLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final Counter written;
+    private final Counter droppedQueueFull;
+    private final Counter droppedWriteFailed;
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private Thread thread;
+
+    public LlmQueryLogWriter(LlmQueryLogJdbcRepository llmQueryLogJdbcRepository,
+                             LlmPricingService llmPricingService,
+                             MeterRegistry meterRegistry,
+                             @Value("${llm-log.queue-capacity:10000}") int queueCapacity,
+                             @Value("${llm-log.batch-size:200}") int batchSize,
+                             @Value("${llm-log.flush-interval-ms:1000}") long flushIntervalMs,
+                             @Value("${llm-log.offer-timeout-ms:0}") long offerTimeoutMs,
+                             @Value("${llm-log.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.llmQueryLogJdbcRepository = llmQueryLogJdbcRepository;
+        this.llmPricingService = llmPricingService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.written = Counter.builder("llm.query.log.written")
+                .description("LLM query logs inserted")
+                .register(meterRegistry);
+        this.droppedQueueFull = Counter.builder("llm.query.log.dropped")
+                .tag("reason", "queue_full")
+                .description("LLM query logs dropped")
+                .register(meterRegistry);
+        this.droppedWriteFailed = Counter.builder("llm.query.log.dropped")
+                .tag("reason", "write_failed")
+                .description("LLM query logs dropped")
+                .register(meterRegistry);
+        Gauge.builder("llm.query.log.queue.size", queue, BlockingQueue::size)
+                .description("LLM query logs waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a log for writing.
+     *
+     * @return false if the log was dropped because the queue stayed full
+     */
+    public boolean submit(LlmQueryLog queryLog) {
+        if (queryLog.getCreatedAt() == null) {
+            queryLog.setCreatedAt(LocalDateTime.now());
+        }
+        if (stopped) {
+            // Nothing drains the queue any more, write on the caller's thread
+            write(List.of(queryLog));
+            return true;
+        }
+        boolean queued;
+        try {
+            queued = queue.offer(queryLog, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            droppedQueueFull.increment();
+            log.warn("LLM query log queue is full, dropped log {}", queryLog.getId());
+        }
+        return queued;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        stopped = false;
+        thread = new Thread(this::drain, "llm-query-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread writer;
+        synchronized (this) {
+            running = false;
+            writer = thread;
+        }
+        if (writer != null) {
+            try {
+                writer.join(shutdownTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stopped = true;
+        if (writer != null && writer.isAlive()) {
+            log.warn("Stopped with {} LLM query logs not written", queue.size());
+            return;
+        }
+        // Logs submitted after the writer's last poll but before stopped was set
+        List<LlmQueryLog> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server (phase {@code DEFAULT_PHASE - 2048}) so requests finishing during a graceful
+     * shutdown are still logged through the queue.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<LlmQueryLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            LlmQueryLog first;
+            try {
+                first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    void write(List<LlmQueryLog> batch) {
+        for (LlmQueryLog queryLog : batch) {
+            try {
+                llmPricingService.applyCosts(queryLog);
+            } catch (RuntimeException e) {
+                log.warn("Failed to price LLM query log {}: {}", queryLog.getId(), e.getMessage());
+            }
+        }
+        try {
+            llmQueryLogJdbcRepository.insertBatch(batch);
+            written.increment(batch.size());
+            log.debug("Wrote {} LLM query logs", batch.size());
+        } catch (RuntimeException e) {
+            droppedWriteFailed.increment(batch.size());
+            log.warn("Failed to write {} LLM query logs: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+}
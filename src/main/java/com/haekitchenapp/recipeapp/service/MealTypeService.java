@@ -0,0 +1,22 @@
+package com.haekitchenapp.recipeapp.service;
+
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class MealTypeService {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    public Map<Short, String> getAllMealTypesMap() {
+        return referenceDataCache.mealTypes().all();
+    }
+
+    public String getMealTypeNameById(Short mealTypeId) {
+        return referenceDataCache.mealTypes().name(mealTypeId).orElse("Unknown");
+    }
+}
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.haekitchenapp.recipeapp.config.api.OpenAiConfig;
 import com.haekitchenapp.recipeapp.model.request.togetherAi.RoleContent;
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAISkeleton;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmBudgetService;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmFeature;
 import com.openai.client.OpenAIClient;
 import com.openai.models.ChatModel;
 import com.openai.models.chat.completions.ChatCompletion;
@@ -31,35 +33,39 @@ public class OpenAiApi {
     private final LlmLoggingService llmLoggingService;
     private final UnitService unitService;
     private final JwtTokenService jwtTokenService;
+    private final LlmBudgetService llmBudgetService;
 
     // ---- Public API (same shape as before, now returns the SDK object) ----
 
     public ChatCompletion chat(String systemPrompt, List<RoleContent> messages) {
         ChatCompletionCreateParams params = buildParams(config.getChatModel(), systemPrompt, messages, false);
         log.info("OpenAI SDK Chat.create: model={}, messages={}", config.getChatModel(), messages.size());
+        Long userId = checkUserBudget();
         ChatCompletion completion = createCompletion(params);
         // Save log with separate system and user prompts
-        llmLoggingService.saveQueryLog(config.getChatModel(), systemPrompt, messages, completion);
+        llmLoggingService.saveQueryLog(config.getChatModel(), systemPrompt, messages, completion, LlmFeature.CHAT, userId);
         return completion;
     }
 
     public RecipeAISkeleton buildRecipe(String systemPrompt, List<RoleContent> messages) throws JsonProcessingException {
         ChatCompletionCreateParams params = buildParams(config.getChatModel(), systemPrompt, messages, true);
         log.info("OpenAI SDK Chat.create: model={}, messages={}", config.getChatModel(), messages.size());
+        Long userId = checkUserBudget();
         ChatCompletion completion = createCompletion(params);
         log.info("Completion received: {}", completion);
         // Save log with separate system and user prompts
-        llmLoggingService.saveQueryLog(config.getChatModel(), systemPrompt, messages, completion);
+        llmLoggingService.saveQueryLog(config.getChatModel(), systemPrompt, messages, completion, LlmFeature.BUILD_RECIPE, userId);
         return getRecipeFromCompletion(completion);
     }
 
     public RecipeAISkeleton correctRecipe(String systemPrompt, List<RoleContent> messages) throws JsonProcessingException {
         ChatCompletionCreateParams params = buildParams(config.getChatModel(), systemPrompt, messages, true);
         log.info("OpenAI SDK Chat.create: model={}, messages={}", config.getChatModel(), messages.size());
+        Long userId = checkUserBudget();
         ChatCompletion completion = createCompletion(params);
         log.info("Completion received: {}", completion);
         // Save log with separate system and user prompts
-        llmLoggingService.saveQueryLog(config.getChatModel(), systemPrompt, messages, completion);
+        llmLoggingService.saveQueryLog(config.getChatModel(), systemPrompt, messages, completion, LlmFeature.CORRECT_RECIPE, userId);
         return getRecipeFromCompletion(completion);
     }
 
@@ -107,23 +113,36 @@ public class OpenAiApi {
     public ChatCompletion chat(List<RoleContent> messages) {
         ChatCompletionCreateParams params = buildParams(config.getChatModel(), null, messages, false);
         log.info("OpenAI SDK Chat.create: model={}, messages={}", config.getChatModel(), messages.size());
+        Long userId = checkUserBudget();
         ChatCompletion completion = createCompletion(params);
         // Use the version that takes systemPrompt and messages directly
-        llmLoggingService.saveQueryLog(config.getChatModel(), null, messages, completion);
+        llmLoggingService.saveQueryLog(config.getChatModel(), null, messages, completion, LlmFeature.CHAT, userId);
         return completion;
     }
 
     public ChatCompletion chatWithModel(String model, String systemPrompt, List<RoleContent> messages) {
         ChatCompletionCreateParams params = buildParams(model, systemPrompt, messages, false);
         log.info("OpenAI SDK Chat.create: model={}, messages={}", model, messages.size());
+        Long userId = checkUserBudget();
         ChatCompletion completion = createCompletion(params);
         // Use the version that takes systemPrompt and messages directly
-        llmLoggingService.saveQueryLog(model, systemPrompt, messages, completion);
+        llmLoggingService.saveQueryLog(model, systemPrompt, messages, completion, LlmFeature.CHAT, userId);
         return completion;
     }
 
     // ---- Builders / helpers ----
 
+    /**
+     * Rejects the call before it reaches OpenAI when the user making the request has used up an LLM budget.
+     *
+     * @return the user to charge the call to, or null outside a user request
+     */
+    private Long checkUserBudget() {
+        Long userId = jwtTokenService.getCurrentUserId();
+        llmBudgetService.checkBudget(userId);
+        return userId;
+    }
+
     private ChatCompletionCreateParams buildParams(String modelId, String systemPrompt, List<RoleContent> roleContents, boolean useRecipeResponseFormat) {
         log.info("Building ChatCompletionCreateParams for model: {}, systemPrompt: {}, messages: {}",
                 modelId, (systemPrompt != null ? "[present]" : "[null]"), roleContents.size());
@@ -0,0 +1,125 @@
+package com.haekitchenapp.recipeapp.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.haekitchenapp.recipeapp.config.api.TogetherAiConfig;
+import com.haekitchenapp.recipeapp.exception.EmbedFailureException;
+import com.haekitchenapp.recipeapp.utility.VectorUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Size-bounded cache of search query embeddings in front of {@link TogetherAiApi#embed(String)}.
+ * Entries are keyed by the normalized query text and the embed model, and stored as {@code float[]}.
+ * The cache holds futures, so concurrent async lookups of the same query share one Together AI call.
+ * Hit/miss/eviction counts are published to Micrometer as {@code cache.*{cache=query-embeddings}}.
+ */
+@Service
+@Slf4j
+public class QueryEmbeddingCache {
+
+    static final String CACHE_NAME = "query-embeddings";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final TogetherAiApi togetherAiApi;
+    private final TogetherAiConfig config;
+    private final AsyncCache<EmbeddingKey, float[]> cache;
+
+    public QueryEmbeddingCache(TogetherAiApi togetherAiApi, TogetherAiConfig config, MeterRegistry meterRegistry) {
+        this.togetherAiApi = togetherAiApi;
+        this.config = config;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getEmbedCache().getMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(config.getEmbedCache().getTtlMinutes()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    /**
+     * Returns the embedding for a search query, calling Together AI only on a cache miss.
+     *
+     * @param query the raw query text
+     * @return the embedding
+     * @throws IllegalArgumentException if the query is null or blank
+     * @throws EmbedFailureException if Together AI returns no embedding
+     */
+    public float[] getEmbedding(String query) {
+        return cache.synchronous().get(key(query), key -> load(key.text()));
+    }
+
+    /**
+     * Non-blocking variant of {@link #getEmbedding(String)}. A miss is loaded through
+     * {@link TogetherAiApi#embedAsync(String)} and completes on the Reactor Netty thread that received the response.
+     *
+     * @param query the raw query text
+     * @return the embedding, or an error signal with {@link EmbedFailureException} if Together AI returns no embedding
+     * @throws IllegalArgumentException if the query is null or blank
+     */
+    public Mono<float[]> getEmbeddingAsync(String query) {
+        EmbeddingKey embeddingKey = key(query);
+        // suppressCancel: the future is shared with other callers waiting on the same query
+        return Mono.fromFuture(() -> cache.get(embeddingKey, (key, executor) -> loadAsync(key.text()).toFuture()), true);
+    }
+
+    private EmbeddingKey key(String query) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query must not be null or empty");
+        }
+        return new EmbeddingKey(normalize(query), config.getEmbedModel());
+    }
+
+    private float[] load(String normalizedQuery) {
+        log.debug("Embedding cache miss for query: {}", normalizedQuery);
+        return requireEmbedding(VectorUtils.toFloatArray(togetherAiApi.embed(normalizedQuery)), normalizedQuery);
+    }
+
+    private Mono<float[]> loadAsync(String normalizedQuery) {
+        log.debug("Embedding cache miss for query: {}", normalizedQuery);
+        return togetherAiApi.embedAsync(normalizedQuery)
+                .map(VectorUtils::toFloatArray)
+                .defaultIfEmpty(new float[0])
+                .map(embedding -> requireEmbedding(embedding, normalizedQuery));
+    }
+
+    private static float[] requireEmbedding(float[] embedding, String normalizedQuery) {
+        if (embedding.length == 0) {
+            log.warn("No embedding returned for query: {}", normalizedQuery);
+            throw new EmbedFailureException("No embedding found for query: " + normalizedQuery);
+        }
+        return embedding;
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    void cleanUp() {
+        cache.synchronous().cleanUp();
+    }
+
+    /**
+     * Normalizes query text so that trivially different spellings share a cache entry:
+     * Unicode NFKC, lower case, trimmed, and with runs of whitespace collapsed to a single space.
+     */
+    static String normalize(String query) {
+        String nfkc = Normalizer.normalize(query, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(nfkc.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    record EmbeddingKey(String text, String model) {
+    }
+}
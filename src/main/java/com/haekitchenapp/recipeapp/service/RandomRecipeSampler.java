@@ -0,0 +1,209 @@
+package com.haekitchenapp.recipeapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleDto;
+import com.haekitchenapp.recipeapp.repository.RecipeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Uniformly random recipe titles. Every recipe id is held in one {@code long[]} that is reloaded in the background,
+ * so a sample of {@code n} costs {@code n} random picks plus one primary-key lookup for the titles, whatever the
+ * size of the table. Recipes created since the last reload are not sampled until the next one; deleted recipes
+ * are dropped by the title lookup.
+ * <p>
+ * Each user gets no id again until {@code recipe-sampler.no-repeat-window} others have been served to them, unless
+ * the window covers nearly the whole table.
+ */
+@Service
+@Slf4j
+public class RandomRecipeSampler {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final RecipeRepository recipeRepository;
+    private final int loadFetchSize;
+    private final int noRepeatWindow;
+    private final Cache<Long, RecentIds> recentByUser;
+
+    private volatile long[] ids;
+
+    public RandomRecipeSampler(RecipeRepository recipeRepository,
+                               @Value("${recipe-sampler.load-fetch-size:10000}") int loadFetchSize,
+                               @Value("${recipe-sampler.no-repeat-window:500}") int noRepeatWindow,
+                               @Value("${recipe-sampler.max-tracked-users:10000}") int maxTrackedUsers) {
+        this.recipeRepository = recipeRepository;
+        this.loadFetchSize = loadFetchSize;
+        this.noRepeatWindow = noRepeatWindow;
+        this.recentByUser = Caffeine.newBuilder()
+                .maximumSize(maxTrackedUsers)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Reloads every recipe id. The previous ids keep being sampled until the new ones are complete.
+     *
+     * @return the number of ids loaded
+     */
+    @Scheduled(fixedDelayString = "${recipe-sampler.refresh-interval-ms:600000}",
+            initialDelayString = "${recipe-sampler.refresh-interval-ms:600000}")
+    public synchronized int refresh() {
+        long startTime = System.currentTimeMillis();
+        long[][] buffer = {new long[1024]};
+        int[] size = {0};
+        try {
+            recipeRepository.streamIds(loadFetchSize, id -> {
+                if (size[0] == buffer[0].length) {
+                    buffer[0] = Arrays.copyOf(buffer[0], buffer[0].length * 2);
+                }
+                buffer[0][size[0]++] = id;
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to load recipe ids for sampling: {}", e.getMessage(), e);
+            if (ids == null) {
+                ids = EMPTY;
+            }
+            return 0;
+        }
+        ids = Arrays.copyOf(buffer[0], size[0]);
+        log.info("Loaded {} recipe ids for sampling in {} ms", size[0], System.currentTimeMillis() - startTime);
+        return size[0];
+    }
+
+    /**
+     * @param count  titles wanted
+     * @param userId the user the titles are for, or null for no repeat window
+     * @return up to {@code count} distinct titles in random order
+     */
+    public List<RecipeTitleDto> sample(int count, Long userId) {
+        long[] pool = ids;
+        if (pool == null) {
+            pool = loadIfAbsent();
+        }
+        if (pool.length == 0 || count <= 0) {
+            return List.of();
+        }
+        RecentIds recent = userId == null ? null : recentByUser.get(userId, key -> new RecentIds(noRepeatWindow));
+        Set<Long> picked = pick(pool, Math.min(count, pool.length), recent);
+
+        Map<Long, RecipeTitleDto> titles = new HashMap<>();
+        for (RecipeTitleDto title : recipeRepository.findTitlesByIdIn(picked)) {
+            titles.put(title.getId(), title);
+        }
+        List<RecipeTitleDto> result = new ArrayList<>(picked.size());
+        for (Long id : picked) {
+            RecipeTitleDto title = titles.get(id);
+            if (title != null) {
+                result.add(title);
+            }
+        }
+        if (recent != null) {
+            recent.addAll(picked);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the ids unless another thread, such as the startup load, did while this one waited, so requests that
+     * arrive before the first load complete share it instead of each scanning the table in turn.
+     */
+    private synchronized long[] loadIfAbsent() {
+        if (ids == null) {
+            refresh();
+        }
+        return ids;
+    }
+
+    /**
+     * Draws distinct random ids, skipping the user's recent ones. Skips are rare while the window is small next to
+     * the table, so this stays O(count); when it is not, the window is dropped rather than returning too few.
+     */
+    static Set<Long> pick(long[] pool, int count, RecentIds recent) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Long> picked = new LinkedHashSet<>();
+        int maxAttempts = 8 * count + 32;
+        for (int attempt = 0; picked.size() < count && attempt < maxAttempts; attempt++) {
+            long id = pool[random.nextInt(pool.length)];
+            if (recent == null || !recent.contains(id)) {
+                picked.add(id);
+            }
+        }
+        if (picked.size() < count) {
+            if (recent != null) {
+                recent.clear();
+            }
+            // Partial Fisher-Yates over a copy, only reached for small tables or tiny windows
+            long[] copy = pool.clone();
+            for (int i = 0; i < copy.length && picked.size() < count; i++) {
+                int j = i + random.nextInt(copy.length - i);
+                long swap = copy[i];
+                copy[i] = copy[j];
+                copy[j] = swap;
+                picked.add(copy[i]);
+            }
+        }
+        return picked;
+    }
+
+    int size() {
+        long[] pool = ids;
+        return pool == null ? 0 : pool.length;
+    }
+
+    /**
+     * The last {@code capacity} ids served to one user, oldest evicted first.
+     */
+    static final class RecentIds {
+
+        private final long[] ring;
+        private final Set<Long> members;
+        private int next;
+        private int size;
+
+        RecentIds(int capacity) {
+            this.ring = new long[Math.max(capacity, 0)];
+            this.members = new HashSet<>();
+        }
+
+        synchronized boolean contains(long id) {
+            return members.contains(id);
+        }
+
+        synchronized void addAll(Collection<Long> ids) {
+            if (ring.length == 0) return;
+            for (Long id : ids) {
+                if (!members.add(id)) continue;
+                if (size == ring.length) {
+                    members.remove(ring[next]);
+                } else {
+                    size++;
+                }
+                ring[next] = id;
+                next = (next + 1) % ring.length;
+            }
+        }
+
+        synchronized void clear() {
+            members.clear();
+            next = 0;
+            size = 0;
+        }
+    }
+}
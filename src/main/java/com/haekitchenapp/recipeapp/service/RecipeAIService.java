@@ -1,21 +1,23 @@
 package com.haekitchenapp.recipeapp.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.haekitchenapp.recipeapp.exception.EmbedFailureException;
+import com.haekitchenapp.recipeapp.config.search.RecipeSearchConfig;
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeSimilarityRequest;
 import com.haekitchenapp.recipeapp.model.response.ApiResponse;
 import com.haekitchenapp.recipeapp.model.response.recipe.*;
 import com.haekitchenapp.recipeapp.repository.RecipeRepository;
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom;
+import com.haekitchenapp.recipeapp.service.search.IvfflatProbesPolicy;
+import com.haekitchenapp.recipeapp.service.search.RecipeRanker;
+import com.haekitchenapp.recipeapp.service.search.RecipeVectorIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,37 +27,30 @@ public class RecipeAIService {
 
     private final RecipeRepository recipeRepository;
     private final RecipeService recipeService;
-    private final TogetherAiApi togetherAiApi;
+    private final QueryEmbeddingCache queryEmbeddingCache;
     private final OpenAiApi openAiApi;
+    private final RecipeSearchConfig recipeSearchConfig;
+    private final RecipeVectorIndex recipeVectorIndex;
+    private final IvfflatProbesPolicy ivfflatProbesPolicy;
+    private final RecipeRanker recipeRanker;
+    private final RandomRecipeSampler randomRecipeSampler;
 
 
-    public ResponseEntity<ApiResponse<List<RecipeTitleDto>>> generateRandomRecipeTitles(Integer numberOfTitles) {
+    public ResponseEntity<ApiResponse<List<RecipeTitleDto>>> generateRandomRecipeTitles(Integer numberOfTitles, Long userId) {
         if (numberOfTitles == null || numberOfTitles <= 0) {
             numberOfTitles = 10; // Default to 10 titles if not specified or invalid
         } else if (numberOfTitles > 50) {
-            numberOfTitles = 200; // Cap at 50 titles to avoid excessive load
+            numberOfTitles = 50; // Cap at 50 titles to avoid excessive load
         }
-        return ResponseEntity.ok(ApiResponse.success("RecipeStage retrieved successfully", getRandomRecipeTitles(numberOfTitles)));
+        return ResponseEntity.ok(ApiResponse.success("RecipeStage retrieved successfully", getRandomRecipeTitles(numberOfTitles, userId)));
     }
 
-    public List<RecipeTitleDto> getRandomRecipeTitles(int numberOfTitles) {
-        log.debug("Getting {} random recipe titles from database", numberOfTitles);
-
-        // Get a larger set and then randomly select from them
-        Pageable pageable = PageRequest.of(0, numberOfTitles * 3); // Get 3x more to have variety
-        List<RecipeTitleDto> recipeTitles = recipeRepository.findTitlesByTitleContainingIgnoreCase("", pageable);
-
-        if (recipeTitles.isEmpty()) {
+    public List<RecipeTitleDto> getRandomRecipeTitles(int numberOfTitles, Long userId) {
+        log.debug("Sampling {} random recipe titles", numberOfTitles);
+        List<RecipeTitleDto> titles = randomRecipeSampler.sample(numberOfTitles, userId);
+        if (titles.isEmpty()) {
             log.warn("No recipes found in database");
-            return List.of();
         }
-
-        // Shuffle and take the requested number
-        Collections.shuffle(recipeTitles);
-        List<RecipeTitleDto> titles = recipeTitles.stream()
-                .limit(numberOfTitles)
-                .toList();
-
         log.debug("Successfully retrieved {} recipe titles from database", titles.size());
         return titles;
     }
@@ -81,6 +76,34 @@ public class RecipeAIService {
 
 
     public ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>> searchByAdvancedEmbeddingObject(RecipeSimilarityRequest query) {
+        AdvancedSearch search = prepareAdvancedSearch(query);
+        long startTime = System.currentTimeMillis();
+
+        // Get embedding for similarity search
+        float[] embedding = getEmbeddingForSimilaritySearch(search.embeddingQuery());
+        log.debug("Embedding generation took {} ms", System.currentTimeMillis() - startTime);
+
+        return performAdvancedEmbeddingSearch(query, embedding, search.dbLimit(), search.titleFilter(), startTime);
+    }
+
+    /**
+     * Non-blocking variant of {@link #searchByAdvancedEmbeddingObject}. The request thread is released while the
+     * query embedding is fetched; the database search and ranking then run on the bounded elastic scheduler, never
+     * on the Reactor Netty event loop.
+     */
+    public Mono<ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>>> searchByAdvancedEmbeddingObjectAsync(RecipeSimilarityRequest query) {
+        AdvancedSearch search = prepareAdvancedSearch(query);
+        long startTime = System.currentTimeMillis();
+        log.info("Getting embedding for query: {}", search.embeddingQuery());
+        return queryEmbeddingCache.getEmbeddingAsync(search.embeddingQuery())
+                .doOnNext(embedding -> log.debug("Embedding generation took {} ms", System.currentTimeMillis() - startTime))
+                .publishOn(Schedulers.boundedElastic())
+                .map(embedding -> performAdvancedEmbeddingSearch(query, embedding, search.dbLimit(), search.titleFilter(), startTime));
+    }
+
+    private record AdvancedSearch(String embeddingQuery, int dbLimit, String titleFilter) {}
+
+    private AdvancedSearch prepareAdvancedSearch(RecipeSimilarityRequest query) {
         log.debug("Searching recipes by advanced embedding with query: {}", query);
 
         if(query.isPromptBased() && query.isValidFullRequest()) {
@@ -93,37 +116,47 @@ public class RecipeAIService {
             throw new IllegalArgumentException("Limit must be greater than 0");
         }
 
-        String titleFilter = !query.isPromptBased() ? "%" + query.getTitle().trim().toLowerCase() + "%" : null;
+        boolean hasTitle = query.getTitle() != null && !query.getTitle().isBlank();
+        String titleFilter = !query.isPromptBased() && hasTitle
+                ? RecipeRepositoryCustom.containsPattern(query.getTitle().trim().toLowerCase()) : null;
         String queryString = query.isPromptBased() ? query.getPrompt() : query.toString();
         if(query.isPromptBased()) query.setExcludeIngredients("");
 
-        return performAdvancedEmbeddingSearch(query, queryString, query.getLimit() * 2,
-                titleFilter);
+        return new AdvancedSearch(queryString, query.getLimit() * 2, titleFilter);
     }
 
 
     private ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>> performAdvancedEmbeddingSearch(
-            RecipeSimilarityRequest queryRequest, String embeddingQuery, int dbLimit, String titleFilter) {
-
-        long startTime = System.currentTimeMillis();
-
-        // Get embedding for similarity search
-        long embeddingStartTime = System.currentTimeMillis();
-        String embedding = getEmbeddingStringForSimilaritySearch(embeddingQuery);
-        long embeddingEndTime = System.currentTimeMillis();
-        log.debug("Embedding generation took {} ms", embeddingEndTime - embeddingStartTime);
+            RecipeSimilarityRequest queryRequest, float[] embedding, int dbLimit, String titleFilter, long startTime) {
 
         // Find recipes by embedding similarity
-        long dbQueryStartTime = System.currentTimeMillis();
-        List<RecipeSimilarityDto> recipes = titleFilter != null ?
-                recipeRepository.findTopByCosineWithTitle(embedding, dbLimit, titleFilter).stream().map(RecipeSimilarityDto::new).toList() :
-            recipeRepository.findTopByCosine(embedding, dbLimit).stream().map(RecipeSimilarityDto::new).toList();
-
-
-        long dbQueryEndTime = System.currentTimeMillis();
-        log.debug("Database similarity query took {} ms, found {} initial recipes", dbQueryEndTime - dbQueryStartTime, recipes.size());
-
-        recipes = processSimilaritySearch(recipes, queryRequest, startTime);
+        boolean inMemory = useInMemoryIndex();
+        int probes = ivfflatProbesPolicy.initialProbes(queryRequest.getProbes());
+        RecipeRepositoryCustom.VectorFilter filter = buildVectorFilter(queryRequest, titleFilter);
+        boolean probesPinned = queryRequest.getProbes() != null;
+        List<RecipeSimilarityDto> candidates = findSimilarRecipes(embedding, dbLimit, filter, inMemory, probes, probesPinned);
+        // Details of every candidate seen so far, so an escalated round only hydrates the new ones
+        Map<Long, RecipeDetailsDto> hydrated = new HashMap<>();
+        List<RecipeSimilarityDto> ranked = rankCandidates(candidates, queryRequest, hydrated);
+
+        // Dedupe or filtering dropped candidates and left too few: over-fetch with more probes, unless the caller
+        // pinned probes. A round that dropped nothing got all the table has for its window, so more probes won't help.
+        long wanted = resultLimit(queryRequest);
+        int escalations = 0;
+        while (!inMemory && !probesPinned
+                && ranked.size() < Math.min(wanted, dbLimit) && ranked.size() < candidates.size()) {
+            OptionalInt raised = ivfflatProbesPolicy.escalate(probes, escalations++);
+            if (raised.isEmpty()) break;
+            probes = raised.getAsInt();
+            dbLimit = Math.min(dbLimit * 2, ivfflatProbesPolicy.maxCandidates());
+            log.debug("Only {} of {} candidates left after filtering, retrying with probes={} and limit={}",
+                    ranked.size(), candidates.size(), probes, dbLimit);
+            candidates = findSimilarRecipes(embedding, dbLimit, filter, false, probes, false);
+            ranked = rankCandidates(candidates, queryRequest, hydrated);
+        }
+        List<RecipeSimilarityDto> recipes = appleFinalSortingAndLimiting(ranked, wanted);
+        logTotalSearchTime(startTime);
+        log.info("Found {} recipes : {}", recipes.size(), recipes);
 
         if (recipes.isEmpty()) {
             log.warn("No recipes found with advanced embedding for query: {}", queryRequest);
@@ -134,28 +167,120 @@ public class RecipeAIService {
         return ResponseEntity.ok(ApiResponse.success("Recipes with advanced embedding retrieved successfully", recipes));
     }
 
-    private List<RecipeSimilarityDto> processSimilaritySearch(List<RecipeSimilarityDto> recipes, RecipeSimilarityRequest query,
-                                                              long startTime){
-        long limit = !query.isPromptBased() && query.getLimit() > 0 ? query.getLimit() : 20;
+    private List<RecipeSimilarityDto> findSimilarRecipes(float[] embedding, int dbLimit, RecipeRepositoryCustom.VectorFilter filter,
+                                                         boolean inMemory, int probes, boolean probesPinned) {
+        long dbQueryStartTime = System.nanoTime();
+        String titleFilter = filter.titlePattern();
+        List<RecipeSimilarityDto> recipes;
+        if (inMemory) {
+            // the in-memory index has no ingredient data, exclusions are applied while ranking
+            recipes = recipeVectorIndex.findTopByCosine(embedding, dbLimit, titleFilter);
+        } else if (filter.filtersRows()) {
+            recipes = findFilteredSimilarRecipes(embedding, dbLimit, filter, probes, probesPinned);
+        } else {
+            recipes = titleFilter != null ?
+                    recipeRepository.findTopByCosineWithTitle(embedding, dbLimit, titleFilter, probes).stream().map(RecipeSimilarityDto::new).toList() :
+                recipeRepository.findTopByCosine(embedding, dbLimit, probes).stream().map(RecipeSimilarityDto::new).toList();
+            ivfflatProbesPolicy.record(probes, System.nanoTime() - dbQueryStartTime);
+        }
+        log.debug("Similarity query took {} ms (probes={}), found {} initial recipes",
+                (System.nanoTime() - dbQueryStartTime) / 1_000_000, inMemory ? "n/a" : probes, recipes.size());
+        return recipes;
+    }
 
+    /**
+     * Runs the filtered similarity query, doubling the candidate window until enough recipes pass the filter, the
+     * table is exhausted or the configured maximum window is reached.
+     * <p>
+     * A scan that returns fewer candidates than the window may only mean the probed ivfflat lists ran out, so it is
+     * retried with more probes. The table counts as exhausted once more probes bring back no more candidates; at the
+     * probes ceiling, or when the caller pinned probes, the search stops with what it has.
+     */
+    private List<RecipeSimilarityDto> findFilteredSimilarRecipes(float[] embedding, int dbLimit,
+                                                                 RecipeRepositoryCustom.VectorFilter filter, int probes,
+                                                                 boolean probesPinned) {
+        RecipeSearchConfig.Filter settings = recipeSearchConfig.getFilter();
+        int minimumWindow = filter.titlePattern() != null ? RecipeRepositoryCustom.TITLE_CANDIDATES : dbLimit;
+        int window = Math.min(Math.max(dbLimit * settings.getInitialWindowFactor(), minimumWindow), settings.getMaxWindow());
+        int previousScanned = -1;
+        while (true) {
+            long queryStartTime = System.nanoTime();
+            RecipeRepositoryCustom.FilteredSimilarity result =
+                    recipeRepository.findTopByCosineFiltered(embedding, filter, dbLimit, window, probes);
+            ivfflatProbesPolicy.record(probes, System.nanoTime() - queryStartTime);
+
+            boolean enough = result.recipes().size() >= dbLimit;
+            if (!probesPinned && !enough && result.candidatesScanned() < window
+                    && result.candidatesScanned() > previousScanned) {
+                OptionalInt widened = ivfflatProbesPolicy.widen(probes);
+                if (widened.isPresent()) {
+                    previousScanned = result.candidatesScanned();
+                    probes = widened.getAsInt();
+                    log.debug("Probed lists held only {} of {} candidates, retrying with probes={}",
+                            result.candidatesScanned(), window, probes);
+                    continue;
+                }
+            }
+            boolean scanShort = result.candidatesScanned() < window;
+            if (enough || scanShort || window >= settings.getMaxWindow()) {
+                log.debug("Filtered similarity query kept {} of {} scanned candidates", result.recipes().size(), result.candidatesScanned());
+                return result.recipes().stream().map(RecipeSimilarityDto::new).toList();
+            }
+            previousScanned = -1;
+            window = Math.min(window * 2, settings.getMaxWindow());
+            log.debug("Only {} of {} recipes passed the filter, widening candidate window to {}", result.recipes().size(), dbLimit, window);
+        }
+    }
+
+    private RecipeRepositoryCustom.VectorFilter buildVectorFilter(RecipeSimilarityRequest query, String titleFilter) {
+        List<String> excluded = parseExcludedIngredients(query).stream().toList();
+        String cuisine = query.isRequireCuisine() && query.getCuisine() != null && !query.getCuisine().isBlank()
+                ? query.getCuisine().trim().toLowerCase() : null;
+        return new RecipeRepositoryCustom.VectorFilter(titleFilter, excluded, cuisine);
+    }
+
+    private Set<String> parseExcludedIngredients(RecipeSimilarityRequest query) {
+        if (query.getExcludeIngredients() == null || query.getExcludeIngredients().isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(query.getExcludeIngredients().split(","))
+                .map(ingredient -> ingredient.trim().toLowerCase())
+                .filter(ingredient -> !ingredient.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private boolean useInMemoryIndex() {
+        if (recipeSearchConfig.getEngine() != RecipeSearchConfig.Engine.HNSW) {
+            return false;
+        }
+        if (!recipeVectorIndex.isReady()) {
+            log.debug("HNSW recipe index not ready, using pgvector");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param hydrated details already fetched by id, filled in with those of new candidates
+     * @return the candidates left after dedupe and filtering, ranked but not yet limited
+     */
+    private List<RecipeSimilarityDto> rankCandidates(List<RecipeSimilarityDto> recipes, RecipeSimilarityRequest query,
+                                                     Map<Long, RecipeDetailsDto> hydrated) {
         // Calculate percentage similarity for each recipe
         calculatePercentageSimilarities(recipes);
 
         // Remove duplicate recipes by title
         recipes = removeDuplicateRecipes(recipes);
 
-        // Get full recipe details asynchronously
-        List<RecipeDetailsDto> recipeWithIngredients = fetchRecipeDetailsAsync(recipes);
+        // Get full recipe details with a fixed number of set-based queries
+        List<RecipeDetailsDto> recipeWithIngredients = fetchRecipeDetails(recipes, hydrated);
 
         // Rank and sort recipes based on query criteria
-        recipes = rankAndSortRecipes(recipes, recipeWithIngredients, query);
-
-        // Apply final sorting and limiting
-        recipes = appleFinalSortingAndLimiting(recipes, limit);
+        return rankAndSortRecipes(recipes, recipeWithIngredients, query);
+    }
 
-        logTotalSearchTime(startTime);
-        log.info("Found {} recipes : {}", recipes.size(), recipes);
-        return recipes;
+    private long resultLimit(RecipeSimilarityRequest query) {
+        return !query.isPromptBased() && query.getLimit() > 0 ? query.getLimit() : 20;
     }
 
     private void calculatePercentageSimilarities(List<RecipeSimilarityDto> recipes) {
@@ -168,48 +293,26 @@ public class RecipeAIService {
 
     private List<RecipeSimilarityDto> removeDuplicateRecipes(List<RecipeSimilarityDto> recipes) {
         long dedupeStartTime = System.currentTimeMillis();
-        Set<String> titles = new HashSet<>();
-        List<RecipeSimilarityDto> dedupedRecipes = recipes.stream()
-                .filter(recipe -> {
-                    if(titles.contains(recipe.getTitle().toLowerCase())) {
-                        log.debug("Duplicate recipe title found: {}", recipe.getTitle());
-                        return false; // Filter out duplicates
-                    } else {
-                        titles.add(recipe.getTitle().toLowerCase());
-                        return true; // Keep unique recipes
-                    }
-                }).toList();
+        List<RecipeSimilarityDto> dedupedRecipes = recipeRanker.removeDuplicates(recipes);
         long dedupeEndTime = System.currentTimeMillis();
         log.debug("Deduplication took {} ms, remaining recipes: {}", dedupeEndTime - dedupeStartTime, dedupedRecipes.size());
         return dedupedRecipes;
     }
 
-    private List<RecipeDetailsDto> fetchRecipeDetailsAsync(List<RecipeSimilarityDto> recipes) {
+    private List<RecipeDetailsDto> fetchRecipeDetails(List<RecipeSimilarityDto> recipes, Map<Long, RecipeDetailsDto> hydrated) {
         long detailsStartTime = System.currentTimeMillis();
-        List<CompletableFuture<RecipeDetailsDto>> futures = recipes.stream()
-                .map(recipe -> CompletableFuture.supplyAsync(() -> recipeService.getRecipeDetails(recipe.getId())))
-                .toList();
-        List<RecipeDetailsDto> recipeWithIngredients = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> futures.stream()
-                        .map(CompletableFuture::join)
-                        .filter(Objects::nonNull)
-                        .toList())
-                .join();
+        List<Long> ids = recipes.stream().map(RecipeSimilarityDto::getId).filter(id -> !hydrated.containsKey(id)).toList();
+        if (!ids.isEmpty()) {
+            recipeService.getRecipeDetailsBulk(ids).forEach(details -> hydrated.putIfAbsent(details.getId(), details));
+        }
         long detailsEndTime = System.currentTimeMillis();
-        mapDetailsToSimilarityCuisines(recipes, recipeWithIngredients);
-        log.debug("Fetching recipe details took {} ms for {} recipes", detailsEndTime - detailsStartTime, recipeWithIngredients.size());
-        return recipeWithIngredients;
-    }
-
-    private void mapDetailsToSimilarityCuisines(List<RecipeSimilarityDto> recipes, List<RecipeDetailsDto> recipeWithIngredients) {
-        Map<Long, List<String>> idToCuisines = recipeWithIngredients.stream()
-                .collect(Collectors.toMap(RecipeDetailsDto::getId, RecipeDetailsDto::getCuisines));
-        recipes.forEach(recipe -> recipe.setCuisines(idToCuisines.getOrDefault(recipe.getId(), List.of())));
+        log.debug("Fetching recipe details took {} ms for {} new of {} recipes", detailsEndTime - detailsStartTime, ids.size(), recipes.size());
+        return recipes.stream().map(recipe -> hydrated.get(recipe.getId())).filter(Objects::nonNull).toList();
     }
 
     private List<RecipeSimilarityDto> rankAndSortRecipes(List<RecipeSimilarityDto> recipes, List<RecipeDetailsDto> recipeWithIngredients, RecipeSimilarityRequest query) {
         long rankingStartTime = System.currentTimeMillis();
-        List<RecipeSimilarityDto> rankedRecipes = rankAndSortRecipe(recipes, recipeWithIngredients, query);
+        List<RecipeSimilarityDto> rankedRecipes = recipeRanker.rank(recipes, recipeWithIngredients, query);
         long rankingEndTime = System.currentTimeMillis();
         log.debug("Ranking and sorting took {} ms", rankingEndTime - rankingStartTime);
         return rankedRecipes;
@@ -218,18 +321,7 @@ public class RecipeAIService {
     private List<RecipeSimilarityDto> appleFinalSortingAndLimiting(List<RecipeSimilarityDto> recipes, long limit) {
         long sortingStartTime = System.currentTimeMillis();
 
-        List<RecipeSimilarityDto> sortedRecipes = recipes.stream()
-                .sorted(Comparator
-                                .comparing(RecipeSimilarityDto::isExactTitleMatch).reversed()
-                                .thenComparing(RecipeSimilarityDto::getTitleSimilarityRank, Comparator.reverseOrder())
-                                .thenComparing(RecipeSimilarityDto::getSimilarityRank, Comparator.reverseOrder())
-                                .thenComparing(RecipeSimilarityDto::getIncludesIngredientsCount, Comparator.reverseOrder())
-                        // optional tie-breakers:
-                        // .thenComparing(RecipeSimilarityDto::getCuisineMatchRank, Comparator.reverseOrder())
-                        // .thenComparing(RecipeSimilarityDto::getId) // stable ordering
-                )
-                .limit(limit)
-                .toList();
+        List<RecipeSimilarityDto> sortedRecipes = recipeRanker.sortAndLimit(recipes, limit);
 
         long sortingEndTime = System.currentTimeMillis();
         log.debug("Final sorting and limiting took {} ms, final results: {}", sortingEndTime - sortingStartTime, sortedRecipes.size());
@@ -241,186 +333,11 @@ public class RecipeAIService {
         log.info("Total search by advanced embedding took {} ms", totalTime);
     }
 
-    private List<RecipeSimilarityDto> rankAndSortRecipe(List<RecipeSimilarityDto> recipes, List<RecipeDetailsDto> recipeIngredients, RecipeSimilarityRequest query) {
-        // Parse query words for similarity matching
-        Set<String> parsedWordsNoArticles = parseQueryWords(query);
-        log.info("Parsed words for ranking: {}", parsedWordsNoArticles);
-
-        // Filter out recipes with excluded ingredients
-        List<RecipeSimilarityDto> filteredRecipes = filterExcludedIngredients(recipes, recipeIngredients, query);
-
-        // Score all recipes based on different criteria
-        scoreAllRecipes(filteredRecipes, recipeIngredients, query, parsedWordsNoArticles);
-
-        log.info("Recipes after ranking: {}", filteredRecipes);
-        return filteredRecipes;
-    }
-
-    private Set<String> parseQueryWords(RecipeSimilarityRequest query) {
-        String queryString = query.isPromptBased() ? query.getPrompt() :
-            String.join(" ", query.getTitle(), query.getCuisine(),
-                query.getIncludeIngredients(), query.getMealType(), query.getDetailLevel());
-
-        return Arrays.stream(queryString.split("\\s+"))
-                .map(String::toLowerCase)
-                .filter(word -> !word.isBlank() && !word.matches("^(a|an|the|and|or|but)$"))
-                .collect(Collectors.toSet());
-    }
-
-    private List<RecipeSimilarityDto> filterExcludedIngredients(List<RecipeSimilarityDto> recipes, List<RecipeDetailsDto> recipeIngredients, RecipeSimilarityRequest query) {
-        log.info("Removing recipes with exclude ingredients: {}", query.getExcludeIngredients());
-
-        Set<String> excludeIngredients = Arrays.stream(query.getExcludeIngredients().split(","))
-                .map(String::trim)
-                .collect(Collectors.toSet());
-
-        List<Long> idsToRemove = recipeIngredients.stream()
-                .filter(recipe -> recipe.getIngredients().stream()
-                        .anyMatch(ingredient -> excludeIngredients.contains(ingredient.toLowerCase())))
-                .map(RecipeDetailsDto::getId)
-                .collect(Collectors.toList());
-
-        log.info("Removing recipes with IDs: {}", idsToRemove);
-
-        return recipes.stream()
-                .filter(recipe -> !idsToRemove.contains(recipe.getId()))
-                .collect(Collectors.toList());
-    }
-
-    private void scoreAllRecipes(List<RecipeSimilarityDto> recipes, List<RecipeDetailsDto> recipeIngredients, RecipeSimilarityRequest query, Set<String> parsedWordsNoArticles) {
-        log.info("Scoring recipe similarity for {} recipes", recipes.size());
-
-        for (RecipeSimilarityDto recipe : recipes) {
-            scoreRecipeTitleSimilarity(recipe, query);
-            scoreRecipeWordSimilarity(recipe, query, parsedWordsNoArticles);
-            scoreRecipeCuisineMatch(recipe, recipeIngredients, query);
-            scoreIncludesIngredientsCount(recipe, recipeIngredients);
-        }
-    }
-
-    private void scoreRecipeCuisineMatch(RecipeSimilarityDto recipe, List<RecipeDetailsDto> recipeIngredients, RecipeSimilarityRequest query) {
-        if (query.getCuisine() == null || query.getCuisine().isBlank()) {
-            recipe.setCuisineMatchRank(0);
-            log.debug("No cuisine specified in query, setting cuisine match rank to 0 for recipe: {}", recipe.getTitle());
-            return;
-        }
-
-        // Find the recipe details for this recipe
-        RecipeDetailsDto recipeDetails = recipeIngredients.stream()
-                .filter(details -> details.getId().equals(recipe.getId()))
-                .findFirst()
-                .orElse(null);
-
-        if (recipeDetails == null || recipeDetails.getCuisines() == null || recipeDetails.getCuisines().isEmpty()) {
-            recipe.setCuisineMatchRank(0);
-            log.debug("No cuisines found for recipe: {}", recipe.getTitle());
-            return;
-        }
-
-        String queryCuisine = query.getCuisine().toLowerCase().trim();
-        boolean cuisineMatch = recipeDetails.getCuisines().stream()
-                .anyMatch(cuisine -> cuisine.toLowerCase().contains(queryCuisine) ||
-                                   queryCuisine.contains(cuisine.toLowerCase()));
-
-        int cuisineRank = cuisineMatch ? 10 : 0; // Give high score for exact cuisine match
-        recipe.setCuisineMatchRank(cuisineRank);
-
-        log.debug("Recipe {} cuisine match: {} (query: {}, recipe cuisines: {})",
-                 recipe.getTitle(), cuisineMatch, queryCuisine, recipeDetails.getCuisines());
-    }
-
-    private static final Pattern NON_WORD = Pattern.compile("[\\p{Punct}\\p{IsPunctuation}]");
-
-    private List<String> tokenize(String s) {
-        if (s == null) return List.of();
-        String cleaned = NON_WORD.matcher(s.toLowerCase()).replaceAll(" ");
-        return Arrays.stream(cleaned.trim().split("\\s+"))
-                .filter(w -> !w.isBlank())
-                .toList();
-    }
-
-    private void scoreRecipeTitleSimilarity(RecipeSimilarityDto recipe, RecipeSimilarityRequest query) {
-        if (query.getTitle() == null || query.getTitle().isBlank() || recipe.getTitle() == null) {
-            recipe.setTitleSimilarityRank(0);
-            recipe.setExactTitleMatch(false);
-            recipe.setPrefixTitleMatch(false);
-            return;
-        }
-
-        String recipeTitleRaw = recipe.getTitle().trim();
-        String queryTitleRaw  = query.getTitle().trim();
-
-        // Strong precedence signals
-        boolean exact = recipeTitleRaw.equalsIgnoreCase(queryTitleRaw);
-        boolean prefix = recipeTitleRaw.toLowerCase().startsWith(queryTitleRaw.toLowerCase());
-
-        // Token-based similarity (Jaccard)
-        Set<String> r = new HashSet<>(tokenize(recipeTitleRaw));
-        Set<String> q = new HashSet<>(tokenize(queryTitleRaw));
-        if (r.isEmpty() || q.isEmpty()) {
-            recipe.setTitleSimilarityRank(exact ? 100 : prefix ? 85 : 0);
-            recipe.setExactTitleMatch(exact);
-            recipe.setPrefixTitleMatch(prefix);
-            return;
-        }
-
-        Set<String> inter = new HashSet<>(r); inter.retainAll(q);
-        Set<String> union = new HashSet<>(r); union.addAll(q);
-
-        double jaccard = (double) inter.size() / union.size();
-        int base = (int) Math.round(jaccard * 80); // 0..80 from Jaccard
-
-        int score = base
-                + (prefix ? 5 : 0)   // small bump for startsWith
-                + (exact ? 20 : 0);  // big bump for exact
-
-        score = Math.min(score, 100);
-
-        recipe.setTitleSimilarityRank(score);
-        recipe.setExactTitleMatch(exact);
-        recipe.setPrefixTitleMatch(prefix);
-    }
-
-
-    private void scoreIncludesIngredientsCount(RecipeSimilarityDto recipe, List<RecipeDetailsDto> recipeDetailsList) {
-        long includesIngredientsCount = recipeDetailsList.stream()
-                .filter(recipeDetail -> recipeDetail.getId().equals(recipe.getId()))
-                .mapToLong(recipeDetail -> recipeDetail.getIngredients().size())
-                .peek(count -> log.debug("Includes ingredients count for recipe {}: {}", recipe.getTitle(), count))
-                .sum();
-        recipe.setIncludesIngredientsCount((int) includesIngredientsCount);
-        log.debug("Recipe includes ingredients count for {}: {}", recipe.getTitle(), includesIngredientsCount);
-    }
-
-    private void scoreRecipeWordSimilarity(RecipeSimilarityDto recipe, RecipeSimilarityRequest query,
-                                           Set<String> parsedWordsNoArticles) {
-        String recipeString = String.join(" ", recipe.getTitle(), recipe.getSummary());
-        Set<String> recipeWordsNoArticles = Arrays.stream(recipeString.split("\\s+"))
-                .map(String::toLowerCase)
-                .filter(word -> !word.isBlank() && !word.matches("^(a|an|the|and|or|but)$"))
-                .collect(Collectors.toSet());
-        long matchingWordsCount = parsedWordsNoArticles.stream()
-                .filter(recipeWordsNoArticles::contains)
-                .peek(word -> log.debug("Matching word: {}", word))
-                .count();
-        recipe.setSimilarityRank((int) matchingWordsCount);
-        log.debug("Recipe {} has {} matching words with query, similarity rank: {}", recipe.getTitle(), matchingWordsCount, recipe.getSimilarityRank());
-    }
-
-    public String getEmbeddingStringForSimilaritySearch(String query) {
+    public float[] getEmbeddingForSimilaritySearch(String query) {
         log.info("Getting embedding for query: {}", query);
-        if (query == null || query.isBlank()) {
-            throw new IllegalArgumentException("Query must not be null or empty");
-        }
-        Double[] embedding = togetherAiApi.embed(query);
-        if (embedding == null || embedding.length == 0) {
-            log.warn("No embedding returned for query: {}", query);
-            throw new EmbedFailureException("No embedding found for query: " + query);
-        }
+        float[] embedding = queryEmbeddingCache.getEmbedding(query);
         log.info("Embedding retrieved successfully for query: {}", query);
-        return Arrays.stream(embedding)
-                .map(String::valueOf)
-                .collect(Collectors.joining(",", "[", "]"));
+        return embedding;
     }
 
     /**
@@ -2,7 +2,9 @@ package com.haekitchenapp.recipeapp.service;
 
 import com.haekitchenapp.recipeapp.entity.composite.RecipeCuisine;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface RecipeCuisineService {
@@ -70,4 +72,18 @@ public interface RecipeCuisineService {
      * @param cuisineIds set of cuisine IDs
      */
     void updateRecipeCuisines(Long recipeId, Set<Integer> cuisineIds);
+
+    /**
+     * Get the names of the cuisines associated with a recipe
+     * @param recipeId the recipe ID
+     * @return list of cuisine names
+     */
+    List<String> getCuisineNamesByRecipeId(Long recipeId);
+
+    /**
+     * Get the cuisine names of several recipes with a single query
+     * @param recipeIds the recipe IDs
+     * @return cuisine names keyed by recipe ID; recipes without cuisines are absent
+     */
+    Map<Long, List<String>> getCuisineNamesByRecipeIds(Collection<Long> recipeIds);
 }
@@ -0,0 +1,220 @@
+package com.haekitchenapp.recipeapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haekitchenapp.recipeapp.config.bulk.RecipeImportConfig;
+import com.haekitchenapp.recipeapp.entity.Unit;
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeIngredientRequest;
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeRequest;
+import com.haekitchenapp.recipeapp.model.response.ApiResponse;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeImportResponse;
+import com.haekitchenapp.recipeapp.repository.RecipeImportRepository;
+import com.haekitchenapp.recipeapp.service.search.RecipeVectorIndex;
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService;
+import com.haekitchenapp.recipeapp.utility.VectorUtils;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.haekitchenapp.recipeapp.utility.QuantityUtils.fractionToFloat;
+
+/**
+ * Streaming recipe import. The NDJSON body is read one line at a time, so memory stays bounded by the batch size
+ * rather than the size of the upload. Each batch resolves its ingredient names through the ingredient dictionary,
+ * upserting only unknown names, reserves recipe ids from the sequence and writes recipes, embeddings and ingredient
+ * rows as JDBC batches in a single transaction.
+ * <p>
+ * Invalid lines are reported and skipped. When a batch fails in the database it is retried one recipe at a time,
+ * so a bad record only costs itself and the rest of the load is kept.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RecipeImportService {
+
+    private final RecipeImportRepository recipeImportRepository;
+    private final UnitService unitService;
+    private final IngredientService ingredientService;
+    private final RecipeVectorIndex recipeVectorIndex;
+    private final TypeaheadService typeaheadService;
+    private final RecipeImportConfig recipeImportConfig;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    private record PendingIngredient(String name, float quantity, Long unitId) {}
+
+    private record PendingRecipe(long line, RecipeRequest request, float[] embedding, List<PendingIngredient> ingredients) {}
+
+    public ResponseEntity<ApiResponse<RecipeImportResponse>> importNdjson(InputStream body) throws IOException {
+        long startTime = System.currentTimeMillis();
+        RecipeImportResponse result = new RecipeImportResponse();
+        Map<String, Long> unitIdsByName = unitNameIndex();
+        int batchSize = Math.max(1, recipeImportConfig.getBatchSize());
+        List<PendingRecipe> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                result.setReceived(result.getReceived() + 1);
+
+                RecipeRequest request = null;
+                try {
+                    request = objectMapper.readValue(line, RecipeRequest.class);
+                    if (request == null) {
+                        throw new IllegalArgumentException("Line must be a JSON object");
+                    }
+                    batch.add(prepare(lineNumber, request, unitIdsByName));
+                } catch (JsonProcessingException e) {
+                    recordFailure(result, lineNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+                } catch (IllegalArgumentException e) {
+                    recordFailure(result, lineNumber, request == null ? null : request.getTitle(), e.getMessage());
+                }
+
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch, result);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, result);
+        }
+
+        result.setDurationMs(System.currentTimeMillis() - startTime);
+        log.info("Recipe import finished: {} received, {} imported, {} failed in {} ms",
+                result.getReceived(), result.getImported(), result.getFailed(), result.getDurationMs());
+        return ResponseEntity.ok(ApiResponse.success("Recipe import completed", result));
+    }
+
+    private PendingRecipe prepare(long line, RecipeRequest request, Map<String, Long> unitIdsByName) {
+        request.setId(null);
+        Set<ConstraintViolation<RecipeRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        if (request.getIngredients() == null) {
+            throw new IllegalArgumentException("ingredients must not be null");
+        }
+
+        boolean aiGenerated = Boolean.TRUE.equals(request.getAiGenerated());
+        List<PendingIngredient> ingredients = new ArrayList<>(request.getIngredients().size());
+        for (RecipeIngredientRequest ingredient : request.getIngredients()) {
+            if (ingredient.getName() == null || ingredient.getName().isBlank()) {
+                throw new IllegalArgumentException("Ingredient name cannot be null or empty");
+            }
+            ingredients.add(new PendingIngredient(ingredient.getName().trim().toLowerCase(),
+                    fractionToFloat(ingredient.getQuantity()), resolveUnit(ingredient, aiGenerated, unitIdsByName)));
+        }
+        Double[] embedding = request.getEmbedding();
+        return new PendingRecipe(line, request, embedding != null && embedding.length > 0 ? VectorUtils.toFloatArray(embedding) : null,
+                ingredients);
+    }
+
+    /**
+     * Same unit rules as {@code RecipeMapper}: a unit id must exist unless the recipe is AI generated, in which case
+     * unknown unit names are created.
+     */
+    private Long resolveUnit(RecipeIngredientRequest ingredient, boolean aiGenerated, Map<String, Long> unitIdsByName) {
+        Long unitId = ingredient.getUnitId();
+        String unitName = ingredient.getUnitName();
+        if (unitId == null && unitName == null) {
+            throw new IllegalArgumentException("Unit ID and Unit Name cannot be null");
+        }
+        if (!aiGenerated) {
+            if (unitId != null && !unitService.existsById(unitId)) {
+                throw new IllegalArgumentException("Unit not found with ID: " + unitId);
+            }
+            return unitId != null ? unitId : unitIdsByName.get(unitName.toLowerCase());
+        }
+        if (unitName == null) {
+            return unitId;
+        }
+        return unitIdsByName.computeIfAbsent(unitName.toLowerCase(), name -> {
+            unitService.persistAiGeneratedUnits(Set.of(ingredient));
+            Unit unit = unitService.getUnitByName(name);
+            return unit != null ? unit.getId() : null;
+        });
+    }
+
+    private void writeBatch(List<PendingRecipe> batch, RecipeImportResponse result) {
+        try {
+            insert(batch);
+            result.setImported(result.getImported() + batch.size());
+        } catch (DataAccessException e) {
+            if (batch.size() == 1) {
+                PendingRecipe recipe = batch.get(0);
+                recordFailure(result, recipe.line(), recipe.request().getTitle(), rootMessage(e));
+                return;
+            }
+            log.warn("Import batch of {} recipes failed ({}), retrying one at a time", batch.size(), rootMessage(e));
+            for (PendingRecipe recipe : batch) {
+                writeBatch(List.of(recipe), result);
+            }
+        }
+    }
+
+    private void insert(List<PendingRecipe> batch) {
+        Set<String> names = new HashSet<>();
+        batch.forEach(recipe -> recipe.ingredients().forEach(ingredient -> names.add(ingredient.name())));
+        Map<String, Long> ingredientIds = ingredientService.getIngredientIdsElseInsert(names);
+        List<Long> ids = recipeImportRepository.reserveRecipeIds(batch.size());
+
+        List<RecipeImportRepository.RecipeRow> recipeRows = new ArrayList<>(batch.size());
+        List<RecipeImportRepository.IngredientRow> ingredientRows = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRecipe recipe = batch.get(i);
+            long id = ids.get(i);
+            recipeRows.add(new RecipeImportRepository.RecipeRow(id, recipe.request(), recipe.embedding()));
+            for (PendingIngredient ingredient : recipe.ingredients()) {
+                ingredientRows.add(new RecipeImportRepository.IngredientRow(id, ingredientIds.get(ingredient.name()),
+                        ingredient.quantity(), ingredient.unitId()));
+            }
+        }
+        recipeImportRepository.insertBatch(recipeRows, ingredientRows);
+
+        for (RecipeImportRepository.RecipeRow row : recipeRows) {
+            if (row.embedding() != null) {
+                recipeVectorIndex.upsert(row.id(), row.embedding());
+            }
+            typeaheadService.recipeSaved(row.id(), row.recipe().getTitle());
+        }
+        log.debug("Imported batch of {} recipes with {} ingredient rows", recipeRows.size(), ingredientRows.size());
+    }
+
+    private Map<String, Long> unitNameIndex() {
+        Map<String, Long> index = new HashMap<>();
+        unitService.getAllUnitsMap().forEach((id, name) -> index.putIfAbsent(name.toLowerCase(), id));
+        return index;
+    }
+
+    private void recordFailure(RecipeImportResponse result, long line, String title, String error) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getFailures().size() < recipeImportConfig.getMaxReportedFailures()) {
+            result.getFailures().add(new RecipeImportResponse.Failure(line, title, error));
+        }
+        log.debug("Skipping import line {}: {}", line, error);
+    }
+
+    private static String rootMessage(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        return cause.getMessage() != null ? cause.getMessage() : e.getMessage();
+    }
+}
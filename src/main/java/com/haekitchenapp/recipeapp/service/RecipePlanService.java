@@ -7,6 +7,7 @@ import com.haekitchenapp.recipeapp.entity.User;
 import com.haekitchenapp.recipeapp.exception.RecipeNotFoundException;
 import com.haekitchenapp.recipeapp.model.request.recipe.BulkRecipePlanRequest;
 import com.haekitchenapp.recipeapp.model.response.ApiResponse;
+import com.haekitchenapp.recipeapp.model.response.RecipePlanCalendarDto;
 import com.haekitchenapp.recipeapp.model.response.RecipePlanSimple;
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipePlanResponse;
 import com.haekitchenapp.recipeapp.repository.MealTypeRepository;
@@ -227,12 +228,13 @@ public class RecipePlanService {
         LocalDate end = LocalDate.parse(endDate);
 
         log.info("Getting recipe plans for user ID: {} between {} and {}", userId, start, end);
-        List<RecipePlanSimple> recipePlans = findByUserIdAndDateRange(userId, start, end);
+        // One query for any range: recipe titles are joined in, meal type names come from memory
+        List<RecipePlanCalendarDto> recipePlans = recipePlanRepository.findCalendarByUserIdAndPlanDateBetween(userId, start, end);
         if(recipePlans.isEmpty()) {
             log.info("No recipe plans found for user ID: {} between {} and {}", userId, start, end);
             throw new RecipeNotFoundException("No recipe plans found in the specified date range.");
         }
-        List<RecipePlanResponse> responseData = recipePlanMapper.toResponseSimple(recipePlans);
+        List<RecipePlanResponse> responseData = recipePlanMapper.toCalendarResponse(recipePlans);
 
         ApiResponse<List<RecipePlanResponse>> response = new ApiResponse<>(true, "Recipe plans retrieved successfully", responseData);
         return ResponseEntity.ok(response);
@@ -7,23 +7,26 @@ import com.haekitchenapp.recipeapp.model.request.recipe.EmbedUpdateRequest;
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeRequest;
 import com.haekitchenapp.recipeapp.model.response.ApiResponse;
 import com.haekitchenapp.recipeapp.model.response.recipe.*;
+import com.haekitchenapp.recipeapp.repository.RecipeDuplicateTitleRepository;
+import com.haekitchenapp.recipeapp.repository.RecipeDuplicateTitleRepository.DuplicateCursor;
+import com.haekitchenapp.recipeapp.repository.RecipeDuplicateTitleRepository.DuplicateTitle;
 import com.haekitchenapp.recipeapp.repository.RecipeIngredientRepository;
 import com.haekitchenapp.recipeapp.repository.RecipeRepository;
-import com.haekitchenapp.recipeapp.service.impl.RecipeCuisineServiceImpl;
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom.TitleCursor;
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom.TitleMatch;
+import com.haekitchenapp.recipeapp.service.search.RecipeVectorIndex;
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService;
 import com.haekitchenapp.recipeapp.utility.RecipeMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
@@ -32,28 +35,48 @@ import java.util.concurrent.ExecutionException;
 @RequiredArgsConstructor
 public class RecipeService {
 
+    private static final int TITLE_SEARCH_PAGE_SIZE = 20;
+
+    private static final int DUPLICATES_PAGE_SIZE = 20;
+
     private final RecipeRepository recipeRepository;
 
     private final RecipeIngredientRepository recipeIngredientRepository;
 
     private final RecipeMapper recipeMapper;
 
-    private final RecipeCuisineServiceImpl recipeCuisineService;
+    private final RecipeCuisineService recipeCuisineService;
+
+    private final RecipeVectorIndex recipeVectorIndex;
 
+    private final TypeaheadService typeaheadService;
 
-    public ResponseEntity<ApiResponse<RecipeDuplicatesByTitleResponse>> findDuplicateTitles(int page) {
-        log.info("Finding duplicate recipe titles for page {}", page);
-        PageRequest pageable = PageRequest.of(page, 20);
-        Page<RecipeDuplicatesByTitleDto> duplicatesPage = recipeRepository.findDuplicateTitles(pageable);
+    private final RecipeDuplicateTitleRepository recipeDuplicateTitleRepository;
+
+
+    /**
+     * Pages through titles held by more than one recipe, most duplicated first.
+     *
+     * @param after cursor returned with the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public ResponseEntity<ApiResponse<RecipeDuplicatesByTitleResponse>> findDuplicateTitles(String after) {
+        log.info("Finding duplicate recipe titles after {}", after);
+        DuplicateCursor cursor = after == null || after.isBlank() ? null : DuplicateCursor.decode(after);
+        // One extra row tells whether another page exists
+        List<DuplicateTitle> rows = recipeDuplicateTitleRepository.findDuplicates(cursor, DUPLICATES_PAGE_SIZE + 1);
 
-        if (duplicatesPage.isEmpty()) {
+        if (rows.isEmpty()) {
             log.warn("No duplicate titles found");
             return ResponseEntity.ok(ApiResponse.success("No more duplicate titles found"));
         }
 
+        boolean last = rows.size() <= DUPLICATES_PAGE_SIZE;
+        List<DuplicateTitle> page = last ? rows : rows.subList(0, DUPLICATES_PAGE_SIZE);
         RecipeDuplicatesByTitleResponse recipeDuplicatesByTitleResponse = new RecipeDuplicatesByTitleResponse(
-                duplicatesPage.getContent(),
-                duplicatesPage.isLast()
+                page.stream().map(DuplicateTitle::duplicate).toList(),
+                last,
+                last ? null : page.get(page.size() - 1).cursor().encode()
         );
 
         log.info("Found {} duplicate titles", recipeDuplicatesByTitleResponse.getDuplicates().size());
@@ -64,40 +87,44 @@ public class RecipeService {
      * Searches for recipes by title and returns a paginated response.
      *
      * @param title the title to search for
-     * @return a response entity containing a list of recipe titles matching the search criteria
+     * @param after cursor returned with the previous page, or null for the first page
+     * @return a response entity containing a page of recipe titles matching the search criteria
      * @throws RecipeSearchFoundNoneException if no recipes are found with the given title
      */
-    public ResponseEntity<ApiResponse<List<RecipeTitleDto>>> searchByTitle(String title) throws RecipeSearchFoundNoneException {
-        List<RecipeTitleDto> recipes = search(title);
-        log.info("Recipes found: {}", recipes.size());
-        if (recipes.isEmpty()) {
-            throw new RecipeSearchFoundNoneException("No recipes found with title: " + title);
-        }
+    public ResponseEntity<ApiResponse<RecipeTitleSearchResponse>> searchByTitle(String title, String after) throws RecipeSearchFoundNoneException {
+        RecipeTitleSearchResponse recipes = search(title, after);
+        log.info("Recipes found: {}", recipes.getTitles().size());
         return ResponseEntity.ok(ApiResponse.success("Recipes retrieved successfully", recipes));
     }
 
 
 /**
-     * Searches for recipe titles containing the specified title.
+     * Searches for recipe titles containing or resembling the specified title, best match first.
      *
      * @param title the title to search for
-     * @return a list of recipe titles matching the search criteria
+     * @param after cursor returned with the previous page, or null for the first page
+     * @return a page of recipe titles matching the search criteria and the cursor for the next page
      * @throws RecipeSearchFoundNoneException if no recipes are found with the given title
-     * @throws IllegalArgumentException if the title is null or empty
+     * @throws IllegalArgumentException if the title is null or empty, or the cursor is malformed
      */
-    public List<RecipeTitleDto> search(String title) throws RecipeSearchFoundNoneException {
+    public RecipeTitleSearchResponse search(String title, String after) throws RecipeSearchFoundNoneException {
         log.info("Searching recipe titles by title: {}", title);
         if (title == null || title.isBlank()) {
             throw new IllegalArgumentException("Title must not be null or empty");
         }
-        PageRequest pageRequest = PageRequest.of(0, 20);
-        List<RecipeTitleDto> recipes = recipeRepository.findTitlesByTitleContainingIgnoreCase(title, pageRequest);
-        if(recipes.isEmpty()) {
+        TitleCursor cursor = after == null || after.isBlank() ? null : TitleCursor.decode(after);
+        // One extra row tells whether another page exists
+        List<TitleMatch> matches = recipeRepository.searchTitles(title.trim(), cursor, TITLE_SEARCH_PAGE_SIZE + 1);
+        if (matches.isEmpty() && cursor == null) {
             log.warn("No recipes found with title: {}", title);
             throw new RecipeSearchFoundNoneException("No recipes found with title: " + title);
         }
-        log.info("Found {} recipe titles matching: {}", recipes.size(), title);
-        return recipes;
+        List<TitleMatch> page = matches.size() > TITLE_SEARCH_PAGE_SIZE ? matches.subList(0, TITLE_SEARCH_PAGE_SIZE) : matches;
+        String next = matches.size() > TITLE_SEARCH_PAGE_SIZE ? page.get(page.size() - 1).cursor().encode() : null;
+        log.info("Found {} recipe titles matching: {}", page.size(), title);
+        return new RecipeTitleSearchResponse(page.stream()
+                .map(match -> new RecipeTitleDto(match.id(), match.title()))
+                .toList(), next);
     }
 
     public ResponseEntity<ApiResponse<List<RecipeTitleDto>>> findAllIdsWithTitle(String title) throws RecipeNotFoundException {
@@ -179,6 +206,45 @@ public class RecipeService {
         return recipeMapper.toDetailedDto(recipeDetails, recipeIngredients, recipeCuisines, id);
     }
 
+    /**
+     * Loads recipe details for many recipes using three set-based queries (summaries, ingredient names
+     * and cuisine names) instead of three lookups per recipe.
+     *
+     * @param ids the recipe IDs to hydrate
+     * @return the details in the same order as {@code ids}; IDs without a recipe are skipped
+     */
+    @Transactional(readOnly = true)
+    public List<RecipeDetailsDto> getRecipeDetailsBulk(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        log.info("Fetching recipe details in bulk for {} recipes", uniqueIds.size());
+
+        Map<Long, RecipeSummaryProjection> summaries = new HashMap<>();
+        for (RecipeSummaryProjection summary : recipeRepository.findSummariesByIdIn(uniqueIds)) {
+            summaries.put(summary.getId(), summary);
+        }
+        Map<Long, List<String>> ingredientNames = new HashMap<>();
+        for (RecipeAttributeProjection row : recipeIngredientRepository.findIngredientNamesByRecipeIds(uniqueIds)) {
+            ingredientNames.computeIfAbsent(row.getRecipeId(), k -> new ArrayList<>()).add(row.getName());
+        }
+        Map<Long, List<String>> cuisineNames = recipeCuisineService.getCuisineNamesByRecipeIds(uniqueIds);
+
+        List<RecipeDetailsDto> details = new ArrayList<>(uniqueIds.size());
+        for (Long id : uniqueIds) {
+            RecipeSummaryProjection summary = summaries.get(id);
+            if (summary == null) {
+                log.warn("Recipe details not found with ID: {}", id);
+                continue;
+            }
+            details.add(recipeMapper.toDetailedDtoFromNames(summary,
+                    ingredientNames.getOrDefault(id, List.of()),
+                    cuisineNames.getOrDefault(id, List.of())));
+        }
+        return details;
+    }
+
     /**
      * Finds a recipe by its ID.
      *
@@ -272,8 +338,11 @@ public class RecipeService {
                 recipe = persisted;
             }
             if(recipe.getEmbedding() != null && recipe.getEmbedding().length > 0) {
-                recipeRepository.updateEmbedding(recipe.getId(), recipe.getEmbedString());
+                float[] vector = recipe.getEmbeddingVector();
+                recipeRepository.updateEmbedding(recipe.getId(), vector);
+                recipeVectorIndex.upsert(recipe.getId(), vector);
             }
+            typeaheadService.recipeSaved(recipe.getId(), recipe.getTitle());
             log.info("Recipe saved successfully: {}", recipe);
         } catch (DataIntegrityViolationException e) {
             log.error("Data integrity violation while saving recipe: {}", e.getMessage());
@@ -292,11 +361,12 @@ public class RecipeService {
         if(recipe == null) throw new IllegalArgumentException("Recipe must not be null for update");
         Long id = recipe.getId();
         Double[] embedding = recipe.getEmbedding();
-        String embedString = recipe.getEmbedString();
         if(id == null) throw new IllegalArgumentException("Recipe ID must not be null for update");
         if(embedding == null || embedding.length == 0) throw new IllegalArgumentException("Embedding must not be null or empty");
         try {
-            recipeRepository.updateEmbedding(id, embedString);
+            float[] vector = recipe.getEmbeddingVector();
+            recipeRepository.updateEmbedding(id, vector);
+            recipeVectorIndex.upsert(id, vector);
         } catch (DataIntegrityViolationException e) {
             log.error("Data integrity violation while updating recipe embedding: {}", e.getMessage());
             throw new IllegalArgumentException("Invalid embedding data", e);
@@ -335,8 +405,11 @@ public class RecipeService {
                 recipe = persisted;
             }
             if(recipe.getEmbedding() != null && recipe.getEmbedding().length > 0) {
-                recipeRepository.updateEmbedding(recipe.getId(), recipe.getEmbedString());
+                float[] vector = recipe.getEmbeddingVector();
+                recipeRepository.updateEmbedding(recipe.getId(), vector);
+                recipeVectorIndex.upsert(recipe.getId(), vector);
             }
+            typeaheadService.recipeSaved(recipe.getId(), recipe.getTitle());
         } catch (DataIntegrityViolationException e) {
             log.error("Data integrity violation while updating recipe: {}", e.getMessage());
             throw new IllegalArgumentException("Invalid recipe data", e);
@@ -380,6 +453,8 @@ public class RecipeService {
     private void deleteRecipeById(Long id) {
         log.info("Deleting recipe by ID: {}", id);
         recipeRepository.deleteById(id);
+        recipeVectorIndex.remove(id);
+        typeaheadService.recipeRemoved(id);
         log.info("Recipe deleted successfully with ID: {}", id);
     }
 
@@ -9,13 +9,15 @@ import com.haekitchenapp.recipeapp.model.request.togetherAi.LLMRequestEmbedDto;
 import com.haekitchenapp.recipeapp.model.request.togetherAi.LLMRequestSummarizeDto;
 import com.haekitchenapp.recipeapp.model.request.togetherAi.RoleContent;
 import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmResponse;
-import lombok.RequiredArgsConstructor;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmFeature;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 
@@ -24,160 +26,200 @@ import static com.haekitchenapp.recipeapp.config.constants.Constant.*;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class TogetherAiApi {
 
     private final WebClient togetherWebClient;
     private final TogetherAiConfig config;
     private final LlmLoggingService llmLoggingService;
+    private final EmbeddingBatcher queryEmbeddingBatcher;
+
+    public TogetherAiApi(WebClient togetherWebClient, TogetherAiConfig config, LlmLoggingService llmLoggingService,
+                         MeterRegistry meterRegistry) {
+        this.togetherWebClient = togetherWebClient;
+        this.config = config;
+        this.llmLoggingService = llmLoggingService;
+        this.queryEmbeddingBatcher = new EmbeddingBatcher(this::embedQueries,
+                config.getEmbedBatch().getWindowMillis(), config.getEmbedBatch().getMaxSize(),
+                Schedulers.parallel(), meterRegistry);
+    }
 
     public LlmResponse callIsBadRecipe(String recipeDto, Long recipeId) {
+        return callIsBadRecipeAsync(recipeDto, recipeId).block();
+    }
+
+    public Mono<LlmResponse> callIsBadRecipeAsync(String recipeDto, Long recipeId) {
         RoleContent systemRole = RoleContent.getUserRole(recipeDto);
         LLMRequest llmRequest = LLMRequest.getDefaultChatRequest(config.getChatSmallModel(), STRICT_RECIPE_REVIEWER_SYSTEM_PROMPT);
         llmRequest.getMessages().add(systemRole);
-        LlmResponse response = getChatResponse(llmRequest);
-        if (response != null && response.getChoices() != null && !response.getChoices().isEmpty()) {
-            llmLoggingService.saveTogetherAiQueryLog(config.getChatSmallModel(), recipeDto, response, recipeId);
-        } else {
-            throw new LlmApiException("Context not returned in the response");
-        }
-        return response;
+        return loggedChatResponse(llmRequest, config.getChatSmallModel(), recipeDto, recipeId, LlmFeature.IS_BAD_RECIPE);
     }
 
     public LlmResponse callLLMRewrite(String instructions, Long recipeId){
+        return callLLMRewriteAsync(instructions, recipeId).block();
+    }
+
+    public Mono<LlmResponse> callLLMRewriteAsync(String instructions, Long recipeId){
         String prompt = REWRITE_PROMPT + instructions;
         RoleContent systemRole = RoleContent.getUserRole(prompt);
         LLMRequest llmRequest = LLMRequest.getDefaultChatRequest(config.getChatModel(), RECIPE_SYSTEM_PROMPT);
         llmRequest.getMessages().add(systemRole);
-        LlmResponse response = getChatResponse(llmRequest);
-        if (response != null && response.getChoices() != null && !response.getChoices().isEmpty()) {
-            llmLoggingService.saveTogetherAiQueryLog(config.getChatModel(), prompt, response, recipeId);
-        } else {
-            throw new LlmApiException("Context not returned in the response");
-        }
-        return response;
+        return loggedChatResponse(llmRequest, config.getChatModel(), prompt, recipeId, LlmFeature.REWRITE);
     }
 
     public LlmResponse callLLMRewrite(LLMRequestSummarizeDto llmRequestSummarizeDto){
-        return getChatResponse(llmRequestSummarizeDto.toLlmRequest());
+        return callLLMRewriteAsync(llmRequestSummarizeDto).block();
+    }
+
+    public Mono<LlmResponse> callLLMRewriteAsync(LLMRequestSummarizeDto llmRequestSummarizeDto){
+        LLMRequest llmRequest = llmRequestSummarizeDto.toLlmRequest();
+        return getChatResponse(llmRequest)
+                .doOnNext(response -> recordUsage(llmRequest.getModel(), LlmFeature.REWRITE, response));
     }
 
     public LlmResponse callLLMSummarize(String recipeDto, Long recipeId){
+        return callLLMSummarizeAsync(recipeDto, recipeId).block();
+    }
+
+    public Mono<LlmResponse> callLLMSummarizeAsync(String recipeDto, Long recipeId){
         String prompt = SUMMARIZE_PROMPT + recipeDto;
         RoleContent systemRole = RoleContent.getUserRole(prompt);
         LLMRequest llmRequest = LLMRequest.getDefaultChatRequest(config.getChatModel(), RECIPE_SYSTEM_PROMPT);
         llmRequest.getMessages().add(systemRole);
-        LlmResponse response = getChatResponse(llmRequest);
-        if (response != null && response.getChoices() != null && !response.getChoices().isEmpty()) {
-            llmLoggingService.saveTogetherAiQueryLog(config.getChatModel(), prompt, response, recipeId);
-        } else {
-            throw new LlmApiException("Context not returned in the response");
-        }
-        return response;
+        return loggedChatResponse(llmRequest, config.getChatModel(), prompt, recipeId, LlmFeature.SUMMARIZE);
     }
 
     public LlmResponse callLLMFormatTitle(String title, Long recipeId){
+        return callLLMFormatTitleAsync(title, recipeId).block();
+    }
+
+    public Mono<LlmResponse> callLLMFormatTitleAsync(String title, Long recipeId){
         String prompt =  TITLE_PROMPT+ "\n\n" + title;
         RoleContent systemRole = RoleContent.getUserRole(prompt);
         LLMRequest llmRequest = LLMRequest.getDefaultChatRequest(config.getChatSmallModel(), TITLE_SYSTEM_PROMPT);
         llmRequest.getMessages().add(systemRole);
-        LlmResponse response = getChatResponse(llmRequest);
-        if (response != null && response.getChoices() != null && !response.getChoices().isEmpty()) {
-            llmLoggingService.saveTogetherAiQueryLog(config.getChatSmallModel(), prompt, response, recipeId);
-        } else {
-            throw new LlmApiException("Context not returned in the response");
-        }
-        return response;
+        return loggedChatResponse(llmRequest, config.getChatSmallModel(), prompt, recipeId, LlmFeature.FORMAT_TITLE);
+    }
+
+    /**
+     * Chat call that fails with {@link LlmApiException} when no choices come back and otherwise writes the query log.
+     * The log write is a blocking JPA call, so it is moved off the Netty event loop.
+     */
+    private Mono<LlmResponse> loggedChatResponse(LLMRequest llmRequest, String model, String prompt, Long recipeId,
+                                                 LlmFeature feature) {
+        return getChatResponse(llmRequest)
+                .filter(response -> response.getChoices() != null && !response.getChoices().isEmpty())
+                .switchIfEmpty(Mono.error(() -> new LlmApiException("Context not returned in the response")))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(response -> llmLoggingService.saveTogetherAiQueryLog(model, prompt, response, recipeId, feature));
     }
 
-    private LlmResponse getChatResponse(LLMRequest llmRequest){
-        try{
+    private Mono<LlmResponse> getChatResponse(LLMRequest llmRequest){
+        return Mono.defer(() -> {
             log.info("Calling Together AI Chat API with request: {}", llmRequest);
-            return togetherWebClient.post()
-                    .uri(config.getChatEndpoint())
-                    .bodyValue(llmRequest)
-                    .retrieve()
-                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
-                            clientResponse.bodyToMono(String.class).flatMap(errorBody ->
-                                    Mono.error(new ClientSide4XXException("Client error: " + errorBody))
-                            ))
-                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
-                            clientResponse.bodyToMono(String.class).flatMap(errorBody ->
-                                    Mono.error(new HttpError5XXException("Server error: " + errorBody))
-                            ))
-                    .bodyToMono(LlmResponse.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            // API response error with status code
-            System.err.println("HTTP error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
-            throw e;
-        } catch (Exception e) {
-            // Network error, timeout, etc.
-            System.err.println("Unexpected error: " + e.getMessage());
-            throw e;
-        }
+            return post(config.getChatEndpoint(), llmRequest);
+        });
     }
 
 
     public LlmResponse embed(LLMRequestEmbedDto llmRequestEmbedDto){
-        return getEmbedResponse(llmRequestEmbedDto.toLlmRequest());
+        LLMRequest llmRequest = llmRequestEmbedDto.toLlmRequest();
+        return getEmbedResponse(llmRequest)
+                .doOnNext(response -> recordUsage(llmRequest.getModel(), LlmFeature.EMBED, response))
+                .block();
     }
 
     public LlmResponse embed(List<String> inputs){
+        return embedAsync(inputs).block();
+    }
+
+    public Mono<LlmResponse> embedAsync(List<String> inputs){
         inputs = inputs.stream()
                 .map(input -> EMBED_PROMPT + input)
                 .toList();
         LLMRequest llmRequest = LLMRequest.getDefaultEmbedRequest(config.getEmbedModel(), inputs);
-        return getEmbedResponse(llmRequest);
+        return getEmbedResponse(llmRequest)
+                .doOnNext(response -> recordUsage(config.getEmbedModel(), LlmFeature.EMBED, response));
     }
 
     public LlmResponse embed(String input, Long recipeId) {
+        return embedAsync(input, recipeId).block();
+    }
+
+    public Mono<LlmResponse> embedAsync(String input, Long recipeId) {
         LLMRequest llmRequest = LLMRequest.getDefaultEmbedRequest(config.getEmbedModel(), List.of(EMBED_PROMPT + input));
-        LlmResponse response = getEmbedResponse(llmRequest);
-        if (response != null && response.getData() != null && !(response.getData().get(0).getEmbedding().length == 0)) {
-            llmLoggingService.saveTogetherAiQueryLog(config.getEmbedModel(), llmRequest.getInput().toString(), response, recipeId);
-        } else {
-            throw new LlmApiException("Context not returned in the response");
-        }
-        return response;
+        return getEmbedResponse(llmRequest)
+                .filter(TogetherAiApi::hasEmbedding)
+                .switchIfEmpty(Mono.error(() -> new LlmApiException("Context not returned in the response")))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(response -> llmLoggingService.saveTogetherAiQueryLog(config.getEmbedModel(),
+                        llmRequest.getInput().toString(), response, recipeId, LlmFeature.EMBED_RECIPE));
     }
 
     public Double[] embed(String input) {
-        LLMRequest llmRequest = LLMRequest.getDefaultEmbedRequest(config.getEmbedModel(), List.of(EMBED_PROMPT + input));
-        LlmResponse response = getEmbedResponse(llmRequest);
-        if (response != null && response.getData() != null && !(response.getData().get(0).getEmbedding().length == 0)) {
-            return response.getData().get(0).getEmbedding();
-        } else {
-            throw new LlmApiException("Context not returned in the response");
+        return embedAsync(input).block();
+    }
+
+    /**
+     * Embeds a search query. Unless {@code embed-batch.enabled} is off, queries from concurrent callers are sent
+     * together in one request, see {@link EmbeddingBatcher}.
+     */
+    public Mono<Double[]> embedAsync(String input) {
+        if (config.getEmbedBatch().isEnabled()) {
+            return queryEmbeddingBatcher.embed(input);
         }
+        return embedQueries(List.of(input))
+                .filter(TogetherAiApi::hasEmbedding)
+                .map(response -> response.getData().get(0).getEmbedding())
+                .switchIfEmpty(Mono.error(() -> new LlmApiException("Context not returned in the response")));
     }
 
-    private LlmResponse getEmbedResponse(LLMRequest llmRequest) {
-        try{
+    private Mono<LlmResponse> embedQueries(List<String> inputs) {
+        LLMRequest llmRequest = LLMRequest.getDefaultEmbedRequest(config.getEmbedModel(),
+                inputs.stream().map(input -> EMBED_PROMPT + input).toList());
+        return getEmbedResponse(llmRequest)
+                .doOnNext(response -> recordUsage(config.getEmbedModel(), LlmFeature.EMBED_QUERY, response));
+    }
+
+    /**
+     * Usage of a call that writes no query log. Pricing may query the database, so it is recorded on a worker thread
+     * rather than holding up the response on the Netty event loop.
+     */
+    private void recordUsage(String model, LlmFeature feature, LlmResponse response) {
+        Schedulers.boundedElastic().schedule(() -> llmLoggingService.recordTogetherAiUsage(model, feature, response));
+    }
+
+    private static boolean hasEmbedding(LlmResponse response) {
+        return response.getData() != null && !response.getData().isEmpty()
+                && response.getData().get(0).getEmbedding() != null
+                && response.getData().get(0).getEmbedding().length != 0;
+    }
+
+    private Mono<LlmResponse> getEmbedResponse(LLMRequest llmRequest) {
+        return Mono.defer(() -> {
             log.info("Calling Together AI Embed API with request: {}", llmRequest);
-            return togetherWebClient.post()
-                    .uri(config.getEmbedEndpoint())
-                    .bodyValue(llmRequest)
-                    .retrieve()
-                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
-                            clientResponse.bodyToMono(String.class).flatMap(errorBody ->
-                                    Mono.error(new ClientSide4XXException("Client error: " + errorBody))
-                            ))
-                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
-                            clientResponse.bodyToMono(String.class).flatMap(errorBody ->
-                                    Mono.error(new HttpError5XXException("Server error: " + errorBody))
-                            ))
-                    .bodyToMono(LlmResponse.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            // API response error with status code
-            System.err.println("HTTP error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
-            throw e;
-        } catch (Exception e) {
-            // Network error, timeout, etc.
-            System.err.println("Unexpected error: " + e.getMessage());
-            throw e;
-        }
+            return post(config.getEmbedEndpoint(), llmRequest);
+        });
+    }
+
+    private Mono<LlmResponse> post(String endpoint, LLMRequest llmRequest) {
+        return togetherWebClient.post()
+                .uri(endpoint)
+                .bodyValue(llmRequest)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
+                        clientResponse.bodyToMono(String.class).flatMap(errorBody ->
+                                Mono.error(new ClientSide4XXException("Client error: " + errorBody))
+                        ))
+                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
+                        clientResponse.bodyToMono(String.class).flatMap(errorBody ->
+                                Mono.error(new HttpError5XXException("Server error: " + errorBody))
+                        ))
+                .bodyToMono(LlmResponse.class)
+                // API response error with status code, or network error, timeout, etc.
+                .doOnError(WebClientResponseException.class, e ->
+                        log.error("HTTP error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString()))
+                .doOnError(e -> !(e instanceof WebClientResponseException), e ->
+                        log.error("Unexpected error: {}", e.getMessage()));
     }
 
 }
@@ -4,6 +4,8 @@ import com.haekitchenapp.recipeapp.entity.Unit;
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeIngredientRequest;
 import com.haekitchenapp.recipeapp.model.response.ApiResponse;
 import com.haekitchenapp.recipeapp.repository.UnitRepository;
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataCache;
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -21,8 +23,7 @@ import java.util.stream.Collectors;
 public class UnitService {
 
     private final UnitRepository unitRepository;
-
-    private Map<Long, String> unitCache;
+    private final ReferenceDataCache referenceDataCache;
 
     public ResponseEntity<ApiResponse<List<Unit>>> getAllUnits() {
         List<Unit> units = unitRepository.findAll();
@@ -30,27 +31,11 @@ public class UnitService {
     }
 
     public Map<Long, String> getAllUnitsMap() {
-        if (unitCache == null) {
-            unitCache = unitRepository.findAll()
-                    .stream()
-                    .collect(Collectors.toMap(Unit::getId, Unit::getName));
-        }
-        return unitCache;
-    }
-
-    private void refreshUnitCache() {
-        unitCache = unitRepository.findAll()
-                .stream()
-                .collect(Collectors.toMap(Unit::getId, Unit::getName));
+        return referenceDataCache.units().all();
     }
 
     public String getUnitNameById(Long unitId) {
-        if (unitCache == null || !unitCache.containsKey(unitId)) {
-            unitCache = unitRepository.findAll()
-                    .stream()
-                    .collect(Collectors.toMap(Unit::getId, Unit::getName));
-        }
-        return unitCache.getOrDefault(unitId, "Unknown Unit");
+        return referenceDataCache.units().name(unitId).orElse("Unknown Unit");
     }
 
     public Unit getUnitByName(String unitName) {
@@ -58,16 +43,7 @@ public class UnitService {
     }
 
     public boolean existsById(Long unitId) {
-        if (unitId == null) {
-            return false;
-        }
-        // Use the cache instead of making a database call
-        if (unitCache == null) {
-            unitCache = unitRepository.findAll()
-                    .stream()
-                    .collect(Collectors.toMap(Unit::getId, Unit::getName));
-        }
-        return unitCache.containsKey(unitId);
+        return referenceDataCache.units().contains(unitId);
     }
 
     public void persistAiGeneratedUnits(Set<RecipeIngredientRequest> ingredients) {
@@ -95,8 +71,7 @@ public class UnitService {
             unitRepository.saveAll(newUnits);
             log.info("Added {} new units: {}", newUnits.size(),
                     newUnits.stream().map(Unit::getName).collect(Collectors.joining(", ")));
-            // Invalidate the cache
-            refreshUnitCache();
+            referenceDataCache.changed(ReferenceDataType.UNITS);
         }
     }
 }
@@ -4,12 +4,16 @@ import com.haekitchenapp.recipeapp.entity.Cuisine;
 import com.haekitchenapp.recipeapp.exception.CuisineNotFoundException;
 import com.haekitchenapp.recipeapp.repository.CuisineRepository;
 import com.haekitchenapp.recipeapp.service.CuisineService;
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataCache;
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -18,25 +22,32 @@ import java.util.Optional;
 public class CuisineServiceImpl implements CuisineService {
 
     private final CuisineRepository cuisineRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public Optional<Cuisine> findById(Integer id) {
-        return cuisineRepository.findById(id);
+        return referenceDataCache.cuisines().name(id).map(name -> toCuisine(id, name));
     }
 
     @Override
     public Optional<Cuisine> findByName(String name) {
-        return cuisineRepository.findByName(name);
+        return referenceDataCache.cuisines().idOf(name).map(id -> toCuisine(id, name));
     }
 
     @Override
     public List<Cuisine> findAll() {
-        return cuisineRepository.findAll();
+        return referenceDataCache.cuisines().all().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> toCuisine(entry.getKey(), entry.getValue()))
+                .toList();
     }
 
     @Override
     public List<Cuisine> findByNameContaining(String name) {
-        return cuisineRepository.findByNameContainingIgnoreCase(name);
+        String fragment = name.toLowerCase(Locale.ROOT);
+        return findAll().stream()
+                .filter(cuisine -> cuisine.getName().toLowerCase(Locale.ROOT).contains(fragment))
+                .toList();
     }
 
     @Override
@@ -48,19 +59,23 @@ public class CuisineServiceImpl implements CuisineService {
     @Transactional
     public Cuisine createCuisine(Cuisine cuisine) {
         log.info("Creating new cuisine: {}", cuisine.getName());
-        return cuisineRepository.save(cuisine);
+        Cuisine saved = cuisineRepository.save(cuisine);
+        referenceDataCache.changed(ReferenceDataType.CUISINES);
+        return saved;
     }
 
     @Override
     @Transactional
     public Cuisine updateCuisine(Integer id, Cuisine cuisine) {
         log.info("Updating cuisine with id: {}", id);
-        return cuisineRepository.findById(id)
+        Cuisine updated = cuisineRepository.findById(id)
                 .map(existingCuisine -> {
                     existingCuisine.setName(cuisine.getName());
                     return cuisineRepository.save(existingCuisine);
                 })
                 .orElseThrow(() -> new CuisineNotFoundException("Cuisine not found with id: " + id));
+        referenceDataCache.changed(ReferenceDataType.CUISINES);
+        return updated;
     }
 
     @Override
@@ -71,10 +86,24 @@ public class CuisineServiceImpl implements CuisineService {
             throw new CuisineNotFoundException("Cuisine not found with id: " + id);
         }
         cuisineRepository.deleteById(id);
+        referenceDataCache.changed(ReferenceDataType.CUISINES);
     }
 
     @Override
     public boolean existsByName(String name) {
-        return cuisineRepository.existsByName(name);
+        return referenceDataCache.cuisines().idOf(name).isPresent();
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return referenceDataCache.cuisines().contains(id);
+    }
+
+    // Detached copies, so callers can neither change the cached rows nor trip over the lazy recipes collection
+    private static Cuisine toCuisine(Integer id, String name) {
+        Cuisine cuisine = new Cuisine();
+        cuisine.setId(id);
+        cuisine.setName(name);
+        return cuisine;
     }
 }
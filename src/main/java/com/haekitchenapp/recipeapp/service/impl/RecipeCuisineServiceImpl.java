@@ -5,6 +5,7 @@ import com.haekitchenapp.recipeapp.entity.Recipe;
 import com.haekitchenapp.recipeapp.entity.composite.RecipeCuisine;
 import com.haekitchenapp.recipeapp.entity.composite.RecipeCuisineId;
 import com.haekitchenapp.recipeapp.exception.CuisineNotFoundException;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAttributeProjection;
 import com.haekitchenapp.recipeapp.repository.CuisineRepository;
 import com.haekitchenapp.recipeapp.repository.RecipeCuisineRepository;
 import com.haekitchenapp.recipeapp.repository.RecipeRepository;
@@ -14,8 +15,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -35,8 +39,10 @@ public class RecipeCuisineServiceImpl implements RecipeCuisineService {
         Recipe recipe = recipeRepository.findById(recipeId)
                 .orElseThrow(() -> new CuisineNotFoundException("Recipe not found with id: " + recipeId));
 
-        Cuisine cuisine = cuisineRepository.findById(cuisineId)
-                .orElseThrow(() -> new CuisineNotFoundException("Cuisine not found with id: " + cuisineId));
+        if (!cuisineService.existsById(cuisineId)) {
+            throw new CuisineNotFoundException("Cuisine not found with id: " + cuisineId);
+        }
+        Cuisine cuisine = cuisineRepository.getReferenceById(cuisineId);
 
         // Check if association already exists
         if (recipeCuisineRepository.existsByRecipeIdAndCuisineId(recipeId, cuisineId)) {
@@ -65,8 +71,10 @@ public class RecipeCuisineServiceImpl implements RecipeCuisineService {
 
         for (Integer cuisineId : cuisineIds) {
             if (!recipeCuisineRepository.existsByRecipeIdAndCuisineId(recipeId, cuisineId)) {
-                Cuisine cuisine = cuisineRepository.findById(cuisineId)
-                        .orElseThrow(() -> new CuisineNotFoundException("Cuisine not found with id: " + cuisineId));
+                if (!cuisineService.existsById(cuisineId)) {
+                    throw new CuisineNotFoundException("Cuisine not found with id: " + cuisineId);
+                }
+                Cuisine cuisine = cuisineRepository.getReferenceById(cuisineId);
 
                 RecipeCuisine recipeCuisine = new RecipeCuisine();
                 recipeCuisine.setId(new RecipeCuisineId(recipeId, cuisineId));
@@ -99,7 +107,7 @@ public class RecipeCuisineServiceImpl implements RecipeCuisineService {
     public List<RecipeCuisine> getCuisineRecipes(Integer cuisineId) {
         log.info("Getting recipe associations for cuisine ID: {}", cuisineId);
 
-        if (!cuisineRepository.existsById(cuisineId)) {
+        if (!cuisineService.existsById(cuisineId)) {
             throw new CuisineNotFoundException("Cuisine not found with id: " + cuisineId);
         }
 
@@ -172,7 +180,7 @@ public class RecipeCuisineServiceImpl implements RecipeCuisineService {
         associateRecipeWithCuisines(recipeId, cuisineIds);
     }
 
-
+    @Override
     public List<String> getCuisineNamesByRecipeId(Long recipeId) {
         log.debug("Getting cuisine names for recipe ID: {}", recipeId);
         List<RecipeCuisine> recipeCuisines = recipeCuisineRepository.findByRecipeId(recipeId);
@@ -180,4 +188,15 @@ public class RecipeCuisineServiceImpl implements RecipeCuisineService {
                 .map(recipeCuisine -> recipeCuisine.getCuisine().getName())
                 .toList();
     }
+
+    @Override
+    public Map<Long, List<String>> getCuisineNamesByRecipeIds(Collection<Long> recipeIds) {
+        log.debug("Getting cuisine names for {} recipes", recipeIds.size());
+        if (recipeIds.isEmpty()) {
+            return Map.of();
+        }
+        return recipeCuisineRepository.findCuisineNamesByRecipeIds(recipeIds).stream()
+                .collect(Collectors.groupingBy(RecipeAttributeProjection::getRecipeId,
+                        Collectors.mapping(RecipeAttributeProjection::getName, Collectors.toList())));
+    }
 }
@@ -0,0 +1,261 @@
+package com.haekitchenapp.recipeapp.service.llmUsage;
+
+import com.haekitchenapp.recipeapp.exception.LlmBudgetExceededException;
+import com.haekitchenapp.recipeapp.repository.LlmQueryLogJdbcRepository;
+import com.haekitchenapp.recipeapp.repository.LlmQueryLogJdbcRepository.UserUsage;
+import com.haekitchenapp.recipeapp.service.LlmPricingService;
+import com.haekitchenapp.recipeapp.service.LlmPricingService.Cost;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily and monthly LLM token and cost budgets per user. {@link #checkBudget} runs before a provider is called and
+ * rejects users who have used up a budget with {@link LlmBudgetExceededException}; {@link #charge} adds each call's
+ * usage once the response is in. Usage is kept in memory, in stripes locked by user id, so a check is a map lookup.
+ * <p>
+ * The totals are reconciled with {@code llm_query_logs} every {@code llm-budget.reconcile-interval-ms} and at
+ * startup, which brings in usage logged by other instances or before a restart. Each total takes the larger of the
+ * two counts, so calls still waiting to be written are not forgotten. A call already admitted is never cut short,
+ * so a user can overshoot a budget by the calls in flight when it ran out.
+ * <p>
+ * Days and months follow the server's time zone, like {@code llm_query_logs.created_at}. A limit of 0 disables it.
+ */
+@Slf4j
+@Service
+public class LlmBudgetService {
+
+    private final LlmQueryLogJdbcRepository llmQueryLogJdbcRepository;
+    private final LlmPricingService llmPricingService;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final boolean enabled;
+    private final long dailyTokens;
+    private final double dailyCostUsd;
+    private final long monthlyTokens;
+    private final double monthlyCostUsd;
+    private final Stripe[] stripes;
+
+    public LlmBudgetService(LlmQueryLogJdbcRepository llmQueryLogJdbcRepository,
+                            LlmPricingService llmPricingService,
+                            MeterRegistry meterRegistry,
+                            @Value("${llm-budget.enabled:true}") boolean enabled,
+                            @Value("${llm-budget.daily-tokens:200000}") long dailyTokens,
+                            @Value("${llm-budget.daily-cost-usd:1.0}") double dailyCostUsd,
+                            @Value("${llm-budget.monthly-tokens:3000000}") long monthlyTokens,
+                            @Value("${llm-budget.monthly-cost-usd:10.0}") double monthlyCostUsd,
+                            @Value("${llm-budget.stripes:64}") int stripes) {
+        this(llmQueryLogJdbcRepository, llmPricingService, meterRegistry, Clock.systemDefaultZone(), enabled,
+                dailyTokens, dailyCostUsd, monthlyTokens, monthlyCostUsd, stripes);
+    }
+
+    LlmBudgetService(LlmQueryLogJdbcRepository llmQueryLogJdbcRepository,
+                     LlmPricingService llmPricingService,
+                     MeterRegistry meterRegistry,
+                     Clock clock,
+                     boolean enabled,
+                     long dailyTokens,
+                     double dailyCostUsd,
+                     long monthlyTokens,
+                     double monthlyCostUsd,
+                     int stripes) {
+        this.llmQueryLogJdbcRepository = llmQueryLogJdbcRepository;
+        this.llmPricingService = llmPricingService;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.dailyTokens = dailyTokens;
+        this.dailyCostUsd = dailyCostUsd;
+        this.monthlyTokens = monthlyTokens;
+        this.monthlyCostUsd = monthlyCostUsd;
+        this.stripes = new Stripe[Math.max(stripes, 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @param userId the user the call is made for, or null for calls no user is charged for
+     * @throws LlmBudgetExceededException if the user has used up a daily or monthly budget
+     */
+    public void checkBudget(Long userId) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock);
+        Stripe stripe = stripe(userId);
+        String exceeded;
+        synchronized (stripe) {
+            Usage usage = stripe.users.get(userId);
+            if (usage == null) {
+                return;
+            }
+            usage.roll(today);
+            exceeded = exceeded(usage);
+        }
+        if (exceeded == null) {
+            return;
+        }
+        boolean daily = exceeded.startsWith("daily");
+        LocalDateTime resetsAt = daily
+                ? today.plusDays(1).atStartOfDay()
+                : YearMonth.from(today).plusMonths(1).atDay(1).atStartOfDay();
+        meterRegistry.counter("llm.budget.rejected", "period", daily ? "day" : "month").increment();
+        log.info("Rejected LLM call for user {}: {} used", userId, exceeded);
+        throw new LlmBudgetExceededException("Your " + exceeded + " has been used up. It resets at " + resetsAt + ".",
+                Duration.between(LocalDateTime.now(clock), resetsAt));
+    }
+
+    /**
+     * Adds a call's usage to the user's totals. Cost comes from the cached model price; calls to unpriced models
+     * only count tokens.
+     */
+    public void charge(Long userId, String model, long promptTokens, long responseTokens, long reasoningTokens) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        double cost = llmPricingService.costOf(model, promptTokens, responseTokens, reasoningTokens)
+                .map(Cost::totalCost)
+                .orElse(0.0);
+        // Matches total_tokens in llm_query_logs, where response tokens already include reasoning
+        long tokens = promptTokens + responseTokens;
+        LocalDate today = LocalDate.now(clock);
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Usage usage = stripe.users.computeIfAbsent(userId, id -> new Usage(today));
+            usage.roll(today);
+            usage.dayTokens += tokens;
+            usage.dayCost += cost;
+            usage.monthTokens += tokens;
+            usage.monthCost += cost;
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Raises the in-memory totals to what {@code llm_query_logs} holds for this day and month, and drops users with
+     * no usage this month.
+     *
+     * @return the number of users with usage logged this month
+     */
+    @Scheduled(fixedDelayString = "${llm-budget.reconcile-interval-ms:300000}",
+            initialDelayString = "${llm-budget.reconcile-interval-ms:300000}")
+    public int reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDate today = LocalDate.now(clock);
+        LocalDateTime monthStart = YearMonth.from(today).atDay(1).atStartOfDay();
+        List<UserUsage> logged;
+        try {
+            logged = llmQueryLogJdbcRepository.sumUsageByUser(today.atStartOfDay(), monthStart);
+        } catch (RuntimeException e) {
+            log.warn("Failed to reconcile LLM budgets with llm_query_logs: {}", e.getMessage());
+            return 0;
+        }
+        for (UserUsage row : logged) {
+            Stripe stripe = stripe(row.userId());
+            synchronized (stripe) {
+                Usage usage = stripe.users.computeIfAbsent(row.userId(), id -> new Usage(today));
+                usage.roll(today);
+                usage.dayTokens = Math.max(usage.dayTokens, row.dayTokens());
+                usage.dayCost = Math.max(usage.dayCost, row.dayCost());
+                usage.monthTokens = Math.max(usage.monthTokens, row.monthTokens());
+                usage.monthCost = Math.max(usage.monthCost, row.monthCost());
+            }
+        }
+        YearMonth month = YearMonth.from(today);
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.users.values().removeIf(usage -> !usage.month.equals(month));
+            }
+        }
+        log.debug("Reconciled LLM budgets for {} users", logged.size());
+        return logged.size();
+    }
+
+    private String exceeded(Usage usage) {
+        if (dailyTokens > 0 && usage.dayTokens >= dailyTokens) {
+            return "daily LLM budget of " + dailyTokens + " tokens";
+        }
+        if (dailyCostUsd > 0 && usage.dayCost >= dailyCostUsd) {
+            return "daily LLM budget of $" + dailyCostUsd;
+        }
+        if (monthlyTokens > 0 && usage.monthTokens >= monthlyTokens) {
+            return "monthly LLM budget of " + monthlyTokens + " tokens";
+        }
+        if (monthlyCostUsd > 0 && usage.monthCost >= monthlyCostUsd) {
+            return "monthly LLM budget of $" + monthlyCostUsd;
+        }
+        return null;
+    }
+
+    private Stripe stripe(long userId) {
+        return stripes[Math.floorMod(Long.hashCode(userId), stripes.length)];
+    }
+
+    int trackedUsers() {
+        int users = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                users += stripe.users.size();
+            }
+        }
+        return users;
+    }
+
+    private static final class Stripe {
+        private final Map<Long, Usage> users = new HashMap<>();
+    }
+
+    /**
+     * One user's totals for the current day and month, guarded by the user's stripe.
+     */
+    private static final class Usage {
+
+        private LocalDate day;
+        private YearMonth month;
+        private long dayTokens;
+        private double dayCost;
+        private long monthTokens;
+        private double monthCost;
+
+        Usage(LocalDate today) {
+            this.day = today;
+            this.month = YearMonth.from(today);
+        }
+
+        void roll(LocalDate today) {
+            if (!today.equals(day)) {
+                day = today;
+                dayTokens = 0;
+                dayCost = 0;
+            }
+            YearMonth current = YearMonth.from(today);
+            if (!current.equals(month)) {
+                month = current;
+                monthTokens = 0;
+                monthCost = 0;
+            }
+        }
+    }
+}
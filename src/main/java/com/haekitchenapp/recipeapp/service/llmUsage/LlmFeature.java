@@ -0,0 +1,28 @@
+package com.haekitchenapp.recipeapp.service.llmUsage;
+
+/**
+ * What an LLM call was made for, used as the {@code feature} tag of the usage meters. Tags are the names of the
+ * calling API methods so dashboards can be read against the code.
+ */
+public enum LlmFeature {
+    CHAT("chat"),
+    BUILD_RECIPE("buildRecipe"),
+    CORRECT_RECIPE("correctRecipe"),
+    IS_BAD_RECIPE("callIsBadRecipe"),
+    REWRITE("callLLMRewrite"),
+    SUMMARIZE("callLLMSummarize"),
+    FORMAT_TITLE("callLLMFormatTitle"),
+    EMBED_RECIPE("embedRecipe"),
+    EMBED_QUERY("embedQuery"),
+    EMBED("embed");
+
+    private final String tag;
+
+    LlmFeature(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,19 @@
+package com.haekitchenapp.recipeapp.service.llmUsage;
+
+/**
+ * The API an LLM call went to, used as the {@code provider} tag of the usage meters.
+ */
+public enum LlmProvider {
+    OPENAI("openai"),
+    TOGETHER("together");
+
+    private final String tag;
+
+    LlmProvider(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,142 @@
+package com.haekitchenapp.recipeapp.service.llmUsage;
+
+import com.haekitchenapp.recipeapp.repository.LlmUsageRollupRepository;
+import com.haekitchenapp.recipeapp.repository.LlmUsageRollupRepository.HourlyUsage;
+import com.haekitchenapp.recipeapp.service.LlmPricingService;
+import com.haekitchenapp.recipeapp.service.LlmPricingService.Cost;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token and cost meters for every LLM call, tagged by {@code model}, {@code provider} and {@code feature}:
+ * <ul>
+ *     <li>{@code llm.calls}</li>
+ *     <li>{@code llm.tokens} with {@code type} = {@code prompt}, {@code response} or {@code reasoning}</li>
+ *     <li>{@code llm.cost} in USD, from the cached model price; calls to unpriced models add no cost</li>
+ * </ul>
+ * The same totals are summed per hour in memory and added to {@code llm_usage_hourly} every
+ * {@code llm-usage.rollup-flush-interval-ms}, so usage survives restarts and can be compared across instances.
+ */
+@Slf4j
+@Service
+public class LlmUsageMetrics {
+
+    private final LlmPricingService llmPricingService;
+    private final LlmUsageRollupRepository llmUsageRollupRepository;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Map<RollupKey, Usage> pending = new ConcurrentHashMap<>();
+
+    public LlmUsageMetrics(LlmPricingService llmPricingService,
+                           LlmUsageRollupRepository llmUsageRollupRepository,
+                           MeterRegistry meterRegistry) {
+        this(llmPricingService, llmUsageRollupRepository, meterRegistry, Clock.systemUTC());
+    }
+
+    LlmUsageMetrics(LlmPricingService llmPricingService,
+                    LlmUsageRollupRepository llmUsageRollupRepository,
+                    MeterRegistry meterRegistry,
+                    Clock clock) {
+        this.llmPricingService = llmPricingService;
+        this.llmUsageRollupRepository = llmUsageRollupRepository;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * Records one call. Looks the price up in {@link LlmPricingService}'s cache, which queries the database on a
+     * miss, so call it off the Netty event loop.
+     */
+    public void record(LlmProvider provider, String model, LlmFeature feature,
+                       long promptTokens, long responseTokens, long reasoningTokens) {
+        try {
+            double cost = llmPricingService.costOf(model, promptTokens, responseTokens, reasoningTokens)
+                    .map(Cost::totalCost)
+                    .orElse(0.0);
+
+            Tags tags = Tags.of("model", String.valueOf(model), "provider", provider.tag(), "feature", feature.tag());
+            counter("llm.calls", tags, null, "LLM calls").increment();
+            counter("llm.tokens", tags.and("type", "prompt"), "tokens", "LLM tokens").increment(promptTokens);
+            counter("llm.tokens", tags.and("type", "response"), "tokens", "LLM tokens").increment(responseTokens);
+            counter("llm.tokens", tags.and("type", "reasoning"), "tokens", "LLM tokens").increment(reasoningTokens);
+            counter("llm.cost", tags, "usd", "LLM cost in USD").increment(cost);
+
+            RollupKey key = new RollupKey(clock.instant().truncatedTo(ChronoUnit.HOURS),
+                    String.valueOf(model), provider.tag(), feature.tag());
+            Usage call = new Usage(1, promptTokens, responseTokens, reasoningTokens, cost);
+            pending.merge(key, call, Usage::plus);
+        } catch (RuntimeException e) {
+            log.warn("Failed to record LLM usage for {}: {}", model, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds the usage summed since the last flush to the hourly rollup. If the write fails the usage is kept for the
+     * next flush.
+     */
+    @Scheduled(fixedDelayString = "${llm-usage.rollup-flush-interval-ms:60000}",
+            initialDelayString = "${llm-usage.rollup-flush-interval-ms:60000}")
+    @PreDestroy
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<HourlyUsage> rows = new ArrayList<>();
+        for (RollupKey key : List.copyOf(pending.keySet())) {
+            Usage usage = pending.remove(key);
+            if (usage != null) {
+                rows.add(new HourlyUsage(key.hour(), key.model(), key.provider(), key.feature(), usage.calls(),
+                        usage.promptTokens(), usage.responseTokens(), usage.reasoningTokens(), usage.costUsd()));
+            }
+        }
+        try {
+            llmUsageRollupRepository.add(rows);
+            log.debug("Flushed {} LLM usage rollup rows", rows.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} LLM usage rollup rows, retrying next flush: {}", rows.size(), e.getMessage());
+            for (HourlyUsage row : rows) {
+                pending.merge(new RollupKey(row.hour(), row.model(), row.provider(), row.feature()),
+                        new Usage(row.calls(), row.promptTokens(), row.responseTokens(), row.reasoningTokens(),
+                                row.costUsd()),
+                        Usage::plus);
+            }
+        }
+    }
+
+    int pendingRows() {
+        return pending.size();
+    }
+
+    private Counter counter(String name, Tags tags, String baseUnit, String description) {
+        return Counter.builder(name)
+                .tags(tags)
+                .baseUnit(baseUnit)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private record RollupKey(Instant hour, String model, String provider, String feature) {
+    }
+
+    private record Usage(long calls, long promptTokens, long responseTokens, long reasoningTokens, double costUsd) {
+
+        Usage plus(Usage other) {
+            return new Usage(calls + other.calls, promptTokens + other.promptTokens,
+                    responseTokens + other.responseTokens, reasoningTokens + other.reasoningTokens,
+                    costUsd + other.costUsd);
+        }
+    }
+}
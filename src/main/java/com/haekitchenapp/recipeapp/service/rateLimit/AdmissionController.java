@@ -0,0 +1,229 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Instance-wide admission control in front of the controllers. At most {@code rate-limiter.admission.max-in-flight}
+ * requests run at once and at most {@code rate-limiter.admission.ai.max-concurrent} of them on {@link CostClass#AI}
+ * routes. A request waits for a slot no longer than its class allows and is otherwise turned away, so callers get a
+ * fast 503 instead of sitting in Tomcat's queue until they time out. Slots go to waiting requests first come, first
+ * served, so a new arrival cannot take a slot ahead of one already waiting.
+ * <p>
+ * Queueing delay is watched CoDel style: if even the quickest request over a
+ * {@code rate-limiter.admission.interval-ms} window waited longer than {@code rate-limiter.admission.target-delay-ms},
+ * whether it got a slot or timed out, a queue is standing and the lowest priority class is shed, turned away without
+ * waiting. AI requests are shed at the target delay, writes at four times it, and reads only ever wait out their own
+ * timeout.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private static final int SHED_AI = 1;
+    private static final int SHED_WRITES = 2;
+
+    private final List<String> aiPaths;
+    private final int readWeight;
+    private final int writeWeight;
+    private final int aiWeight;
+    private final Semaphore inFlight;
+    private final Semaphore aiInFlight;
+    private final long readMaxWaitNanos;
+    private final long writeMaxWaitNanos;
+    private final long aiMaxWaitNanos;
+    private final long targetDelayNanos;
+    private final long intervalNanos;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong windowStart;
+    private final AtomicLong windowMinDelay = new AtomicLong(Long.MAX_VALUE);
+    private volatile int shedLevel;
+
+    // Monotonic, in nanoseconds
+    LongSupplier clock = System::nanoTime;
+
+    public AdmissionController(MeterRegistry meterRegistry,
+                               @Value("${rate-limiter.ai-paths:/api/recipe-ai/searchSimilarity,/api/recipe-ai/chat,/api/openai/}") List<String> aiPaths,
+                               @Value("${rate-limiter.weights.read:1}") int readWeight,
+                               @Value("${rate-limiter.weights.write:1}") int writeWeight,
+                               @Value("${rate-limiter.weights.ai:10}") int aiWeight,
+                               @Value("${rate-limiter.admission.max-in-flight:150}") int maxInFlight,
+                               @Value("${rate-limiter.admission.ai.max-concurrent:16}") int aiMaxConcurrent,
+                               @Value("${rate-limiter.admission.read.max-wait-ms:2000}") long readMaxWaitMs,
+                               @Value("${rate-limiter.admission.write.max-wait-ms:500}") long writeMaxWaitMs,
+                               @Value("${rate-limiter.admission.ai.max-wait-ms:200}") long aiMaxWaitMs,
+                               @Value("${rate-limiter.admission.target-delay-ms:20}") long targetDelayMs,
+                               @Value("${rate-limiter.admission.interval-ms:100}") long intervalMs) {
+        this.meterRegistry = meterRegistry;
+        this.aiPaths = List.copyOf(aiPaths);
+        this.readWeight = Math.max(1, readWeight);
+        this.writeWeight = Math.max(1, writeWeight);
+        this.aiWeight = Math.max(1, aiWeight);
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.aiInFlight = new Semaphore(aiMaxConcurrent, true);
+        this.readMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(readMaxWaitMs);
+        this.writeMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(writeMaxWaitMs);
+        this.aiMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(aiMaxWaitMs);
+        this.targetDelayNanos = TimeUnit.MILLISECONDS.toNanos(targetDelayMs);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.windowStart = new AtomicLong(clock.getAsLong());
+
+        Gauge.builder("http.admission.in_flight", inFlight, s -> maxInFlight - s.availablePermits())
+                .description("Requests admitted and not yet finished")
+                .register(meterRegistry);
+        Gauge.builder("http.admission.ai.in_flight", aiInFlight, s -> aiMaxConcurrent - s.availablePermits())
+                .description("AI requests admitted and not yet finished")
+                .register(meterRegistry);
+        Gauge.builder("http.admission.shed.level", this, controller -> controller.shedLevel)
+                .description("0 when nothing is shed, 1 when AI requests are shed, 2 when writes are shed too")
+                .register(meterRegistry);
+    }
+
+    public CostClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path != null) {
+            for (String aiPath : aiPaths) {
+                if (path.startsWith(aiPath)) {
+                    return CostClass.AI;
+                }
+            }
+        }
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return CostClass.READ;
+        }
+        return CostClass.WRITE;
+    }
+
+    /**
+     * @return how many requests one request of the class counts as against the per-key rate limits
+     */
+    public int weight(CostClass costClass) {
+        return switch (costClass) {
+            case READ -> readWeight;
+            case WRITE -> writeWeight;
+            case AI -> aiWeight;
+        };
+    }
+
+    /**
+     * Waits for a slot for the request, blocking the calling thread for at most the class's wait.
+     *
+     * @return the slot, to be released once the response is complete, or null if the request was turned away
+     */
+    public Permit admit(CostClass costClass) {
+        long start = clock.getAsLong();
+        if (shedLevel(start) >= shedLevelOf(costClass)) {
+            return reject(costClass, "shed");
+        }
+        try {
+            boolean acquired = inFlight.tryAcquire(maxWaitNanos(costClass), TimeUnit.NANOSECONDS);
+            // A timed out wait counts too, or a window in which nobody got a slot would read as no queue at all
+            recordDelay(clock.getAsLong() - start);
+            if (!acquired) {
+                return reject(costClass, "timeout");
+            }
+            if (costClass == CostClass.AI && !aiInFlight.tryAcquire(aiMaxWaitNanos, TimeUnit.NANOSECONDS)) {
+                inFlight.release();
+                return reject(costClass, "ai_concurrency");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return reject(costClass, "interrupted");
+        }
+        return new Permit(costClass);
+    }
+
+    int shedLevel(long now) {
+        rollWindow(now);
+        return shedLevel;
+    }
+
+    void recordDelay(long delayNanos) {
+        rollWindow(clock.getAsLong());
+        windowMinDelay.accumulateAndGet(delayNanos, Math::min);
+    }
+
+    /**
+     * Closes the window once it is an interval old and sets the shed level from the smallest delay seen in it. A
+     * window with no admissions at all means nothing is queued.
+     */
+    private void rollWindow(long now) {
+        long start = windowStart.get();
+        if (now - start < intervalNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        long minDelay = windowMinDelay.getAndSet(Long.MAX_VALUE);
+        int level;
+        if (minDelay == Long.MAX_VALUE || minDelay < targetDelayNanos) {
+            level = 0;
+        } else if (minDelay < 4 * targetDelayNanos) {
+            level = SHED_AI;
+        } else {
+            level = SHED_WRITES;
+        }
+        if (level != shedLevel) {
+            log.info("Admission shed level {} -> {}, queueing delay {} ms", shedLevel, level,
+                    minDelay == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(minDelay));
+            shedLevel = level;
+        }
+    }
+
+    private static int shedLevelOf(CostClass costClass) {
+        return switch (costClass) {
+            case AI -> SHED_AI;
+            case WRITE -> SHED_WRITES;
+            case READ -> Integer.MAX_VALUE;
+        };
+    }
+
+    private long maxWaitNanos(CostClass costClass) {
+        return switch (costClass) {
+            case READ -> readMaxWaitNanos;
+            case WRITE -> writeMaxWaitNanos;
+            case AI -> aiMaxWaitNanos;
+        };
+    }
+
+    private Permit reject(CostClass costClass, String reason) {
+        meterRegistry.counter("http.admission.rejected", "class", costClass.tag(), "reason", reason).increment();
+        log.debug("Turned away {} request: {}", costClass.tag(), reason);
+        return null;
+    }
+
+    /**
+     * A request's slot. Releasing it more than once has no effect, so it can be released both when the filter
+     * returns and when an async response completes.
+     */
+    public final class Permit {
+
+        private final CostClass costClass;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(CostClass costClass) {
+            this.costClass = costClass;
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (costClass == CostClass.AI) {
+                aiInFlight.release();
+            }
+            inFlight.release();
+        }
+    }
+}
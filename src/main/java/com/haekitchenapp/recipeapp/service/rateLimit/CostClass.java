@@ -0,0 +1,28 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+/**
+ * How expensive a request is to serve, which sets its rate limit weight and its priority under overload. Listed from
+ * the highest priority to the lowest: when requests queue up, {@link #AI} requests are shed first, then
+ * {@link #WRITE}s, and {@link #READ}s are never shed.
+ */
+public enum CostClass {
+
+    /** GET, HEAD and OPTIONS requests outside the AI routes. */
+    READ("read"),
+
+    /** Other requests outside the AI routes. */
+    WRITE("write"),
+
+    /** Routes that call an LLM or embedding API, configured with {@code rate-limiter.ai-paths}. */
+    AI("ai");
+
+    private final String tag;
+
+    CostClass(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,63 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free GCRA (generic cell rate algorithm) limiter for one key and one period. The whole state is the
+ * theoretical arrival time (TAT) in a single {@link AtomicLong}: each admitted request pushes it one emission
+ * interval ({@code period / limit}) further, and a request is rejected when that would put the TAT more than one
+ * period ahead of now. This admits bursts of up to {@code limit} requests and then {@code limit} per period.
+ * <p>
+ * A bucket whose TAT is not ahead of now is indistinguishable from a new one, which is what makes idle keys safe to
+ * evict.
+ */
+final class GcraBucket {
+
+    private final AtomicLong tat;
+
+    // Emission interval of the last acquire, so refunds use the limit the key is actually checked against
+    private volatile long interval;
+
+    GcraBucket(long now) {
+        this.tat = new AtomicLong(now);
+    }
+
+    boolean tryAcquire(long now, int limit, long periodNanos) {
+        return tryAcquire(now, limit, periodNanos, 1);
+    }
+
+    /**
+     * @param now      current time in nanoseconds, from a monotonic clock
+     * @param limit    requests allowed per period, must be positive
+     * @param periodNanos length of the period in nanoseconds
+     * @param weight   requests this one counts as
+     * @return true if the request was admitted and counted
+     */
+    boolean tryAcquire(long now, int limit, long periodNanos, int weight) {
+        long interval = periodNanos / limit;
+        this.interval = interval;
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval * weight;
+            if (next - now > periodNanos) {
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back up to {@code requests} previously admitted requests. Never moves the TAT behind now, so a refund
+     * cannot build up credit beyond an idle bucket.
+     */
+    void refund(long now, int requests) {
+        long credit = interval * requests;
+        tat.updateAndGet(current -> current > now ? Math.max(current - credit, now) : current);
+    }
+
+    boolean isIdle(long now) {
+        return tat.get() <= now;
+    }
+}
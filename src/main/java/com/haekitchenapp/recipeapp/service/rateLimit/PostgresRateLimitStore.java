@@ -0,0 +1,111 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@link RateLimitStore} on a Postgres {@code UNLOGGED} table. Each bucket is one row holding its theoretical
+ * arrival time (TAT) in microseconds of the database clock, so instances with skewed clocks still agree. Acquire
+ * and release are single statements, atomic under concurrent upserts from any number of instances.
+ * <p>
+ * The table is unlogged because the state is disposable: after a crash Postgres truncates it and every key starts
+ * with an empty bucket.
+ * <p>
+ * The store has a small connection pool of its own with short connection and statement timeouts, so a slow or
+ * unreachable database fails a limiter call quickly instead of holding it for the main pool's connection timeout.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "postgres")
+public class PostgresRateLimitStore implements RateLimitStore {
+
+    private static final String CREATE_TABLE = """
+            CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_buckets (
+                bucket_key      text PRIMARY KEY,
+                tat             bigint NOT NULL,
+                interval_micros bigint NOT NULL,
+                granted         integer NOT NULL,
+                updated_at      bigint NOT NULL
+            )
+            """;
+
+    private static final String NOW_MICROS = "(extract(epoch FROM clock_timestamp()) * 1000000)::bigint";
+
+    // SET expressions see the old row, so tat and granted are both computed from the TAT before this request
+    private static final String ACQUIRE = """
+            INSERT INTO rate_limit_buckets AS b (bucket_key, tat, interval_micros, granted, updated_at)
+            SELECT ?, n.now + LEAST(?, ?) * ?, ?, LEAST(?, ?), n.now
+            FROM (SELECT %s AS now) n
+            ON CONFLICT (bucket_key) DO UPDATE SET
+                granted = LEAST(?, GREATEST(0, (EXCLUDED.updated_at + ? - GREATEST(b.tat, EXCLUDED.updated_at)) / EXCLUDED.interval_micros)),
+                tat = GREATEST(b.tat, EXCLUDED.updated_at)
+                      + LEAST(?, GREATEST(0, (EXCLUDED.updated_at + ? - GREATEST(b.tat, EXCLUDED.updated_at)) / EXCLUDED.interval_micros))
+                        * EXCLUDED.interval_micros,
+                interval_micros = EXCLUDED.interval_micros,
+                updated_at = EXCLUDED.updated_at
+            RETURNING granted
+            """.formatted(NOW_MICROS);
+
+    private static final String RELEASE = """
+            UPDATE rate_limit_buckets
+            SET tat = GREATEST(tat - ? * interval_micros, %1$s)
+            WHERE bucket_key = ? AND tat > %1$s
+            """.formatted(NOW_MICROS);
+
+    private static final String EVICT_IDLE = "DELETE FROM rate_limit_buckets WHERE tat <= " + NOW_MICROS;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresRateLimitStore(DataSourceProperties dataSourceProperties,
+                                  @Value("${rate-limiter.store.pool-size:4}") int poolSize,
+                                  @Value("${rate-limiter.store.connection-timeout-ms:250}") long connectionTimeoutMs,
+                                  @Value("${rate-limiter.store.statement-timeout-ms:250}") long statementTimeoutMs) {
+        dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("rate-limit-store");
+        dataSource.setMaximumPoolSize(Math.max(1, poolSize));
+        dataSource.setMinimumIdle(1);
+        // Hikari does not accept less than 250 ms
+        dataSource.setConnectionTimeout(Math.max(250, connectionTimeoutMs));
+        dataSource.setConnectionInitSql("SET statement_timeout = " + Math.max(1, statementTimeoutMs));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PreDestroy
+    void close() {
+        dataSource.close();
+    }
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        log.info("Using Postgres table rate_limit_buckets for shared rate limits");
+    }
+
+    @Override
+    public int acquire(String bucketKey, int tokens, int limit, long periodMicros) {
+        long interval = periodMicros / limit;
+        Integer granted = jdbcTemplate.queryForObject(ACQUIRE, Integer.class,
+                bucketKey, tokens, limit, interval, interval, tokens, limit,
+                tokens, periodMicros,
+                tokens, periodMicros);
+        return granted != null ? granted : 0;
+    }
+
+    @Override
+    public void release(String bucketKey, int tokens) {
+        jdbcTemplate.update(RELEASE, tokens, bucketKey);
+    }
+
+    @Override
+    public int evictIdle() {
+        return jdbcTemplate.update(EVICT_IDLE);
+    }
+}
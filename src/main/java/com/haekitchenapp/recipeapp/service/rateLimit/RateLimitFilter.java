@@ -12,18 +12,26 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 
+/**
+ * Per-key rate limits, weighted by each request's {@link CostClass}, followed by instance-wide admission control
+ * from {@link AdmissionController}. Requests over their rate limit get a 429; requests turned away because the
+ * instance is saturated get a 503 and give back what they were charged against their rate limit.
+ */
 @Component
 public class RateLimitFilter implements Filter {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
 
-    private final RateLimiterService rateLimiterService;
+    // Local or shared across instances, depending on rate-limiter.backend
+    private final RateLimiter rateLimiter;
+    private final AdmissionController admissionController;
 
     @Value("${spring.profiles.active:default}")
     private String activeProfile;
 
-    public RateLimitFilter(RateLimiterService rateLimiterService) {
-        this.rateLimiterService = rateLimiterService;
+    public RateLimitFilter(RateLimiter rateLimiter, AdmissionController admissionController) {
+        this.rateLimiter = rateLimiter;
+        this.admissionController = admissionController;
     }
 
     @Override
@@ -42,27 +50,80 @@ public class RateLimitFilter implements Filter {
 
         String path = req.getRequestURI();
         String ip = req.getRemoteAddr();
-        boolean allowed;
+        CostClass costClass = admissionController.classify(req);
+        String key;
+        int maxPerMinute;
+        int maxPerHour;
 
         if (isPublicPath(path)) {
             // Public endpoints → use IP-based rate limiting
-            allowed = rateLimiterService.isAllowed("PUBLIC:" + ip, 30, 100);
+            key = "PUBLIC:" + ip;
+            maxPerMinute = 30;
+            maxPerHour = 100;
         } else if (isAuthenticated()) {
             // Authenticated endpoints → use user ID for rate limiting
             String userId = getUserId();
-            allowed = rateLimiterService.isAllowed("USER:" + userId, 100, 1000);
+            key = "USER:" + userId;
+            maxPerMinute = 100;
+            maxPerHour = 1000;
         } else {
             // Non-authenticated, non-public → strict IP-based rate limiting
-            allowed = rateLimiterService.isAllowed("AUTH:" + ip, 10, 30);
+            key = "AUTH:" + ip;
+            maxPerMinute = 10;
+            maxPerHour = 30;
         }
+        // A weight above the limit could never be admitted
+        int weight = Math.min(admissionController.weight(costClass), Math.min(maxPerMinute, maxPerHour));
 
-        if (!allowed) {
+        if (!rateLimiter.isAllowed(key, weight, maxPerMinute, maxPerHour)) {
             res.setStatus(429);
             res.getWriter().write("Rate limit exceeded. Please create an account for unlimited access.");
             return;
         }
 
-        chain.doFilter(request, response);
+        AdmissionController.Permit permit = admissionController.admit(costClass);
+        if (permit == null) {
+            rateLimiter.decreaseRateCount(key, weight);
+            res.setStatus(503);
+            res.setHeader("Retry-After", "1");
+            res.getWriter().write("Server is busy. Please try again shortly.");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (req.isAsyncStarted()) {
+                // The response completes on another thread, hold the slot until then
+                req.getAsyncContext().addListener(new ReleaseOnComplete(permit));
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private record ReleaseOnComplete(AdmissionController.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Async processing restarted on the same request, keep listening
+            event.getAsyncContext().addListener(this);
+        }
     }
 
     private boolean isPublicPath(String path) {
@@ -0,0 +1,31 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+/**
+ * Shared GCRA bucket state behind {@link SharedRateLimiter}. Every operation must be atomic across application
+ * instances.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes up to {@code tokens} requests from the bucket, fewer if the bucket does not have room for all of them.
+     *
+     * @param bucketKey   key of the bucket, one per limited key and window
+     * @param tokens      requests wanted
+     * @param limit       requests allowed per period
+     * @param periodMicros length of the period in microseconds
+     * @return the number of requests granted, between 0 and {@code tokens}
+     */
+    int acquire(String bucketKey, int tokens, int limit, long periodMicros);
+
+    /**
+     * Returns up to {@code tokens} requests to the bucket, without giving it more room than an idle bucket has.
+     */
+    void release(String bucketKey, int tokens);
+
+    /**
+     * Deletes buckets that have fully drained.
+     *
+     * @return the number of buckets deleted
+     */
+    int evictIdle();
+}
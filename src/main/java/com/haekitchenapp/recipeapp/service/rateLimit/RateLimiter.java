@@ -0,0 +1,31 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+/**
+ * Per-key request limits over a one minute and a one hour window. The backend is chosen with
+ * {@code rate-limiter.backend}: {@code local} keeps the counts in this JVM, {@code postgres} shares them across
+ * every instance of the application.
+ */
+public interface RateLimiter {
+
+    /**
+     * Counts a request for the key if it fits in both windows.
+     *
+     * @return true if the request is allowed
+     */
+    default boolean isAllowed(String userKey, int maxPerMinute, int maxPerHour) {
+        return isAllowed(userKey, 1, maxPerMinute, maxPerHour);
+    }
+
+    /**
+     * Counts a request as {@code weight} requests if they all fit in both windows, so an expensive request uses up
+     * the limits faster than a cheap one.
+     *
+     * @return true if the request is allowed
+     */
+    boolean isAllowed(String userKey, int weight, int maxPerMinute, int maxPerHour);
+
+    /**
+     * Gives back up to {@code requestsToReduce} requests already counted for the key.
+     */
+    void decreaseRateCount(String userKey, int requestsToReduce);
+}
@@ -3,17 +3,29 @@ package com.haekitchenapp.recipeapp.service.rateLimit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.Deque;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
+/**
+ * In-process {@link RateLimiter}, the default {@code rate-limiter.backend=local}. Limits over a one minute and a one
+ * hour window are each tracked by a {@link GcraBucket}. A key costs
+ * two {@code AtomicLong}s no matter how many requests it makes, and checks never lock.
+ * <p>
+ * Keys whose buckets have fully drained are evicted in the background; evicting them loses no state. At most
+ * {@code rate-limiter.max-tracked-keys} keys are tracked, and requests for new keys are rejected while the table is
+ * full of active ones.
+ */
 @Service
-public class RateLimiterService {
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "local", matchIfMissing = true)
+public class RateLimiterService implements RateLimiter {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimiterService.class);
 
@@ -23,29 +35,51 @@ public class RateLimiterService {
     @Value("${rate-limiter.max-per-hour:100}")
     private int maxPerHour;
 
-    // Use TimeUnit constants instead of configuration values
-    private static final long ONE_MINUTE = TimeUnit.MINUTES.toSeconds(1);
-    private static final long ONE_HOUR = TimeUnit.HOURS.toSeconds(1);
+    @Value("${rate-limiter.max-tracked-keys:100000}")
+    private int maxTrackedKeys = 100_000;
 
-    private final ConcurrentMap<String, Deque<Long>> userRequests = new ConcurrentHashMap<>();
+    private static final long ONE_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final long ONE_HOUR = TimeUnit.HOURS.toNanos(1);
+    private static final long FULL_SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
 
-    public boolean isAllowed(String userKey, int maxPerMinute, int maxPerHour) {
-        long now = Instant.now().getEpochSecond();
-        Deque<Long> timestamps = userRequests.computeIfAbsent(userKey, k -> new ConcurrentLinkedDeque<>());
+    private final ConcurrentMap<String, KeyLimits> userRequests = new ConcurrentHashMap<>();
 
-        synchronized (timestamps) {
-            timestamps.removeIf(ts -> now - ts > ONE_HOUR);
+    // Monotonic, in nanoseconds
+    LongSupplier clock = System::nanoTime;
 
-            long countLastMinute = timestamps.stream().filter(ts -> now - ts <= ONE_MINUTE).count();
-            long countLastHour = timestamps.size();
+    private final AtomicLong lastFullSweep = new AtomicLong(clock.getAsLong() - FULL_SWEEP_INTERVAL);
 
-            if (countLastMinute >= maxPerMinute || countLastHour >= maxPerHour) {
+    private record KeyLimits(GcraBucket minute, GcraBucket hour) {
+        KeyLimits(long now) {
+            this(new GcraBucket(now), new GcraBucket(now));
+        }
+
+        boolean isIdle(long now) {
+            return minute.isIdle(now) && hour.isIdle(now);
+        }
+    }
+
+    @Override
+    public boolean isAllowed(String userKey, int weight, int maxPerMinute, int maxPerHour) {
+        long now = clock.getAsLong();
+        KeyLimits limits = userRequests.get(userKey);
+        if (limits == null) {
+            if (userRequests.size() >= maxTrackedKeys && !evictWhenFull(now)) {
+                logger.warn("Rate limiter is tracking {} keys, rejecting new key {}", userRequests.size(), userKey);
                 return false;
             }
+            limits = userRequests.computeIfAbsent(userKey, k -> new KeyLimits(now));
+        }
 
-            timestamps.addLast(now);
-            return true;
+        if (!limits.minute().tryAcquire(now, maxPerMinute, ONE_MINUTE, weight)) {
+            return false;
+        }
+        if (!limits.hour().tryAcquire(now, maxPerHour, ONE_HOUR, weight)) {
+            // Not admitted after all, so it must not count against the minute window either
+            limits.minute().refund(now, weight);
+            return false;
         }
+        return true;
     }
 
     /**
@@ -54,19 +88,49 @@ public class RateLimiterService {
      * @param userKey Identifier for the user (typically IP address)
      * @param requestsToReduce Number of requests to remove from their count
      */
+    @Override
     public void decreaseRateCount(String userKey, int requestsToReduce) {
-        Deque<Long> timestamps = userRequests.get(userKey);
-        if (timestamps != null) {
-            synchronized (timestamps) {
-                // Remove some recent requests to give the user a bit of breathing room
-                // But don't completely reset their counter
-                int removed = 0;
-                while (!timestamps.isEmpty() && removed < requestsToReduce) {
-                    timestamps.pollLast(); // Remove the most recent request
-                    removed++;
-                }
-                logger.debug("Decreased rate count for {} by {} requests", userKey, removed);
-            }
+        KeyLimits limits = userRequests.get(userKey);
+        if (limits != null) {
+            long now = clock.getAsLong();
+            limits.minute().refund(now, requestsToReduce);
+            limits.hour().refund(now, requestsToReduce);
+            logger.debug("Decreased rate count for {} by {} requests", userKey, requestsToReduce);
+        }
+    }
+
+    /**
+     * Sweeps the table for a new key when it is full, at most once a second so a flood of new keys cannot turn every
+     * request into a full scan.
+     *
+     * @return true if room was made
+     */
+    private boolean evictWhenFull(long now) {
+        long last = lastFullSweep.get();
+        if (now - last >= FULL_SWEEP_INTERVAL && lastFullSweep.compareAndSet(last, now)) {
+            evictIdleKeys();
+        }
+        return userRequests.size() < maxTrackedKeys;
+    }
+
+    /**
+     * Drops keys whose minute and hour buckets have both drained. A request racing with the removal of its key can
+     * at worst go uncounted once.
+     *
+     * @return the number of keys evicted
+     */
+    @Scheduled(fixedDelayString = "${rate-limiter.eviction-interval-ms:60000}")
+    public int evictIdleKeys() {
+        long now = clock.getAsLong();
+        AtomicInteger evicted = new AtomicInteger();
+        userRequests.values().removeIf(limits -> limits.isIdle(now) && evicted.incrementAndGet() > 0);
+        if (evicted.get() > 0) {
+            logger.debug("Evicted {} idle rate limiter keys, {} remain", evicted.get(), userRequests.size());
         }
+        return evicted.get();
+    }
+
+    int trackedKeys() {
+        return userRequests.size();
     }
 }
@@ -0,0 +1,204 @@
+package com.haekitchenapp.recipeapp.service.rateLimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link RateLimiter} whose counts are shared by all application instances through a {@link RateLimitStore}.
+ * <p>
+ * Instead of a store round trip per request, an instance leases a small block of requests for a key from both the
+ * minute and the hour bucket and serves them from memory until the block is used up or the lease expires. A key's
+ * lease starts at one request and doubles each time it is used up within its TTL, so sparse keys do not reserve
+ * requests they never spend; an expired lease shrinks to what was used of it. Requests left over when a lease is
+ * replaced or evicted go back to the store. Small limits lease one request at a time so a single instance cannot
+ * hold a large share of them.
+ * <p>
+ * If the store fails, the limiter falls back to in-process limits and does not try the store again for
+ * {@code rate-limiter.store.cool-down-ms}, so an outage costs one store timeout per cool-down instead of one per
+ * request.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "postgres")
+public class SharedRateLimiter implements RateLimiter {
+
+    private static final long ONE_MINUTE = TimeUnit.MINUTES.toMicros(1);
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMicros(1);
+
+    // Leases never take more than this fraction of a limit
+    private static final int LEASE_FRACTION = 10;
+
+    private final RateLimitStore rateLimitStore;
+    private final RateLimiterService fallback = new RateLimiterService();
+
+    private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    private final int leaseSize;
+    private final long leaseTtlNanos;
+    private final long storeCoolDownNanos;
+
+    // When the store is next tried after a failure, 0 while it is healthy
+    private volatile long storeRetryAt;
+
+    // Monotonic, in nanoseconds
+    LongSupplier clock = System::nanoTime;
+
+    public SharedRateLimiter(RateLimitStore rateLimitStore,
+                             @Value("${rate-limiter.lease.size:10}") int leaseSize,
+                             @Value("${rate-limiter.lease.ttl-ms:1000}") long leaseTtlMs,
+                             @Value("${rate-limiter.store.cool-down-ms:5000}") long storeCoolDownMs) {
+        this.rateLimitStore = rateLimitStore;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.leaseTtlNanos = TimeUnit.MILLISECONDS.toNanos(leaseTtlMs);
+        this.storeCoolDownNanos = TimeUnit.MILLISECONDS.toNanos(storeCoolDownMs);
+    }
+
+    private static final class Lease {
+        final AtomicInteger remaining = new AtomicInteger();
+        volatile long expiresAt = Long.MIN_VALUE;
+        // Requests to lease next time, guarded by the lease
+        int size = 1;
+
+        boolean tryTake(long now, int weight) {
+            return now < expiresAt && remaining.getAndUpdate(r -> r >= weight ? r - weight : r) >= weight;
+        }
+    }
+
+    @Override
+    public boolean isAllowed(String userKey, int weight, int maxPerMinute, int maxPerHour) {
+        long now = clock.getAsLong();
+        Lease lease = leases.computeIfAbsent(userKey, k -> new Lease());
+        if (lease.tryTake(now, weight)) {
+            return true;
+        }
+        if (storeCoolingDown(now)) {
+            return fallback.isAllowed(userKey, weight, maxPerMinute, maxPerHour);
+        }
+        // One thread per key renews the lease, the others wait for it instead of going to the store themselves
+        synchronized (lease) {
+            if (lease.tryTake(now, weight)) {
+                return true;
+            }
+            // The store may have failed while this thread waited for the lease
+            if (storeCoolingDown(clock.getAsLong())) {
+                return fallback.isAllowed(userKey, weight, maxPerMinute, maxPerHour);
+            }
+            // Anything left is too little for this request, so it goes back before a new lease replaces it
+            int unused = lease.remaining.getAndSet(0);
+            int maxSize = leaseSizeFor(maxPerMinute, maxPerHour);
+            lease.size = now < lease.expiresAt
+                    ? Math.min(maxSize, lease.size * 2)
+                    : Math.max(1, Math.min(maxSize, lease.size - unused));
+            int granted;
+            try {
+                releaseUnused(userKey, unused);
+                int tokens = Math.max(weight, lease.size);
+                granted = acquire(userKey, tokens, maxPerMinute, maxPerHour);
+                if (granted > 0 && granted < weight) {
+                    // Not enough room for the whole request, so it takes nothing
+                    rateLimitStore.release(minuteKey(userKey), granted);
+                    rateLimitStore.release(hourKey(userKey), granted);
+                }
+            } catch (DataAccessException e) {
+                storeFailed(e);
+                return fallback.isAllowed(userKey, weight, maxPerMinute, maxPerHour);
+            }
+            if (granted < weight) {
+                return false;
+            }
+            lease.remaining.set(granted - weight);
+            lease.expiresAt = now + leaseTtlNanos;
+            return true;
+        }
+    }
+
+    /**
+     * Leases the same number of requests from the minute and the hour bucket, giving back what the hour bucket
+     * could not match.
+     */
+    private int acquire(String userKey, int tokens, int maxPerMinute, int maxPerHour) {
+        int minute = rateLimitStore.acquire(minuteKey(userKey), tokens, maxPerMinute, ONE_MINUTE);
+        if (minute == 0) {
+            return 0;
+        }
+        int hour = rateLimitStore.acquire(hourKey(userKey), minute, maxPerHour, ONE_HOUR);
+        if (hour < minute) {
+            rateLimitStore.release(minuteKey(userKey), minute - hour);
+        }
+        return hour;
+    }
+
+    private boolean storeCoolingDown(long now) {
+        long retryAt = storeRetryAt;
+        return retryAt != 0 && now - retryAt < 0;
+    }
+
+    private void storeFailed(DataAccessException e) {
+        storeRetryAt = clock.getAsLong() + storeCoolDownNanos;
+        log.warn("Rate limit store unavailable, limiting in this instance only for the next {} ms: {}",
+                TimeUnit.NANOSECONDS.toMillis(storeCoolDownNanos), e.getMessage());
+    }
+
+    private void releaseUnused(String userKey, int unused) {
+        if (unused > 0) {
+            rateLimitStore.release(minuteKey(userKey), unused);
+            rateLimitStore.release(hourKey(userKey), unused);
+        }
+    }
+
+    int leaseSizeFor(int maxPerMinute, int maxPerHour) {
+        return Math.max(1, Math.min(leaseSize, Math.min(maxPerMinute, maxPerHour) / LEASE_FRACTION));
+    }
+
+    @Override
+    public void decreaseRateCount(String userKey, int requestsToReduce) {
+        if (!storeCoolingDown(clock.getAsLong())) {
+            try {
+                rateLimitStore.release(minuteKey(userKey), requestsToReduce);
+                rateLimitStore.release(hourKey(userKey), requestsToReduce);
+                log.debug("Decreased rate count for {} by {} requests", userKey, requestsToReduce);
+            } catch (DataAccessException e) {
+                storeFailed(e);
+            }
+        }
+        fallback.decreaseRateCount(userKey, requestsToReduce);
+    }
+
+    /**
+     * Drops expired leases, giving back what was left of them, and, in the store, buckets that have drained.
+     */
+    @Scheduled(fixedDelayString = "${rate-limiter.eviction-interval-ms:60000}")
+    public void evictIdleKeys() {
+        long now = clock.getAsLong();
+        fallback.evictIdleKeys();
+        try {
+            leases.forEach((userKey, lease) -> {
+                if (now >= lease.expiresAt && leases.remove(userKey, lease)) {
+                    releaseUnused(userKey, lease.remaining.getAndSet(0));
+                }
+            });
+            int evicted = rateLimitStore.evictIdle();
+            log.debug("Evicted {} idle shared rate limit buckets", evicted);
+        } catch (DataAccessException e) {
+            log.warn("Could not evict idle shared rate limit buckets: {}", e.getMessage());
+        }
+    }
+
+    private static String minuteKey(String userKey) {
+        return userKey + "|m";
+    }
+
+    private static String hourKey(String userKey) {
+        return userKey + "|h";
+    }
+}
@@ -0,0 +1,126 @@
+package com.haekitchenapp.recipeapp.service.referenceData;
+
+import com.haekitchenapp.recipeapp.entity.Cuisine;
+import com.haekitchenapp.recipeapp.entity.MealType;
+import com.haekitchenapp.recipeapp.entity.Unit;
+import com.haekitchenapp.recipeapp.repository.CuisineRepository;
+import com.haekitchenapp.recipeapp.repository.MealTypeRepository;
+import com.haekitchenapp.recipeapp.repository.UnitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Units, cuisines and meal types held in memory for all instances. Reads are served from immutable snapshots; a
+ * write calls {@link #changed(ReferenceDataType)}, which drops the local snapshot and sends a Postgres
+ * {@code NOTIFY} on {@link #CHANNEL} so {@link ReferenceDataListener} drops it on every other instance.
+ */
+@Slf4j
+@Component
+public class ReferenceDataCache {
+
+    static final String CHANNEL = "reference_data_changed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ReferenceDataTable<Long> units;
+    private final ReferenceDataTable<Integer> cuisines;
+    private final ReferenceDataTable<Short> mealTypes;
+    private final Map<ReferenceDataType, ReferenceDataTable<?>> tables = new EnumMap<>(ReferenceDataType.class);
+
+    // Replaced in tests to step past the reload interval
+    LongSupplier clock = System::nanoTime;
+
+    public ReferenceDataCache(UnitRepository unitRepository,
+                              CuisineRepository cuisineRepository,
+                              MealTypeRepository mealTypeRepository,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${reference-data.min-reload-interval-ms:5000}") long minReloadIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        long minReloadIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minReloadIntervalMs);
+        LongSupplier now = () -> clock.getAsLong();
+        units = new ReferenceDataTable<>(ReferenceDataType.UNITS, () -> unitRepository.findAll().stream()
+                .collect(Collectors.toMap(Unit::getId, Unit::getName)), now, minReloadIntervalNanos);
+        cuisines = new ReferenceDataTable<>(ReferenceDataType.CUISINES, () -> cuisineRepository.findAll().stream()
+                .collect(Collectors.toMap(Cuisine::getId, Cuisine::getName)), now, minReloadIntervalNanos);
+        mealTypes = new ReferenceDataTable<>(ReferenceDataType.MEAL_TYPES, () -> mealTypeRepository.findAll().stream()
+                .collect(Collectors.toMap(MealType::getId, MealType::getName)), now, minReloadIntervalNanos);
+        tables.put(ReferenceDataType.UNITS, units);
+        tables.put(ReferenceDataType.CUISINES, cuisines);
+        tables.put(ReferenceDataType.MEAL_TYPES, mealTypes);
+    }
+
+    public ReferenceDataTable<Long> units() {
+        return units;
+    }
+
+    public ReferenceDataTable<Integer> cuisines() {
+        return cuisines;
+    }
+
+    public ReferenceDataTable<Short> mealTypes() {
+        return mealTypes;
+    }
+
+    /**
+     * Records that a table was written. Inside a transaction the {@code NOTIFY} joins it, so Postgres delivers it
+     * only on commit, and the local snapshot is dropped again once the transaction completes.
+     *
+     * @param type the table that was written
+     */
+    public void changed(ReferenceDataType type) {
+        ReferenceDataTable<?> table = tables.get(type);
+        table.invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    table.invalidate();
+                }
+            });
+        }
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, type.name() + ":" + instanceId);
+        } catch (DataAccessException e) {
+            // Other instances pick the change up on their next miss-triggered reload or restart
+            log.warn("Could not notify other instances that {} changed: {}", type, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a notification received on {@link #CHANNEL}. Notifications sent by this instance are ignored since
+     * {@link #changed(ReferenceDataType)} already invalidated locally.
+     *
+     * @param payload {@code <type>:<instance id>}
+     */
+    void onNotification(String payload) {
+        int separator = payload.indexOf(':');
+        String source = separator < 0 ? "" : payload.substring(separator + 1);
+        if (instanceId.equals(source)) {
+            return;
+        }
+        try {
+            tables.get(ReferenceDataType.valueOf(separator < 0 ? payload : payload.substring(0, separator))).invalidate();
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring unknown reference data notification: {}", payload);
+        }
+    }
+
+    /**
+     * Drops every snapshot, used when notifications may have been missed.
+     */
+    public void invalidateAll() {
+        tables.values().forEach(ReferenceDataTable::invalidate);
+    }
+}
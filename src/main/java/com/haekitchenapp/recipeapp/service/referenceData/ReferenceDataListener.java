@@ -0,0 +1,89 @@
+package com.haekitchenapp.recipeapp.service.referenceData;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Keeps one connection {@code LISTEN}ing on {@link ReferenceDataCache#CHANNEL} and invalidates the cache when
+ * another instance writes reference data. The connection is taken from the pool for the life of the application;
+ * if it breaks, the listener reconnects and drops every snapshot, since notifications sent meanwhile are lost.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "reference-data.listener", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ReferenceDataListener implements SmartLifecycle {
+
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final DataSource dataSource;
+    private final ReferenceDataCache referenceDataCache;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        thread = new Thread(this::listen, "reference-data-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ReferenceDataCache.CHANNEL);
+                }
+                referenceDataCache.invalidateAll();
+                log.info("Listening for reference data changes on {}", ReferenceDataCache.CHANNEL);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            referenceDataCache.onNotification(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Reference data listener lost its connection, reconnecting in {} ms: {}",
+                        RECONNECT_DELAY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.haekitchenapp.recipeapp.service.referenceData;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of one reference table as an immutable id to name snapshot. Readers never lock: they read the
+ * current snapshot and a reload swaps in a complete new one.
+ * <p>
+ * Ids missing from the snapshot are remembered in a negative cache that lives and dies with the snapshot, and a
+ * miss reloads the table at most once per {@code minReloadIntervalNanos}, so a stream of bad ids cannot turn into
+ * a stream of full-table reads.
+ *
+ * @param <K> the id type of the table
+ */
+@Slf4j
+public class ReferenceDataTable<K> {
+
+    // Bounds the negative cache; past this, misses are still throttled by the reload interval
+    static final int MAX_REMEMBERED_MISSES = 1024;
+
+    private record Snapshot<K>(Map<K, String> names, Map<String, K> ids, long loadedAt, Set<K> misses) {
+    }
+
+    private final ReferenceDataType type;
+    private final Supplier<Map<K, String>> loader;
+    private final LongSupplier clock;
+    private final long minReloadIntervalNanos;
+    private final AtomicReference<Snapshot<K>> current = new AtomicReference<>();
+
+    ReferenceDataTable(ReferenceDataType type, Supplier<Map<K, String>> loader, LongSupplier clock,
+                       long minReloadIntervalNanos) {
+        this.type = type;
+        this.loader = loader;
+        this.clock = clock;
+        this.minReloadIntervalNanos = minReloadIntervalNanos;
+    }
+
+    /**
+     * @return every row as an unmodifiable id to name map
+     */
+    public Map<K, String> all() {
+        return snapshot().names();
+    }
+
+    /**
+     * @param id the row id, may be {@code null}
+     * @return the name of the row, or empty if no such row exists
+     */
+    public Optional<String> name(K id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Snapshot<K> snapshot = snapshot();
+        String name = snapshot.names().get(id);
+        if (name != null || snapshot.misses().contains(id)) {
+            return Optional.ofNullable(name);
+        }
+        if (clock.getAsLong() - snapshot.loadedAt() >= minReloadIntervalNanos) {
+            snapshot = reload(snapshot);
+            name = snapshot.names().get(id);
+        }
+        if (name == null && snapshot.misses().size() < MAX_REMEMBERED_MISSES) {
+            snapshot.misses().add(id);
+        }
+        return Optional.ofNullable(name);
+    }
+
+    public boolean contains(K id) {
+        return name(id).isPresent();
+    }
+
+    /**
+     * @param name the exact name of the row
+     * @return the id of the row, or empty if no row has that name
+     */
+    public Optional<K> idOf(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(snapshot().ids().get(name));
+    }
+
+    /**
+     * Drops the snapshot so the next read loads the table again.
+     */
+    public synchronized void invalidate() {
+        // Synchronized with reload so a load that started before a write cannot land after this
+        current.set(null);
+        log.debug("Invalidated {} reference data", type);
+    }
+
+    private Snapshot<K> snapshot() {
+        Snapshot<K> snapshot = current.get();
+        return snapshot != null ? snapshot : reload(null);
+    }
+
+    private synchronized Snapshot<K> reload(Snapshot<K> stale) {
+        Snapshot<K> snapshot = current.get();
+        if (snapshot != null && snapshot != stale) {
+            // Another thread reloaded while this one waited for the lock
+            return snapshot;
+        }
+        Map<K, String> names = Map.copyOf(loader.get());
+        Map<String, K> ids = names.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getValue, Map.Entry::getKey, (first, second) -> first));
+        snapshot = new Snapshot<>(names, ids, clock.getAsLong(), ConcurrentHashMap.newKeySet());
+        current.set(snapshot);
+        log.debug("Loaded {} {} rows", names.size(), type);
+        return snapshot;
+    }
+}
@@ -0,0 +1,10 @@
+package com.haekitchenapp.recipeapp.service.referenceData;
+
+/**
+ * The small, rarely written lookup tables held in memory by {@link ReferenceDataCache}.
+ */
+public enum ReferenceDataType {
+    UNITS,
+    CUISINES,
+    MEAL_TYPES
+}
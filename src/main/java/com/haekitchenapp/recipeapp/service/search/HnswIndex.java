@@ -0,0 +1,418 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) for cosine distance over {@code float} vectors.
+ * <p>
+ * Vectors are normalized on insert so that cosine distance reduces to {@code 1 - dot(a, b)}, matching pgvector's
+ * {@code <=>} operator. Updates and removals tombstone the old node; tombstoned nodes are still traversed so the
+ * graph stays connected, but they are never returned. Nothing is reclaimed in place, the owner rebuilds the index
+ * once {@link #deletedCount()} grows too large. Searches run concurrently under a read lock, writes are
+ * serialized under the write lock.
+ */
+public class HnswIndex {
+
+    private static final int MAX_LEVEL = 16;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private int dimensions;
+    private float[][] vectors;
+    private long[] ids;
+    // links[node][level][0] holds the neighbour count, the neighbours follow
+    private int[][][] links;
+    private int nodeCount;
+    private int liveCount;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    public HnswIndex(int m, int efConstruction, int initialCapacity, long seed) {
+        if (m < 2) throw new IllegalArgumentException("m must be at least 2");
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+        int capacity = Math.max(initialCapacity, 16);
+        this.vectors = new float[capacity][];
+        this.ids = new long[capacity];
+        this.links = new int[capacity][][];
+    }
+
+    public record Match(long id, float distance) {
+    }
+
+    private record Candidate(int node, float distance) {
+    }
+
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::distance);
+    private static final Comparator<Candidate> FURTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    /**
+     * Inserts the vector for the given id, replacing any earlier vector for the same id.
+     *
+     * @return false when the id already had this vector, in which case the graph is left untouched
+     */
+    public boolean add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodeById.get(id);
+            if (existing != null) {
+                if (Arrays.equals(vectors[existing], normalize(checkDimensions(vector)))) {
+                    return false;
+                }
+                markDeleted(existing);
+            }
+            insert(id, vector);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts the vector only when the id is not indexed yet.
+     *
+     * @return true when the vector was inserted
+     */
+    public boolean addIfAbsent(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (nodeById.containsKey(id)) {
+                return false;
+            }
+            insert(id, vector);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeById.remove(id);
+            if (node == null) {
+                return false;
+            }
+            markDeleted(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return nodeById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of live (non-tombstoned) vectors. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of tombstoned nodes still held in the graph. */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount - liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate k-nearest-neighbour search.
+     *
+     * @param query the query vector, need not be normalized
+     * @param k     number of results
+     * @param ef    size of the dynamic candidate list, raised to {@code k} when smaller
+     * @return up to {@code k} matches ordered by ascending cosine distance
+     */
+    public List<Match> search(float[] query, int k, int ef) {
+        if (k <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || liveCount == 0) return List.of();
+            float[] q = normalize(checkDimensions(query));
+            int ep = entryPoint;
+            for (int level = topLevel; level > 0; level--) {
+                ep = greedyClosest(q, ep, level);
+            }
+            List<Candidate> found = searchLayer(q, List.of(ep), Math.max(ef, k), 0, true);
+            List<Match> result = new ArrayList<>(Math.min(k, found.size()));
+            for (int i = 0; i < found.size() && result.size() < k; i++) {
+                Candidate c = found.get(i);
+                result.add(new Match(ids[c.node()], c.distance()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact k-nearest-neighbour search by linear scan; used as ground truth when measuring recall.
+     */
+    public List<Match> exactSearch(float[] query, int k) {
+        if (k <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) return List.of();
+            float[] q = normalize(checkDimensions(query));
+            PriorityQueue<Candidate> best = new PriorityQueue<>(k + 1, FURTHEST_FIRST);
+            for (int node = 0; node < nodeCount; node++) {
+                if (deleted.get(node)) continue;
+                float d = distance(q, vectors[node]);
+                if (best.size() < k) {
+                    best.add(new Candidate(node, d));
+                } else if (d < best.peek().distance()) {
+                    best.poll();
+                    best.add(new Candidate(node, d));
+                }
+            }
+            List<Candidate> sorted = new ArrayList<>(best);
+            sorted.sort(NEAREST_FIRST);
+            List<Match> result = new ArrayList<>(sorted.size());
+            for (Candidate c : sorted) {
+                result.add(new Match(ids[c.node()], c.distance()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(long id, float[] vector) {
+        float[] v = normalize(checkDimensions(vector));
+        int node = nodeCount;
+        ensureCapacity(node + 1);
+        int level = randomLevel();
+        vectors[node] = v;
+        ids[node] = id;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxConnections(l) + 1];
+        }
+        nodeCount++;
+        liveCount++;
+        nodeById.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = topLevel; l > level; l--) {
+            ep = greedyClosest(v, ep, l);
+        }
+        List<Integer> entryPoints = List.of(ep);
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            List<Candidate> found = searchLayer(v, entryPoints, efConstruction, l, false);
+            for (Candidate neighbour : selectNeighbours(found, m)) {
+                connect(node, neighbour.node(), l);
+                connect(neighbour.node(), node, l);
+            }
+            List<Integer> next = new ArrayList<>(found.size());
+            for (Candidate c : found) next.add(c.node());
+            entryPoints = next;
+        }
+
+        if (level > topLevel) {
+            entryPoint = node;
+            topLevel = level;
+        }
+    }
+
+    private int greedyClosest(float[] q, int start, int level) {
+        int current = start;
+        float currentDistance = distance(q, vectors[current]);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int candidate = neighbours[i];
+                float d = distance(q, vectors[candidate]);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer. When {@code skipDeleted} is set, tombstoned nodes are expanded but kept out of
+     * the result set.
+     *
+     * @return the closest nodes found, nearest first
+     */
+    private List<Candidate> searchLayer(float[] q, List<Integer> entryPoints, int ef, int level, boolean skipDeleted) {
+        BitSet visited = new BitSet(nodeCount);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(ef + 1, FURTHEST_FIRST);
+
+        for (int ep : entryPoints) {
+            visited.set(ep);
+            Candidate c = new Candidate(ep, distance(q, vectors[ep]));
+            candidates.add(c);
+            if (!skipDeleted || !deleted.get(ep)) {
+                results.add(c);
+                if (results.size() > ef) results.poll();
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (results.size() >= ef && current.distance() > results.peek().distance()) {
+                break;
+            }
+            int[] neighbours = links[current.node()].length > level ? links[current.node()][level] : null;
+            if (neighbours == null) continue;
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int n = neighbours[i];
+                if (visited.get(n)) continue;
+                visited.set(n);
+                float d = distance(q, vectors[n]);
+                if (results.size() < ef || d < results.peek().distance()) {
+                    Candidate c = new Candidate(n, d);
+                    candidates.add(c);
+                    if (!skipDeleted || !deleted.get(n)) {
+                        results.add(c);
+                        if (results.size() > ef) results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base than to any neighbour already
+     * selected, then top up with the pruned candidates so nodes keep their full degree.
+     */
+    private List<Candidate> selectNeighbours(List<Candidate> sortedCandidates, int max) {
+        if (sortedCandidates.size() <= max) return sortedCandidates;
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate c : sortedCandidates) {
+            if (selected.size() >= max) break;
+            boolean diverse = true;
+            for (Candidate s : selected) {
+                if (distance(vectors[c.node()], vectors[s.node()]) < c.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) selected.add(c);
+            else pruned.add(c);
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        int capacity = neighbours.length - 1;
+        if (count < capacity) {
+            neighbours[count + 1] = to;
+            neighbours[0] = count + 1;
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        float[] base = vectors[from];
+        for (int i = 1; i <= count; i++) {
+            candidates.add(new Candidate(neighbours[i], distance(base, vectors[neighbours[i]])));
+        }
+        candidates.add(new Candidate(to, distance(base, vectors[to])));
+        candidates.sort(NEAREST_FIRST);
+        List<Candidate> kept = selectNeighbours(candidates, capacity);
+        neighbours[0] = kept.size();
+        for (int i = 0; i < kept.size(); i++) {
+            neighbours[i + 1] = kept.get(i).node();
+        }
+    }
+
+    private void markDeleted(int node) {
+        if (!deleted.get(node)) {
+            deleted.set(node);
+            liveCount--;
+        }
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return Math.min((int) (-Math.log(r) * levelMultiplier), MAX_LEVEL);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= vectors.length) return;
+        int capacity = Math.max(required, vectors.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    private float[] checkDimensions(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            throw new IllegalArgumentException("Vector must not be null or empty");
+        }
+        if (dimensions == 0) {
+            dimensions = vector.length;
+        } else if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected vector of " + dimensions + " dimensions but got " + vector.length);
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float component : vector) norm += component * component;
+        float[] result = new float[vector.length];
+        if (norm == 0) return result;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) result[i] = vector[i] * scale;
+        return result;
+    }
+
+    private static float distance(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) dot += a[i] * b[i];
+        return 1 - dot;
+    }
+}
@@ -0,0 +1,150 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import com.haekitchenapp.recipeapp.config.search.RecipeSearchConfig;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses {@code ivfflat.probes} for pgvector similarity queries and records what was used.
+ * <p>
+ * Without adaptive mode every query uses the request's probes or the configured default. With adaptive mode the
+ * default becomes a baseline that steps down while p95 query latency is over the threshold and back up towards the
+ * configured default once it recovers; a query that comes back with too few candidates can escalate above it.
+ * <p>
+ * Metrics: {@code recipe.search.query.latency} (timer whose p95 drives adaptation), {@code recipe.search.query}
+ * (timer tagged by probes), {@code recipe.search.probes} (summary of probes used) and
+ * {@code recipe.search.probes.baseline} (gauge).
+ */
+@Service
+@Slf4j
+public class IvfflatProbesPolicy {
+
+    private final RecipeSearchConfig.Probes settings;
+    private final MeterRegistry meterRegistry;
+    private final Timer queryTimer;
+    private final DistributionSummary probesSummary;
+    private final AtomicInteger baseline;
+    private final AtomicLong lastAdjustmentNanos = new AtomicLong(System.nanoTime());
+
+    public IvfflatProbesPolicy(RecipeSearchConfig config, MeterRegistry meterRegistry) {
+        this.settings = config.getProbes();
+        this.meterRegistry = meterRegistry;
+        this.baseline = new AtomicInteger(clamp(settings.getDefaultProbes()));
+        this.queryTimer = Timer.builder("recipe.search.query.latency")
+                .description("pgvector similarity query latency, all probes")
+                .publishPercentiles(0.95)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+        this.probesSummary = DistributionSummary.builder("recipe.search.probes")
+                .description("ivfflat probes used per similarity query")
+                .register(meterRegistry);
+        Gauge.builder("recipe.search.probes.baseline", baseline, AtomicInteger::get)
+                .description("Current adaptive ivfflat probes baseline")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param requested probes from the request, or null
+     * @return the probes to use for the first attempt of a query
+     */
+    public int initialProbes(Integer requested) {
+        if (requested != null) {
+            return clamp(requested);
+        }
+        return settings.isAdaptive() ? baseline.get() : clamp(settings.getDefaultProbes());
+    }
+
+    /**
+     * Next probes to retry a query with after it produced too few candidates.
+     *
+     * @param probes      probes used by the previous attempt
+     * @param escalations attempts already escalated for this query
+     * @return the raised probes, or empty when adaptive mode is off or the limits are reached
+     */
+    public OptionalInt escalate(int probes, int escalations) {
+        if (!settings.isAdaptive() || escalations >= settings.getMaxEscalations() || probes >= settings.getMax()) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(clamp(Math.max(probes * 2, probes + settings.getStep())));
+    }
+
+    /**
+     * Next probes for a query whose probed lists ran out before its candidate window filled. Unlike
+     * {@link #escalate}, this applies whether or not adaptive mode is on.
+     *
+     * @return the doubled probes, or empty once the configured maximum is reached
+     */
+    public OptionalInt widen(int probes) {
+        int widened = clamp(probes * 2);
+        return widened > probes ? OptionalInt.of(widened) : OptionalInt.empty();
+    }
+
+    public int maxCandidates() {
+        return settings.getMaxCandidates();
+    }
+
+    /**
+     * Records one pgvector query and, in adaptive mode, moves the baseline at most once per adjust interval.
+     */
+    public void record(int probes, long elapsedNanos) {
+        queryTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.timer("recipe.search.query", "probes", String.valueOf(probes))
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        probesSummary.record(probes);
+        if (settings.isAdaptive()) {
+            adjustBaseline();
+        }
+    }
+
+    public int currentBaseline() {
+        return baseline.get();
+    }
+
+    double p95LatencyMs() {
+        for (ValueAtPercentile percentile : queryTimer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    private void adjustBaseline() {
+        long now = System.nanoTime();
+        long last = lastAdjustmentNanos.get();
+        if (now - last < TimeUnit.SECONDS.toNanos(settings.getAdjustIntervalSeconds())
+                || !lastAdjustmentNanos.compareAndSet(last, now)) {
+            return;
+        }
+        double p95 = p95LatencyMs();
+        int current = baseline.get();
+        int target = clamp(settings.getDefaultProbes());
+        int next = current;
+        if (p95 > settings.getLatencyThresholdMs()) {
+            next = clamp(current - settings.getStep());
+        } else if (p95 < settings.getLatencyThresholdMs() / 2.0 && current < target) {
+            next = Math.min(target, current + settings.getStep());
+        }
+        if (next != current) {
+            baseline.set(next);
+            log.info("Adjusted ivfflat probes baseline from {} to {} (p95 {} ms, threshold {} ms)",
+                    current, next, String.format("%.1f", p95), settings.getLatencyThresholdMs());
+        }
+    }
+
+    private int clamp(int probes) {
+        return Math.max(settings.getMin(), Math.min(settings.getMax(), probes));
+    }
+}
@@ -0,0 +1,197 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeSimilarityRequest;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDetailsDto;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Ranking stage of the similarity search: de-duplication, filtering, scoring and the final ordering.
+ * <p>
+ * Recipe details are indexed by id once per search and each candidate is filtered and scored in a single pass, with
+ * the query side (stopword-free words, title tokens, excluded ingredients) prepared up front. Scores match the
+ * original list-scanning implementation.
+ */
+@Service
+@Slf4j
+public class RecipeRanker {
+
+    private static final Set<String> STOPWORDS = Set.of("a", "an", "the", "and", "or", "but");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NON_WORD = Pattern.compile("[\\p{Punct}\\p{IsPunctuation}]");
+    private static final int CUISINE_MATCH_RANK = 10;
+
+    private static final Comparator<RecipeSimilarityDto> FINAL_ORDER = Comparator
+            .comparing(RecipeSimilarityDto::isExactTitleMatch).reversed()
+            .thenComparing(RecipeSimilarityDto::getTitleSimilarityRank, Comparator.reverseOrder())
+            .thenComparing(RecipeSimilarityDto::getSimilarityRank, Comparator.reverseOrder())
+            .thenComparing(RecipeSimilarityDto::getIncludesIngredientsCount, Comparator.reverseOrder());
+
+    /**
+     * Keeps the first recipe for each case-insensitive title.
+     */
+    public List<RecipeSimilarityDto> removeDuplicates(List<RecipeSimilarityDto> recipes) {
+        Set<String> titles = new HashSet<>(recipes.size() * 2);
+        List<RecipeSimilarityDto> deduped = new ArrayList<>(recipes.size());
+        for (RecipeSimilarityDto recipe : recipes) {
+            if (titles.add(recipe.getTitle().toLowerCase())) {
+                deduped.add(recipe);
+            } else {
+                log.debug("Duplicate recipe title found: {}", recipe.getTitle());
+            }
+        }
+        return deduped;
+    }
+
+    /**
+     * Drops recipes with excluded ingredients (and, when required, of another cuisine), copies cuisines from the
+     * details and sets every ranking score, in one pass over the candidates.
+     */
+    public List<RecipeSimilarityDto> rank(List<RecipeSimilarityDto> recipes, List<RecipeDetailsDto> details,
+                                          RecipeSimilarityRequest query) {
+        Map<Long, RecipeDetailsDto> detailsById = new HashMap<>(details.size() * 2);
+        for (RecipeDetailsDto detail : details) {
+            detailsById.putIfAbsent(detail.getId(), detail);
+        }
+        PreparedQuery prepared = PreparedQuery.of(query);
+        log.debug("Parsed words for ranking: {}", prepared.words());
+
+        List<RecipeSimilarityDto> ranked = new ArrayList<>(recipes.size());
+        for (RecipeSimilarityDto recipe : recipes) {
+            RecipeDetailsDto detail = detailsById.get(recipe.getId());
+            List<String> cuisines = detail != null && detail.getCuisines() != null ? detail.getCuisines() : List.of();
+            if (detail != null && containsExcludedIngredient(detail, prepared.excludedIngredients())) {
+                log.debug("Removing recipe {} with excluded ingredient", recipe.getId());
+                continue;
+            }
+            boolean cuisineMatch = prepared.cuisine() != null && matchesCuisine(cuisines, prepared.cuisine());
+            if (prepared.requireCuisine() && prepared.cuisine() != null && !cuisineMatch) {
+                continue;
+            }
+
+            recipe.setCuisines(cuisines);
+            scoreTitle(recipe, prepared);
+            recipe.setSimilarityRank(countMatchingWords(recipe, prepared.words()));
+            recipe.setCuisineMatchRank(cuisineMatch ? CUISINE_MATCH_RANK : 0);
+            recipe.setIncludesIngredientsCount(detail != null && detail.getIngredients() != null ? detail.getIngredients().size() : 0);
+            ranked.add(recipe);
+        }
+        log.debug("Ranked {} of {} recipes", ranked.size(), recipes.size());
+        return ranked;
+    }
+
+    public List<RecipeSimilarityDto> sortAndLimit(List<RecipeSimilarityDto> recipes, long limit) {
+        List<RecipeSimilarityDto> sorted = new ArrayList<>(recipes);
+        sorted.sort(FINAL_ORDER);
+        return sorted.size() > limit ? List.copyOf(sorted.subList(0, (int) limit)) : List.copyOf(sorted);
+    }
+
+    private static boolean containsExcludedIngredient(RecipeDetailsDto detail, Set<String> excluded) {
+        if (excluded.isEmpty() || detail.getIngredients() == null) return false;
+        for (String ingredient : detail.getIngredients()) {
+            if (excluded.contains(ingredient.toLowerCase())) return true;
+        }
+        return false;
+    }
+
+    private static boolean matchesCuisine(List<String> cuisines, String queryCuisine) {
+        for (String cuisine : cuisines) {
+            String name = cuisine.toLowerCase();
+            if (name.contains(queryCuisine) || queryCuisine.contains(name)) return true;
+        }
+        return false;
+    }
+
+    private static void scoreTitle(RecipeSimilarityDto recipe, PreparedQuery query) {
+        if (query.title() == null || recipe.getTitle() == null) {
+            recipe.setTitleSimilarityRank(0);
+            recipe.setExactTitleMatch(false);
+            recipe.setPrefixTitleMatch(false);
+            return;
+        }
+        String recipeTitle = recipe.getTitle().trim().toLowerCase();
+        boolean exact = recipeTitle.equals(query.title());
+        boolean prefix = recipeTitle.startsWith(query.title());
+
+        Set<String> recipeTokens = titleTokens(recipeTitle);
+        int score;
+        if (recipeTokens.isEmpty() || query.titleTokens().isEmpty()) {
+            score = exact ? 100 : prefix ? 85 : 0;
+        } else {
+            int intersection = 0;
+            for (String token : recipeTokens) {
+                if (query.titleTokens().contains(token)) intersection++;
+            }
+            int union = recipeTokens.size() + query.titleTokens().size() - intersection;
+            int base = (int) Math.round((double) intersection / union * 80); // 0..80 from Jaccard
+            score = Math.min(base + (prefix ? 5 : 0) + (exact ? 20 : 0), 100);
+        }
+        recipe.setTitleSimilarityRank(score);
+        recipe.setExactTitleMatch(exact);
+        recipe.setPrefixTitleMatch(prefix);
+    }
+
+    private static int countMatchingWords(RecipeSimilarityDto recipe, Set<String> queryWords) {
+        if (queryWords.isEmpty()) return 0;
+        Set<String> recipeWords = new HashSet<>();
+        addWords(recipeWords, recipe.getTitle());
+        addWords(recipeWords, recipe.getSummary());
+        int matches = 0;
+        for (String word : queryWords) {
+            if (recipeWords.contains(word)) matches++;
+        }
+        return matches;
+    }
+
+    private static void addWords(Set<String> target, String text) {
+        if (text == null) return;
+        for (String word : WHITESPACE.split(text)) {
+            if (word.isEmpty()) continue;
+            String lower = word.toLowerCase();
+            if (!STOPWORDS.contains(lower)) target.add(lower);
+        }
+    }
+
+    private static Set<String> titleTokens(String lowerTitle) {
+        String cleaned = NON_WORD.matcher(lowerTitle).replaceAll(" ").trim();
+        Set<String> tokens = new HashSet<>();
+        for (String token : WHITESPACE.split(cleaned)) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private record PreparedQuery(Set<String> words, String title, Set<String> titleTokens, String cuisine,
+                                 boolean requireCuisine, Set<String> excludedIngredients) {
+
+        static PreparedQuery of(RecipeSimilarityRequest query) {
+            Set<String> words = new HashSet<>();
+            if (query.isPromptBased()) {
+                addWords(words, query.getPrompt());
+            } else {
+                addWords(words, query.getTitle());
+                addWords(words, query.getCuisine());
+                addWords(words, query.getIncludeIngredients());
+                addWords(words, query.getMealType());
+                addWords(words, query.getDetailLevel());
+            }
+
+            String title = query.getTitle() == null || query.getTitle().isBlank() ? null : query.getTitle().trim().toLowerCase();
+            Set<String> titleTokens = title == null ? Set.of() : RecipeRanker.titleTokens(title);
+            String cuisine = query.getCuisine() == null || query.getCuisine().isBlank() ? null : query.getCuisine().trim().toLowerCase();
+
+            Set<String> excluded = new HashSet<>();
+            if (query.getExcludeIngredients() != null) {
+                for (String ingredient : query.getExcludeIngredients().split(",")) {
+                    String trimmed = ingredient.trim().toLowerCase();
+                    if (!trimmed.isEmpty()) excluded.add(trimmed);
+                }
+            }
+            return new PreparedQuery(words, title, titleTokens, cuisine, query.isRequireCuisine(), excluded);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import com.haekitchenapp.recipeapp.config.search.RecipeSearchConfig;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityDto;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleSummaryDto;
+import com.haekitchenapp.recipeapp.repository.RecipeRepository;
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory HNSW index over {@code recipes.embedding}, used when {@code recipe-search.engine=hnsw}.
+ * <p>
+ * The index is built in the background once the application is ready and kept current by {@code RecipeService}
+ * through {@link #upsert} and {@link #remove}. Changes are applied after the surrounding transaction commits, so a
+ * rolled back save never reaches the index. Until the first build finishes {@link #isReady()} is false and searches
+ * should go to pgvector.
+ * <p>
+ * Updates and removals leave tombstones in the graph. Once they outnumber
+ * {@code recipe-search.hnsw.max-deleted-ratio} of the live vectors the index is rebuilt on the async executor, off
+ * the shared scheduler thread, while the old one keeps serving searches.
+ */
+@Service
+@Slf4j
+public class RecipeVectorIndex {
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeSearchConfig recipeSearchConfig;
+    private final Executor rebuildExecutor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    // Guards index, building and removedDuringBuild so a change is never applied to an index about to be dropped
+    private final Object swapLock = new Object();
+    private final Set<Long> removedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    private volatile HnswIndex index;
+    private volatile HnswIndex building;
+    private volatile boolean ready;
+
+    public RecipeVectorIndex(RecipeRepository recipeRepository,
+                             RecipeSearchConfig recipeSearchConfig,
+                             @Qualifier("applicationTaskExecutor") Executor rebuildExecutor) {
+        this.recipeRepository = recipeRepository;
+        this.recipeSearchConfig = recipeSearchConfig;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!isEnabled()) {
+            log.info("In-memory HNSW recipe index is disabled");
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from the database. The current index, if any, keeps serving searches until the new one is
+     * complete. Saves made meanwhile are applied to both and win over the rows being loaded, and recipes removed
+     * meanwhile are left out of the new index.
+     */
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+        RecipeSearchConfig.Hnsw settings = recipeSearchConfig.getHnsw();
+        Long expected = recipeRepository.countByEmbeddingIsNotNull();
+        int capacity = expected == null ? 0 : (int) Math.min(expected, Integer.MAX_VALUE);
+        HnswIndex fresh = new HnswIndex(settings.getM(), settings.getEfConstruction(), capacity, settings.getSeed());
+
+        synchronized (swapLock) {
+            removedDuringBuild.clear();
+            building = fresh;
+        }
+        try {
+            recipeRepository.streamEmbeddings(settings.getLoadFetchSize(), (id, vector) -> {
+                if (vector.length > 0 && !removedDuringBuild.contains(id)) {
+                    fresh.addIfAbsent(id, vector);
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (swapLock) {
+                building = null;
+                removedDuringBuild.clear();
+            }
+            log.error("Failed to build HNSW recipe index, searches stay on {}: {}",
+                    ready ? "the previous index" : "pgvector", e.getMessage(), e);
+            return;
+        }
+        synchronized (swapLock) {
+            // A removal can land between the check above and the row being added
+            removedDuringBuild.forEach(fresh::remove);
+            removedDuringBuild.clear();
+            index = fresh;
+            building = null;
+            ready = true;
+        }
+        log.info("Built HNSW recipe index with {} embeddings in {} ms", fresh.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Starts a rebuild once tombstoned nodes make up more than {@code recipe-search.hnsw.max-deleted-ratio} of the
+     * live ones, since searches keep traversing them. Only the check runs on the scheduler thread; the rebuild runs
+     * on the async executor, one at a time.
+     *
+     * @return true if a rebuild was started
+     */
+    @Scheduled(fixedDelayString = "${recipe-search.hnsw.compaction-check-interval-ms:60000}",
+            initialDelayString = "${recipe-search.hnsw.compaction-check-interval-ms:60000}")
+    public boolean compactIfNeeded() {
+        HnswIndex current = index;
+        if (current == null || !ready || !isEnabled()) return false;
+        int deleted = current.deletedCount();
+        if (deleted == 0 || deleted <= recipeSearchConfig.getHnsw().getMaxDeletedRatio() * current.size()) {
+            return false;
+        }
+        if (!compacting.compareAndSet(false, true)) return false;
+        log.info("Compacting HNSW recipe index: {} tombstoned nodes for {} live ones", deleted, current.size());
+        try {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compacting.set(false);
+            log.warn("Could not start HNSW recipe index compaction: {}", e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return recipeSearchConfig.getHnsw().isEnabled()
+                || recipeSearchConfig.getEngine() == RecipeSearchConfig.Engine.HNSW;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        HnswIndex current = index;
+        return current == null ? 0 : current.size();
+    }
+
+    int deletedCount() {
+        HnswIndex current = index;
+        return current == null ? 0 : current.deletedCount();
+    }
+
+    public void upsert(Long id, float[] vector) {
+        if (id == null || vector == null || vector.length == 0 || !isEnabled()) return;
+        afterCommit(current -> current.add(id, vector));
+    }
+
+    public void remove(Long id) {
+        if (id == null || !isEnabled()) return;
+        afterCommit(current -> {
+            if (current == building) {
+                removedDuringBuild.add(id);
+            }
+            current.remove(id);
+        });
+    }
+
+    public List<HnswIndex.Match> search(float[] query, int k) {
+        HnswIndex current = requireIndex();
+        return current.search(query, k, Math.max(recipeSearchConfig.getHnsw().getEfSearch(), k));
+    }
+
+    public List<HnswIndex.Match> exactSearch(float[] query, int k) {
+        return requireIndex().exactSearch(query, k);
+    }
+
+    /**
+     * In-memory counterpart of {@code RecipeRepository.findTopByCosine} / {@code findTopByCosineWithTitle}. Title
+     * and summary are loaded by primary key for the returned ids only.
+     *
+     * @param titlePattern SQL-style {@code %title%} pattern, or null
+     */
+    public List<RecipeSimilarityDto> findTopByCosine(float[] query, int limit, String titlePattern) {
+        int candidates = titlePattern != null ? Math.max(RecipeRepositoryCustom.TITLE_CANDIDATES, limit) : limit;
+        List<HnswIndex.Match> matches = search(query, candidates);
+        if (matches.isEmpty()) return List.of();
+
+        List<Long> ids = matches.stream().map(HnswIndex.Match::id).toList();
+        Map<Long, RecipeTitleSummaryDto> summaries = recipeRepository.findTitleSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(RecipeTitleSummaryDto::getId, Function.identity(), (a, b) -> a));
+
+        List<RecipeSimilarityDto> results = new ArrayList<>(matches.size());
+        for (HnswIndex.Match match : matches) {
+            RecipeTitleSummaryDto summary = summaries.get(match.id());
+            if (summary == null) continue; // deleted since it was indexed
+            RecipeSimilarityDto dto = new RecipeSimilarityDto(summary.getId(), summary.getTitle(), summary.getSummary(),
+                    1d - match.distance());
+            dto.setCosineDistance((double) match.distance());
+            results.add(dto);
+        }
+
+        if (titlePattern != null) {
+            String needle = containedText(titlePattern).toLowerCase(Locale.ROOT);
+            // stable sort keeps distance order within the matching and non-matching groups
+            results.sort(Comparator.comparingInt(dto -> titleMatches(dto, needle) ? 0 : 1));
+        }
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * The text a {@link RecipeRepositoryCustom#containsPattern} pattern looks for: unescaped metacharacters dropped,
+     * escaped ones kept literally.
+     */
+    static String containedText(String pattern) {
+        StringBuilder text = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                text.append(pattern.charAt(++i));
+            } else if (c != '%' && c != '_') {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    private static boolean titleMatches(RecipeSimilarityDto dto, String needle) {
+        return dto.getTitle() != null && dto.getTitle().toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private HnswIndex requireIndex() {
+        HnswIndex current = index;
+        if (current == null || !ready) {
+            throw new IllegalStateException("HNSW recipe index is not ready");
+        }
+        return current;
+    }
+
+    private void afterCommit(Consumer<HnswIndex> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    /**
+     * Applies a change to the serving index and to the one being built, if any.
+     */
+    private void apply(Consumer<HnswIndex> change) {
+        synchronized (swapLock) {
+            try {
+                if (index != null) {
+                    change.accept(index);
+                }
+                if (building != null) {
+                    change.accept(building);
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping HNSW index update: {}", e.getMessage());
+            }
+        }
+    }
+}
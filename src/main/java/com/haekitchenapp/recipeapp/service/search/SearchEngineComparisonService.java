@@ -0,0 +1,88 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import com.haekitchenapp.recipeapp.model.request.recipe.SearchEngineComparisonRequest;
+import com.haekitchenapp.recipeapp.model.response.ApiResponse;
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityView;
+import com.haekitchenapp.recipeapp.model.response.recipe.SearchEngineComparisonDto;
+import com.haekitchenapp.recipeapp.repository.RecipeRepository;
+import com.haekitchenapp.recipeapp.service.QueryEmbeddingCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Runs the same queries through pgvector and the in-memory HNSW index and reports recall@k against an exact scan,
+ * plus per-engine latency. Embeddings are resolved up front so neither engine is charged for the embedding call.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SearchEngineComparisonService {
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeVectorIndex recipeVectorIndex;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final IvfflatProbesPolicy ivfflatProbesPolicy;
+
+    public ResponseEntity<ApiResponse<SearchEngineComparisonDto>> compare(SearchEngineComparisonRequest request) {
+        if (!recipeVectorIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ApiResponse.error("HNSW recipe index is not ready"));
+        }
+        int k = request.getK();
+        int probes = ivfflatProbesPolicy.initialProbes(request.getProbes());
+        List<float[]> embeddings = request.getQueries().stream().map(queryEmbeddingCache::getEmbedding).toList();
+
+        double[] pgRecall = new double[embeddings.size()];
+        double[] hnswRecall = new double[embeddings.size()];
+        long[] pgNanos = new long[embeddings.size()];
+        long[] hnswNanos = new long[embeddings.size()];
+
+        for (int i = 0; i < embeddings.size(); i++) {
+            float[] embedding = embeddings.get(i);
+            Set<Long> truth = new HashSet<>();
+            recipeVectorIndex.exactSearch(embedding, k).forEach(match -> truth.add(match.id()));
+
+            long start = System.nanoTime();
+            List<RecipeSimilarityView> pgResults = recipeRepository.findTopByCosine(embedding, k, probes);
+            pgNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<HnswIndex.Match> hnswResults = recipeVectorIndex.search(embedding, k);
+            hnswNanos[i] = System.nanoTime() - start;
+
+            pgRecall[i] = recall(truth, pgResults.stream().map(RecipeSimilarityView::getId).toList());
+            hnswRecall[i] = recall(truth, hnswResults.stream().map(HnswIndex.Match::id).toList());
+        }
+
+        SearchEngineComparisonDto result = new SearchEngineComparisonDto(embeddings.size(), k, probes, recipeVectorIndex.size(),
+                summarize(pgRecall, pgNanos), summarize(hnswRecall, hnswNanos));
+        log.info("Search engine comparison over {} queries at k={}, probes={}: pgvector recall {} p95 {} ms, hnsw recall {} p95 {} ms",
+                result.getQueries(), k, probes, result.getPgvector().getRecallAtK(), result.getPgvector().getP95LatencyMs(),
+                result.getHnsw().getRecallAtK(), result.getHnsw().getP95LatencyMs());
+        return ResponseEntity.ok(ApiResponse.success("Search engine comparison completed", result));
+    }
+
+    static double recall(Set<Long> truth, List<Long> found) {
+        if (truth.isEmpty()) return 1d;
+        long hits = found.stream().filter(truth::contains).count();
+        return (double) hits / truth.size();
+    }
+
+    static SearchEngineComparisonDto.EngineResult summarize(double[] recalls, long[] nanos) {
+        double meanRecall = Arrays.stream(recalls).average().orElse(0);
+        double[] millis = Arrays.stream(nanos).mapToDouble(n -> n / 1_000_000d).sorted().toArray();
+        double mean = Arrays.stream(millis).average().orElse(0);
+        return new SearchEngineComparisonDto.EngineResult(meanRecall, mean, percentile(millis, 0.50), percentile(millis, 0.95));
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,451 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+/**
+ * In-memory typeahead over short texts such as recipe titles or ingredient names.
+ * <p>
+ * Two indexes share the entries. Words live in a sorted term dictionary, so a prefix is a contiguous range of terms
+ * (what a prefix trie gives, without a node per character). Trigrams of every word, padded the way {@code pg_trgm}
+ * pads them, catch typos and matches inside a word when the prefix range comes up short. Postings are primitive
+ * arrays, about 8 bytes per id, so a large catalog does not cost a boxed set entry per word and trigram.
+ * <p>
+ * Writes are serialized and readers take no lock; a reader racing a write may miss that one entry. Entries removed
+ * while a bulk load runs are remembered until it ends, so rows it read before the removal do not bring them back.
+ */
+public class TypeaheadIndex {
+
+    public record Match(long id, String text, double score) {
+    }
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    // Bound the work per keystroke; short prefixes of common words would otherwise visit most of the index
+    static final int MAX_CANDIDATES = 2000;
+    private static final int MAX_PREFIX_POSTINGS = 20_000;
+    private static final int MAX_TRIGRAM_POSTINGS = 20_000;
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.3;
+
+    private final Map<Long, String> texts = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private final Map<String, Postings> trigrams = new ConcurrentHashMap<>();
+
+    // Total length of the texts, written under this
+    private volatile long textChars;
+
+    // Ids removed since the running bulk load began, null when none runs; guarded by this
+    private Set<Long> removedDuringLoad;
+
+    private record PrefixRange(Collection<Postings> postings, int size) {
+
+        long[] sortedIds() {
+            return postings.stream().flatMapToLong(Postings::ids).sorted().toArray();
+        }
+    }
+
+    /**
+     * Ids of the entries holding one term: a sorted array plus the ids added and removed since it was last rebuilt.
+     * An instance never changes what it shows, a write publishes a new one. Added ids are appended past the count of
+     * the latest instance only, so instances share the added array without copying it on every write. The sorted
+     * array is rebuilt once the changes reach an eighth of it, which keeps writes amortized constant.
+     */
+    private static final class Postings {
+
+        private static final long[] NONE = new long[0];
+
+        private final long[] sorted;
+        private final long[] added;
+        private final int addedCount;
+        // Sorted, and all of them in sorted
+        private final long[] removed;
+
+        private Postings(long[] sorted, long[] added, int addedCount, long[] removed) {
+            this.sorted = sorted;
+            this.added = added;
+            this.addedCount = addedCount;
+            this.removed = removed;
+        }
+
+        static Postings of(long id) {
+            return new Postings(new long[]{id}, NONE, 0, NONE);
+        }
+
+        int size() {
+            return sorted.length - removed.length + addedCount;
+        }
+
+        LongStream ids() {
+            LongStream kept = removed.length == 0
+                    ? Arrays.stream(sorted)
+                    : Arrays.stream(sorted).filter(id -> Arrays.binarySearch(removed, id) < 0);
+            return LongStream.concat(kept, Arrays.stream(added, 0, addedCount));
+        }
+
+        /**
+         * @param id an id not held yet
+         */
+        Postings with(long id) {
+            int removedAt = Arrays.binarySearch(removed, id);
+            if (removedAt >= 0) {
+                return new Postings(sorted, added, addedCount, delete(removed, removedAt));
+            }
+            long[] target = addedCount < added.length ? added : Arrays.copyOf(added, Math.max(4, added.length * 2));
+            target[addedCount] = id;
+            return new Postings(sorted, target, addedCount + 1, removed).rebuildIfDue();
+        }
+
+        Postings without(long id) {
+            for (int i = 0; i < addedCount; i++) {
+                if (added[i] == id) {
+                    long[] rest = Arrays.copyOf(added, addedCount);
+                    rest[i] = rest[addedCount - 1];
+                    return new Postings(sorted, rest, addedCount - 1, removed);
+                }
+            }
+            int removedAt = Arrays.binarySearch(removed, id);
+            if (removedAt >= 0 || Arrays.binarySearch(sorted, id) < 0) {
+                return this;
+            }
+            int at = -removedAt - 1;
+            long[] grown = new long[removed.length + 1];
+            System.arraycopy(removed, 0, grown, 0, at);
+            grown[at] = id;
+            System.arraycopy(removed, at, grown, at + 1, removed.length - at);
+            return new Postings(sorted, added, addedCount, grown).rebuildIfDue();
+        }
+
+        private Postings rebuildIfDue() {
+            return addedCount + removed.length > sorted.length >>> 3 ? rebuild() : this;
+        }
+
+        /**
+         * Merges the changes into a new sorted array without spare capacity.
+         */
+        Postings rebuild() {
+            if (added.length == 0 && removed.length == 0) {
+                return this;
+            }
+            long[] news = Arrays.copyOf(added, addedCount);
+            Arrays.sort(news);
+            long[] merged = new long[size()];
+            int i = 0, j = 0, r = 0, n = 0;
+            while (i < sorted.length || j < news.length) {
+                if (j == news.length || (i < sorted.length && sorted[i] < news[j])) {
+                    long id = sorted[i++];
+                    if (r < removed.length && removed[r] == id) {
+                        r++;
+                    } else {
+                        merged[n++] = id;
+                    }
+                } else {
+                    merged[n++] = news[j++];
+                }
+            }
+            return new Postings(merged, NONE, 0, NONE);
+        }
+
+        long estimatedBytes() {
+            return 24 + arrayBytes(sorted) + arrayBytes(added) + arrayBytes(removed);
+        }
+
+        private static long arrayBytes(long[] array) {
+            return array == NONE ? 0 : 16 + 8L * array.length;
+        }
+
+        private static long[] delete(long[] array, int at) {
+            long[] shrunk = new long[array.length - 1];
+            System.arraycopy(array, 0, shrunk, 0, at);
+            System.arraycopy(array, at + 1, shrunk, at, shrunk.length - at);
+            return shrunk;
+        }
+    }
+
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * Approximate heap used by the index, assuming compressed references and Latin-1 compact strings.
+     */
+    public long estimatedBytes() {
+        // Map node, boxed id and string per text
+        long bytes = (32 + 16 + 40L) * texts.size() + textChars;
+        for (Map<String, Postings> postings : List.of(terms, trigrams)) {
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                bytes += 32 + 40 + entry.getKey().length() + entry.getValue().estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Adds or replaces the text of an entry.
+     */
+    public synchronized void put(long id, String text) {
+        if (text == null || text.isBlank()) {
+            remove(id);
+            return;
+        }
+        String previous = texts.put(id, text);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+        index(id, text);
+    }
+
+    /**
+     * Adds an entry unless it is already present or was removed during the running bulk load, so a bulk load never
+     * overwrites a newer write.
+     */
+    public synchronized void putIfAbsent(long id, String text) {
+        if (removedDuringLoad != null && removedDuringLoad.contains(id)) {
+            return;
+        }
+        if (text != null && !text.isBlank() && texts.putIfAbsent(id, text) == null) {
+            index(id, text);
+        }
+    }
+
+    /**
+     * Starts remembering removals so the {@link #putIfAbsent} calls of a bulk load skip them.
+     */
+    public synchronized void beginBulkLoad() {
+        removedDuringLoad = new HashSet<>();
+    }
+
+    /**
+     * Stops remembering removals and trims the spare capacity postings grew while loading.
+     */
+    public synchronized void endBulkLoad() {
+        removedDuringLoad = null;
+        terms.replaceAll((term, postings) -> postings.rebuild());
+        trigrams.replaceAll((trigram, postings) -> postings.rebuild());
+    }
+
+    public synchronized void remove(long id) {
+        if (removedDuringLoad != null) {
+            removedDuringLoad.add(id);
+        }
+        String previous = texts.remove(id);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+    }
+
+    /**
+     * Ranks entries for a partially typed query. Entries that start with the query come first, then entries where
+     * every query word starts a word of the entry, then trigram matches. Equal texts are returned once.
+     */
+    public List<Match> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String[] queryWords = normalized.split(" ");
+        Map<String, Match> best = new HashMap<>();
+        for (long id : prefixCandidates(queryWords)) {
+            score(id, normalized, queryWords, null, best);
+        }
+        if (best.size() < limit) {
+            Set<String> queryTrigrams = trigramsOf(normalized);
+            for (long id : trigramCandidates(queryTrigrams)) {
+                score(id, normalized, queryWords, queryTrigrams, best);
+            }
+        }
+        return best.values().stream()
+                .sorted(Comparator.comparingDouble(Match::score).reversed()
+                        .thenComparing(Match::text)
+                        .thenComparingLong(Match::id))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Entries with a word starting with every query word. The postings are intersected starting from the rarest
+     * word, so the candidate cap only cuts entries that match the whole query. Words too common to collect are left
+     * to {@link #score}.
+     */
+    private List<Long> prefixCandidates(String[] queryWords) {
+        List<PrefixRange> ranges = Arrays.stream(queryWords)
+                .distinct()
+                .map(this::prefixRange)
+                .sorted(Comparator.comparingInt(PrefixRange::size))
+                .toList();
+        List<long[]> others = new ArrayList<>();
+        for (PrefixRange range : ranges.subList(1, ranges.size())) {
+            if (range.size() > MAX_PREFIX_POSTINGS) break;
+            others.add(range.sortedIds());
+        }
+        List<Long> candidates = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        int scanned = 0;
+        for (Postings postings : ranges.get(0).postings()) {
+            PrimitiveIterator.OfLong ids = postings.ids().iterator();
+            while (ids.hasNext()) {
+                long id = ids.nextLong();
+                if (++scanned > MAX_PREFIX_POSTINGS) {
+                    return candidates;
+                }
+                if (seen.add(id) && inAll(others, id)) {
+                    candidates.add(id);
+                    if (candidates.size() >= MAX_CANDIDATES) {
+                        return candidates;
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    // Counts postings only up to just past the cap, a short prefix can span most of the dictionary
+    private PrefixRange prefixRange(String prefix) {
+        Collection<Postings> postings = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+        int size = 0;
+        for (Postings ids : postings) {
+            size += ids.size();
+            if (size > MAX_PREFIX_POSTINGS) break;
+        }
+        return new PrefixRange(postings, size);
+    }
+
+    private static boolean inAll(List<long[]> postings, long id) {
+        for (long[] ids : postings) {
+            if (Arrays.binarySearch(ids, id) < 0) return false;
+        }
+        return true;
+    }
+
+    private List<Long> trigramCandidates(Set<String> queryTrigrams) {
+        Map<Long, Integer> shared = new HashMap<>();
+        int scanned = 0;
+        for (String trigram : queryTrigrams) {
+            Postings ids = trigrams.get(trigram);
+            if (ids == null) continue;
+            if (scanned + ids.size() > MAX_TRIGRAM_POSTINGS) break;
+            scanned += ids.size();
+            ids.ids().forEach(id -> shared.merge(id, 1, Integer::sum));
+        }
+        // A candidate must share enough trigrams to possibly reach the similarity threshold
+        int needed = Math.max(1, (int) Math.ceil(queryTrigrams.size() * MIN_TRIGRAM_SIMILARITY));
+        return shared.entrySet().stream()
+                .filter(entry -> entry.getValue() >= needed)
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+                .limit(MAX_CANDIDATES)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private void score(long id, String query, String[] queryWords, Set<String> queryTrigrams, Map<String, Match> best) {
+        String text = texts.get(id);
+        if (text == null) return;
+        String normalized = normalize(text);
+        double score;
+        if (normalized.startsWith(query)) {
+            score = 3;
+        } else if (wordsPrefixMatch(queryWords, normalized.split(" "))) {
+            score = 2;
+        } else if (queryTrigrams != null) {
+            score = similarity(queryTrigrams, trigramsOf(normalized));
+            if (score < MIN_TRIGRAM_SIMILARITY) return;
+        } else {
+            return;
+        }
+        // Shorter texts are closer to what was typed
+        score -= Math.min(normalized.length(), 200) / 1000d;
+        Match match = new Match(id, text, score);
+        best.merge(normalized, match, (a, b) -> a.score() > b.score() || (a.score() == b.score() && a.id() < b.id()) ? a : b);
+    }
+
+    private static boolean wordsPrefixMatch(String[] queryWords, String[] words) {
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        int shared = 0;
+        for (String trigram : a) {
+            if (b.contains(trigram)) shared++;
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private void index(long id, String text) {
+        textChars += text.length();
+        String normalized = normalize(text);
+        for (String word : wordsOf(normalized)) {
+            addPosting(terms, word, id);
+        }
+        for (String trigram : trigramsOf(normalized)) {
+            addPosting(trigrams, trigram, id);
+        }
+    }
+
+    private void unindex(long id, String text) {
+        textChars -= text.length();
+        String normalized = normalize(text);
+        for (String word : wordsOf(normalized)) {
+            removePosting(terms, word, id);
+        }
+        for (String trigram : trigramsOf(normalized)) {
+            removePosting(trigrams, trigram, id);
+        }
+    }
+
+    private static void addPosting(Map<String, Postings> postings, String key, long id) {
+        postings.compute(key, (k, ids) -> ids == null ? Postings.of(id) : ids.with(id));
+    }
+
+    private static void removePosting(Map<String, Postings> postings, String key, long id) {
+        postings.computeIfPresent(key, (k, ids) -> {
+            Postings rest = ids.without(id);
+            return rest.size() == 0 ? null : rest;
+        });
+    }
+
+    /**
+     * Lower case, accents stripped, runs of anything but letters and digits collapsed to one space.
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        String decomposed = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // Distinct, a posting holds an id once
+    private static Set<String> wordsOf(String normalized) {
+        Set<String> result = new HashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    static Set<String> trigramsOf(String normalized) {
+        Set<String> result = new HashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty()) continue;
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(padded.substring(i, i + 3));
+            }
+        }
+        return result;
+    }
+}
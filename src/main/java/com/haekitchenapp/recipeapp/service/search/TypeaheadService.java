@@ -0,0 +1,156 @@
+package com.haekitchenapp.recipeapp.service.search;
+
+import com.haekitchenapp.recipeapp.entity.Ingredient;
+import com.haekitchenapp.recipeapp.model.response.recipe.TypeaheadResponse;
+import com.haekitchenapp.recipeapp.model.response.recipe.TypeaheadSuggestion;
+import com.haekitchenapp.recipeapp.repository.IngredientRepository;
+import com.haekitchenapp.recipeapp.repository.RecipeRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Typeahead suggestions for recipe titles and ingredient names from in-memory {@link TypeaheadIndex}es.
+ * <p>
+ * Both indexes are built in the background once the application is ready and kept current by {@code RecipeService},
+ * {@code RecipeImportService} and {@code IngredientService}; changes are applied after the surrounding transaction
+ * commits. Until the title index is built, titles come from the database; with {@code typeahead.titles.enabled} off
+ * they always do, for catalogs too large to hold their titles in memory.
+ */
+@Service
+@Slf4j
+public class TypeaheadService {
+
+    static final int MAX_LIMIT = 50;
+
+    private final RecipeRepository recipeRepository;
+    private final IngredientRepository ingredientRepository;
+    private final int loadFetchSize;
+    private final boolean titlesEnabled;
+
+    private final TypeaheadIndex titles = new TypeaheadIndex();
+    private final TypeaheadIndex ingredients = new TypeaheadIndex();
+    private volatile boolean ready;
+
+    public TypeaheadService(RecipeRepository recipeRepository,
+                            IngredientRepository ingredientRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${typeahead.load-fetch-size:5000}") int loadFetchSize,
+                            @Value("${typeahead.titles.enabled:true}") boolean titlesEnabled) {
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.loadFetchSize = loadFetchSize;
+        this.titlesEnabled = titlesEnabled;
+        registerGauges(meterRegistry, "titles", titles);
+        registerGauges(meterRegistry, "ingredients", ingredients);
+    }
+
+    private static void registerGauges(MeterRegistry meterRegistry, String name, TypeaheadIndex index) {
+        Gauge.builder("typeahead.index.size", index, TypeaheadIndex::size)
+                .description("Entries held in the in-memory typeahead index")
+                .tag("index", name)
+                .register(meterRegistry);
+        Gauge.builder("typeahead.index.memory", index, TypeaheadIndex::estimatedBytes)
+                .description("Estimated heap used by the typeahead index")
+                .tag("index", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        build();
+    }
+
+    /**
+     * Loads every title and ingredient. Writes made meanwhile are applied directly and win over the rows being
+     * loaded, including removals of rows the load has already read.
+     */
+    public synchronized void build() {
+        long startTime = System.currentTimeMillis();
+        ingredients.beginBulkLoad();
+        titles.beginBulkLoad();
+        try {
+            for (Ingredient ingredient : ingredientRepository.findAll()) {
+                ingredients.putIfAbsent(ingredient.getId(), ingredient.getName());
+            }
+            if (titlesEnabled) {
+                recipeRepository.streamTitles(loadFetchSize, titles::putIfAbsent);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to build typeahead indexes, titles stay on the database: {}", e.getMessage(), e);
+            return;
+        } finally {
+            ingredients.endBulkLoad();
+            titles.endBulkLoad();
+        }
+        ready = titlesEnabled;
+        log.info("Built typeahead indexes with {} titles and {} ingredients in {} ms",
+                titles.size(), ingredients.size(), System.currentTimeMillis() - startTime);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public TypeaheadResponse suggest(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query must not be null or empty");
+        }
+        int capped = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return new TypeaheadResponse(suggestTitles(query, capped), toSuggestions(ingredients.search(query, capped)));
+    }
+
+    public void recipeSaved(Long id, String title) {
+        if (id == null || !titlesEnabled) return;
+        afterCommit(() -> titles.put(id, title));
+    }
+
+    public void recipeRemoved(Long id) {
+        if (id == null || !titlesEnabled) return;
+        afterCommit(() -> titles.remove(id));
+    }
+
+    public void ingredientSaved(Long id, String name) {
+        if (id == null) return;
+        afterCommit(() -> ingredients.put(id, name));
+    }
+
+    private List<TypeaheadSuggestion> suggestTitles(String query, int limit) {
+        if (ready) {
+            return toSuggestions(titles.search(query, limit));
+        }
+        return recipeRepository.searchTitles(query.trim(), null, limit).stream()
+                .map(match -> new TypeaheadSuggestion(match.id(), match.title(), match.score()))
+                .toList();
+    }
+
+    private static List<TypeaheadSuggestion> toSuggestions(List<TypeaheadIndex.Match> matches) {
+        return matches.stream()
+                .map(match -> new TypeaheadSuggestion(match.id(), match.text(), match.score()))
+                .toList();
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -161,6 +161,10 @@ public class RecipeMapper {
         return new RecipeDetailsDto(recipe.getTitle(), ingredientNames, cuisines, recipe.getInstructions(), id);
     }
 
+    public RecipeDetailsDto toDetailedDtoFromNames(RecipeSummaryProjection recipe, List<String> ingredientNames, List<String> cuisines) {
+        return new RecipeDetailsDto(recipe.getTitle(), ingredientNames, cuisines, recipe.getInstructions(), recipe.getId());
+    }
+
     public RecipeDetailsDto toLlmDetailsDto(Recipe recipe) {
         List<String> ingredients = recipe.getIngredients().stream()
                 .map(ri -> ri.getIngredient().getName())
@@ -5,11 +5,11 @@ import com.haekitchenapp.recipeapp.entity.Recipe;
 import com.haekitchenapp.recipeapp.entity.RecipePlan;
 import com.haekitchenapp.recipeapp.entity.User;
 import com.haekitchenapp.recipeapp.model.request.recipe.BulkRecipePlanRequest;
-import com.haekitchenapp.recipeapp.model.response.RecipePlanSimple;
+import com.haekitchenapp.recipeapp.model.response.RecipePlanCalendarDto;
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipePlanResponse;
-import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleDto;
 import com.haekitchenapp.recipeapp.repository.MealTypeRepository;
 import com.haekitchenapp.recipeapp.repository.RecipeRepository;
+import com.haekitchenapp.recipeapp.service.MealTypeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -23,6 +23,7 @@ public class RecipePlanMapper {
 
     private final MealTypeRepository mealTypeRepository;
     private final RecipeRepository recipeRepository;
+    private final MealTypeService mealTypeService;
 
 
     public List<RecipePlan> toEntity(List<BulkRecipePlanRequest> bulkPlanRequests, Long userId) {
@@ -71,20 +72,14 @@ public class RecipePlanMapper {
         }).toList();
     }
 
-    public List<RecipePlanResponse> toResponseSimple(List<RecipePlanSimple> recipePlans) {
+    public List<RecipePlanResponse> toCalendarResponse(List<RecipePlanCalendarDto> recipePlans) {
         return recipePlans.stream().map(recipePlan -> {
             RecipePlanResponse response = new RecipePlanResponse();
-            RecipeTitleDto recipeTitleDto = recipeRepository.findRecipeTitleDtoById(recipePlan.getRecipeId()).orElse(null);
-            String mealTypeName = mealTypeRepository.findNameById(recipePlan.getMealTypeId()).orElse("Unknown");
             response.setId(recipePlan.getId());
             response.setPlanDate(recipePlan.getPlanDate());
-            response.setMealTypeName(mealTypeName);
-            if (recipeTitleDto != null) {
-                response.setRecipeId(recipeTitleDto.getId());
-                response.setRecipeTitle(recipeTitleDto.getTitle());
-            } else {
-                log.info("Recipe with ID {} not found for RecipePlan ID {}", recipePlan.getRecipeId(), recipePlan.getId());
-            }
+            response.setMealTypeName(mealTypeService.getMealTypeNameById(recipePlan.getMealTypeId()));
+            response.setRecipeId(recipePlan.getRecipeId());
+            response.setRecipeTitle(recipePlan.getRecipeTitle());
             response.setCustomTitle(recipePlan.getCustomTitle());
             response.setNotes(recipePlan.getNotes());
             response.setSaved(recipePlan.getSaved());
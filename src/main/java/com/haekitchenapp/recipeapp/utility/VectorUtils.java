@@ -0,0 +1,70 @@
+package com.haekitchenapp.recipeapp.utility;
+
+public final class VectorUtils {
+
+    private VectorUtils() {
+    }
+
+    /**
+     * Converts a boxed embedding (as returned by the Together AI client) into a compact primitive array.
+     *
+     * @param embedding the boxed embedding, may be null
+     * @return the primitive embedding, or an empty array when the input is null
+     */
+    public static float[] toFloatArray(Double[] embedding) {
+        if (embedding == null) {
+            return new float[0];
+        }
+        float[] result = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            result[i] = embedding[i].floatValue();
+        }
+        return result;
+    }
+
+    /**
+     * Formats an embedding as a pgvector text literal, e.g. {@code [0.1,0.2]}.
+     *
+     * @param embedding the embedding, may be null
+     * @return the literal, or null when the embedding is null or empty
+     */
+    public static String toVectorLiteral(float[] embedding) {
+        if (embedding == null || embedding.length == 0) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(embedding.length * 12);
+        sb.append('[');
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(embedding[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Parses a pgvector text literal such as {@code [0.1,0.2]} into a primitive array.
+     *
+     * @param literal the literal, brackets optional
+     * @return the parsed embedding, empty when the literal has no components
+     */
+    public static float[] parseVectorLiteral(String literal) {
+        String body = literal.trim();
+        if (body.startsWith("[")) {
+            body = body.substring(1);
+        }
+        if (body.endsWith("]")) {
+            body = body.substring(0, body.length() - 1);
+        }
+        if (body.isBlank()) {
+            return new float[0];
+        }
+        String[] parts = body.split(",");
+        float[] result = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Float.parseFloat(parts[i].trim());
+        }
+        return result;
+    }
+}
@@ -3,6 +3,7 @@ package com.haekitchenapp.recipeapp.controller
 import com.haekitchenapp.recipeapp.exception.EmbedFailureException
 import com.haekitchenapp.recipeapp.exception.InvalidCredentialsException
 import com.haekitchenapp.recipeapp.exception.InvalidValidationCodeException
+import com.haekitchenapp.recipeapp.exception.LlmBudgetExceededException
 import com.haekitchenapp.recipeapp.exception.RecipeNotFoundException
 import com.haekitchenapp.recipeapp.exception.UserEmailExistsException
 import com.haekitchenapp.recipeapp.exception.UserNotFoundException
@@ -15,6 +16,8 @@ import org.springframework.web.bind.MethodArgumentNotValidException
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException
 import spock.lang.Specification
 
+import java.time.Duration
+
 class AdviceSpec extends Specification {
 
     Advice advice
@@ -42,6 +45,17 @@ class AdviceSpec extends Specification {
         response.body.message == "Embedding failed: Vectorization broke"
     }
 
+    def "handleLlmBudgetExceeded returns too many requests with retry after"() {
+        when:
+        def response = advice.handleLlmBudgetExceeded(
+                new LlmBudgetExceededException("Daily LLM budget used", Duration.ofMinutes(90)))
+
+        then:
+        response.statusCode.value() == 429
+        response.headers.getFirst("Retry-After") == "5400"
+        response.body.message == "Daily LLM budget used"
+    }
+
     def "handleUserEmailExists returns conflict status"() {
         when:
         def response = advice.handleUserEmailExists(new UserEmailExistsException("Email already registered"))
@@ -2,15 +2,19 @@ package com.haekitchenapp.recipeapp.controller
 
 import com.haekitchenapp.recipeapp.exception.RecipeSearchFoundNoneException
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeSimilarityRequest
+import com.haekitchenapp.recipeapp.model.request.recipe.SearchEngineComparisonRequest
 import com.haekitchenapp.recipeapp.model.response.ApiResponse
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAISkeletonId
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityDto
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleDto
+import com.haekitchenapp.recipeapp.model.response.recipe.SearchEngineComparisonDto
 import com.haekitchenapp.recipeapp.service.JwtTokenService
 import com.haekitchenapp.recipeapp.service.RecipeAIService
+import com.haekitchenapp.recipeapp.service.search.SearchEngineComparisonService
 import jakarta.servlet.http.HttpServletRequest
 import java.util.Set
 import org.springframework.http.ResponseEntity
+import reactor.core.publisher.Mono
 import spock.lang.Specification
 
 class RecipeAIControllerSpec extends Specification {
@@ -18,23 +22,26 @@ class RecipeAIControllerSpec extends Specification {
     RecipeAIController recipeAIController
     RecipeAIService recipeAIService
     JwtTokenService jwtTokenService
+    SearchEngineComparisonService searchEngineComparisonService
 
     def setup() {
         recipeAIService = Mock(RecipeAIService)
         jwtTokenService = Mock(JwtTokenService)
-        recipeAIController = new RecipeAIController(recipeAIService, jwtTokenService)
+        searchEngineComparisonService = Mock(SearchEngineComparisonService)
+        recipeAIController = new RecipeAIController(recipeAIService, jwtTokenService, searchEngineComparisonService)
     }
 
     def "returns random titles from service"() {
         given:
         def titles = [new RecipeTitleDto(1L, 'Random Title')]
+        HttpServletRequest httpServletRequest = Mock()
 
         when:
-        def response = recipeAIController.getRandomTitles(5)
+        def response = recipeAIController.getRandomTitles(5, httpServletRequest)
 
         then:
-        1 * recipeAIService.generateRandomRecipeTitles(5) >> ResponseEntity.ok(ApiResponse.success('found', titles))
-        0 * jwtTokenService._
+        1 * jwtTokenService.getUserIdFromRequest(httpServletRequest) >> 42L
+        1 * recipeAIService.generateRandomRecipeTitles(5, 42L) >> ResponseEntity.ok(ApiResponse.success('found', titles))
         response.statusCode.value() == 200
         response.body.data == titles
     }
@@ -53,10 +60,10 @@ class RecipeAIControllerSpec extends Specification {
         def response = recipeAIController.searchRecipesByTitleSimilarity(request)
 
         then:
-        1 * recipeAIService.searchByAdvancedEmbeddingObject({ it == request }) >> ResponseEntity.ok(ApiResponse.success('done', results))
+        1 * recipeAIService.searchByAdvancedEmbeddingObjectAsync({ it == request }) >> Mono.just(ResponseEntity.ok(ApiResponse.success('done', results)))
         0 * jwtTokenService._
-        response.statusCode.value() == 200
-        response.body.data == results
+        response.block().statusCode.value() == 200
+        response.block().body.data == results
     }
 
     def "handles recipe chat with jwt user id"() {
@@ -98,5 +105,16 @@ class RecipeAIControllerSpec extends Specification {
         response.body.data == 200L
     }
 
+    def "delegates search engine comparison to the comparison service"() {
+        given:
+        def request = new SearchEngineComparisonRequest(queries: ['tomato soup'], k: 5)
+        def result = new SearchEngineComparisonDto(1, 5, 20, 100, null, null)
 
+        when:
+        def response = recipeAIController.compareSearchEngines(request)
+
+        then:
+        1 * searchEngineComparisonService.compare(request) >> ResponseEntity.ok(ApiResponse.success('done', result))
+        response.body.data.is(result)
+    }
 }
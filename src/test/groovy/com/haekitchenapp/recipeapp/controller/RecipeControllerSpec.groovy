@@ -10,14 +10,21 @@ import com.haekitchenapp.recipeapp.model.response.ApiResponse
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDetailsDto
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDuplicatesByTitleDto
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDuplicatesByTitleResponse
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeImportResponse
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeResponse
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleDto
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleSearchResponse
+import com.haekitchenapp.recipeapp.model.response.recipe.TypeaheadResponse
+import com.haekitchenapp.recipeapp.model.response.recipe.TypeaheadSuggestion
 import com.haekitchenapp.recipeapp.service.JwtTokenService
+import com.haekitchenapp.recipeapp.service.RecipeImportService
 import com.haekitchenapp.recipeapp.service.RecipeService
 import com.haekitchenapp.recipeapp.service.UnitService
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService
 import com.haekitchenapp.recipeapp.support.Fixtures
 import org.springframework.http.HttpStatus
 import org.springframework.http.ResponseEntity
+import org.springframework.mock.web.MockHttpServletRequest
 import spock.lang.Specification
 
 class RecipeControllerSpec extends Specification {
@@ -26,12 +33,16 @@ class RecipeControllerSpec extends Specification {
     RecipeService recipeService
     UnitService unitService
     JwtTokenService jwtTokenService
+    RecipeImportService recipeImportService
+    TypeaheadService typeaheadService
 
     def setup() {
         recipeService = Mock(RecipeService)
         unitService = Mock(UnitService)
         jwtTokenService = Mock(JwtTokenService)
-        recipeController = new RecipeController(recipeService, unitService, jwtTokenService)
+        recipeImportService = Mock(RecipeImportService)
+        typeaheadService = Mock(TypeaheadService)
+        recipeController = new RecipeController(recipeService, unitService, jwtTokenService, recipeImportService, typeaheadService)
     }
 
     def "creates recipe when payload is valid"() {
@@ -79,6 +90,36 @@ class RecipeControllerSpec extends Specification {
         response.body.data*.title == ['First', 'Second']
     }
 
+    def "imports recipes from the request body stream"() {
+        given:
+        def body = new MockHttpServletRequest()
+        body.content = '{"title":"First"}\n'.bytes
+        def summary = new RecipeImportResponse(received: 1, imported: 1)
+
+        when:
+        def response = recipeController.importRecipes(body)
+
+        then:
+        1 * recipeImportService.importNdjson(_ as InputStream) >> ResponseEntity.ok(ApiResponse.success("Recipe import completed", summary))
+        0 * _
+        response.statusCode == HttpStatus.OK
+        response.body.data.imported == 1
+    }
+
+    def "returns typeahead suggestions"() {
+        given:
+        def suggestions = new TypeaheadResponse([new TypeaheadSuggestion(4L, 'Chicken Curry', 2.9d)], [])
+
+        when:
+        def response = recipeController.typeahead('chick', 5)
+
+        then:
+        1 * typeaheadService.suggest('chick', 5) >> suggestions
+        0 * _
+        response.statusCode == HttpStatus.OK
+        response.body.data.is(suggestions)
+    }
+
     def "updates recipe injecting path id"() {
         given:
         RecipeRequest request = Fixtures.recipeRequest([id: null, title: 'Updated title'])
@@ -144,25 +185,25 @@ class RecipeControllerSpec extends Specification {
 
     def "searches recipes by title"() {
         given:
-        List<RecipeTitleDto> titles = [new RecipeTitleDto(7L, 'Toast', 'Brown it')]
+        def titles = new RecipeTitleSearchResponse([new RecipeTitleDto(7L, 'Toast')], '0.5:7')
 
         when:
-        def response = recipeController.searchRecipesByTitle('Toast')
+        def response = recipeController.searchRecipesByTitle('Toast', '0.9:3')
 
         then:
-        1 * recipeService.searchByTitle('Toast') >> ResponseEntity.ok(ApiResponse.success("Recipes retrieved successfully", titles))
+        1 * recipeService.searchByTitle('Toast', '0.9:3') >> ResponseEntity.ok(ApiResponse.success("Recipes retrieved successfully", titles))
         0 * _
         response.statusCode == HttpStatus.OK
-        response.body.data*.id == [7L]
-        response.body.data*.instructions == ['Brown it']
+        response.body.data.titles*.id == [7L]
+        response.body.data.next == '0.5:7'
     }
 
     def "throws RecipeSearchFoundNoneException when search finds nothing"() {
         when:
-        recipeController.searchRecipesByTitle('Missing')
+        recipeController.searchRecipesByTitle('Missing', null)
 
         then:
-        1 * recipeService.searchByTitle('Missing') >> { throw new RecipeSearchFoundNoneException('No recipes found with title: Missing') }
+        1 * recipeService.searchByTitle('Missing', null) >> { throw new RecipeSearchFoundNoneException('No recipes found with title: Missing') }
         0 * _
         def ex = thrown(RecipeSearchFoundNoneException)
         ex.message == 'No recipes found with title: Missing'
@@ -170,13 +211,13 @@ class RecipeControllerSpec extends Specification {
 
     def "lists duplicate recipes by page"() {
         given:
-        def duplicates = new RecipeDuplicatesByTitleResponse([new RecipeDuplicatesByTitleDto('Toast', 3L)], true)
+        def duplicates = new RecipeDuplicatesByTitleResponse([new RecipeDuplicatesByTitleDto('Toast', 3L)], true, null)
 
         when:
-        def response = recipeController.getDuplicateRecipes(1)
+        def response = recipeController.getDuplicateRecipes('3:00000000-0000-0001-0000-000000000002')
 
         then:
-        1 * recipeService.findDuplicateTitles(1) >> ResponseEntity.ok(ApiResponse.success("Duplicate titles retrieved successfully", duplicates))
+        1 * recipeService.findDuplicateTitles('3:00000000-0000-0001-0000-000000000002') >> ResponseEntity.ok(ApiResponse.success("Duplicate titles retrieved successfully", duplicates))
         0 * _
         response.statusCode == HttpStatus.OK
         response.body.data.duplicates*.title == ['Toast']
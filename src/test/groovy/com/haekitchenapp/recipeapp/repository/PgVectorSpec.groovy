@@ -0,0 +1,66 @@
+package com.haekitchenapp.recipeapp.repository
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+class PgVectorSpec extends Specification {
+
+    def "toBytes writes pgvector binary format"() {
+        given:
+        PgVector vector = new PgVector([1.5f, -2.0f, 0.25f] as float[])
+        byte[] bytes = new byte[vector.lengthInBytes()]
+
+        when:
+        vector.toBytes(bytes, 0)
+        ByteBuffer buffer = ByteBuffer.wrap(bytes)
+
+        then:
+        bytes.length == 4 + 3 * Float.BYTES
+        buffer.getShort() == 3 as short
+        buffer.getShort() == 0 as short
+        buffer.getFloat() == 1.5f
+        buffer.getFloat() == -2.0f
+        buffer.getFloat() == 0.25f
+    }
+
+    def "binary round trip preserves components"() {
+        given:
+        float[] source = [0.1f, 0.2f, 0.3f, 0.4f] as float[]
+        PgVector vector = new PgVector(source)
+        byte[] bytes = new byte[vector.lengthInBytes()]
+        vector.toBytes(bytes, 0)
+
+        when:
+        PgVector decoded = new PgVector()
+        decoded.setByteValue(bytes, 0)
+
+        then:
+        decoded.toArray() == source
+        decoded == vector
+    }
+
+    def "text value is the pgvector literal and parses back"() {
+        given:
+        PgVector vector = new PgVector([1.25f, 3.5f] as float[])
+
+        when:
+        PgVector parsed = new PgVector()
+        parsed.setValue(vector.getValue())
+
+        then:
+        vector.type == 'vector'
+        vector.value == '[1.25,3.5]'
+        parsed.toArray() == [1.25f, 3.5f] as float[]
+    }
+
+    def "null vector is reported as null with no bytes"() {
+        given:
+        PgVector vector = new PgVector()
+
+        expect:
+        vector.isNull()
+        vector.lengthInBytes() == 0
+        vector.value == null
+    }
+}
@@ -0,0 +1,47 @@
+package com.haekitchenapp.recipeapp.repository
+
+import com.haekitchenapp.recipeapp.repository.RecipeDuplicateTitleRepository.DuplicateCursor
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.core.RowMapper
+import org.springframework.transaction.PlatformTransactionManager
+import spock.lang.Specification
+
+class RecipeDuplicateTitleRepositorySpec extends Specification {
+
+    JdbcTemplate jdbcTemplate = Mock()
+    RecipeDuplicateTitleRepository repository = new RecipeDuplicateTitleRepository(jdbcTemplate, Mock(PlatformTransactionManager))
+
+    def "first page reads only duplicated titles in count order"() {
+        when:
+        repository.findDuplicates(null, 21)
+
+        then:
+        1 * jdbcTemplate.query({ it.contains('WHERE count > 1') && !it.contains('title_hash >') }, _ as RowMapper, 21) >> []
+    }
+
+    def "later pages continue strictly after the cursor"() {
+        given:
+        DuplicateCursor cursor = new DuplicateCursor(4L, UUID.fromString('00000000-0000-0000-0000-00000000000a'))
+
+        when:
+        repository.findDuplicates(cursor, 21)
+
+        then:
+        1 * jdbcTemplate.query({ it.contains('count < ? OR (count = ? AND title_hash > ?)') }, _ as RowMapper,
+                4L, 4L, cursor.titleHash(), 21) >> []
+    }
+
+    def "cursor survives encoding and rejects anything else"() {
+        given:
+        DuplicateCursor cursor = new DuplicateCursor(12L, UUID.randomUUID())
+
+        expect:
+        DuplicateCursor.decode(cursor.encode()) == cursor
+
+        when:
+        DuplicateCursor.decode('2')
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -3,11 +3,8 @@ package com.haekitchenapp.recipeapp.repository
 import com.haekitchenapp.recipeapp.entity.Ingredient
 import com.haekitchenapp.recipeapp.entity.Recipe
 import com.haekitchenapp.recipeapp.entity.RecipeIngredient
-import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDuplicatesByTitleDto
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSummaryProjection
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleDto
-import org.springframework.data.domain.Page
-import org.springframework.data.domain.PageRequest
 import spock.lang.Specification
 
 class RecipeRepositorySpec extends Specification {
@@ -28,23 +25,6 @@ class RecipeRepositorySpec extends Specification {
                 return []
             }
 
-            findTitlesByTitleContainingIgnoreCase(_, _) >> { String query, _ ->
-                if (query.toLowerCase().contains('toast')) {
-                    return [
-                            new RecipeTitleDto(1L, 'Cheese Toast', 'Make toast'),
-                            new RecipeTitleDto(2L, 'toast with butter', 'Spread butter')
-                    ]
-                }
-                return []
-            }
-
-            findDuplicateTitles(_) >> { _ ->
-                def page = Mock(Page)
-                page.getContent() >> [new RecipeDuplicatesByTitleDto('Ramen Bowl', 2L)]
-                page.isEmpty() >> false
-                return page
-            }
-
             findByIdWithSimple(_) >> { Long id ->
                 def recipe = createRecipe('Quick Soup')
                 return Optional.of(Mock(RecipeSummaryProjection) {
@@ -81,25 +61,6 @@ class RecipeRepositorySpec extends Specification {
         results[0].getInstructions() == 'Bake it'
     }
 
-    def "findTitlesByTitleContainingIgnoreCase performs case-insensitive search"() {
-        when:
-        List<RecipeTitleDto> results = recipeRepository.findTitlesByTitleContainingIgnoreCase('toast', PageRequest.of(0, 20))
-
-        then:
-        results*.getTitle().containsAll(['Cheese Toast', 'toast with butter'])
-    }
-
-    def "findDuplicateTitles returns grouped titles with counts"() {
-        when:
-        def page = recipeRepository.findDuplicateTitles(PageRequest.of(0, 20))
-
-        then:
-        !page.isEmpty()
-        RecipeDuplicatesByTitleDto dto = page.content.first()
-        dto.getTitle() == 'Ramen Bowl'
-        dto.getCount() == 2L
-    }
-
     def "findByIdWithSimple returns summary projection"() {
         when:
         Optional<RecipeSummaryProjection> projection = recipeRepository.findByIdWithSimple(1L)
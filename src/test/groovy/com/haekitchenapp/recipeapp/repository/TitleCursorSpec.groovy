@@ -0,0 +1,35 @@
+package com.haekitchenapp.recipeapp.repository
+
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom.TitleCursor
+import spock.lang.Specification
+
+class TitleCursorSpec extends Specification {
+
+    def "cursor survives encoding exactly"() {
+        given:
+        TitleCursor cursor = new TitleCursor(score, 42L)
+
+        expect:
+        TitleCursor.decode(cursor.encode()) == cursor
+
+        where:
+        score << [0.33333334f, 1f, 0f, 0.1f]
+    }
+
+    def "malformed cursors are rejected"() {
+        when:
+        TitleCursor.decode(value)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        value << ['', '0.5', 'x:1', '0.5:y']
+    }
+
+    def "LIKE metacharacters in the query are escaped"() {
+        expect:
+        RecipeRepositoryCustom.escapeLike('100% a_b\\c') == '100\\% a\\_b\\\\c'
+        RecipeRepositoryCustom.containsPattern('50%') == '%50\\%%'
+    }
+}
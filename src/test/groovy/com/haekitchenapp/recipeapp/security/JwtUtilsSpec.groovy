@@ -0,0 +1,75 @@
+package com.haekitchenapp.recipeapp.security
+
+import com.haekitchenapp.recipeapp.entity.User
+import io.jsonwebtoken.Jwts
+import io.jsonwebtoken.io.Decoders
+import io.jsonwebtoken.security.Keys
+import spock.lang.Specification
+
+class JwtUtilsSpec extends Specification {
+
+    static final String SECRET = 'hMxZ+rCq6RZwV52TmKTDLn0JwL6CV7KD0y40MAcZujh21t1BUoz7mbIhrqwwh1cboA/JS1OoRQAV317Qv6I3XQ=='
+
+    JwtUtils jwtUtils = new JwtUtils()
+
+    def setup() {
+        jwtUtils.@jwtSecret = SECRET
+        jwtUtils.@jwtExpirationMs = 60_000
+    }
+
+    String tokenFor(Long id, String username) {
+        User user = new User(username, "${username}@example.com", 'password123')
+        user.id = id
+        jwtUtils.generateJwtToken(user)
+    }
+
+    def "resolves the user and id from a valid token"() {
+        when:
+        def user = jwtUtils.resolveJwtToken(tokenFor(5L, 'cook')).get()
+
+        then:
+        user.userId == 5L
+        user.username == 'cook'
+        jwtUtils.getUserIdFromJwtToken(tokenFor(5L, 'cook')) == 5L
+    }
+
+    def "repeated lookups of a token return the cached principal"() {
+        given:
+        def token = tokenFor(6L, 'baker')
+
+        expect:
+        jwtUtils.getAuthenticatedUser(token).is(jwtUtils.getAuthenticatedUser(token))
+    }
+
+    def "a token with a tampered signature is rejected even after the original was cached"() {
+        given:
+        def token = tokenFor(7L, 'chef')
+        jwtUtils.getAuthenticatedUser(token)
+        def tampered = token.substring(0, token.length() - 2) + (token.endsWith('AA') ? 'BB' : 'AA')
+
+        expect:
+        !jwtUtils.validateJwtToken(tampered)
+        jwtUtils.validateJwtToken(token)
+    }
+
+    def "expired tokens are rejected"() {
+        given:
+        def key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))
+        def token = Jwts.builder()
+                .subject('late')
+                .claim('userId', 8L)
+                .claim('authorities', [])
+                .claim('enabled', true)
+                .expiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(key)
+                .compact()
+
+        expect:
+        jwtUtils.resolveJwtToken(token).isEmpty()
+    }
+
+    def "blank tokens are rejected"() {
+        expect:
+        !jwtUtils.validateJwtToken('')
+    }
+}
@@ -3,7 +3,11 @@ package com.haekitchenapp.recipeapp.service
 import com.haekitchenapp.recipeapp.entity.Cuisine
 import com.haekitchenapp.recipeapp.exception.CuisineNotFoundException
 import com.haekitchenapp.recipeapp.repository.CuisineRepository
+import com.haekitchenapp.recipeapp.repository.MealTypeRepository
+import com.haekitchenapp.recipeapp.repository.UnitRepository
 import com.haekitchenapp.recipeapp.service.impl.CuisineServiceImpl
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataCache
+import org.springframework.jdbc.core.JdbcTemplate
 import spock.lang.Specification
 
 import java.util.Optional
@@ -11,63 +15,57 @@ import java.util.Optional
 class CuisineServiceImplSpec extends Specification {
 
     CuisineRepository cuisineRepository
+    JdbcTemplate jdbcTemplate
     CuisineServiceImpl cuisineService
 
     def setup() {
         cuisineRepository = Mock(CuisineRepository)
-        cuisineService = new CuisineServiceImpl(cuisineRepository)
+        jdbcTemplate = Mock(JdbcTemplate)
+        def referenceDataCache = new ReferenceDataCache(Mock(UnitRepository), cuisineRepository, Mock(MealTypeRepository), jdbcTemplate, 5000)
+        cuisineService = new CuisineServiceImpl(cuisineRepository, referenceDataCache)
     }
 
-    def "findById returns repository result"() {
-        given:
-        def expected = Optional.of(new Cuisine())
-
-        when:
-        def result = cuisineService.findById(123)
-
-        then:
-        1 * cuisineRepository.findById(123) >> expected
-        0 * _
-        result == expected
+    private static Cuisine cuisine(Integer id, String name) {
+        new Cuisine(id: id, name: name)
     }
 
-    def "findByName returns repository result"() {
-        given:
-        def expected = Optional.of(new Cuisine())
-
+    def "reads are served from the cached cuisines after one load"() {
         when:
-        def result = cuisineService.findByName("Italian")
+        def all = cuisineService.findAll()
+        def byId = cuisineService.findById(2)
+        def byName = cuisineService.findByName("Italian")
+        def missing = cuisineService.findById(9)
 
         then:
-        1 * cuisineRepository.findByName("Italian") >> expected
+        1 * cuisineRepository.findAll() >> [cuisine(2, "Thai"), cuisine(1, "Italian")]
         0 * _
-        result == expected
+        all*.id == [1, 2]
+        all*.name == ["Italian", "Thai"]
+        byId.get().name == "Thai"
+        byName.get().id == 1
+        missing.isEmpty()
     }
 
-    def "findAll returns repository result"() {
+    def "returned cuisines are copies that do not change the cache"() {
         given:
-        def cuisines = [new Cuisine(), new Cuisine()]
+        cuisineRepository.findAll() >> [cuisine(1, "Italian")]
 
         when:
-        def result = cuisineService.findAll()
+        cuisineService.findById(1).get().name = "Changed"
 
         then:
-        1 * cuisineRepository.findAll() >> cuisines
-        0 * _
-        result == cuisines
+        cuisineService.findById(1).get().name == "Italian"
     }
 
-    def "findByNameContaining returns repository result"() {
+    def "findByNameContaining matches case insensitively"() {
         given:
-        def cuisines = [new Cuisine()]
+        cuisineRepository.findAll() >> [cuisine(1, "Italian"), cuisine(2, "Thai"), cuisine(3, "Indian")]
 
         when:
-        def result = cuisineService.findByNameContaining("an")
+        def result = cuisineService.findByNameContaining("AN")
 
         then:
-        1 * cuisineRepository.findByNameContainingIgnoreCase("an") >> cuisines
-        0 * _
-        result == cuisines
+        result*.name == ["Italian", "Indian"]
     }
 
     def "findByRecipeId returns repository result"() {
@@ -96,6 +94,7 @@ class CuisineServiceImplSpec extends Specification {
 
         then:
         1 * cuisineRepository.save(cuisine) >> saved
+        1 * jdbcTemplate.query(*_)
         0 * _
         result == saved
     }
@@ -118,6 +117,7 @@ class CuisineServiceImplSpec extends Specification {
             assert saved.name == "New Name"
             true
         }) >> { Cuisine saved -> saved }
+        1 * jdbcTemplate.query(*_)
         0 * _
         result.is(existing)
         result.name == "New Name"
@@ -151,16 +151,32 @@ class CuisineServiceImplSpec extends Specification {
         then:
         1 * cuisineRepository.existsById(8) >> true
         1 * cuisineRepository.deleteById(8)
+        1 * jdbcTemplate.query(*_)
         0 * _
     }
 
-    def "existsByName returns repository response"() {
+    def "existsByName and existsById use the cached cuisines"() {
         when:
-        def result = cuisineService.existsByName("Mexican")
+        def nameExists = cuisineService.existsByName("Mexican")
+        def idExists = cuisineService.existsById(4)
 
         then:
-        1 * cuisineRepository.existsByName("Mexican") >> true
+        1 * cuisineRepository.findAll() >> [cuisine(4, "Mexican")]
         0 * _
-        result
+        nameExists
+        idExists
+    }
+
+    def "writes make the next read load the cuisines again"() {
+        given:
+        cuisineRepository.findAll() >>> [[cuisine(1, "Italian")], [cuisine(1, "Italian"), cuisine(2, "Thai")]]
+        cuisineService.findAll()
+
+        when:
+        cuisineService.createCuisine(new Cuisine(name: "Thai"))
+
+        then:
+        1 * cuisineRepository.save(_) >> cuisine(2, "Thai")
+        cuisineService.findByName("Thai").get().id == 2
     }
 }
@@ -0,0 +1,112 @@
+package com.haekitchenapp.recipeapp.service
+
+import com.haekitchenapp.recipeapp.exception.HttpError5XXException
+import com.haekitchenapp.recipeapp.exception.LlmApiException
+import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmData
+import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmResponse
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import reactor.core.Disposable
+import reactor.core.publisher.Mono
+import reactor.core.scheduler.Scheduler
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+import java.util.function.LongSupplier
+
+class EmbeddingBatcherSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    Scheduler scheduler = Mock()
+    Function<List<String>, Mono<LlmResponse>> sender = Mock()
+    List<Runnable> windows = []
+    long now = 0
+    EmbeddingBatcher batcher
+
+    def setup() {
+        scheduler.schedule(_ as Runnable, 5, TimeUnit.MILLISECONDS) >> { Runnable task, long delay, TimeUnit unit ->
+            windows << task
+            Mock(Disposable)
+        }
+        batcher = new EmbeddingBatcher(sender, 5, 3, scheduler, meterRegistry)
+        batcher.clock = { now } as LongSupplier
+    }
+
+    static LlmResponse response(Map<String, List<Double>> embeddingsByIndex) {
+        new LlmResponse(data: embeddingsByIndex.collect { index, embedding ->
+            new LlmData(index: index, embedding: embedding as Double[])
+        })
+    }
+
+    def "calls within the window go out in one request and each gets its own vector"() {
+        when:
+        def soup = batcher.embed('soup').toFuture()
+        def salad = batcher.embed('salad').toFuture()
+
+        then: "nothing is sent before the window closes"
+        0 * sender.apply(_)
+        !soup.done
+
+        when:
+        now += TimeUnit.MILLISECONDS.toNanos(5)
+        windows[0].run()
+
+        then: "vectors are matched by index, not response order"
+        1 * sender.apply(['soup', 'salad']) >> Mono.just(response(['1': [2.0d], '0': [1.0d]]))
+        soup.get() == [1.0d] as Double[]
+        salad.get() == [2.0d] as Double[]
+        meterRegistry.get('llm.embed.batch.size').summary().max() == 2d
+        meterRegistry.get('llm.embed.batch.queue.delay').timer().max(TimeUnit.MILLISECONDS) == 5d
+    }
+
+    def "a full batch is sent at once and its window does nothing when it closes"() {
+        when:
+        def results = ['a', 'b', 'c', 'd'].collect { batcher.embed(it).toFuture() }
+
+        then:
+        1 * sender.apply(['a', 'b', 'c']) >> Mono.just(response(['0': [1.0d], '1': [2.0d], '2': [3.0d]]))
+        results[0..2]*.get()*.toList() == [[1.0d], [2.0d], [3.0d]]
+        !results[3].done
+
+        when:
+        windows*.run()
+
+        then: "only the call left over goes out when its own window closes"
+        1 * sender.apply(['d']) >> Mono.just(response(['0': [4.0d]]))
+        results[3].get() == [4.0d] as Double[]
+        windows.size() == 2
+    }
+
+    def "a failed request fails every call in the batch"() {
+        given:
+        def soup = batcher.embed('soup').toFuture()
+        def salad = batcher.embed('salad').toFuture()
+        sender.apply(_) >> Mono.error(new HttpError5XXException('Server error: down'))
+
+        when:
+        windows[0].run()
+        soup.get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof HttpError5XXException
+        salad.completedExceptionally
+    }
+
+    def "a missing vector fails only its own call"() {
+        given:
+        def soup = batcher.embed('soup').toFuture()
+        def salad = batcher.embed('salad').toFuture()
+        sender.apply(_) >> Mono.just(response(['0': [1.0d]]))
+
+        when:
+        windows[0].run()
+        salad.get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof LlmApiException
+        soup.get() == [1.0d] as Double[]
+    }
+}
@@ -0,0 +1,104 @@
+package com.haekitchenapp.recipeapp.service
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class IngredientDictionarySpec extends Specification {
+
+    IngredientDictionary dictionary = new IngredientDictionary()
+
+    def "names and ids resolve both ways across growth"() {
+        when:
+        (1..5000).each { dictionary.put(it * 3L, "ingredient $it".toString()) }
+
+        then:
+        dictionary.size() == 5000
+        (1..5000).every { dictionary.idOf("ingredient $it".toString()) == it * 3L }
+        (1..5000).every { dictionary.nameOf(it * 3L) == "ingredient $it".toString() }
+        dictionary.idOf("ingredient 0") == IngredientDictionary.NOT_FOUND
+        dictionary.nameOf(1L) == null
+    }
+
+    def "a name or id already present is not added again and the stored name is shared"() {
+        given:
+        def stored = new String("salt")
+        dictionary.put(1L, stored)
+
+        when:
+        def byName = dictionary.put(2L, new String("salt"))
+        def byId = dictionary.put(1L, "sea salt")
+
+        then:
+        byName.is(stored)
+        byId.is(stored)
+        dictionary.size() == 1
+        dictionary.canonicalName(new String("salt")).is(stored)
+    }
+
+    def "names differing only in case keep their own entries and lookups prefer the lower case one"() {
+        when:
+        dictionary.put(1L, "Salt")
+
+        then:
+        dictionary.idOf("salt") == 1L
+        dictionary.canonicalName("salt") == "salt"
+
+        when:
+        dictionary.put(2L, "salt")
+
+        then:
+        dictionary.size() == 2
+        dictionary.nameOf(1L) == "Salt"
+        dictionary.nameOf(2L) == "salt"
+        dictionary.idOf("salt") == 2L
+    }
+
+    def "the memory estimate grows with the contents"() {
+        given:
+        def empty = dictionary.estimatedBytes()
+
+        when:
+        (1..2000).each { dictionary.put(it, "name $it".toString()) }
+
+        then:
+        dictionary.estimatedBytes() > empty
+    }
+
+    def "readers never see a missing or wrong entry while a writer appends"() {
+        given:
+        int writes = 20_000
+        (1..100).each { dictionary.put(it, "seed $it".toString()) }
+        def pool = Executors.newFixedThreadPool(4)
+        def start = new CountDownLatch(1)
+        def errors = new AtomicInteger()
+
+        when:
+        pool.submit {
+            start.await()
+            (1..writes).each { dictionary.put(1000L + it, "added $it".toString()) }
+        }
+        3.times {
+            pool.submit {
+                start.await()
+                while (dictionary.size() < writes + 100) {
+                    (1..100).each { i ->
+                        if (dictionary.idOf("seed $i".toString()) != i || dictionary.nameOf(i) != "seed $i".toString()) {
+                            errors.incrementAndGet()
+                        }
+                    }
+                }
+            }
+        }
+        start.countDown()
+        pool.shutdown()
+
+        then:
+        pool.awaitTermination(30, TimeUnit.SECONDS)
+        errors.get() == 0
+        dictionary.idOf("added $writes".toString()) == 1000L + writes
+    }
+}
@@ -2,21 +2,34 @@ package com.haekitchenapp.recipeapp.service
 
 import com.haekitchenapp.recipeapp.entity.Ingredient
 import com.haekitchenapp.recipeapp.exception.IngredientException
+import com.haekitchenapp.recipeapp.repository.IngredientJdbcRepository
 import com.haekitchenapp.recipeapp.repository.IngredientRepository
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.util.concurrent.TimeUnit
+
 class IngredientServiceSpec extends Specification {
 
     IngredientRepository ingredientRepository
+    IngredientJdbcRepository ingredientJdbcRepository
+    TypeaheadService typeaheadService
+    SimpleMeterRegistry meterRegistry
     IngredientService service
+    long now = 0
 
     def setup() {
         ingredientRepository = Mock()
-        service = new IngredientService(ingredientRepository)
+        ingredientJdbcRepository = Mock()
+        typeaheadService = Mock()
+        meterRegistry = new SimpleMeterRegistry()
+        service = new IngredientService(ingredientRepository, ingredientJdbcRepository, typeaheadService, meterRegistry, 5000)
+        service.clock = { now }
     }
 
-    def "initial cache population occurs once and repeated lookups use cache"() {
+    def "initial lookup loads the dictionary once and repeated lookups use it"() {
         given:
         def salt = ingredient(1L, "salt")
 
@@ -25,11 +38,6 @@ class IngredientServiceSpec extends Specification {
 
         then:
         first == "salt"
-        service.@ingredientCache[1L].is(salt)
-        service.@ingredientNameCache["salt"].is(salt)
-        service.@countOnLoad == 1
-        service.@lastIdOnLoad == 1L
-        1 * ingredientRepository.count() >> 1
         1 * ingredientRepository.findAllGreaterThanId(0L) >> [salt]
         0 * ingredientRepository._
 
@@ -37,22 +45,69 @@ class IngredientServiceSpec extends Specification {
         def second = service.getIngredientNameById(1L)
 
         then:
-        second == "salt"
+        second.is(first)
         0 * ingredientRepository._
     }
 
-    def "getIngredientElseInsert returns cached ingredient without repository access"() {
+    def "refresh only reads rows above the highest id loaded"() {
         given:
-        def garlic = ingredient(10L, "garlic")
-        service.@ingredientCache.put(10L, garlic)
-        service.@ingredientNameCache.put("garlic", garlic)
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(1L, "salt"), ingredient(4L, "Pepper")]
+        service.refresh()
+
+        when:
+        def read = service.refresh()
+
+        then:
+        1 * ingredientRepository.findAllGreaterThanId(4L) >> [ingredient(5L, "cumin")]
+        read == 1
+        service.getIngredientNameById(4L) == "Pepper"
+        service.getIngredientNameById(5L) == "cumin"
+    }
+
+    def "an id committed below the refresh mark is read on its own and then remembered"() {
+        given: "id 3 commits after 4 has already been loaded"
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(1L, "salt"), ingredient(4L, "pepper")]
+        service.refresh()
+
+        when:
+        def name = service.getIngredientNameById(3L)
+
+        then:
+        1 * ingredientRepository.findById(3L) >> Optional.of(ingredient(3L, "cumin"))
+        name == "cumin"
+
+        when:
+        def again = service.getIngredientNameById(3L)
+
+        then:
+        again == "cumin"
+        0 * ingredientRepository._
+    }
+
+    def "names that differ only in case keep their own ids"() {
+        given:
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(1L, "Salt"), ingredient(2L, "salt")]
+        service.refresh()
+
+        expect:
+        service.getIngredientNameById(1L) == "Salt"
+        service.getIngredientNameById(2L) == "salt"
+        service.getIngredientElseInsert("SALT").id == 2L
+    }
+
+    def "getIngredientElseInsert returns a known ingredient without repository access"() {
+        given:
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(10L, "garlic")]
+        service.refresh()
 
         when:
         def result = service.getIngredientElseInsert(" Garlic ")
 
         then:
-        result.is(garlic)
+        result.id == 10L
+        result.name == "garlic"
         0 * ingredientRepository._
+        0 * ingredientJdbcRepository._
     }
 
     @Unroll
@@ -63,68 +118,77 @@ class IngredientServiceSpec extends Specification {
         then:
         thrown IngredientException
         0 * ingredientRepository._
+        0 * ingredientJdbcRepository._
 
         where:
         invalidName << [null, "", "   "]
     }
 
-    def "getIngredientElseInsert saves new ingredient and updates caches"() {
-        given:
-        def saved = ingredient(7L, "new spice")
-
+    def "getIngredientElseInsert upserts an unknown ingredient and remembers it"() {
         when:
         def result = service.getIngredientElseInsert("  New Spice  ")
 
         then:
-        result.is(saved)
-        service.@ingredientCache[7L].is(saved)
-        service.@ingredientNameCache["new spice"].is(saved)
-        service.@lastIdOnLoad == 7L
-        service.@countOnLoad == 1
-        1 * ingredientRepository.count() >> 0
-        1 * ingredientRepository.save({ Ingredient toSave ->
-            assert toSave.id == null
-            assert toSave.name == "new spice"
-            true
-        }) >> saved
+        result.id == 7L
+        result.name == "new spice"
+        1 * ingredientJdbcRepository.upsertIngredients(["new spice"]) >> ["new spice": 7L]
+        1 * typeaheadService.ingredientSaved(7L, "new spice")
         0 * ingredientRepository._
+
+        when:
+        def again = service.getIngredientElseInsert("new spice")
+
+        then:
+        again.id == 7L
+        0 * ingredientJdbcRepository._
     }
 
-    def "getIngredientNameById refreshes cache on miss and handles null id and missing results"() {
+    def "getIngredientIdsElseInsert upserts only the unknown names"() {
         given:
-        def pepper = ingredient(2L, "pepper")
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(1L, "salt")]
+        service.refresh()
 
         when:
-        def result = service.getIngredientNameById(2L)
+        def ids = service.getIngredientIdsElseInsert(["salt", "sumac", "za'atar"])
 
         then:
-        result == "pepper"
-        service.@ingredientCache[2L].is(pepper)
-        service.@ingredientNameCache["pepper"].is(pepper)
-        1 * ingredientRepository.count() >> 1
-        1 * ingredientRepository.findAllGreaterThanId(0L) >> [pepper]
-        0 * ingredientRepository._
+        1 * ingredientJdbcRepository.upsertIngredients(["sumac", "za'atar"]) >> ["sumac": 2L, "za'atar": 3L]
+        ids == ["salt": 1L, "sumac": 2L, "za'atar": 3L]
+        service.getIngredientNameById(3L) == "za'atar"
+    }
+
+    def "an unknown id refreshes at most once per interval"() {
+        given:
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(2L, "pepper")]
+        service.refresh()
 
         when:
         def missing = service.getIngredientNameById(99L)
 
         then:
         missing == null
-        1 * ingredientRepository.count() >> 1
+        1 * ingredientRepository.findById(99L) >> Optional.empty()
         0 * ingredientRepository._
 
+        when:
+        now += TimeUnit.SECONDS.toNanos(6)
+        def added = service.getIngredientNameById(99L)
+
+        then:
+        1 * ingredientRepository.findAllGreaterThanId(2L) >> [ingredient(99L, "mace")]
+        added == "mace"
+
         when:
         service.getIngredientNameById(null)
 
         then:
         thrown IngredientException
-        0 * ingredientRepository._
     }
 
-    def "getIngredientNameByName uses cache validates input"() {
+    def "getIngredientNameByName uses the dictionary and validates input"() {
         given:
-        def basil = ingredient(3L, "basil")
-        service.@ingredientNameCache.put("basil", basil)
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(3L, "basil")]
+        service.refresh()
 
         expect:
         service.getIngredientNameByName("Basil") == "basil"
@@ -135,7 +199,22 @@ class IngredientServiceSpec extends Specification {
 
         then:
         thrown IngredientException
-        0 * ingredientRepository._
+    }
+
+    def "dictionary size, footprint and hit ratio are reported"() {
+        given:
+        ingredientRepository.findAllGreaterThanId(0L) >> [ingredient(1L, "salt"), ingredient(2L, "pepper")]
+        service.refresh()
+        service.getIngredientElseInsert("salt")
+        ingredientJdbcRepository.upsertIngredients(_) >> ["saffron": 3L]
+        service.getIngredientElseInsert("saffron")
+
+        expect:
+        meterRegistry.get("ingredient.dictionary.size").gauge().value() == 3
+        meterRegistry.get("ingredient.dictionary.memory").gauge().value() > 0
+        meterRegistry.get("ingredient.dictionary.lookups").tag("result", "hit").functionCounter().count() == 1
+        meterRegistry.get("ingredient.dictionary.lookups").tag("result", "miss").functionCounter().count() == 1
+        meterRegistry.get("ingredient.dictionary.hit.ratio").gauge().value() == 0.5
     }
 
     private static Ingredient ingredient(long id, String name) {
@@ -1,7 +1,10 @@
 package com.haekitchenapp.recipeapp.service
 
+import com.haekitchenapp.recipeapp.security.AuthenticatedUser
 import com.haekitchenapp.recipeapp.security.JwtUtils
 import jakarta.servlet.http.HttpServletRequest
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken
+import org.springframework.security.core.context.SecurityContextHolder
 import spock.lang.Specification
 import spock.lang.Subject
 import spock.lang.Unroll
@@ -29,6 +32,27 @@ class JwtTokenServiceSpec extends Specification {
         result == 101L
     }
 
+    def "getUserIdFromRequest reads the user id from the authenticated principal without parsing"() {
+        given:
+        def principal = new AuthenticatedUser(7L, 'cook', true, [])
+        SecurityContextHolder.context.authentication = new UsernamePasswordAuthenticationToken(principal, null, [])
+
+        when:
+        Long result = jwtTokenService.getUserIdFromRequest(request)
+
+        then:
+        0 * jwtUtils._
+        result == 7L
+
+        cleanup:
+        SecurityContextHolder.clearContext()
+    }
+
+    def "getCurrentUserId is null outside an authenticated request"() {
+        expect:
+        jwtTokenService.getCurrentUserId() == null
+    }
+
     @Unroll
     def "getUserIdFromRequest returns null when Authorization header is #description"() {
         when:
@@ -0,0 +1,104 @@
+package com.haekitchenapp.recipeapp.service
+
+import com.haekitchenapp.recipeapp.entity.LlmQueryLog
+import com.haekitchenapp.recipeapp.repository.LlmQueryLogJdbcRepository
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class LlmQueryLogWriterSpec extends Specification {
+
+    LlmQueryLogJdbcRepository jdbcRepository = Mock()
+    LlmPricingService pricingService = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    LlmQueryLogWriter writer(int capacity = 100, int batchSize = 10) {
+        new LlmQueryLogWriter(jdbcRepository, pricingService, meterRegistry, capacity, batchSize, 50L, 0L, 5000L)
+    }
+
+    static LlmQueryLog queryLog(String id) {
+        LlmQueryLog queryLog = new LlmQueryLog()
+        queryLog.id = id
+        queryLog.model = 'gpt-test'
+        queryLog
+    }
+
+    def "queued logs are priced and inserted in batches on the writer thread"() {
+        given:
+        List<List<String>> batches = new CopyOnWriteArrayList<>()
+        jdbcRepository.insertBatch(_) >> { List<LlmQueryLog> logs -> batches << logs*.id }
+        LlmQueryLogWriter writer = writer(100, 10)
+
+        when:
+        25.times { writer.submit(queryLog("log-$it")) }
+        writer.start()
+        writer.stop()
+
+        then:
+        25 * pricingService.applyCosts(_)
+        batches*.size() == [10, 10, 5]
+        batches.flatten() == (0..<25).collect { "log-$it" }
+        meterRegistry.get('llm.query.log.written').counter().count() == 25d
+        meterRegistry.get('llm.query.log.queue.size').gauge().value() == 0d
+    }
+
+    def "a full queue drops the log and counts it"() {
+        given:
+        LlmQueryLogWriter writer = writer(2)
+
+        when:
+        boolean first = writer.submit(queryLog('a'))
+        boolean second = writer.submit(queryLog('b'))
+        boolean third = writer.submit(queryLog('c'))
+
+        then:
+        first && second
+        !third
+        writer.queued() == 2
+        meterRegistry.get('llm.query.log.dropped').tag('reason', 'queue_full').counter().count() == 1d
+        0 * jdbcRepository._
+    }
+
+    def "a failed insert is counted and does not stop the writer"() {
+        given:
+        LlmQueryLogWriter writer = writer()
+
+        when:
+        writer.write([queryLog('a'), queryLog('b')])
+        writer.write([queryLog('c')])
+
+        then:
+        1 * jdbcRepository.insertBatch({ it*.id == ['a', 'b'] }) >> { throw new RuntimeException('db down') }
+        1 * jdbcRepository.insertBatch({ it*.id == ['c'] })
+        meterRegistry.get('llm.query.log.dropped').tag('reason', 'write_failed').counter().count() == 2d
+        meterRegistry.get('llm.query.log.written').counter().count() == 1d
+    }
+
+    def "logs submitted after shutdown are written on the caller thread"() {
+        given:
+        LlmQueryLogWriter writer = writer()
+        writer.start()
+        writer.stop()
+
+        when:
+        writer.submit(queryLog('late'))
+
+        then:
+        1 * pricingService.applyCosts({ it.id == 'late' })
+        1 * jdbcRepository.insertBatch({ it*.id == ['late'] })
+        writer.queued() == 0
+    }
+
+    def "submit stamps the creation time once"() {
+        given:
+        LlmQueryLogWriter writer = writer()
+        LlmQueryLog queryLog = queryLog('a')
+
+        when:
+        writer.submit(queryLog)
+
+        then:
+        queryLog.createdAt != null
+    }
+}
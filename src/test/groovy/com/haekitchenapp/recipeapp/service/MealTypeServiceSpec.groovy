@@ -0,0 +1,43 @@
+package com.haekitchenapp.recipeapp.service
+
+import com.haekitchenapp.recipeapp.entity.MealType
+import com.haekitchenapp.recipeapp.repository.CuisineRepository
+import com.haekitchenapp.recipeapp.repository.MealTypeRepository
+import com.haekitchenapp.recipeapp.repository.UnitRepository
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataCache
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+class MealTypeServiceSpec extends Specification {
+
+    MealTypeService service
+    MealTypeRepository mealTypeRepository
+
+    def setup() {
+        mealTypeRepository = Mock(MealTypeRepository)
+        def referenceDataCache = new ReferenceDataCache(Mock(UnitRepository), Mock(CuisineRepository), mealTypeRepository, Mock(JdbcTemplate), 5000)
+        service = new MealTypeService(referenceDataCache)
+    }
+
+    def "meal type names are served from memory after the first lookup"() {
+        when:
+        def breakfast = service.getMealTypeNameById(1 as Short)
+        def dinner = service.getMealTypeNameById(3 as Short)
+
+        then:
+        1 * mealTypeRepository.findAll() >> [new MealType(id: 1 as Short, name: 'Breakfast'), new MealType(id: 3 as Short, name: 'Dinner')]
+        breakfast == 'Breakfast'
+        dinner == 'Dinner'
+    }
+
+    def "an unknown id falls back without reloading the freshly loaded meal types"() {
+        when:
+        def name = service.getMealTypeNameById(9 as Short)
+        def again = service.getMealTypeNameById(9 as Short)
+
+        then:
+        1 * mealTypeRepository.findAll() >> [new MealType(id: 1 as Short, name: 'Breakfast')]
+        name == 'Unknown'
+        again == 'Unknown'
+    }
+}
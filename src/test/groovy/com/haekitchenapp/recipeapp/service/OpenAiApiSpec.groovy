@@ -5,11 +5,15 @@ import com.haekitchenapp.recipeapp.config.api.OpenAiConfig
 import com.haekitchenapp.recipeapp.model.request.togetherAi.RoleContent
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAISkeleton
 import com.haekitchenapp.recipeapp.model.response.recipe.RecipeIngredientAiSkeletonResponse
+import com.haekitchenapp.recipeapp.exception.LlmBudgetExceededException
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmBudgetService
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmFeature
 import com.openai.client.OpenAIClient
 import com.openai.models.chat.completions.ChatCompletion
 import com.openai.models.chat.completions.ChatCompletionCreateParams
 import spock.lang.Specification
 
+import java.time.Duration
 import java.util.Optional
 
 class OpenAiApiSpec extends Specification {
@@ -19,11 +23,12 @@ class OpenAiApiSpec extends Specification {
     private LlmLoggingService llmLoggingService = Mock()
     private UnitService unitService = Mock()
     private JwtTokenService jwtTokenService = Mock()
+    private LlmBudgetService llmBudgetService = Mock()
 
     private OpenAiApi api
 
     void setup() {
-        api = Spy(OpenAiApi, constructorArgs: [openAIClient, config, llmLoggingService, unitService, jwtTokenService])
+        api = Spy(OpenAiApi, constructorArgs: [openAIClient, config, llmLoggingService, unitService, jwtTokenService, llmBudgetService])
     }
 
     def "chat builds aggregated user prompt and logs query"() {
@@ -46,7 +51,7 @@ class OpenAiApiSpec extends Specification {
             captured = params
             completion
         }
-        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", systemPrompt, messages, completion)
+        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", systemPrompt, messages, completion, LlmFeature.CHAT, _)
         // Verify by value instead of identity
         captureModelId(captured) == "gpt-4o-mini"
 
@@ -82,7 +87,7 @@ class OpenAiApiSpec extends Specification {
             captured = params
             completion
         }
-        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", systemPrompt, messages, completion)
+        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", systemPrompt, messages, completion, LlmFeature.BUILD_RECIPE, _)
 
         skeleton.title == "Test Soup"
         skeleton.instructions == "Combine ingredients and simmer."
@@ -108,7 +113,7 @@ class OpenAiApiSpec extends Specification {
 
         then:
         1 * api.createCompletion(_ as ChatCompletionCreateParams) >> { ChatCompletionCreateParams params -> completion }
-        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", _, _, completion) >> { String model, String systemPrompt, List<RoleContent> msgs, ChatCompletion comp ->
+        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", _, _, completion, LlmFeature.BUILD_RECIPE, _) >> { String model, String systemPrompt, List<RoleContent> msgs, ChatCompletion comp, LlmFeature feature, Long userId ->
             capturedSystemPrompt = systemPrompt
             capturedMessages = msgs
         }
@@ -144,7 +149,7 @@ class OpenAiApiSpec extends Specification {
             captured = params
             completion
         }
-        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", _, _, completion)
+        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", _, _, completion, LlmFeature.CORRECT_RECIPE, _)
 
         result.title == "Title"
 
@@ -166,10 +171,41 @@ class OpenAiApiSpec extends Specification {
 
         then:
         1 * api.createCompletion(_ as ChatCompletionCreateParams) >> { ChatCompletionCreateParams params -> completion }
-        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", systemPrompt, messages, completion)
+        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", systemPrompt, messages, completion, LlmFeature.BUILD_RECIPE, _)
         result == null
     }
 
+    def "completions are charged to the requesting user"() {
+        given:
+        config.getChatModel() >> "gpt-4o-mini"
+        jwtTokenService.getCurrentUserId() >> 12L
+        def messages = [RoleContent.getUserRole("hi")]
+        def completion = completionWithContent("cmpl-user", "{}")
+
+        when:
+        api.chat("System", messages)
+
+        then:
+        1 * llmBudgetService.checkBudget(12L)
+        1 * api.createCompletion(_ as ChatCompletionCreateParams) >> completion
+        1 * llmLoggingService.saveQueryLog("gpt-4o-mini", "System", messages, completion, LlmFeature.CHAT, 12L)
+    }
+
+    def "a user over budget is rejected before OpenAI is called"() {
+        given:
+        config.getChatModel() >> "gpt-4o-mini"
+        jwtTokenService.getCurrentUserId() >> 12L
+        llmBudgetService.checkBudget(12L) >> { throw new LlmBudgetExceededException("over", Duration.ofHours(1)) }
+
+        when:
+        api.buildRecipe("System", [RoleContent.getUserRole("soup")])
+
+        then:
+        thrown(LlmBudgetExceededException)
+        0 * api.createCompletion(_)
+        0 * llmLoggingService._
+    }
+
     private ChatCompletion completionWithContent(String id, String content) {
         def json = """
         {
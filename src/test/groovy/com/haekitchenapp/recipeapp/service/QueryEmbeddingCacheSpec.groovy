@@ -0,0 +1,130 @@
+package com.haekitchenapp.recipeapp.service
+
+import com.haekitchenapp.recipeapp.config.api.TogetherAiConfig
+import com.haekitchenapp.recipeapp.exception.EmbedFailureException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import reactor.core.publisher.Mono
+import reactor.core.publisher.Sinks
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class QueryEmbeddingCacheSpec extends Specification {
+
+    TogetherAiApi togetherAiApi
+    TogetherAiConfig config
+    SimpleMeterRegistry meterRegistry
+    QueryEmbeddingCache cache
+
+    def setup() {
+        togetherAiApi = Mock(TogetherAiApi)
+        config = new TogetherAiConfig()
+        config.embedModel = 'bge-base'
+        meterRegistry = new SimpleMeterRegistry()
+        cache = new QueryEmbeddingCache(togetherAiApi, config, meterRegistry)
+    }
+
+    def "repeated queries with different spacing and case hit the cache"() {
+        when:
+        float[] first = cache.getEmbedding('Tomato  Soup ')
+        float[] second = cache.getEmbedding('tomato soup')
+
+        then:
+        1 * togetherAiApi.embed('tomato soup') >> ([0.25d, 0.5d] as Double[])
+        first == [0.25f, 0.5f] as float[]
+        second.is(first)
+        meterRegistry.get('cache.gets').tag('cache', 'query-embeddings').tag('result', 'hit').functionCounter().count() == 1d
+        meterRegistry.get('cache.gets').tag('cache', 'query-embeddings').tag('result', 'miss').functionCounter().count() == 1d
+    }
+
+    def "changing the embed model does not reuse embeddings from the previous model"() {
+        when:
+        cache.getEmbedding('soup')
+        config.embedModel = 'other-model'
+        cache.getEmbedding('soup')
+
+        then:
+        2 * togetherAiApi.embed('soup') >> ([1.0d] as Double[])
+        cache.size() == 2
+    }
+
+    def "cache is bounded by the configured size"() {
+        given:
+        config.embedCache.maxSize = 2
+        cache = new QueryEmbeddingCache(togetherAiApi, config, meterRegistry)
+        togetherAiApi.embed(_ as String) >> ([1.0d] as Double[])
+
+        when:
+        (1..20).each { cache.getEmbedding("query $it") }
+        cache.cleanUp()
+
+        then:
+        cache.size() <= 2
+    }
+
+    @Unroll
+    def "empty embeddings are rejected and not cached (#description)"() {
+        when:
+        cache.getEmbedding('empty case')
+
+        then:
+        1 * togetherAiApi.embed('empty case') >> returned
+        thrown(EmbedFailureException)
+        cache.size() == 0
+
+        where:
+        description | returned
+        'null'      | null
+        'empty'     | new Double[0]
+    }
+
+    def "blank queries are rejected without calling Together AI"() {
+        when:
+        cache.getEmbedding('   ')
+
+        then:
+        thrown(IllegalArgumentException)
+        0 * togetherAiApi._
+    }
+
+    def "async lookups share the cache with the blocking path"() {
+        when:
+        float[] first = cache.getEmbeddingAsync('Tomato  Soup').block()
+        float[] second = cache.getEmbedding('tomato soup')
+
+        then:
+        1 * togetherAiApi.embedAsync('tomato soup') >> Mono.just([0.25d, 0.5d] as Double[])
+        0 * togetherAiApi.embed(_ as String)
+        first == [0.25f, 0.5f] as float[]
+        second.is(first)
+    }
+
+    def "concurrent async lookups of the same query make one Together AI call"() {
+        given:
+        def response = Sinks.<Double[]>one()
+
+        when:
+        def first = cache.getEmbeddingAsync('soup').toFuture()
+        def second = cache.getEmbeddingAsync('Soup ').toFuture()
+        response.tryEmitValue([1.0d] as Double[])
+
+        then:
+        1 * togetherAiApi.embedAsync('soup') >> response.asMono()
+        first.get() == [1.0f] as float[]
+        second.get().is(first.get())
+    }
+
+    def "failed async lookups are not cached"() {
+        when:
+        cache.getEmbeddingAsync('empty case').block()
+
+        then:
+        1 * togetherAiApi.embedAsync('empty case') >> Mono.just(new Double[0])
+        thrown(EmbedFailureException)
+        cache.size() == 0
+    }
+
+    def "normalize collapses whitespace and lower cases"() {
+        expect:
+        QueryEmbeddingCache.normalize('  Spicy\tThai\n CURRY ') == 'spicy thai curry'
+    }
+}
@@ -0,0 +1,120 @@
+package com.haekitchenapp.recipeapp.service
+
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleDto
+import com.haekitchenapp.recipeapp.repository.RecipeRepository
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.LongConsumer
+
+class RandomRecipeSamplerSpec extends Specification {
+
+    RecipeRepository recipeRepository = Mock()
+
+    RandomRecipeSampler samplerOver(long recipes, int window = 500) {
+        recipeRepository.streamIds(_, _) >> { int fetchSize, LongConsumer consumer ->
+            (1L..recipes).each { consumer.accept(it) }
+        }
+        recipeRepository.findTitlesByIdIn(_) >> { Collection<Long> ids ->
+            ids.collect { new RecipeTitleDto(it, "Recipe $it") }
+        }
+        new RandomRecipeSampler(recipeRepository, 100, window, 100)
+    }
+
+    def "samples distinct titles from the whole table"() {
+        given:
+        RandomRecipeSampler sampler = samplerOver(5000)
+        sampler.refresh()
+
+        when:
+        Set<Long> seen = [] as Set
+        20.times { seen.addAll(sampler.sample(10, null)*.id) }
+
+        then:
+        sampler.size() == 5000
+        sampler.sample(10, null)*.id.unique().size() == 10
+        // 200 draws from the first rows only would never exceed id 30
+        seen.max() > 1000
+    }
+
+    def "loads ids on first use when the startup load has not run"() {
+        given:
+        RandomRecipeSampler sampler = samplerOver(50)
+
+        expect:
+        sampler.sample(5, null).size() == 5
+    }
+
+    def "requests arriving before the first load share one scan"() {
+        given:
+        def scans = new AtomicInteger()
+        recipeRepository.streamIds(_, _) >> { int fetchSize, LongConsumer consumer ->
+            scans.incrementAndGet()
+            Thread.sleep(100)
+            (1L..50L).each { consumer.accept(it) }
+        }
+        recipeRepository.findTitlesByIdIn(_) >> { Collection<Long> ids ->
+            ids.collect { new RecipeTitleDto(it, "Recipe $it") }
+        }
+        RandomRecipeSampler sampler = new RandomRecipeSampler(recipeRepository, 100, 500, 100)
+
+        when:
+        def sizes = new CopyOnWriteArrayList<Integer>()
+        (1..4).collect { Thread.start { sizes << sampler.sample(3, null).size() } }*.join()
+
+        then:
+        scans.get() == 1
+        sizes == [3, 3, 3, 3]
+    }
+
+    def "a user is not shown the same recipe within the window"() {
+        given:
+        RandomRecipeSampler sampler = samplerOver(100, 60)
+        sampler.refresh()
+
+        when:
+        List<Long> first = sampler.sample(30, 1L)*.id
+        List<Long> second = sampler.sample(30, 1L)*.id
+
+        then:
+        first.intersect(second).isEmpty()
+    }
+
+    def "the window is dropped when it leaves too few recipes"() {
+        given:
+        RandomRecipeSampler sampler = samplerOver(10, 100)
+        sampler.refresh()
+
+        when:
+        sampler.sample(8, 1L)
+        List<RecipeTitleDto> again = sampler.sample(8, 1L)
+
+        then:
+        again*.id.unique().size() == 8
+    }
+
+    def "deleted recipes are skipped and an empty table yields nothing"() {
+        given:
+        RandomRecipeSampler sampler = new RandomRecipeSampler(recipeRepository, 100, 10, 100)
+        recipeRepository.streamIds(_, _) >> { int fetchSize, LongConsumer consumer -> [1L, 2L].each { consumer.accept(it) } }
+        recipeRepository.findTitlesByIdIn(_) >> [new RecipeTitleDto(2L, 'Kept')]
+
+        expect:
+        sampler.sample(2, null)*.id == [2L]
+        sampler.sample(0, null).isEmpty()
+    }
+
+    def "recent ids evict the oldest entry once full"() {
+        given:
+        RandomRecipeSampler.RecentIds recent = new RandomRecipeSampler.RecentIds(2)
+
+        when:
+        recent.addAll([1L, 2L, 3L])
+
+        then:
+        !recent.contains(1L)
+        recent.contains(2L)
+        recent.contains(3L)
+    }
+}
@@ -1,14 +1,19 @@
 package com.haekitchenapp.recipeapp.service
 
+import com.haekitchenapp.recipeapp.config.search.RecipeSearchConfig
 import com.haekitchenapp.recipeapp.entity.Recipe
-import com.haekitchenapp.recipeapp.exception.EmbedFailureException
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeRequest
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeSimilarityRequest
 import com.haekitchenapp.recipeapp.model.response.ApiResponse
 import com.haekitchenapp.recipeapp.model.response.recipe.*
 import com.haekitchenapp.recipeapp.repository.RecipeRepository
-import org.springframework.data.domain.Pageable
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom
+import com.haekitchenapp.recipeapp.service.search.IvfflatProbesPolicy
+import com.haekitchenapp.recipeapp.service.search.RecipeRanker
+import com.haekitchenapp.recipeapp.service.search.RecipeVectorIndex
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.http.ResponseEntity
+import reactor.core.publisher.Mono
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -16,28 +21,33 @@ class RecipeAIServiceSpec extends Specification {
 
     RecipeRepository recipeRepository
     RecipeService recipeService
-    TogetherAiApi togetherAiApi
+    QueryEmbeddingCache queryEmbeddingCache
     OpenAiApi openAiApi
+    RecipeSearchConfig recipeSearchConfig
+    RecipeVectorIndex recipeVectorIndex
+    RandomRecipeSampler randomRecipeSampler
     RecipeAIService recipeAIService
 
     def setup() {
         recipeRepository = Mock(RecipeRepository)
         recipeService = Mock(RecipeService)
-        togetherAiApi = Mock(TogetherAiApi)
+        queryEmbeddingCache = Mock(QueryEmbeddingCache)
         openAiApi = Mock(OpenAiApi)
-        recipeAIService = new RecipeAIService(recipeRepository, recipeService, togetherAiApi, openAiApi)
+        recipeSearchConfig = new RecipeSearchConfig()
+        recipeVectorIndex = Mock(RecipeVectorIndex)
+        randomRecipeSampler = Mock(RandomRecipeSampler)
+        recipeAIService = new RecipeAIService(recipeRepository, recipeService, queryEmbeddingCache, openAiApi,
+                recipeSearchConfig, recipeVectorIndex, new IvfflatProbesPolicy(recipeSearchConfig, new SimpleMeterRegistry()),
+                new RecipeRanker(), randomRecipeSampler)
     }
 
     @Unroll
     def "generateRandomRecipeTitles normalizes requested size (#requested -> #expected)"() {
-        given:
-        List<RecipeTitleDto> mockTitles = []
-        recipeRepository.findTitlesByTitleContainingIgnoreCase('', _ as Pageable) >> mockTitles
-
         when:
-        ResponseEntity<ApiResponse<List<RecipeTitleDto>>> response = recipeAIService.generateRandomRecipeTitles(requested)
+        ResponseEntity<ApiResponse<List<RecipeTitleDto>>> response = recipeAIService.generateRandomRecipeTitles(requested, 7L)
 
         then:
+        1 * randomRecipeSampler.sample(expected, 7L) >> []
         response.body.success
         response.body.data == []
 
@@ -46,32 +56,21 @@ class RecipeAIServiceSpec extends Specification {
         null      || 10
         0         || 10
         -5        || 10
-        51        || 200
-        500       || 200
-    }
-
-    def "getRandomRecipeTitles returns empty list when repository has no data"() {
-        given:
-        recipeRepository.findTitlesByTitleContainingIgnoreCase('', _ as Pageable) >> []
-
-        when:
-        List<RecipeTitleDto> result = recipeAIService.getRandomRecipeTitles(5)
-
-        then:
-        result.isEmpty()
+        51        || 50
+        500       || 50
     }
 
-    def "getRandomRecipeTitles limits results to requested size"() {
+    def "getRandomRecipeTitles returns the sampled titles"() {
         given:
-        List<RecipeTitleDto> titles = (1..5).collect { new RecipeTitleDto(it as Long, "Title$it") }
-        recipeRepository.findTitlesByTitleContainingIgnoreCase('', _ as Pageable) >> titles
+        List<RecipeTitleDto> titles = (1..3).collect { new RecipeTitleDto(it as Long, "Title$it") }
 
         when:
-        List<RecipeTitleDto> result = recipeAIService.getRandomRecipeTitles(3)
+        List<RecipeTitleDto> result = recipeAIService.getRandomRecipeTitles(3, null)
 
         then:
-        result.size() == 3
-        (result*.id as Set).every { it in titles*.id as Set }
+        1 * randomRecipeSampler.sample(3, null) >> titles
+        0 * recipeRepository._
+        result == titles
     }
 
     @Unroll
@@ -99,12 +98,12 @@ class RecipeAIServiceSpec extends Specification {
     def "searchByAdvancedEmbeddingObject returns recipes when repository provides data"() {
         given:
         RecipeSimilarityRequest request = buildSimilarityRequest(1)
-        String embedding = '[1.0,0.5]'
+        float[] embedding = [1.0f, 0.5f] as float[]
         RecipeSimilarityDto dto = new RecipeSimilarityDto(1L, 'Tomato Soup', 'Cozy soup', 0.9d)
         RecipeDetailsDto details = new RecipeDetailsDto('Tomato Soup', ['Lunch'],  ['Tomato'], 'Simmer slowly', 1L)
 
         // Mock the embedding
-        togetherAiApi.embed(request.toString()) >> new Double[]{1.0d, 0.5d}
+        queryEmbeddingCache.getEmbedding(request.toString()) >> embedding
 
         // Mock the database call that's actually used in the code
         def mockResults = [Stub(RecipeSimilarityView) {
@@ -114,10 +113,10 @@ class RecipeAIServiceSpec extends Specification {
             getSimilarity() >> 0.9d
             getCosineDistance() >> 0.1d
         }]
-        recipeRepository.findTopByCosineWithTitle(embedding, request.getLimit() * 2, '%tomato soup%') >> mockResults
+        recipeRepository.findTopByCosineWithTitle(embedding, request.getLimit() * 2, '%tomato soup%', 20) >> mockResults
 
         // Mock recipe details
-        recipeService.getRecipeDetails(1L) >> details
+        recipeService.getRecipeDetailsBulk([1L]) >> [details]
 
         when:
         ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>> response = recipeAIService.searchByAdvancedEmbeddingObject(request)
@@ -139,11 +138,11 @@ class RecipeAIServiceSpec extends Specification {
         given:
         RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
         query.setLimit(5)
-        String embedding = '[0.1,0.9]'
+        float[] embedding = [0.1f, 0.9f] as float[]
         RecipeDetailsDto details = new RecipeDetailsDto('Tomato Soup', ['Lunch'], ['Tomato'], 'Simmer slowly', 7L)
 
         // Mock the embedding
-        togetherAiApi.embed(query.getPrompt()) >> new Double[]{0.1d, 0.9d}
+        queryEmbeddingCache.getEmbedding(query.getPrompt()) >> embedding
 
         // Mock all possible repository methods to ensure one is matched
         def mockResults = [Stub(RecipeSimilarityView) {
@@ -153,11 +152,11 @@ class RecipeAIServiceSpec extends Specification {
             getSimilarity() >> 0.88d
             getCosineDistance() >> 0.12d
         }]
-        recipeRepository.findTopByCosineWithTitle(embedding, 10) >> mockResults
-        recipeRepository.findTopByCosine(embedding, 10) >> mockResults  // Add this line
+        recipeRepository.findTopByCosineWithTitle(embedding, 10, _, 20) >> mockResults
+        recipeRepository.findTopByCosine(embedding, 10, 20) >> mockResults  // Add this line
 
         // Ensure mock recipe details has non-null ingredients and cuisines
-        recipeService.getRecipeDetails(7L) >> details
+        recipeService.getRecipeDetailsBulk([7L]) >> [details]
 
         when:
         ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>> response = recipeAIService.searchByAdvancedEmbeddingObject(query)
@@ -169,32 +168,293 @@ class RecipeAIServiceSpec extends Specification {
         response.body.data[0].id == 7L
     }
 
-    def "getEmbeddingStringForSimilaritySearch converts embeddings to string"() {
+    def "searchByAdvancedEmbeddingObjectAsync searches once the embedding arrives"() {
+        given:
+        RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
+        query.setLimit(5)
+        float[] embedding = [0.1f, 0.9f] as float[]
+        def view = Stub(RecipeSimilarityView) {
+            getId() >> 7L
+            getTitle() >> 'Tomato Soup'
+            getSummary() >> 'Cozy soup'
+            getSimilarity() >> 0.88d
+        }
+        recipeService.getRecipeDetailsBulk([7L]) >> [new RecipeDetailsDto('Tomato Soup', ['Lunch'], ['Tomato'], 'Simmer slowly', 7L)]
+
+        when:
+        def response = recipeAIService.searchByAdvancedEmbeddingObjectAsync(query)
+
+        then:
+        1 * queryEmbeddingCache.getEmbeddingAsync('Tomato Soup') >> Mono.just(embedding)
+        0 * queryEmbeddingCache.getEmbedding(_)
+        0 * recipeRepository._
+
+        when:
+        def result = response.block()
+
+        then:
+        1 * recipeRepository.findTopByCosine(embedding, 10, 20) >> [view]
+        result.body.data*.id == [7L]
+    }
+
+    def "searchByAdvancedEmbeddingObjectAsync validates before fetching the embedding"() {
         given:
-        togetherAiApi.embed('Tomato Soup') >> new Double[]{1.2d, 3.4d}
+        RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
+        query.setLimit(0)
 
         when:
-        String result = recipeAIService.getEmbeddingStringForSimilaritySearch('Tomato Soup')
+        recipeAIService.searchByAdvancedEmbeddingObjectAsync(query)
 
         then:
-        result == '[1.2,3.4]'
+        thrown(IllegalArgumentException)
+        0 * queryEmbeddingCache._
     }
 
-    @Unroll
-    def "getEmbeddingStringForSimilaritySearch throws when embedding result is #description"() {
+    def "searchByAdvancedEmbedding uses the HNSW index when configured and ready"() {
         given:
-        togetherAiApi.embed('Empty Case') >> returned
+        recipeSearchConfig.setEngine(RecipeSearchConfig.Engine.HNSW)
+        RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
+        query.setLimit(5)
+        float[] embedding = [0.1f, 0.9f] as float[]
+        queryEmbeddingCache.getEmbedding(query.getPrompt()) >> embedding
+        recipeVectorIndex.isReady() >> true
+        recipeService.getRecipeDetailsBulk([7L]) >> [new RecipeDetailsDto('Tomato Soup', ['Lunch'], ['Tomato'], 'Simmer slowly', 7L)]
 
         when:
-        recipeAIService.getEmbeddingStringForSimilaritySearch('Empty Case')
+        ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>> response = recipeAIService.searchByAdvancedEmbeddingObject(query)
 
         then:
-        thrown(EmbedFailureException)
+        1 * recipeVectorIndex.findTopByCosine(embedding, 10, null) >> [new RecipeSimilarityDto(7L, 'Tomato Soup', 'Cozy soup', 0.88d)]
+        0 * recipeRepository.findTopByCosine(_, _, _)
+        response.body.data*.id == [7L]
+    }
 
-        where:
-        description | returned
-        'null'      | null
-        'empty'     | new Double[0]
+    def "searchByAdvancedEmbedding falls back to pgvector while the HNSW index is building"() {
+        given:
+        recipeSearchConfig.setEngine(RecipeSearchConfig.Engine.HNSW)
+        RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
+        query.setLimit(5)
+        float[] embedding = [0.1f, 0.9f] as float[]
+        queryEmbeddingCache.getEmbedding(query.getPrompt()) >> embedding
+        recipeVectorIndex.isReady() >> false
+        recipeService.getRecipeDetailsBulk(_) >> []
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(query)
+
+        then:
+        1 * recipeRepository.findTopByCosine(embedding, 10, 20) >> []
+        0 * recipeVectorIndex.findTopByCosine(_, _, _)
+    }
+
+    def "searchByAdvancedEmbedding uses probes from the request"() {
+        given:
+        RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
+        query.setLimit(5)
+        query.setProbes(35)
+        float[] embedding = [0.1f, 0.9f] as float[]
+        queryEmbeddingCache.getEmbedding(query.getPrompt()) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(query)
+
+        then:
+        1 * recipeRepository.findTopByCosine(embedding, 10, 35) >> []
+        0 * recipeRepository.findTopByCosine(_, _, { it != 35 })
+    }
+
+    def "searchByAdvancedEmbedding escalates probes and over-fetches when adaptive and dedupe leaves too few"() {
+        given:
+        recipeSearchConfig.probes.adaptive = true
+        RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
+        query.setLimit(5)
+        float[] embedding = [0.1f, 0.9f] as float[]
+        queryEmbeddingCache.getEmbedding(query.getPrompt()) >> embedding
+        def duplicates = { int count -> (1..count).collect { similarityView(it as Long, 'Tomato Soup') } }
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(query)
+
+        then:
+        1 * recipeRepository.findTopByCosine(embedding, 10, 20) >> duplicates(10)
+        1 * recipeRepository.findTopByCosine(embedding, 20, 40) >> duplicates(20)
+        1 * recipeRepository.findTopByCosine(embedding, 40, 80) >> duplicates(40)
+        0 * recipeRepository.findTopByCosine(*_)
+
+        and: "the recipe kept every round is hydrated once"
+        1 * recipeService.getRecipeDetailsBulk([1L]) >> []
+        0 * recipeService.getRecipeDetailsBulk(_)
+    }
+
+    def "searchByAdvancedEmbedding does not escalate when the table simply has fewer matches"() {
+        given:
+        recipeSearchConfig.probes.adaptive = true
+        RecipeSimilarityRequest query = new RecipeSimilarityRequest("Tomato Soup")
+        query.setLimit(5)
+        float[] embedding = [0.1f, 0.9f] as float[]
+        queryEmbeddingCache.getEmbedding(query.getPrompt()) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+
+        when:
+        def response = recipeAIService.searchByAdvancedEmbeddingObject(query)
+
+        then: "a prompt query asks the database for twice its limit, and every row returned was kept"
+        1 * recipeRepository.findTopByCosine(embedding, 10, 20) >> (1..4).collect { similarityView(it as Long, "Soup ${it}") }
+        0 * recipeRepository.findTopByCosine(*_)
+        response.body.data.size() == 4
+    }
+
+    def "searchByAdvancedEmbedding pushes excluded ingredients into the vector query"() {
+        given:
+        RecipeSimilarityRequest request = buildSimilarityRequest(5)
+        request.setExcludeIngredients(' Peanuts, Shellfish ,')
+        float[] embedding = [1.0f, 0.5f] as float[]
+        queryEmbeddingCache.getEmbedding(_) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(request)
+
+        then:
+        1 * recipeRepository.findTopByCosineFiltered(embedding, { RecipeRepositoryCustom.VectorFilter filter ->
+            filter.excludedIngredients() == ['peanuts', 'shellfish'] &&
+                    filter.titlePattern() == '%tomato soup%' &&
+                    filter.cuisine() == null
+        }, 10, 200, 20) >> new RecipeRepositoryCustom.FilteredSimilarity([similarityView(1L, 'Tomato Soup')], 150)
+        1 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 200, 40) >>
+                new RecipeRepositoryCustom.FilteredSimilarity([similarityView(1L, 'Tomato Soup')], 150)
+        0 * recipeRepository.findTopByCosineWithTitle(*_)
+        0 * recipeRepository.findTopByCosine(*_)
+    }
+
+    def "filtered search widens the candidate window until enough recipes pass"() {
+        given:
+        RecipeSimilarityRequest request = new RecipeSimilarityRequest()
+        request.setCuisine('Italian')
+        request.setRequireCuisine(true)
+        request.setLimit(5)
+        float[] embedding = [1.0f, 0.5f] as float[]
+        queryEmbeddingCache.getEmbedding(_) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+        def full = (1..10).collect { similarityView(it as Long, "Pasta ${it}") }
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(request)
+
+        then:
+        1 * recipeRepository.findTopByCosineFiltered(embedding, { it.cuisine() == 'italian' }, 10, 40, 20) >>
+                new RecipeRepositoryCustom.FilteredSimilarity([similarityView(1L, 'Pasta')], 40)
+        1 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 80, 20) >>
+                new RecipeRepositoryCustom.FilteredSimilarity(full, 80)
+        0 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 160, 20)
+    }
+
+    def "filtered search stops widening once more probes find no more candidates"() {
+        given:
+        RecipeSimilarityRequest request = new RecipeSimilarityRequest()
+        request.setCuisine('Italian')
+        request.setRequireCuisine(true)
+        request.setLimit(5)
+        float[] embedding = [1.0f, 0.5f] as float[]
+        queryEmbeddingCache.getEmbedding(_) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(request)
+
+        then:
+        1 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 40, 20) >>
+                new RecipeRepositoryCustom.FilteredSimilarity([], 12)
+        1 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 40, 40) >>
+                new RecipeRepositoryCustom.FilteredSimilarity([], 12)
+        0 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 80, _)
+        0 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 40, 80)
+    }
+
+    def "filtered search probes more lists when the probed ones run out before the window fills"() {
+        given:
+        RecipeSimilarityRequest request = new RecipeSimilarityRequest()
+        request.setCuisine('Italian')
+        request.setRequireCuisine(true)
+        request.setLimit(5)
+        float[] embedding = [1.0f, 0.5f] as float[]
+        queryEmbeddingCache.getEmbedding(_) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+        def full = (1..10).collect { similarityView(it as Long, "Pasta ${it}") }
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(request)
+
+        then:
+        1 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 40, 20) >>
+                new RecipeRepositoryCustom.FilteredSimilarity([similarityView(1L, 'Pasta')], 25)
+        1 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 40, 40) >>
+                new RecipeRepositoryCustom.FilteredSimilarity(full, 40)
+        0 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 80, _)
+    }
+
+    def "filtered search keeps probes the caller pinned"() {
+        given:
+        RecipeSimilarityRequest request = new RecipeSimilarityRequest()
+        request.setCuisine('Italian')
+        request.setRequireCuisine(true)
+        request.setLimit(5)
+        request.setProbes(15)
+        float[] embedding = [1.0f, 0.5f] as float[]
+        queryEmbeddingCache.getEmbedding(_) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(request)
+
+        then:
+        1 * recipeRepository.findTopByCosineFiltered(embedding, _, 10, 40, 15) >>
+                new RecipeRepositoryCustom.FilteredSimilarity([similarityView(1L, 'Pasta')], 25)
+        0 * recipeRepository.findTopByCosineFiltered(*_)
+    }
+
+    def "LIKE metacharacters in the title are matched literally"() {
+        given:
+        RecipeSimilarityRequest request = buildSimilarityRequest(5)
+        request.setTitle('100% Rye_Bread')
+        request.setExcludeIngredients('nuts')
+        float[] embedding = [1.0f, 0.5f] as float[]
+        queryEmbeddingCache.getEmbedding(_) >> embedding
+        recipeService.getRecipeDetailsBulk(_) >> []
+
+        when:
+        recipeAIService.searchByAdvancedEmbeddingObject(request)
+
+        then:
+        1 * recipeRepository.findTopByCosineFiltered(embedding, { it.titlePattern() == '%100\\% rye\\_bread%' }, 10, 200, 20) >>
+                new RecipeRepositoryCustom.FilteredSimilarity([], 200)
+        (1.._) * recipeRepository.findTopByCosineFiltered(*_) >> new RecipeRepositoryCustom.FilteredSimilarity([], 2000)
+    }
+
+    def "required cuisine drops non-matching recipes after hydration"() {
+        given:
+        recipeSearchConfig.setEngine(RecipeSearchConfig.Engine.HNSW)
+        recipeVectorIndex.isReady() >> true
+        RecipeSimilarityRequest request = new RecipeSimilarityRequest()
+        request.setCuisine('Italian')
+        request.setRequireCuisine(true)
+        request.setLimit(5)
+        queryEmbeddingCache.getEmbedding(_) >> ([1.0f] as float[])
+        recipeVectorIndex.findTopByCosine(_, _, _) >> [
+                new RecipeSimilarityDto(1L, 'Lasagna', 'Layers', 0.9d),
+                new RecipeSimilarityDto(2L, 'Tacos', 'Crunchy', 0.8d)
+        ]
+        recipeService.getRecipeDetailsBulk([1L, 2L]) >> [
+                new RecipeDetailsDto('Lasagna', ['Pasta'], ['Italian'], 'Bake', 1L),
+                new RecipeDetailsDto('Tacos', ['Tortilla'], ['Mexican'], 'Fry', 2L)
+        ]
+
+        when:
+        ResponseEntity<ApiResponse<List<RecipeSimilarityDto>>> response = recipeAIService.searchByAdvancedEmbeddingObject(request)
+
+        then:
+        response.body.data*.id == [1L]
     }
 
     def "recipeChat uses OpenAI response to create recipe"() {
@@ -238,6 +498,16 @@ class RecipeAIServiceSpec extends Specification {
         response.body.data == 99L
     }
 
+    private RecipeSimilarityView similarityView(Long id, String title) {
+        Stub(RecipeSimilarityView) {
+            getId() >> id
+            getTitle() >> title
+            getSummary() >> 'Summary'
+            getSimilarity() >> 0.9d
+            getCosineDistance() >> 0.1d
+        }
+    }
+
     private static RecipeSimilarityRequest buildSimilarityRequest(int limit) {
         RecipeSimilarityRequest request = new RecipeSimilarityRequest()
         request.setTitle('Tomato Soup')
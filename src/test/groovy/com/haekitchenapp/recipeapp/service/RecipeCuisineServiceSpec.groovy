@@ -5,6 +5,7 @@ import com.haekitchenapp.recipeapp.entity.Recipe
 import com.haekitchenapp.recipeapp.entity.composite.RecipeCuisine
 import com.haekitchenapp.recipeapp.entity.composite.RecipeCuisineId
 import com.haekitchenapp.recipeapp.exception.CuisineNotFoundException
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeAttributeProjection
 import com.haekitchenapp.recipeapp.repository.CuisineRepository
 import com.haekitchenapp.recipeapp.repository.RecipeCuisineRepository
 import com.haekitchenapp.recipeapp.repository.RecipeRepository
@@ -46,7 +47,8 @@ class RecipeCuisineServiceSpec extends Specification {
 
         then:
         1 * recipeRepository.findById(1L) >> Optional.of(recipe)
-        1 * cuisineRepository.findById(2) >> Optional.of(cuisine)
+        1 * cuisineService.existsById(2) >> true
+        1 * cuisineRepository.getReferenceById(2) >> cuisine
         1 * recipeCuisineRepository.existsByRecipeIdAndCuisineId(1L, 2) >> false
         1 * recipeCuisineRepository.save({ RecipeCuisine rc ->
             assert rc.recipe.is(recipe)
@@ -72,7 +74,8 @@ class RecipeCuisineServiceSpec extends Specification {
 
         then:
         1 * recipeRepository.findById(3L) >> Optional.of(recipe)
-        1 * cuisineRepository.findById(4) >> Optional.of(cuisine)
+        1 * cuisineService.existsById(4) >> true
+        1 * cuisineRepository.getReferenceById(4) >> cuisine
         1 * recipeCuisineRepository.existsByRecipeIdAndCuisineId(3L, 4) >> true
         1 * recipeCuisineRepository.findById(new RecipeCuisineId(3L, 4)) >> Optional.of(existing)
         result.is(existing)
@@ -100,7 +103,7 @@ class RecipeCuisineServiceSpec extends Specification {
 
         then:
         1 * recipeRepository.findById(7L) >> Optional.of(recipe)
-        1 * cuisineRepository.findById(8) >> Optional.empty()
+        1 * cuisineService.existsById(8) >> false
         def ex = thrown(CuisineNotFoundException)
         ex.message == 'Cuisine not found with id: 8'
         0 * _
@@ -121,7 +124,8 @@ class RecipeCuisineServiceSpec extends Specification {
         then:
         1 * recipeRepository.existsById(recipeId) >> true
         1 * recipeCuisineRepository.existsByRecipeIdAndCuisineId(recipeId, 10) >> false
-        1 * cuisineRepository.findById(10) >> Optional.of(cuisine)
+        1 * cuisineService.existsById(10) >> true
+        1 * cuisineRepository.getReferenceById(10) >> cuisine
         1 * recipeRepository.getReferenceById(recipeId) >> recipeRef
         1 * recipeCuisineRepository.save({ RecipeCuisine rc ->
             assert rc.id == new RecipeCuisineId(recipeId, 10)
@@ -179,7 +183,7 @@ class RecipeCuisineServiceSpec extends Specification {
         def result = service.getCuisineRecipes(18)
 
         then:
-        1 * cuisineRepository.existsById(18) >> true
+        1 * cuisineService.existsById(18) >> true
         1 * recipeCuisineRepository.findByCuisineId(18) >> [recipeCuisine]
         result == [recipeCuisine]
         0 * _
@@ -190,7 +194,7 @@ class RecipeCuisineServiceSpec extends Specification {
         service.getCuisineRecipes(19)
 
         then:
-        1 * cuisineRepository.existsById(19) >> false
+        1 * cuisineService.existsById(19) >> false
         def ex = thrown(CuisineNotFoundException)
         ex.message == 'Cuisine not found with id: 19'
         0 * _
@@ -303,7 +307,8 @@ class RecipeCuisineServiceSpec extends Specification {
         1 * recipeCuisineRepository.deleteByRecipeId(recipeId)
         1 * recipeRepository.existsById(recipeId) >> true
         2 * recipeCuisineRepository.existsByRecipeIdAndCuisineId(recipeId, _ as Integer) >> false
-        2 * cuisineRepository.findById(_ as Integer) >> { Integer id -> Optional.of(cuisinesById[id]) }
+        2 * cuisineService.existsById(_ as Integer) >> true
+        2 * cuisineRepository.getReferenceById(_ as Integer) >> { Integer id -> cuisinesById[id] }
         2 * recipeRepository.getReferenceById(recipeId) >> recipeRef
         2 * recipeCuisineRepository.save({ RecipeCuisine rc ->
             savedCuisineIds << rc.id.cuisineId
@@ -342,4 +347,21 @@ class RecipeCuisineServiceSpec extends Specification {
         result == ['Fusion']
         0 * _
     }
+
+    def "getCuisineNamesByRecipeIds groups names per recipe with one query"() {
+        given:
+        def rows = [
+                [getRecipeId: { 1L }, getName: { 'Italian' }] as RecipeAttributeProjection,
+                [getRecipeId: { 1L }, getName: { 'Fusion' }] as RecipeAttributeProjection,
+                [getRecipeId: { 2L }, getName: { 'Thai' }] as RecipeAttributeProjection
+        ]
+
+        when:
+        def result = service.getCuisineNamesByRecipeIds([1L, 2L, 3L])
+
+        then:
+        1 * recipeCuisineRepository.findCuisineNamesByRecipeIds([1L, 2L, 3L]) >> rows
+        result == [1L: ['Italian', 'Fusion'], 2L: ['Thai']]
+        0 * _
+    }
 }
@@ -0,0 +1,143 @@
+package com.haekitchenapp.recipeapp.service
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.haekitchenapp.recipeapp.config.bulk.RecipeImportConfig
+import com.haekitchenapp.recipeapp.entity.Unit
+import com.haekitchenapp.recipeapp.repository.RecipeImportRepository
+import com.haekitchenapp.recipeapp.service.search.RecipeVectorIndex
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService
+import jakarta.validation.Validation
+import org.springframework.dao.DataIntegrityViolationException
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class RecipeImportServiceSpec extends Specification {
+
+    RecipeImportRepository recipeImportRepository = Mock()
+    UnitService unitService = Mock()
+    IngredientService ingredientService = Mock()
+    RecipeVectorIndex recipeVectorIndex = Mock()
+    TypeaheadService typeaheadService = Mock()
+    RecipeImportConfig recipeImportConfig = new RecipeImportConfig(batchSize: 2, maxReportedFailures: 10)
+    RecipeImportService recipeImportService
+
+    long nextId = 100
+
+    def setup() {
+        recipeImportService = new RecipeImportService(recipeImportRepository, unitService, ingredientService, recipeVectorIndex, typeaheadService,
+                recipeImportConfig, new ObjectMapper(), Validation.buildDefaultValidatorFactory().validator)
+        unitService.getAllUnitsMap() >> [1L: 'cup', 2L: 'tsp']
+        unitService.existsById(_) >> { Long id -> id in [1L, 2L] }
+        ingredientService.getIngredientIdsElseInsert(_) >> { Collection<String> names ->
+            names.collectEntries { [(it): (long) it.hashCode().abs()] }
+        }
+        recipeImportRepository.reserveRecipeIds(_) >> { int count -> (1..count).collect { nextId++ } }
+    }
+
+    static InputStream ndjson(List<String> lines) {
+        new ByteArrayInputStream(lines.join('\n').getBytes(StandardCharsets.UTF_8))
+    }
+
+    static String recipe(String title, Map extra = [:]) {
+        def ingredients = extra.ingredients ?: '[{"name":" Salt ","quantity":"1 1/2","unitId":2}]'
+        def embedding = extra.embedding ? ",\"embedding\":${extra.embedding}" : ''
+        """{"createdBy":1,"title":"${title}","instructions":"Cook","ingredients":${ingredients}${embedding}}"""
+    }
+
+    def "writes recipes in batches of the configured size"() {
+        given:
+        def captured = []
+
+        when:
+        def response = recipeImportService.importNdjson(ndjson([recipe('One'), recipe('Two'), '', recipe('Three', [embedding: '[0.5,0.25]'])]))
+
+        then:
+        2 * recipeImportRepository.insertBatch(_, _) >> { List rows, List ingredients -> captured << [rows, ingredients] }
+        1 * recipeVectorIndex.upsert(102L, [0.5f, 0.25f] as float[])
+        with(response.body.data) {
+            received == 3
+            imported == 3
+            failed == 0
+            failures.isEmpty()
+        }
+        captured[0][0]*.id() == [100L, 101L]
+        captured[0][0]*.recipe()*.title == ['One', 'Two']
+        captured[1][0]*.id() == [102L]
+        with(captured[0][1][0] as RecipeImportRepository.IngredientRow) {
+            recipeId() == 100L
+            ingredientId() == 'salt'.hashCode().abs()
+            quantity() == 1.5f
+            unitId() == 2L
+        }
+    }
+
+    def "reports invalid lines with their line numbers and keeps going"() {
+        when:
+        def response = recipeImportService.importNdjson(ndjson([
+                recipe('Good'),
+                '{not json',
+                '{"createdBy":1,"instructions":"Cook","ingredients":[{"name":"Salt","quantity":"1","unitId":1}]}',
+                recipe('Bad unit', [ingredients: '[{"name":"Salt","quantity":"1","unitId":99}]']),
+                'null'
+        ]))
+
+        then:
+        1 * recipeImportRepository.insertBatch({ it*.recipe()*.title == ['Good'] }, _)
+        with(response.body.data) {
+            received == 5
+            imported == 1
+            failed == 4
+            failures*.line == [2L, 3L, 4L, 5L]
+            failures[0].error.startsWith('Malformed JSON')
+            failures[1].error == 'title must not be blank'
+            failures[2].title == 'Bad unit'
+            failures[2].error == 'Unit not found with ID: 99'
+            failures[3].title == null
+            failures[3].error == 'Line must be a JSON object'
+        }
+    }
+
+    def "retries a failed batch one recipe at a time"() {
+        when:
+        def response = recipeImportService.importNdjson(ndjson([recipe('Ok'), recipe('Broken')]))
+
+        then:
+        1 * recipeImportRepository.insertBatch({ it.size() == 2 }, _) >> { throw new DataIntegrityViolationException('batch failed') }
+        1 * recipeImportRepository.insertBatch({ it*.recipe()*.title == ['Ok'] }, _)
+        1 * recipeImportRepository.insertBatch({ it*.recipe()*.title == ['Broken'] }, _) >> { throw new DataIntegrityViolationException('value too long') }
+        with(response.body.data) {
+            imported == 1
+            failed == 1
+            failures[0].line == 2L
+            failures[0].error == 'value too long'
+        }
+    }
+
+    def "creates unknown units for AI generated recipes once per name"() {
+        given:
+        def line = '{"createdBy":1,"title":"AI","instructions":"Cook","aiGenerated":true,' +
+                '"ingredients":[{"name":"Salt","quantity":"1","unitName":"Pinch"},{"name":"Pepper","quantity":"1","unitName":"pinch"}]}'
+
+        when:
+        def response = recipeImportService.importNdjson(ndjson([line]))
+
+        then:
+        1 * unitService.persistAiGeneratedUnits(_)
+        1 * unitService.getUnitByName('pinch') >> new Unit(id: 7L, name: 'pinch')
+        1 * recipeImportRepository.insertBatch(_, { it*.unitId() == [7L, 7L] })
+        response.body.data.imported == 1
+    }
+
+    def "caps the reported failures but counts all of them"() {
+        given:
+        recipeImportConfig.maxReportedFailures = 1
+
+        when:
+        def response = recipeImportService.importNdjson(ndjson(['{', '{', '{']))
+
+        then:
+        response.body.data.failed == 3
+        response.body.data.failures.size() == 1
+    }
+}
@@ -8,13 +8,17 @@ import com.haekitchenapp.recipeapp.model.request.recipe.RecipeRequest
 import com.haekitchenapp.recipeapp.model.response.ApiResponse
 import com.haekitchenapp.recipeapp.model.response.recipe.*
 import com.haekitchenapp.recipeapp.repository.RecipeIngredientRepository
+import com.haekitchenapp.recipeapp.repository.RecipeDuplicateTitleRepository
+import com.haekitchenapp.recipeapp.repository.RecipeDuplicateTitleRepository.DuplicateCursor
+import com.haekitchenapp.recipeapp.repository.RecipeDuplicateTitleRepository.DuplicateTitle
 import com.haekitchenapp.recipeapp.repository.RecipeRepository
-import com.haekitchenapp.recipeapp.service.impl.RecipeCuisineServiceImpl
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom.TitleCursor
+import com.haekitchenapp.recipeapp.repository.RecipeRepositoryCustom.TitleMatch
+import com.haekitchenapp.recipeapp.service.search.RecipeVectorIndex
+import com.haekitchenapp.recipeapp.service.search.TypeaheadService
 import com.haekitchenapp.recipeapp.support.Fixtures
 import com.haekitchenapp.recipeapp.utility.RecipeMapper
 import org.springframework.dao.DataIntegrityViolationException
-import org.springframework.data.domain.Page
-import org.springframework.data.domain.PageRequest
 import org.springframework.http.ResponseEntity
 import spock.lang.Specification
 
@@ -26,34 +30,76 @@ class RecipeServiceSpec extends Specification {
     RecipeIngredientRepository recipeIngredientRepository
     RecipeMapper recipeMapper
     RecipeService recipeService
-    RecipeCuisineServiceImpl recipeCuisineService
+    RecipeCuisineService recipeCuisineService
+    RecipeVectorIndex recipeVectorIndex
+    TypeaheadService typeaheadService
+    RecipeDuplicateTitleRepository recipeDuplicateTitleRepository
 
     def setup() {
         recipeRepository = Mock(RecipeRepository)
         recipeMapper = Mock(RecipeMapper)
         recipeIngredientRepository = Mock(RecipeIngredientRepository)
-        recipeCuisineService = Mock(RecipeCuisineServiceImpl)
-        recipeService = Spy(new RecipeService(recipeRepository, recipeIngredientRepository, recipeMapper, recipeCuisineService))
+        recipeCuisineService = Mock(RecipeCuisineService)
+        recipeVectorIndex = Mock(RecipeVectorIndex)
+        typeaheadService = Mock(TypeaheadService)
+        recipeDuplicateTitleRepository = Mock(RecipeDuplicateTitleRepository)
+        recipeService = Spy(new RecipeService(recipeRepository, recipeIngredientRepository, recipeMapper, recipeCuisineService, recipeVectorIndex, typeaheadService, recipeDuplicateTitleRepository))
     }
 
     def "searchByTitle returns recipes when matches found"() {
         given:
         def title = 'Pasta'
-        def dto = Fixtures.recipeTitleDto(1L, title, 'Boil water')
-        recipeRepository.findTitlesByTitleContainingIgnoreCase(title, _ as PageRequest) >> [dto]
+        recipeRepository.searchTitles(title, null, 21) >> [new TitleMatch(1L, title, 1f)]
 
         when:
-        ResponseEntity<ApiResponse<List<RecipeTitleDto>>> response = recipeService.searchByTitle(title)
+        ResponseEntity<ApiResponse<RecipeTitleSearchResponse>> response = recipeService.searchByTitle(title, null)
 
         then:
         response.statusCode.value() == 200
         response.body.success
-        response.body.data == [dto]
+        response.body.data.titles*.id == [1L]
+        response.body.data.titles*.title == [title]
+        response.body.data.next == null
+    }
+
+    def "search returns a cursor when more matches exist"() {
+        given:
+        List<TitleMatch> matches = (1..21).collect { new TitleMatch(it as long, "Soup $it", 0.9f) }
+        recipeRepository.searchTitles('Soup', null, 21) >> matches
+
+        when:
+        RecipeTitleSearchResponse response = recipeService.search(' Soup ', null)
+
+        then:
+        response.titles.size() == 20
+        response.next == matches[19].cursor().encode()
+    }
+
+    def "search continues after the cursor"() {
+        given:
+        TitleCursor cursor = new TitleCursor(0.5f, 9L)
+
+        when:
+        RecipeTitleSearchResponse response = recipeService.search('Soup', cursor.encode())
+
+        then:
+        1 * recipeRepository.searchTitles('Soup', cursor, 21) >> []
+        response.titles.isEmpty()
+        response.next == null
+    }
+
+    def "search rejects a malformed cursor"() {
+        when:
+        recipeService.search('Soup', 'garbage')
+
+        then:
+        thrown(IllegalArgumentException)
+        0 * recipeRepository._
     }
 
     def "search throws when title is blank"() {
         when:
-        recipeService.search('   ')
+        recipeService.search('   ', null)
 
         then:
         def ex = thrown(IllegalArgumentException)
@@ -63,10 +109,10 @@ class RecipeServiceSpec extends Specification {
 
     def "search throws when repository returns empty list"() {
         given:
-        recipeRepository.findTitlesByTitleContainingIgnoreCase('Soup', _ as PageRequest) >> []
+        recipeRepository.searchTitles('Soup', null, 21) >> []
 
         when:
-        recipeService.search('Soup')
+        recipeService.search('Soup', null)
 
         then:
         thrown(RecipeSearchFoundNoneException)
@@ -98,40 +144,61 @@ class RecipeServiceSpec extends Specification {
         ex.message == 'No recipes ids found with title: Missing'
     }
 
-    def "findDuplicateTitles returns duplicates when page has data"() {
+    def "findDuplicateTitles returns the first page with a cursor when more exist"() {
         given:
-        def duplicates = [new RecipeDuplicatesByTitleDto('Tacos', 3L)]
-        def page = Mock(Page) {
-            getContent() >> duplicates
-            isEmpty() >> false
+        List<DuplicateTitle> rows = (1..21).collect {
+            new DuplicateTitle(new RecipeDuplicatesByTitleDto("Tacos $it", 3L), new DuplicateCursor(3L, new UUID(0L, it as long)))
         }
-        recipeRepository.findDuplicateTitles(PageRequest.of(0, 20)) >> page
+        recipeDuplicateTitleRepository.findDuplicates(null, 21) >> rows
 
         when:
-        ResponseEntity<ApiResponse<?>> response = recipeService.findDuplicateTitles(0)
+        ResponseEntity<ApiResponse<?>> response = recipeService.findDuplicateTitles(null)
 
         then:
         response.statusCode.value() == 200
         response.body.success
         response.body.data instanceof RecipeDuplicatesByTitleResponse
-        response.body.data.duplicates == duplicates
+        response.body.data.duplicates == rows.take(20)*.duplicate()
+        !response.body.data.isLastPage
+        response.body.data.next == rows[19].cursor().encode()
+    }
+
+    def "findDuplicateTitles continues after the cursor"() {
+        given:
+        DuplicateCursor cursor = new DuplicateCursor(2L, new UUID(1L, 2L))
+        def duplicate = new RecipeDuplicatesByTitleDto('Tacos', 2L)
+
+        when:
+        ResponseEntity<ApiResponse<?>> response = recipeService.findDuplicateTitles(cursor.encode())
+
+        then:
+        1 * recipeDuplicateTitleRepository.findDuplicates(cursor, 21) >> [new DuplicateTitle(duplicate, new DuplicateCursor(2L, new UUID(1L, 3L)))]
+        response.body.data.duplicates == [duplicate]
+        response.body.data.isLastPage
+        response.body.data.next == null
     }
 
     def "findDuplicateTitles returns informative message when empty"() {
         given:
-        def emptyPage = Mock(Page) {
-            isEmpty() >> true
-        }
-        recipeRepository.findDuplicateTitles(PageRequest.of(1, 20)) >> emptyPage
+        recipeDuplicateTitleRepository.findDuplicates(null, 21) >> []
 
         when:
-        ResponseEntity<ApiResponse<?>> response = recipeService.findDuplicateTitles(1)
+        ResponseEntity<ApiResponse<?>> response = recipeService.findDuplicateTitles(null)
 
         then:
         response.body.message == 'No more duplicate titles found'
         response.body.data == null
     }
 
+    def "findDuplicateTitles rejects a malformed cursor"() {
+        when:
+        recipeService.findDuplicateTitles('page-2')
+
+        then:
+        thrown(IllegalArgumentException)
+        0 * recipeDuplicateTitleRepository._
+    }
+
     def "findById maps response without numeric quantities"() {
         given:
         def recipe = Fixtures.recipe(id: 55L, title: 'Noodles')
@@ -309,6 +376,39 @@ class RecipeServiceSpec extends Specification {
         ex.message.contains('boom')
     }
 
+    def "getRecipeDetailsBulk hydrates all recipes with set-based queries in request order"() {
+        given:
+        def toast = Fixtures.recipeSummaryProjection('Toast', 'Toast bread', 5L)
+        def soup = Fixtures.recipeSummaryProjection('Soup', 'Simmer', 6L)
+        def toastDto = Fixtures.recipeDetailsDto(id: 5L, title: 'Toast')
+        def soupDto = Fixtures.recipeDetailsDto(id: 6L, title: 'Soup')
+
+        when:
+        List<RecipeDetailsDto> result = recipeService.getRecipeDetailsBulk([6L, 5L, 7L, 6L])
+
+        then:
+        1 * recipeRepository.findSummariesByIdIn([6L, 5L, 7L] as Set) >> [toast, soup]
+        1 * recipeIngredientRepository.findIngredientNamesByRecipeIds([6L, 5L, 7L] as Set) >> [
+                attribute(5L, 'bread'), attribute(5L, 'butter'), attribute(6L, 'tomato')
+        ]
+        1 * recipeCuisineService.getCuisineNamesByRecipeIds([6L, 5L, 7L] as Set) >> [5L: ['American']]
+        1 * recipeMapper.toDetailedDtoFromNames(soup, ['tomato'], []) >> soupDto
+        1 * recipeMapper.toDetailedDtoFromNames(toast, ['bread', 'butter'], ['American']) >> toastDto
+        0 * recipeRepository.findByIdWithSimple(_)
+        0 * recipeIngredientRepository.findIngredientIdsByRecipeId(_)
+        result*.id == [6L, 5L]
+    }
+
+    def "getRecipeDetailsBulk skips queries when no ids are given"() {
+        when:
+        def result = recipeService.getRecipeDetailsBulk([])
+
+        then:
+        result == []
+        0 * recipeRepository._
+        0 * recipeIngredientRepository._
+    }
+
     def "create nulls request id and delegates to createRecipe with default flag"() {
         given:
         RecipeRequest request = Fixtures.recipeRequest(id: 99L)
@@ -437,7 +537,8 @@ class RecipeServiceSpec extends Specification {
         recipeService.updateEmbedColumn(request)
 
         then:
-        1 * recipeRepository.updateEmbedding(12L, request.getEmbedString())
+        1 * recipeRepository.updateEmbedding(12L, request.getEmbeddingVector())
+        1 * recipeVectorIndex.upsert(12L, request.getEmbeddingVector())
     }
 
     def "updateEmbeddingOnly wraps response and delegates once"() {
@@ -486,7 +587,7 @@ class RecipeServiceSpec extends Specification {
         def request = new EmbedUpdateRequest()
         request.setId(55L)
         request.setEmbedding([0.9d] as Double[])
-        recipeRepository.updateEmbedding(55L, request.getEmbedString()) >> { throw new DataIntegrityViolationException('bad embed') }
+        recipeRepository.updateEmbedding(55L, request.getEmbeddingVector()) >> { throw new DataIntegrityViolationException('bad embed') }
 
         when:
         recipeService.updateEmbedColumn(request)
@@ -528,4 +629,8 @@ class RecipeServiceSpec extends Specification {
         def ex = thrown(IllegalArgumentException)
         ex.message == 'Invalid recipe data'
     }
+
+    private RecipeAttributeProjection attribute(Long recipeId, String name) {
+        [getRecipeId: { recipeId }, getName: { name }] as RecipeAttributeProjection
+    }
 }
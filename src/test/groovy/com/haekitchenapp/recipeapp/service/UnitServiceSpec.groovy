@@ -3,7 +3,11 @@ package com.haekitchenapp.recipeapp.service
 import com.haekitchenapp.recipeapp.entity.Unit
 import com.haekitchenapp.recipeapp.model.request.recipe.RecipeIngredientRequest
 import com.haekitchenapp.recipeapp.model.response.ApiResponse
+import com.haekitchenapp.recipeapp.repository.CuisineRepository
+import com.haekitchenapp.recipeapp.repository.MealTypeRepository
 import com.haekitchenapp.recipeapp.repository.UnitRepository
+import com.haekitchenapp.recipeapp.service.referenceData.ReferenceDataCache
+import org.springframework.jdbc.core.JdbcTemplate
 import org.springframework.http.ResponseEntity
 import spock.lang.Specification
 
@@ -11,10 +15,13 @@ class UnitServiceSpec extends Specification {
 
     UnitService service
     UnitRepository unitRepository
+    JdbcTemplate jdbcTemplate
 
     def setup() {
         unitRepository = Mock(UnitRepository)
-        service = new UnitService(unitRepository)
+        jdbcTemplate = Mock(JdbcTemplate)
+        def referenceDataCache = new ReferenceDataCache(unitRepository, Mock(CuisineRepository), Mock(MealTypeRepository), jdbcTemplate, 5000)
+        service = new UnitService(unitRepository, referenceDataCache)
     }
 
     def "getAllUnits returns repository results"() {
@@ -118,6 +125,30 @@ class UnitServiceSpec extends Specification {
         !result
     }
 
+    def "getUnitNameById does not reload for an id it already found missing"() {
+        when:
+        String first = service.getUnitNameById(999L)
+        String second = service.getUnitNameById(999L)
+
+        then:
+        1 * unitRepository.findAll() >> []
+        first == 'Unknown Unit'
+        second == 'Unknown Unit'
+    }
+
+    def "persistAiGeneratedUnits makes new units visible to the next lookup"() {
+        given:
+        unitRepository.findAll() >>> [[], [new Unit(id: 8L, name: 'sprig')]]
+        service.getAllUnitsMap()
+
+        when:
+        service.persistAiGeneratedUnits([new RecipeIngredientRequest(unitName: 'Sprig')] as Set)
+
+        then:
+        1 * unitRepository.findByName('sprig') >> Optional.empty()
+        service.existsById(8L)
+    }
+
     def "existsById returns false for null input"() {
         when:
         boolean result = service.existsById(null)
@@ -149,7 +180,8 @@ class UnitServiceSpec extends Specification {
             units.any { it.name == 'newunit1' && it.aiGenerated } &&
             units.any { it.name == 'newunit2' && it.aiGenerated }
         })
-        1 * unitRepository.findAll() >> []
+        1 * jdbcTemplate.query(*_)
+        0 * unitRepository.findAll()
     }
 
     def "persistAiGeneratedUnits does nothing when no new units"() {
@@ -166,6 +198,7 @@ class UnitServiceSpec extends Specification {
         then:
         1 * unitRepository.findByName('existingunit') >> Optional.of(existingUnit)
         0 * unitRepository.saveAll(_)
+        0 * jdbcTemplate._
     }
 
     def "persistAiGeneratedUnits handles empty and null unit names"() {
@@ -185,6 +218,7 @@ class UnitServiceSpec extends Specification {
         1 * unitRepository.saveAll({ List<Unit> units ->
             units.size() == 1 && units[0].name == 'validunit'
         })
-        1 * unitRepository.findAll() >> []
+        1 * jdbcTemplate.query(*_)
+        0 * unitRepository.findAll()
     }
 }
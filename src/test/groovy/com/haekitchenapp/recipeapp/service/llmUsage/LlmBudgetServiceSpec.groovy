@@ -0,0 +1,178 @@
+package com.haekitchenapp.recipeapp.service.llmUsage
+
+import com.haekitchenapp.recipeapp.exception.LlmBudgetExceededException
+import com.haekitchenapp.recipeapp.repository.LlmQueryLogJdbcRepository
+import com.haekitchenapp.recipeapp.repository.LlmQueryLogJdbcRepository.UserUsage
+import com.haekitchenapp.recipeapp.service.LlmPricingService
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+class LlmBudgetServiceSpec extends Specification {
+
+    LlmQueryLogJdbcRepository queryLogRepository = Mock()
+    LlmPricingService pricingService = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    MutableClock clock = new MutableClock(Instant.parse('2026-10-17T22:00:00Z'))
+
+    LlmBudgetService budget(long dailyTokens = 1000, double dailyCost = 0, long monthlyTokens = 0, double monthlyCost = 0) {
+        new LlmBudgetService(queryLogRepository, pricingService, meterRegistry, clock, true,
+                dailyTokens, dailyCost, monthlyTokens, monthlyCost, 4)
+    }
+
+    def setup() {
+        pricingService.costOf(*_) >> Optional.empty()
+    }
+
+    def "users under budget and calls without a user are admitted"() {
+        given:
+        LlmBudgetService service = budget()
+        service.charge(1L, 'gpt-test', 600, 300, 0)
+
+        when:
+        service.checkBudget(1L)
+        service.checkBudget(2L)
+        service.checkBudget(null)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "a user who used up the daily token budget is rejected until midnight"() {
+        given:
+        LlmBudgetService service = budget()
+        service.charge(1L, 'gpt-test', 700, 300, 50)
+
+        when:
+        service.checkBudget(1L)
+
+        then:
+        LlmBudgetExceededException e = thrown()
+        e.message == 'Your daily LLM budget of 1000 tokens has been used up. It resets at 2026-10-18T00:00.'
+        e.retryAfter == Duration.ofHours(2)
+        meterRegistry.get('llm.budget.rejected').tag('period', 'day').counter().count() == 1d
+
+        when:
+        clock.advance(Duration.ofHours(2))
+        service.checkBudget(1L)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "cost is charged from the cached model price against the monthly cost budget"() {
+        given:
+        LlmBudgetService service = budget(0, 0, 0, 1.0d)
+
+        when:
+        service.charge(1L, 'gpt-test', 10, 10, 0)
+        service.checkBudget(1L)
+
+        then:
+        1 * pricingService.costOf('gpt-test', 10L, 10L, 0L) >> Optional.of(new LlmPricingService.Cost(0.75d, 0.25d))
+        LlmBudgetExceededException e = thrown()
+        e.message.startsWith('Your monthly LLM budget of $1.0 has been used up. It resets at 2026-11-01T00:00')
+    }
+
+    def "reconcile raises totals to the logged usage without dropping unwritten calls"() {
+        given:
+        LlmBudgetService service = budget()
+        service.charge(1L, 'gpt-test', 500, 100, 0)
+        queryLogRepository.sumUsageByUser(LocalDateTime.parse('2026-10-17T00:00'), LocalDateTime.parse('2026-10-01T00:00')) >> [
+                new UserUsage(1L, 200, 0.1d, 5000, 2.0d),
+                new UserUsage(2L, 1200, 0.5d, 1200, 0.5d)
+        ]
+
+        when:
+        int users = service.reconcile()
+        service.checkBudget(1L)
+
+        then:
+        users == 2
+        noExceptionThrown()
+
+        when:
+        service.checkBudget(2L)
+
+        then:
+        thrown(LlmBudgetExceededException)
+        service.trackedUsers() == 2
+    }
+
+    def "a failed reconcile keeps the in-memory totals"() {
+        given:
+        LlmBudgetService service = budget()
+        service.charge(1L, 'gpt-test', 900, 100, 0)
+        queryLogRepository.sumUsageByUser(_, _) >> { throw new IllegalStateException('db down') }
+
+        when:
+        service.reconcile()
+        service.checkBudget(1L)
+
+        then:
+        thrown(LlmBudgetExceededException)
+    }
+
+    def "users from a past month are dropped at reconcile"() {
+        given:
+        LlmBudgetService service = budget()
+        service.charge(1L, 'gpt-test', 10, 10, 0)
+        queryLogRepository.sumUsageByUser(_, _) >> []
+
+        when:
+        clock.advance(Duration.ofDays(20))
+        service.reconcile()
+
+        then:
+        service.trackedUsers() == 0
+    }
+
+    def "a disabled budget admits everyone and tracks nothing"() {
+        given:
+        LlmBudgetService service = new LlmBudgetService(queryLogRepository, pricingService, meterRegistry, clock,
+                false, 1, 0, 0, 0, 4)
+
+        when:
+        service.charge(1L, 'gpt-test', 100, 100, 0)
+        service.checkBudget(1L)
+
+        then:
+        noExceptionThrown()
+        service.trackedUsers() == 0
+        0 * queryLogRepository._
+    }
+
+    static class MutableClock extends Clock {
+
+        private Instant now
+
+        MutableClock(Instant now) {
+            this.now = now
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration)
+        }
+
+        @Override
+        ZoneId getZone() {
+            ZoneOffset.UTC
+        }
+
+        @Override
+        Clock withZone(ZoneId zone) {
+            this
+        }
+
+        @Override
+        Instant instant() {
+            now
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.haekitchenapp.recipeapp.service.llmUsage
+
+import com.haekitchenapp.recipeapp.repository.LlmUsageRollupRepository
+import com.haekitchenapp.recipeapp.repository.LlmUsageRollupRepository.HourlyUsage
+import com.haekitchenapp.recipeapp.service.LlmPricingService
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneOffset
+
+class LlmUsageMetricsSpec extends Specification {
+
+    LlmPricingService pricingService = Mock()
+    LlmUsageRollupRepository rollupRepository = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    Instant now = Instant.parse('2026-10-17T10:42:13Z')
+
+    LlmUsageMetrics metrics = new LlmUsageMetrics(pricingService, rollupRepository, meterRegistry,
+            Clock.fixed(now, ZoneOffset.UTC))
+
+    def "a call adds tokens, cost and a call count tagged by model, provider and feature"() {
+        given:
+        pricingService.costOf('gpt-test', 100L, 40L, 5L) >> Optional.of(new LlmPricingService.Cost(0.002d, 0.001d))
+
+        when:
+        metrics.record(LlmProvider.OPENAI, 'gpt-test', LlmFeature.CHAT, 100L, 40L, 5L)
+        metrics.record(LlmProvider.OPENAI, 'gpt-test', LlmFeature.CHAT, 100L, 40L, 5L)
+
+        then:
+        def tokens = meterRegistry.find('llm.tokens')
+                .tags('model', 'gpt-test', 'provider', 'openai', 'feature', 'chat')
+        tokens.tag('type', 'prompt').counter().count() == 200d
+        tokens.tag('type', 'response').counter().count() == 80d
+        meterRegistry.get('llm.tokens').tag('type', 'reasoning').counter().count() == 10d
+        meterRegistry.get('llm.calls').tag('feature', 'chat').counter().count() == 2d
+        Math.abs(meterRegistry.get('llm.cost').tag('model', 'gpt-test').counter().count() - 0.006d) < 1e-9
+    }
+
+    def "calls to unpriced models count tokens but no cost"() {
+        given:
+        pricingService.costOf(*_) >> Optional.empty()
+
+        when:
+        metrics.record(LlmProvider.TOGETHER, 'embed-model', LlmFeature.EMBED_QUERY, 12L, 0L, 0L)
+
+        then:
+        meterRegistry.get('llm.tokens').tags('provider', 'together', 'feature', 'embedQuery', 'type', 'prompt')
+                .counter().count() == 12d
+        meterRegistry.get('llm.cost').tag('model', 'embed-model').counter().count() == 0d
+    }
+
+    def "flush adds usage summed per hour, model, provider and feature"() {
+        given:
+        pricingService.costOf(*_) >> Optional.of(new LlmPricingService.Cost(0.5d, 0.25d))
+        List<HourlyUsage> written = null
+
+        when:
+        metrics.record(LlmProvider.OPENAI, 'gpt-test', LlmFeature.CHAT, 10L, 5L, 1L)
+        metrics.record(LlmProvider.OPENAI, 'gpt-test', LlmFeature.CHAT, 20L, 15L, 0L)
+        metrics.record(LlmProvider.TOGETHER, 'small', LlmFeature.FORMAT_TITLE, 7L, 3L, 0L)
+        metrics.flush()
+
+        then:
+        1 * rollupRepository.add(_) >> { List<HourlyUsage> rows -> written = rows }
+        written.size() == 2
+        def chat = written.find { it.feature() == 'chat' }
+        chat == new HourlyUsage(Instant.parse('2026-10-17T10:00:00Z'), 'gpt-test', 'openai', 'chat',
+                2L, 30L, 20L, 1L, 1.5d)
+        written.find { it.feature() == 'callLLMFormatTitle' }.calls() == 1L
+        metrics.pendingRows() == 0
+    }
+
+    def "usage that fails to flush is kept for the next flush"() {
+        given:
+        pricingService.costOf(*_) >> Optional.empty()
+        metrics.record(LlmProvider.OPENAI, 'gpt-test', LlmFeature.CHAT, 10L, 5L, 0L)
+
+        when:
+        metrics.flush()
+
+        then:
+        1 * rollupRepository.add(_) >> { throw new IllegalStateException('db down') }
+        metrics.pendingRows() == 1
+
+        when:
+        metrics.record(LlmProvider.OPENAI, 'gpt-test', LlmFeature.CHAT, 10L, 5L, 0L)
+        metrics.flush()
+
+        then:
+        1 * rollupRepository.add({ List<HourlyUsage> rows -> rows.size() == 1 && rows[0].calls() == 2L })
+        metrics.pendingRows() == 0
+    }
+
+    def "flush with nothing recorded does not write"() {
+        when:
+        metrics.flush()
+
+        then:
+        0 * rollupRepository._
+    }
+}
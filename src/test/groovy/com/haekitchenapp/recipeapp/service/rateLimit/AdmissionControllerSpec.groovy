@@ -0,0 +1,173 @@
+package com.haekitchenapp.recipeapp.service.rateLimit
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jakarta.servlet.http.HttpServletRequest
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.function.LongSupplier
+
+class AdmissionControllerSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    long now = System.nanoTime()
+
+    AdmissionController controller(int maxInFlight = 4, int aiMaxConcurrent = 2) {
+        def controller = new AdmissionController(meterRegistry, ['/api/recipe-ai/searchSimilarity', '/api/openai/'],
+                1, 2, 10, maxInFlight, aiMaxConcurrent, 0, 0, 0, 20, 100)
+        controller.clock = { now } as LongSupplier
+        now = System.nanoTime()
+        controller
+    }
+
+    void advanceMillis(long millis) {
+        now += millis(millis)
+    }
+
+    static long millis(long millis) {
+        TimeUnit.MILLISECONDS.toNanos(millis)
+    }
+
+    @Unroll
+    def "#method #path is a #expected request"() {
+        given:
+        HttpServletRequest request = Mock() {
+            getRequestURI() >> path
+            getMethod() >> method
+        }
+
+        expect:
+        controller().classify(request) == expected
+
+        where:
+        method | path                                    | expected
+        'GET'  | '/api/recipes/units'                    | CostClass.READ
+        'HEAD' | '/api/recipes/1'                        | CostClass.READ
+        'POST' | '/api/recipes/bulk'                     | CostClass.WRITE
+        'POST' | '/api/recipe-ai/searchSimilarity/object' | CostClass.AI
+        'GET'  | '/api/openai/test'                      | CostClass.AI
+        'GET'  | '/api/recipe-ai/titles/random'          | CostClass.READ
+    }
+
+    def "weights come from the cost class"() {
+        expect:
+        controller().weight(CostClass.READ) == 1
+        controller().weight(CostClass.WRITE) == 2
+        controller().weight(CostClass.AI) == 10
+    }
+
+    def "AI requests beyond the concurrency limit are turned away while reads still get in"() {
+        given:
+        def controller = controller(4, 2)
+        def ai = (1..2).collect { controller.admit(CostClass.AI) }
+
+        expect:
+        ai.every { it != null }
+        controller.admit(CostClass.AI) == null
+        meterRegistry.get('http.admission.rejected').tags('class', 'ai', 'reason', 'ai_concurrency')
+                .counter().count() == 1d
+
+        when:
+        def read = controller.admit(CostClass.READ)
+
+        then:
+        read != null
+
+        when:
+        ai[0].release()
+        ai[0].release()
+
+        then: "a permit released twice frees one slot"
+        controller.admit(CostClass.AI) != null
+        controller.admit(CostClass.READ) != null
+        controller.admit(CostClass.READ) == null
+    }
+
+    def "a standing queue sheds AI first, then writes, and never reads"() {
+        given:
+        def controller = controller()
+
+        when: "the quickest admission in the window waited longer than the target"
+        controller.recordDelay(millis(30))
+        advanceMillis(100)
+
+        then:
+        controller.shedLevel(now) == 1
+
+        when:
+        def ai = controller.admit(CostClass.AI)
+        def write = controller.admit(CostClass.WRITE)
+
+        then:
+        ai == null
+        write != null
+        meterRegistry.get('http.admission.rejected').tags('class', 'ai', 'reason', 'shed').counter().count() == 1d
+
+        when: "the delay keeps growing"
+        write.release()
+        advanceMillis(100)
+        controller.recordDelay(millis(100))
+        advanceMillis(100)
+
+        then:
+        controller.shedLevel(now) == 2
+        controller.admit(CostClass.WRITE) == null
+        controller.admit(CostClass.READ) != null
+    }
+
+    def "shedding stops once admissions stop waiting"() {
+        given:
+        def controller = controller()
+        controller.recordDelay(millis(30))
+        advanceMillis(100)
+        assert controller.shedLevel(now) == 1
+
+        when: "a read is admitted without waiting"
+        controller.admit(CostClass.READ).release()
+        advanceMillis(100)
+
+        then:
+        controller.shedLevel(now) == 0
+        controller.admit(CostClass.AI) != null
+    }
+
+    def "waiters that time out keep the shed level up"() {
+        given: "one slot, held, and reads that wait up to 50 ms for it"
+        long offset = 0
+        def controller = new AdmissionController(meterRegistry, ['/api/openai/'],
+                1, 1, 10, 1, 1, 50, 50, 50, 20, 200)
+        controller.clock = { System.nanoTime() + offset } as LongSupplier
+        def held = controller.admit(CostClass.READ)
+        offset += millis(1000)
+        assert controller.shedLevel(controller.clock.getAsLong()) == 0
+        def pool = Executors.newFixedThreadPool(3)
+
+        when:
+        def results = (1..3).collect { pool.submit({ controller.admit(CostClass.READ) } as Callable) }*.get(5, TimeUnit.SECONDS)
+        offset += millis(1000)
+
+        then: "every waiter timed out and the window reads as a standing queue"
+        results.every { it == null }
+        meterRegistry.get('http.admission.rejected').tags('class', 'read', 'reason', 'timeout').counter().count() == 3d
+        controller.shedLevel(controller.clock.getAsLong()) > 0
+
+        cleanup:
+        held?.release()
+        pool.shutdownNow()
+    }
+
+    def "a shed request is turned away even when a slot is free"() {
+        given:
+        def controller = controller()
+        controller.recordDelay(millis(30))
+        advanceMillis(100)
+
+        expect:
+        controller.shedLevel(now) == 1
+        controller.admit(CostClass.AI) == null
+        meterRegistry.get('http.admission.in_flight').gauge().value() == 0
+    }
+}
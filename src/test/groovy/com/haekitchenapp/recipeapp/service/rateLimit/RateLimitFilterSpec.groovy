@@ -1,5 +1,9 @@
 package com.haekitchenapp.recipeapp.service.rateLimit
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jakarta.servlet.AsyncContext
+import jakarta.servlet.AsyncEvent
+import jakarta.servlet.AsyncListener
 import jakarta.servlet.FilterChain
 import jakarta.servlet.http.HttpServletRequest
 import jakarta.servlet.http.HttpServletResponse
@@ -14,10 +18,12 @@ import spock.lang.Unroll
 
 class RateLimitFilterSpec extends Specification {
 
-    RateLimiterService rateLimiterService = Mock()
+    RateLimiter rateLimiter = Mock()
+    AdmissionController admissionController = new AdmissionController(new SimpleMeterRegistry(),
+            ['/api/recipe-ai/chat'], 1, 1, 10, 2, 1, 0, 0, 0, 20, 100)
 
     @Subject
-    RateLimitFilter filter = new RateLimitFilter(rateLimiterService)
+    RateLimitFilter filter = new RateLimitFilter(rateLimiter, admissionController)
 
     HttpServletRequest request = Mock()
     HttpServletResponse response = Mock()
@@ -25,6 +31,7 @@ class RateLimitFilterSpec extends Specification {
 
     def setup() {
         filter.@activeProfile = "default"
+        request.getMethod() >> "GET"
     }
 
     def cleanup() {
@@ -40,7 +47,7 @@ class RateLimitFilterSpec extends Specification {
 
         then:
         1 * chain.doFilter(request, response)
-        0 * rateLimiterService._
+        0 * rateLimiter._
     }
 
     def "public endpoints use IP based rate limiting thresholds"() {
@@ -52,7 +59,7 @@ class RateLimitFilterSpec extends Specification {
         filter.doFilter(request, response, chain)
 
         then:
-        1 * rateLimiterService.isAllowed("PUBLIC:10.0.0.1", 30, 100) >> true
+        1 * rateLimiter.isAllowed("PUBLIC:10.0.0.1", 1, 30, 100) >> true
         1 * chain.doFilter(request, response)
         0 * response.setStatus(_)
     }
@@ -74,7 +81,7 @@ class RateLimitFilterSpec extends Specification {
         filter.doFilter(request, response, chain)
 
         then:
-        1 * rateLimiterService.isAllowed("USER:user-123", 100, 1000) >> true
+        1 * rateLimiter.isAllowed("USER:user-123", 1, 100, 1000) >> true
         1 * chain.doFilter(request, response)
         0 * response.setStatus(_)
     }
@@ -89,7 +96,7 @@ class RateLimitFilterSpec extends Specification {
         filter.doFilter(request, response, chain)
 
         then:
-        1 * rateLimiterService.isAllowed("AUTH:10.0.0.2", 10, 30) >> true
+        1 * rateLimiter.isAllowed("AUTH:10.0.0.2", 1, 10, 30) >> true
         1 * chain.doFilter(request, response)
         0 * response.setStatus(_)
     }
@@ -104,13 +111,91 @@ class RateLimitFilterSpec extends Specification {
         filter.doFilter(request, response, chain)
 
         then:
-        1 * rateLimiterService.isAllowed("PUBLIC:203.0.113.5", 30, 100) >> false
+        1 * rateLimiter.isAllowed("PUBLIC:203.0.113.5", 1, 30, 100) >> false
         1 * response.setStatus(429)
         1 * response.getWriter() >> new PrintWriter(stringWriter)
         0 * chain.doFilter(_, _)
         stringWriter.toString() == "Rate limit exceeded. Please create an account for unlimited access."
     }
 
+    def "AI routes are charged their weight, capped at the smaller limit"() {
+        given:
+        request.getRequestURI() >> "/api/recipe-ai/chat/recipe"
+        request.getRemoteAddr() >> "10.0.0.3"
+
+        when:
+        filter.doFilter(request, response, chain)
+
+        then:
+        1 * rateLimiter.isAllowed("AUTH:10.0.0.3", 10, 10, 30) >> true
+        1 * chain.doFilter(request, response)
+    }
+
+    def "requests turned away by admission control get a 503 and their rate limit back"() {
+        given:
+        request.getRequestURI() >> "/api/recipe-ai/chat/recipe"
+        request.getRemoteAddr() >> "10.0.0.4"
+        rateLimiter.isAllowed(_, _, _, _) >> true
+        def busy = admissionController.admit(CostClass.AI)
+        StringWriter stringWriter = new StringWriter()
+
+        when:
+        filter.doFilter(request, response, chain)
+
+        then:
+        1 * response.setStatus(503)
+        1 * response.setHeader("Retry-After", "1")
+        1 * response.getWriter() >> new PrintWriter(stringWriter)
+        1 * rateLimiter.decreaseRateCount("AUTH:10.0.0.4", 10)
+        0 * chain.doFilter(_, _)
+        stringWriter.toString() == "Server is busy. Please try again shortly."
+
+        cleanup:
+        busy.release()
+    }
+
+    def "the slot is released when the request finishes"() {
+        given:
+        request.getRequestURI() >> "/api/recipe-ai/chat/recipe"
+        rateLimiter.isAllowed(_, _, _, _) >> true
+
+        when:
+        2.times { filter.doFilter(request, response, chain) }
+
+        then:
+        2 * chain.doFilter(request, response)
+        0 * response.setStatus(_)
+    }
+
+    def "an async request holds its slot until the response completes"() {
+        given:
+        request.getRequestURI() >> "/api/recipe-ai/chat/recipe"
+        rateLimiter.isAllowed(_, _, _, _) >> true
+        AsyncListener listener = null
+        AsyncContext asyncContext = Mock() {
+            addListener(_ as AsyncListener) >> { AsyncListener l -> listener = l }
+        }
+        request.isAsyncStarted() >> true
+        request.getAsyncContext() >> asyncContext
+
+        when:
+        filter.doFilter(request, response, chain)
+
+        then:
+        listener != null
+        admissionController.admit(CostClass.AI) == null
+
+        when:
+        listener.onComplete(new AsyncEvent(asyncContext))
+        def next = admissionController.admit(CostClass.AI)
+
+        then:
+        next != null
+
+        cleanup:
+        next?.release()
+    }
+
     @Unroll
     def "getUserId returns 'unknown' when authentication is #scenario"() {
         given:
@@ -5,55 +5,83 @@ import ch.qos.logback.classic.spi.ILoggingEvent
 import ch.qos.logback.core.read.ListAppender
 import spock.lang.Specification
 
-import java.time.Instant
-import java.util.concurrent.ConcurrentLinkedDeque
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.LongSupplier
 
 class RateLimiterServiceSpec extends Specification {
 
+    RateLimiterService service = new RateLimiterService()
+    long now = System.nanoTime()
+
+    def setup() {
+        service.clock = { now } as LongSupplier
+    }
+
+    void advanceSeconds(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds)
+    }
+
     def "denies request when per-minute threshold exceeded"() {
-        given: "a service whose minute limit has already been reached"
-        def service = new RateLimiterService()
-        service.metaClass.setProperty(service, "maxPerMinute", 3)
-        service.metaClass.setProperty(service, "maxPerHour", 10)
-        def now = Instant.now().epochSecond
-        def deque = new ConcurrentLinkedDeque<Long>()
-        3.times { deque.addLast(now - 10) }
-        service.@userRequests.put("minute-user", deque)
-
-        when: "the user attempts another request"
-        def allowed = service.isAllowed("minute-user", service.@maxPerMinute, service.@maxPerHour)
-
-        then: "it is rejected because the per-minute quota is exhausted"
-        !allowed
-        service.@userRequests.get("minute-user").size() == 3
+        given: "a user who has used up the minute limit"
+        3.times { assert service.isAllowed("minute-user", 3, 10) }
+
+        expect: "the next request is rejected"
+        !service.isAllowed("minute-user", 3, 10)
+
+        when: "a third of the minute passes"
+        advanceSeconds(20)
+
+        then: "one request's worth of capacity is back"
+        service.isAllowed("minute-user", 3, 10)
+        !service.isAllowed("minute-user", 3, 10)
     }
 
     def "denies request when per-hour threshold exceeded while per-minute usage is low"() {
-        given: "a service with mostly older requests that still count for the hourly limit"
-        def service = new RateLimiterService()
-        service.metaClass.setProperty(service, "maxPerMinute", 10)
-        service.metaClass.setProperty(service, "maxPerHour", 4)
-        def now = Instant.now().epochSecond
-        def deque = new ConcurrentLinkedDeque<Long>()
-        4.times { deque.addLast(now - 120) }
-        service.@userRequests.put("hour-user", deque)
-
-        when: "the user attempts another request"
-        def allowed = service.isAllowed("hour-user", service.@maxPerMinute, service.@maxPerHour)
-
-        then: "it is rejected because the hourly quota is exhausted even though the minute quota is not"
-        !allowed
-        service.@userRequests.get("hour-user").every { now - it >= 60 }
+        given: "a user spreading requests so the minute window never fills"
+        4.times {
+            assert service.isAllowed("hour-user", 10, 4)
+            advanceSeconds(60)
+        }
+
+        expect: "the hourly quota rejects the next request"
+        !service.isAllowed("hour-user", 10, 4)
+    }
+
+    def "rejected hour checks do not use up the minute window"() {
+        given:
+        service.isAllowed("user", 2, 1)
+
+        when:
+        2.times { service.isAllowed("user", 2, 1) }
+        advanceSeconds(30)
+
+        then: "the minute window only holds the one admitted request"
+        service.@userRequests.get("user").minute().isIdle(now)
+    }
+
+    def "weighted requests use up the limit by their weight"() {
+        given:
+        assert service.isAllowed("weighted", 3, 5, 100)
+
+        expect: "a request heavier than what is left is rejected, a lighter one still fits"
+        !service.isAllowed("weighted", 3, 5, 100)
+        service.isAllowed("weighted", 2, 5, 100)
+        !service.isAllowed("weighted", 1, 5, 100)
+
+        when: "the rejected request's share of the minute passes"
+        advanceSeconds(36)
+
+        then:
+        service.isAllowed("weighted", 3, 5, 100)
     }
 
-    def "decreaseRateCount prunes newest entries logs adjustment and ignores unknown users"() {
-        given: "a service with recent requests stored for a user"
-        def service = new RateLimiterService()
+    def "decreaseRateCount gives requests back logs adjustment and ignores unknown users"() {
+        given: "a user at the minute limit"
         def userKey = "known-user"
-        def now = Instant.now().epochSecond
-        def deque = new ConcurrentLinkedDeque<Long>()
-        [now - 50, now - 40, now - 30].each { deque.addLast(it) }
-        service.@userRequests.put(userKey, deque)
+        3.times { service.isAllowed(userKey, 3, 100) }
 
         // Set up logging capture with proper level
         Logger logger = (Logger) org.slf4j.LoggerFactory.getLogger(RateLimiterService)
@@ -66,21 +94,80 @@ class RateLimiterServiceSpec extends Specification {
         when: "reducing the request count for that user"
         service.decreaseRateCount(userKey, 2)
 
-        then: "only the oldest entry remains and the adjustment is logged"
-        service.@userRequests.get(userKey).size() == 1
-        service.@userRequests.get(userKey).peekFirst() == now - 50
+        then: "two more requests fit and the adjustment is logged"
+        service.isAllowed(userKey, 3, 100)
+        service.isAllowed(userKey, 3, 100)
+        !service.isAllowed(userKey, 3, 100)
         appender.list.any { it.formattedMessage.contains("Decreased rate count for ${userKey}") }
 
         when: "another user with no history is reduced"
         def loggedBefore = appender.list.size()
         service.decreaseRateCount("unknown-user", 3)
 
-        then: "no exception is thrown and nothing new is logged"
+        then: "no exception is thrown, nothing new is logged and no key is created"
         appender.list.size() == loggedBefore
-        !service.@userRequests.containsKey("unknown-user")
+        service.trackedKeys() == 1
 
         cleanup:
         logger.detachAppender(appender)
         logger.setLevel(originalLevel)  // Restore original log level
     }
+
+    def "idle keys are evicted once both windows have drained"() {
+        given:
+        service.isAllowed("busy", 30, 100)
+        service.isAllowed("quiet", 30, 100)
+        advanceSeconds(60)
+        service.isAllowed("busy", 30, 100)
+
+        when: "the quiet key's single request has drained from the hour window"
+        advanceSeconds(30)
+        int evicted = service.evictIdleKeys()
+
+        then:
+        evicted == 1
+        service.trackedKeys() == 1
+    }
+
+    def "new keys are rejected while the table is full of active keys"() {
+        given:
+        service.@maxTrackedKeys = 2
+        service.isAllowed("a", 30, 100)
+        service.isAllowed("b", 30, 100)
+
+        expect: "existing keys keep working and a new one is turned away"
+        service.isAllowed("a", 30, 100)
+        !service.isAllowed("c", 30, 100)
+
+        when: "the existing keys go idle"
+        advanceSeconds(3600)
+
+        then: "the new key makes room for itself"
+        service.isAllowed("c", 30, 100)
+        service.trackedKeys() == 1
+    }
+
+    def "concurrent requests never admit more than the limit"() {
+        given:
+        def threads = 8
+        def pool = Executors.newFixedThreadPool(threads)
+        def start = new CountDownLatch(1)
+        def admitted = new AtomicInteger()
+
+        when:
+        def futures = (1..threads).collect {
+            pool.submit {
+                start.await()
+                1000.times { if (service.isAllowed("shared", 500, 5000)) admitted.incrementAndGet() }
+            }
+        }
+        start.countDown()
+        futures*.get()
+
+        then:
+        admitted.get() == 500
+
+        cleanup:
+        pool.shutdownNow()
+    }
 }
@@ -0,0 +1,196 @@
+package com.haekitchenapp.recipeapp.service.rateLimit
+
+import org.springframework.dao.DataAccessResourceFailureException
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+import java.util.function.LongSupplier
+
+class SharedRateLimiterSpec extends Specification {
+
+    RateLimitStore rateLimitStore = Mock()
+    SharedRateLimiter limiter = new SharedRateLimiter(rateLimitStore, 10, 1000, 5000)
+    long now = System.nanoTime()
+
+    def setup() {
+        limiter.clock = { now } as LongSupplier
+    }
+
+    def "leases double while they are used up within their TTL, up to the lease size"() {
+        when:
+        def results = (1..25).collect { limiter.isAllowed('USER:1', 100, 1000) }
+
+        then: "leases of one, two, four, eight and ten requests cover twenty-five requests"
+        [1, 2, 4, 8, 10].each { size ->
+            1 * rateLimitStore.acquire('USER:1|m', size, 100, TimeUnit.MINUTES.toMicros(1)) >> size
+            1 * rateLimitStore.acquire('USER:1|h', size, 1000, TimeUnit.HOURS.toMicros(1)) >> size
+        }
+        0 * rateLimitStore.release(_, _)
+        results.every()
+    }
+
+    def "a sparse key leases one request at a time"() {
+        given:
+        rateLimitStore.acquire(_, _, _, _) >> { String key, int tokens, int limit, long period -> tokens }
+        limiter.isAllowed('USER:1', 100, 1000)
+
+        when:
+        now += TimeUnit.SECONDS.toNanos(2)
+        limiter.isAllowed('USER:1', 100, 1000)
+
+        then:
+        1 * rateLimitStore.acquire('USER:1|m', 1, 100, _) >> 1
+        1 * rateLimitStore.acquire('USER:1|h', 1, 1000, _) >> 1
+        0 * rateLimitStore.release(_, _)
+    }
+
+    def "unused requests of an expired lease go back to the store and the next lease shrinks"() {
+        given: "the fourth request leases four and leaves three unused"
+        rateLimitStore.acquire(_, _, _, _) >> { String key, int tokens, int limit, long period -> tokens }
+        4.times { limiter.isAllowed('USER:6', 100, 1000) }
+
+        when:
+        now += TimeUnit.SECONDS.toNanos(2)
+        limiter.isAllowed('USER:6', 100, 1000)
+
+        then:
+        1 * rateLimitStore.release('USER:6|m', 3)
+        1 * rateLimitStore.release('USER:6|h', 3)
+        1 * rateLimitStore.acquire('USER:6|m', 1, 100, _) >> 1
+        1 * rateLimitStore.acquire('USER:6|h', 1, 1000, _) >> 1
+    }
+
+    def "a remainder too small for a weighted request is given back before the lease is replaced"() {
+        given: "the second request leaves one of a two-request lease"
+        rateLimitStore.acquire(_, _, _, _) >> { String key, int tokens, int limit, long period -> tokens }
+        2.times { limiter.isAllowed('USER:7', 100, 1000) }
+
+        when:
+        def allowed = limiter.isAllowed('USER:7', 3, 100, 1000)
+
+        then:
+        1 * rateLimitStore.release('USER:7|m', 1)
+        1 * rateLimitStore.release('USER:7|h', 1)
+        1 * rateLimitStore.acquire('USER:7|m', 4, 100, _) >> 4
+        1 * rateLimitStore.acquire('USER:7|h', 4, 1000, _) >> 4
+        allowed
+    }
+
+    def "eviction gives back what is left of expired leases"() {
+        given:
+        rateLimitStore.acquire(_, _, _, _) >> { String key, int tokens, int limit, long period -> tokens }
+        4.times { limiter.isAllowed('USER:8', 100, 1000) }
+
+        when:
+        now += TimeUnit.SECONDS.toNanos(2)
+        limiter.evictIdleKeys()
+
+        then:
+        1 * rateLimitStore.release('USER:8|m', 3)
+        1 * rateLimitStore.release('USER:8|h', 3)
+        1 * rateLimitStore.evictIdle() >> 0
+    }
+
+    def "the request is rejected when the shared minute bucket is empty"() {
+        when:
+        def allowed = limiter.isAllowed('AUTH:10.0.0.1', 10, 30)
+
+        then: "small limits lease one request at a time"
+        1 * rateLimitStore.acquire('AUTH:10.0.0.1|m', 1, 10, _) >> 0
+        0 * rateLimitStore.acquire('AUTH:10.0.0.1|h', _, _, _)
+        !allowed
+    }
+
+    def "minute requests the hour bucket cannot match are released"() {
+        given: "three requests grow the lease to four"
+        rateLimitStore.acquire(_, _, _, _) >> { String key, int tokens, int limit, long period -> tokens }
+        3.times { limiter.isAllowed('USER:2', 100, 1000) }
+
+        when:
+        def allowed = limiter.isAllowed('USER:2', 100, 1000)
+
+        then:
+        1 * rateLimitStore.acquire('USER:2|m', 4, 100, _) >> 4
+        1 * rateLimitStore.acquire('USER:2|h', 4, 1000, _) >> 3
+        1 * rateLimitStore.release('USER:2|m', 1)
+        allowed
+    }
+
+    def "a weighted request leases at least its own weight and spends it all"() {
+        when:
+        def results = (1..2).collect { limiter.isAllowed('USER:4', 10, 100, 1000) }
+
+        then: "each request needs a lease of its own"
+        2 * rateLimitStore.acquire('USER:4|m', 10, 100, _) >> 10
+        2 * rateLimitStore.acquire('USER:4|h', 10, 1000, _) >> 10
+        results.every()
+    }
+
+    def "a partial grant smaller than the weight is given back and the request rejected"() {
+        when:
+        def allowed = limiter.isAllowed('USER:5', 10, 100, 1000)
+
+        then:
+        1 * rateLimitStore.acquire('USER:5|m', 10, 100, _) >> 10
+        1 * rateLimitStore.acquire('USER:5|h', 10, 1000, _) >> 4
+        1 * rateLimitStore.release('USER:5|m', 6)
+        1 * rateLimitStore.release('USER:5|m', 4)
+        1 * rateLimitStore.release('USER:5|h', 4)
+        !allowed
+    }
+
+    def "falls back to in-process limits when the store is unavailable"() {
+        given:
+        rateLimitStore.acquire(_, _, _, _) >> { throw new DataAccessResourceFailureException('down') }
+
+        expect:
+        (1..2).collect { limiter.isAllowed('AUTH:10.0.0.2', 2, 30) } == [true, true]
+        !limiter.isAllowed('AUTH:10.0.0.2', 2, 30)
+    }
+
+    def "after a store failure the store is left alone until the cool-down ends"() {
+        when:
+        limiter.isAllowed('USER:9', 100, 1000)
+
+        then:
+        1 * rateLimitStore.acquire('USER:9|m', _, _, _) >> { throw new DataAccessResourceFailureException('down') }
+
+        when: "other keys and released requests skip the store meanwhile"
+        now += TimeUnit.SECONDS.toNanos(4)
+        def allowed = limiter.isAllowed('USER:10', 100, 1000)
+        limiter.decreaseRateCount('USER:10', 1)
+
+        then:
+        allowed
+        0 * rateLimitStore._
+
+        when:
+        now += TimeUnit.SECONDS.toNanos(2)
+        limiter.isAllowed('USER:10', 100, 1000)
+
+        then:
+        1 * rateLimitStore.acquire('USER:10|m', 1, 100, _) >> 1
+        1 * rateLimitStore.acquire('USER:10|h', 1, 1000, _) >> 1
+    }
+
+    def "lease size is capped at a tenth of the smaller limit"() {
+        expect:
+        limiter.leaseSizeFor(perMinute, perHour) == expected
+
+        where:
+        perMinute | perHour || expected
+        100       | 1000    || 10
+        30        | 100     || 3
+        10        | 30      || 1
+        500       | 5000    || 10
+    }
+
+    def "decreaseRateCount releases requests in both shared buckets"() {
+        when:
+        limiter.decreaseRateCount('USER:3', 2)
+
+        then:
+        1 * rateLimitStore.release('USER:3|m', 2)
+        1 * rateLimitStore.release('USER:3|h', 2)
+    }
+}
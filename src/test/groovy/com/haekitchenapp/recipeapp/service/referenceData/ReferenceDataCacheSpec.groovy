@@ -0,0 +1,138 @@
+package com.haekitchenapp.recipeapp.service.referenceData
+
+import com.haekitchenapp.recipeapp.entity.Cuisine
+import com.haekitchenapp.recipeapp.entity.Unit
+import com.haekitchenapp.recipeapp.repository.CuisineRepository
+import com.haekitchenapp.recipeapp.repository.MealTypeRepository
+import com.haekitchenapp.recipeapp.repository.UnitRepository
+import org.springframework.dao.DataAccessResourceFailureException
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.core.ResultSetExtractor
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ReferenceDataCacheSpec extends Specification {
+
+    UnitRepository unitRepository = Mock()
+    CuisineRepository cuisineRepository = Mock()
+    MealTypeRepository mealTypeRepository = Mock()
+    JdbcTemplate jdbcTemplate = Mock()
+    ReferenceDataCache cache
+    long now = 0
+
+    def setup() {
+        cache = new ReferenceDataCache(unitRepository, cuisineRepository, mealTypeRepository, jdbcTemplate, 5000)
+        cache.clock = { now }
+    }
+
+    def "reads are served from one snapshot"() {
+        when:
+        def all = cache.units().all()
+        def cup = cache.units().name(1L)
+        def exists = cache.units().contains(2L)
+
+        then:
+        1 * unitRepository.findAll() >> [new Unit(id: 1L, name: 'cup'), new Unit(id: 2L, name: 'gram')]
+        all == [1L: 'cup', 2L: 'gram']
+        cup == Optional.of('cup')
+        exists
+    }
+
+    def "an unknown id is negatively cached instead of reloading on every lookup"() {
+        given:
+        unitRepository.findAll() >> [new Unit(id: 1L, name: 'cup')]
+        cache.units().all()
+        now += TimeUnit.SECONDS.toNanos(6)
+
+        when:
+        def lookups = (1..100).collect { cache.units().name(999L) }
+
+        then:
+        1 * unitRepository.findAll() >> [new Unit(id: 1L, name: 'cup')]
+        lookups.every { it.isEmpty() }
+    }
+
+    def "a miss within the reload interval does not reload"() {
+        when:
+        cache.units().name(1L)
+        def missing = cache.units().name(2L)
+
+        then:
+        1 * unitRepository.findAll() >> [new Unit(id: 1L, name: 'cup')]
+        missing.isEmpty()
+    }
+
+    def "a miss after the reload interval picks up rows added since"() {
+        given:
+        unitRepository.findAll() >> [new Unit(id: 1L, name: 'cup')]
+        cache.units().name(1L)
+        now += TimeUnit.SECONDS.toNanos(6)
+
+        when:
+        def added = cache.units().name(2L)
+
+        then:
+        1 * unitRepository.findAll() >> [new Unit(id: 1L, name: 'cup'), new Unit(id: 2L, name: 'pinch')]
+        added == Optional.of('pinch')
+    }
+
+    def "changed drops the local snapshot and notifies other instances"() {
+        given:
+        cuisineRepository.findAll() >>> [[new Cuisine(id: 1, name: 'Thai')], [new Cuisine(id: 1, name: 'Thai'), new Cuisine(id: 2, name: 'Greek')]]
+        cache.cuisines().all()
+
+        when:
+        cache.changed(ReferenceDataType.CUISINES)
+
+        then:
+        1 * jdbcTemplate.query('SELECT pg_notify(?, ?)', _ as ResultSetExtractor, ReferenceDataCache.CHANNEL,
+                { it.startsWith('CUISINES:') })
+        cache.cuisines().idOf('Greek') == Optional.of(2)
+    }
+
+    def "a failed notify still invalidates locally"() {
+        given:
+        cuisineRepository.findAll() >>> [[], [new Cuisine(id: 3, name: 'Cajun')]]
+        cache.cuisines().all()
+        jdbcTemplate.query(*_) >> { throw new DataAccessResourceFailureException('down') }
+
+        when:
+        cache.changed(ReferenceDataType.CUISINES)
+
+        then:
+        noExceptionThrown()
+        cache.cuisines().all() == [3: 'Cajun']
+    }
+
+    def "notifications from other instances invalidate, our own are ignored"() {
+        given:
+        String ownPayload = null
+        jdbcTemplate.query(*_) >> { args -> ownPayload = args.flatten().last(); null }
+        unitRepository.findAll() >> []
+        cache.changed(ReferenceDataType.UNITS)
+        cache.units().all()
+
+        when:
+        cache.onNotification(ownPayload)
+        cache.units().all()
+
+        then:
+        0 * unitRepository.findAll()
+
+        when:
+        cache.onNotification('UNITS:another-instance')
+        cache.units().all()
+
+        then:
+        1 * unitRepository.findAll() >> []
+    }
+
+    def "unknown notification payloads are ignored"() {
+        when:
+        cache.onNotification('SPICES:another-instance')
+
+        then:
+        noExceptionThrown()
+    }
+}
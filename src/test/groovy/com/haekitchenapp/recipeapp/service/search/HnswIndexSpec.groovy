@@ -0,0 +1,122 @@
+package com.haekitchenapp.recipeapp.service.search
+
+import spock.lang.Specification
+
+class HnswIndexSpec extends Specification {
+
+    static float[] randomVector(Random random, int dimensions) {
+        float[] v = new float[dimensions]
+        for (int i = 0; i < dimensions; i++) {
+            v[i] = (float) random.nextGaussian()
+        }
+        return v
+    }
+
+    def "approximate search recalls most exact neighbours"() {
+        given:
+        Random random = new Random(7)
+        HnswIndex index = new HnswIndex(16, 200, 0, 42L)
+        2000.times { index.add(it as long, randomVector(random, 32)) }
+        List<float[]> queries = (1..50).collect { randomVector(random, 32) }
+
+        when:
+        double recall = queries.collect { q ->
+            Set<Long> truth = index.exactSearch(q, 10)*.id() as Set
+            index.search(q, 10, 100).count { truth.contains(it.id()) } / 10d
+        }.sum() / queries.size()
+
+        then:
+        index.size() == 2000
+        recall >= 0.95d
+    }
+
+    def "results are ordered by cosine distance and match pgvector semantics"() {
+        given:
+        HnswIndex index = new HnswIndex(4, 16, 0, 1L)
+        index.add(1L, [1f, 0f] as float[])
+        index.add(2L, [0f, 1f] as float[])
+        index.add(3L, [-1f, 0f] as float[])
+
+        when:
+        List<HnswIndex.Match> matches = index.search([2f, 0f] as float[], 3, 10)
+
+        then:
+        matches*.id() == [1L, 2L, 3L]
+        Math.abs(matches[0].distance()) < 1e-6
+        Math.abs(matches[1].distance() - 1f) < 1e-6
+        Math.abs(matches[2].distance() - 2f) < 1e-6
+    }
+
+    def "add replaces an existing vector for the same id"() {
+        given:
+        HnswIndex index = new HnswIndex(4, 16, 0, 1L)
+        index.add(1L, [1f, 0f] as float[])
+        index.add(2L, [0f, 1f] as float[])
+
+        when:
+        index.add(1L, [0f, -1f] as float[])
+
+        then:
+        index.size() == 2
+        index.deletedCount() == 1
+        index.search([0f, -1f] as float[], 1, 10)*.id() == [1L]
+        index.search([1f, 0f] as float[], 2, 10)*.id().count(1L) == 1
+    }
+
+    def "re-adding the same vector leaves no tombstone"() {
+        given:
+        HnswIndex index = new HnswIndex(4, 16, 0, 1L)
+        index.add(1L, [1f, 0f] as float[])
+
+        expect: "a scaled copy normalizes to the same vector"
+        !index.add(1L, [2f, 0f] as float[])
+        index.size() == 1
+        index.deletedCount() == 0
+    }
+
+    def "addIfAbsent keeps the existing vector"() {
+        given:
+        HnswIndex index = new HnswIndex(4, 16, 0, 1L)
+        index.add(1L, [1f, 0f] as float[])
+
+        expect:
+        !index.addIfAbsent(1L, [0f, 1f] as float[])
+        index.search([1f, 0f] as float[], 1, 10)[0].distance() < 1e-6
+    }
+
+    def "removed ids are never returned"() {
+        given:
+        Random random = new Random(3)
+        HnswIndex index = new HnswIndex(8, 64, 0, 5L)
+        200.times { index.add(it as long, randomVector(random, 8)) }
+        float[] query = randomVector(random, 8)
+        long nearest = index.exactSearch(query, 1)[0].id()
+
+        when:
+        boolean removed = index.remove(nearest)
+
+        then:
+        removed
+        !index.contains(nearest)
+        index.size() == 199
+        !(nearest in index.search(query, 20, 50)*.id())
+        !(nearest in index.exactSearch(query, 20)*.id())
+    }
+
+    def "rejects vectors with a different dimension"() {
+        given:
+        HnswIndex index = new HnswIndex(4, 16, 0, 1L)
+        index.add(1L, [1f, 0f] as float[])
+
+        when:
+        index.add(2L, [1f, 0f, 0f] as float[])
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "empty index returns no matches"() {
+        expect:
+        new HnswIndex(4, 16, 0, 1L).search([1f] as float[], 5, 10).isEmpty()
+    }
+}
@@ -0,0 +1,99 @@
+package com.haekitchenapp.recipeapp.service.search
+
+import com.haekitchenapp.recipeapp.config.search.RecipeSearchConfig
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class IvfflatProbesPolicySpec extends Specification {
+
+    RecipeSearchConfig config = new RecipeSearchConfig()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    private IvfflatProbesPolicy policy() {
+        new IvfflatProbesPolicy(config, meterRegistry)
+    }
+
+    def "uses the configured default and clamps requested probes"() {
+        given:
+        config.probes.defaultProbes = 20
+        config.probes.max = 50
+        def policy = policy()
+
+        expect:
+        policy.initialProbes(null) == 20
+        policy.initialProbes(7) == 7
+        policy.initialProbes(500) == 50
+        policy.initialProbes(0) == 1
+    }
+
+    def "escalation is only offered in adaptive mode and within limits"() {
+        given:
+        config.probes.max = 60
+        config.probes.maxEscalations = 2
+
+        when:
+        def fixed = policy()
+
+        then:
+        !fixed.escalate(20, 0).isPresent()
+
+        when:
+        config.probes.adaptive = true
+        def adaptive = policy()
+
+        then:
+        adaptive.escalate(20, 0).asInt == 40
+        adaptive.escalate(40, 1).asInt == 60
+        !adaptive.escalate(40, 2).isPresent()
+        !adaptive.escalate(60, 0).isPresent()
+    }
+
+    def "records probes used in search metrics"() {
+        given:
+        def policy = policy()
+
+        when:
+        policy.record(20, TimeUnit.MILLISECONDS.toNanos(5))
+        policy.record(35, TimeUnit.MILLISECONDS.toNanos(7))
+
+        then:
+        meterRegistry.get('recipe.search.probes').summary().count() == 2
+        meterRegistry.get('recipe.search.probes').summary().totalAmount() == 55d
+        meterRegistry.get('recipe.search.query').tag('probes', '35').timer().count() == 1
+    }
+
+    def "adaptive baseline drops while p95 is over the threshold and recovers afterwards"() {
+        given:
+        config.probes.adaptive = true
+        config.probes.defaultProbes = 20
+        config.probes.step = 5
+        config.probes.latencyThresholdMs = 100
+        config.probes.adjustIntervalSeconds = 0
+        def policy = policy()
+
+        when:
+        policy.record(20, TimeUnit.MILLISECONDS.toNanos(500))
+
+        then:
+        policy.currentBaseline() == 15
+        policy.initialProbes(null) == 15
+        meterRegistry.get('recipe.search.probes.baseline').gauge().value() == 15d
+    }
+
+    def "adaptive baseline never exceeds the configured default when latency is low"() {
+        given:
+        config.probes.adaptive = true
+        config.probes.defaultProbes = 20
+        config.probes.latencyThresholdMs = 100
+        config.probes.adjustIntervalSeconds = 0
+        def policy = policy()
+
+        when:
+        3.times { policy.record(20, TimeUnit.MILLISECONDS.toNanos(1)) }
+
+        then:
+        policy.currentBaseline() == 20
+    }
+}
@@ -0,0 +1,100 @@
+package com.haekitchenapp.recipeapp.service.search
+
+import com.haekitchenapp.recipeapp.model.request.recipe.RecipeSimilarityRequest
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeDetailsDto
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityDto
+import spock.lang.Specification
+
+class RecipeRankerSpec extends Specification {
+
+    RecipeRanker ranker = new RecipeRanker()
+
+    static RecipeSimilarityDto candidate(Long id, String title, String summary = null) {
+        new RecipeSimilarityDto(id, title, summary, 0.9d)
+    }
+
+    static RecipeDetailsDto details(Long id, List<String> ingredients, List<String> cuisines) {
+        new RecipeDetailsDto(null, ingredients, cuisines, null, id)
+    }
+
+    def "removeDuplicates keeps the first recipe for each title regardless of case"() {
+        when:
+        def result = ranker.removeDuplicates([candidate(1L, 'Pad Thai'), candidate(2L, 'pad thai'), candidate(3L, 'Curry')])
+
+        then:
+        result*.id == [1L, 3L]
+    }
+
+    def "rank scores title, words, cuisine and ingredient count in one pass"() {
+        given:
+        def query = new RecipeSimilarityRequest(title: 'Chicken Curry', cuisine: 'Indian', mealType: 'dinner', limit: 5)
+        def recipes = [candidate(1L, 'Chicken Curry', 'A quick dinner'), candidate(2L, 'Chicken Soup', 'Warm and simple')]
+        def recipeDetails = [details(1L, ['chicken', 'curry paste', 'rice'], ['Indian']),
+                             details(2L, ['chicken', 'carrot'], ['American'])]
+
+        when:
+        def ranked = ranker.rank(recipes, recipeDetails, query)
+
+        then:
+        ranked.size() == 2
+        with(ranked[0]) {
+            exactTitleMatch
+            prefixTitleMatch
+            titleSimilarityRank == 100
+            similarityRank == 3 // chicken, curry, dinner
+            cuisineMatchRank == 10
+            includesIngredientsCount == 3
+            cuisines == ['Indian']
+        }
+        with(ranked[1]) {
+            !exactTitleMatch
+            titleSimilarityRank == 27 // jaccard 1/3 of 80
+            similarityRank == 1
+            cuisineMatchRank == 0
+            includesIngredientsCount == 2
+        }
+    }
+
+    def "rank drops recipes with excluded ingredients and, when required, other cuisines"() {
+        given:
+        def query = new RecipeSimilarityRequest(prompt: null, cuisine: 'thai', requireCuisine: true,
+                excludeIngredients: ' Peanuts , shrimp', limit: 5)
+        def recipes = [candidate(1L, 'Pad Thai'), candidate(2L, 'Green Curry'), candidate(3L, 'Lasagna')]
+        def recipeDetails = [details(1L, ['noodles', 'peanuts'], ['Thai']),
+                             details(2L, ['coconut milk', 'chicken'], ['Thai']),
+                             details(3L, ['pasta'], ['Italian'])]
+
+        when:
+        def ranked = ranker.rank(recipes, recipeDetails, query)
+
+        then:
+        ranked*.id == [2L]
+    }
+
+    def "rank tolerates missing details and a prompt-only query"() {
+        given:
+        def query = new RecipeSimilarityRequest(prompt: 'the spicy noodles', limit: 5)
+
+        when:
+        def ranked = ranker.rank([candidate(1L, 'Spicy Noodles', null)], [], query)
+
+        then:
+        with(ranked[0]) {
+            similarityRank == 2
+            titleSimilarityRank == 0
+            cuisines == []
+            includesIngredientsCount == 0
+        }
+    }
+
+    def "sortAndLimit orders exact matches first then by ranks"() {
+        given:
+        def a = candidate(1L, 'A').tap { titleSimilarityRank = 50; similarityRank = 1 }
+        def b = candidate(2L, 'B').tap { titleSimilarityRank = 50; similarityRank = 3 }
+        def c = candidate(3L, 'C').tap { exactTitleMatch = true; titleSimilarityRank = 10 }
+        def d = candidate(4L, 'D').tap { titleSimilarityRank = 80 }
+
+        expect:
+        ranker.sortAndLimit([a, b, c, d], 3)*.id == [3L, 4L, 2L]
+    }
+}
@@ -0,0 +1,178 @@
+package com.haekitchenapp.recipeapp.service.search
+
+import com.haekitchenapp.recipeapp.config.search.RecipeSearchConfig
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeTitleSummaryDto
+import com.haekitchenapp.recipeapp.repository.RecipeRepository
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+import java.util.function.BiConsumer
+
+class RecipeVectorIndexSpec extends Specification {
+
+    RecipeRepository recipeRepository = Mock()
+    RecipeSearchConfig config = new RecipeSearchConfig()
+    RecipeVectorIndex recipeVectorIndex = new RecipeVectorIndex(recipeRepository, config, { it.run() } as Executor)
+
+    def setup() {
+        config.hnsw.enabled = true
+        config.hnsw.m = 4
+        config.hnsw.efConstruction = 16
+    }
+
+    private void buildWith(Map<Long, float[]> rows) {
+        recipeRepository.countByEmbeddingIsNotNull() >> (rows.size() as Long)
+        recipeRepository.streamEmbeddings(_, _) >> { int fetchSize, BiConsumer<Long, float[]> consumer ->
+            rows.each { id, vector -> consumer.accept(id, vector) }
+        }
+        recipeVectorIndex.rebuild()
+    }
+
+    def "rebuild loads embeddings from the repository"() {
+        when:
+        buildWith([1L: [1f, 0f] as float[], 2L: [0f, 1f] as float[]])
+
+        then:
+        recipeVectorIndex.isReady()
+        recipeVectorIndex.size() == 2
+        recipeVectorIndex.search([1f, 0.1f] as float[], 1)*.id() == [1L]
+    }
+
+    def "search fails while the index is not built"() {
+        when:
+        recipeVectorIndex.search([1f] as float[], 1)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "findTopByCosine hydrates titles and prefers title matches"() {
+        given:
+        buildWith([1L: [1f, 0f] as float[], 2L: [0.8f, 0.6f] as float[], 3L: [0f, 1f] as float[]])
+        recipeRepository.findTitleSummariesByIdIn(_) >> [
+                new RecipeTitleSummaryDto(1L, 'Beef Stew', 'Hearty'),
+                new RecipeTitleSummaryDto(2L, 'Tomato Soup', 'Cozy'),
+                new RecipeTitleSummaryDto(3L, 'Tomato Salad', 'Fresh')
+        ]
+
+        when:
+        def results = recipeVectorIndex.findTopByCosine([1f, 0f] as float[], 2, '%tomato%')
+
+        then:
+        results*.id == [2L, 3L]
+        results[0].title == 'Tomato Soup'
+        Math.abs(results[0].similarity - 0.8d) < 1e-6
+        Math.abs(results[0].cosineDistance - 0.2d) < 1e-6
+    }
+
+    def "findTopByCosine skips ids deleted since indexing"() {
+        given:
+        buildWith([1L: [1f, 0f] as float[], 2L: [0f, 1f] as float[]])
+        recipeRepository.findTitleSummariesByIdIn(_) >> [new RecipeTitleSummaryDto(2L, 'Soup', 'Cozy')]
+
+        expect:
+        recipeVectorIndex.findTopByCosine([1f, 0f] as float[], 2, null)*.id == [2L]
+    }
+
+    def "upsert and remove apply immediately outside a transaction"() {
+        given:
+        buildWith([1L: [1f, 0f] as float[]])
+
+        when:
+        recipeVectorIndex.upsert(5L, [0f, 1f] as float[])
+
+        then:
+        recipeVectorIndex.size() == 2
+        recipeVectorIndex.search([0f, 1f] as float[], 1)*.id() == [5L]
+
+        when:
+        recipeVectorIndex.remove(5L)
+
+        then:
+        recipeVectorIndex.size() == 1
+    }
+
+    def "recipes removed while the index is being built stay out of it"() {
+        given:
+        recipeRepository.countByEmbeddingIsNotNull() >> 3L
+        recipeRepository.streamEmbeddings(_, _) >> { int fetchSize, BiConsumer<Long, float[]> consumer ->
+            consumer.accept(1L, [1f, 0f] as float[])
+            recipeVectorIndex.remove(1L)
+            recipeVectorIndex.remove(2L)
+            consumer.accept(2L, [0f, 1f] as float[])
+            consumer.accept(3L, [1f, 1f] as float[])
+        }
+
+        when:
+        recipeVectorIndex.rebuild()
+
+        then:
+        recipeVectorIndex.size() == 1
+        recipeVectorIndex.search([1f, 0f] as float[], 3)*.id() == [3L]
+    }
+
+    def "the previous index keeps serving while a rebuild loads and gets the saves made meanwhile"() {
+        given:
+        def rebuilding = false
+        def seenDuringBuild = []
+        recipeRepository.countByEmbeddingIsNotNull() >> 1L
+        recipeRepository.streamEmbeddings(_, _) >> { int fetchSize, BiConsumer<Long, float[]> consumer ->
+            if (rebuilding) {
+                recipeVectorIndex.upsert(2L, [0f, 1f] as float[])
+                seenDuringBuild << recipeVectorIndex.isReady() << recipeVectorIndex.search([0f, 1f] as float[], 1)*.id()
+                consumer.accept(2L, [-1f, 0f] as float[])
+            }
+            consumer.accept(1L, [1f, 0f] as float[])
+        }
+        recipeVectorIndex.rebuild()
+        rebuilding = true
+
+        when:
+        recipeVectorIndex.rebuild()
+
+        then: "the save wins over the row being loaded"
+        seenDuringBuild == [true, [2L]]
+        recipeVectorIndex.size() == 2
+        recipeVectorIndex.search([0f, 1f] as float[], 1)*.id() == [2L]
+    }
+
+    def "saving an unchanged embedding leaves no tombstone and tombstones past the ratio trigger a rebuild"() {
+        given:
+        config.hnsw.maxDeletedRatio = 0.5
+        buildWith([1L: [1f, 0f] as float[], 2L: [0f, 1f] as float[], 3L: [1f, 1f] as float[]])
+
+        when:
+        recipeVectorIndex.upsert(1L, [1f, 0f] as float[])
+
+        then:
+        recipeVectorIndex.deletedCount() == 0
+        !recipeVectorIndex.compactIfNeeded()
+
+        when:
+        recipeVectorIndex.upsert(1L, [1f, -1f] as float[])
+        recipeVectorIndex.remove(2L)
+
+        then:
+        recipeVectorIndex.deletedCount() == 2
+        recipeVectorIndex.compactIfNeeded()
+        recipeVectorIndex.deletedCount() == 0
+    }
+
+    def "title patterns are matched on their literal text"() {
+        expect:
+        RecipeVectorIndex.containedText('%100\\% rye\\_bread%') == '100% rye_bread'
+        RecipeVectorIndex.containedText('%tomato%') == 'tomato'
+    }
+
+    def "updates are ignored when the index is disabled"() {
+        given:
+        config.hnsw.enabled = false
+
+        when:
+        recipeVectorIndex.upsert(5L, [0f, 1f] as float[])
+
+        then:
+        recipeVectorIndex.size() == 0
+        0 * recipeRepository._
+    }
+}
@@ -0,0 +1,58 @@
+package com.haekitchenapp.recipeapp.service.search
+
+import com.haekitchenapp.recipeapp.config.search.RecipeSearchConfig
+import com.haekitchenapp.recipeapp.model.request.recipe.SearchEngineComparisonRequest
+import com.haekitchenapp.recipeapp.model.response.recipe.RecipeSimilarityView
+import com.haekitchenapp.recipeapp.repository.RecipeRepository
+import com.haekitchenapp.recipeapp.service.QueryEmbeddingCache
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+class SearchEngineComparisonServiceSpec extends Specification {
+
+    RecipeRepository recipeRepository = Mock()
+    RecipeVectorIndex recipeVectorIndex = Mock()
+    QueryEmbeddingCache queryEmbeddingCache = Mock()
+    RecipeSearchConfig config = new RecipeSearchConfig()
+    SearchEngineComparisonService service = new SearchEngineComparisonService(recipeRepository, recipeVectorIndex,
+            queryEmbeddingCache, new IvfflatProbesPolicy(config, new SimpleMeterRegistry()))
+
+    def "returns 503 when the index is not ready"() {
+        given:
+        recipeVectorIndex.isReady() >> false
+
+        when:
+        def response = service.compare(new SearchEngineComparisonRequest(queries: ['soup'], k: 2))
+
+        then:
+        response.statusCode.value() == 503
+        !response.body.success
+        0 * recipeRepository._
+    }
+
+    def "computes recall against the exact scan for both engines"() {
+        given:
+        float[] embedding = [1f, 0f] as float[]
+        recipeVectorIndex.isReady() >> true
+        recipeVectorIndex.size() >> 10
+        queryEmbeddingCache.getEmbedding('soup') >> embedding
+        recipeVectorIndex.exactSearch(embedding, 2) >> [new HnswIndex.Match(1L, 0f), new HnswIndex.Match(2L, 0.1f)]
+        recipeVectorIndex.search(embedding, 2) >> [new HnswIndex.Match(1L, 0f), new HnswIndex.Match(2L, 0.1f)]
+        recipeRepository.findTopByCosine(embedding, 2, 30) >> [view(1L), view(9L)]
+
+        when:
+        def result = service.compare(new SearchEngineComparisonRequest(queries: ['soup'], k: 2, probes: 30)).body.data
+
+        then:
+        result.queries == 1
+        result.probes == 30
+        result.indexedRecipes == 10
+        result.hnsw.recallAtK == 1d
+        result.pgvector.recallAtK == 0.5d
+        result.pgvector.p95LatencyMs >= 0d
+    }
+
+    private RecipeSimilarityView view(Long id) {
+        Stub(RecipeSimilarityView) { getId() >> id }
+    }
+}
@@ -0,0 +1,151 @@
+package com.haekitchenapp.recipeapp.service.search
+
+import spock.lang.Specification
+
+class TypeaheadIndexSpec extends Specification {
+
+    def "entries starting with the query rank before word-prefix matches"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.put(1L, "Spicy Chicken Curry")
+        index.put(2L, "Chicken Soup")
+        index.put(3L, "Beef Stew")
+
+        when:
+        List<TypeaheadIndex.Match> matches = index.search("chick", 10)
+
+        then:
+        matches*.id() == [2L, 1L]
+    }
+
+    def "multi-word queries match word prefixes in any position"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.put(1L, "Spicy Chicken Curry")
+        index.put(2L, "Chicken Soup")
+
+        expect:
+        index.search("cur spi", 10)*.id() == [1L]
+    }
+
+    def "misspelled queries fall back to trigram similarity"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.put(1L, "Lasagna")
+        index.put(2L, "Pancakes")
+
+        expect:
+        index.search("lasagne", 10)*.id() == [1L]
+    }
+
+    def "accents and case are ignored and equal texts are returned once"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.put(5L, "Crème Brûlée")
+        index.put(4L, "creme brulee")
+
+        when:
+        List<TypeaheadIndex.Match> matches = index.search("CREME", 10)
+
+        then:
+        matches.size() == 1
+        matches[0].id() == 4L
+    }
+
+    def "updates and removals are reflected in later searches"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.put(1L, "Apple Pie")
+        index.put(2L, "Apricot Jam")
+
+        when:
+        index.put(1L, "Banana Bread")
+        index.remove(2L)
+
+        then:
+        index.search("ap", 10).isEmpty()
+        index.search("ban", 10)*.id() == [1L]
+        index.size() == 1
+    }
+
+    def "putIfAbsent keeps the newer text"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.put(1L, "Fresh Title")
+
+        when:
+        index.putIfAbsent(1L, "Stale Title")
+
+        then:
+        index.search("fresh", 10)*.id() == [1L]
+        index.search("stale", 10).isEmpty()
+    }
+
+    def "a rare query word narrows a common one before candidates are capped"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        (1..TypeaheadIndex.MAX_CANDIDATES + 100).each { index.put(it, "Chicken Dish $it") }
+        index.put(4095L, "Chicken Tikka Masala")
+
+        expect:
+        index.search("tikka chick", 5)*.id() == [4095L]
+        index.search("chicken masala", 5)[0].id() == 4095L
+    }
+
+    def "entries removed during a bulk load are not brought back by it"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.beginBulkLoad()
+        index.putIfAbsent(1L, "Apple Pie")
+
+        when: "one removal lands after its row was loaded, the other before"
+        index.remove(1L)
+        index.remove(2L)
+        index.putIfAbsent(1L, "Apple Pie")
+        index.putIfAbsent(2L, "Apricot Jam")
+        index.endBulkLoad()
+
+        then:
+        index.size() == 0
+        index.search("ap", 10).isEmpty()
+
+        when:
+        index.putIfAbsent(3L, "Apple Crumble")
+
+        then:
+        index.search("ap", 10)*.id() == [3L]
+    }
+
+    def "postings stay correct while changes are buffered and merged"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+        index.beginBulkLoad()
+        (1..500).each { index.putIfAbsent(it, "Chicken Dish $it") }
+        index.endBulkLoad()
+
+        when:
+        (1..500).findAll { it % 2 == 0 }.each { index.remove(it) }
+        (1..100).findAll { it % 4 == 0 }.each { index.put(it, "Chicken Dish $it") }
+        index.put(501L, "Chicken Dish 501")
+        index.put(3L, "Beef Dish 3")
+
+        then:
+        index.search("chick", 1000)*.id() as Set ==
+                ((1..501).findAll { it % 2 == 1 || (it <= 100 && it % 4 == 0) } - 3).collect { it as Long } as Set
+        index.search("beef", 10)*.id() == [3L]
+    }
+
+    def "estimated memory follows the entries held"() {
+        given:
+        TypeaheadIndex index = new TypeaheadIndex()
+
+        when:
+        (1..100).each { index.put(it, "Roasted Vegetable Soup $it") }
+        long full = index.estimatedBytes()
+        (1..100).each { index.remove(it) }
+
+        then:
+        full > 100 * 'Roasted Vegetable Soup'.length()
+        index.estimatedBytes() == 0
+    }
+}
@@ -83,8 +83,9 @@ class Fixtures {
         new RecipeDuplicatesByTitleDto(title, count)
     }
 
-    static RecipeSummaryProjection recipeSummaryProjection(String title = 'Test Recipe', String instructions = 'Cook well') {
+    static RecipeSummaryProjection recipeSummaryProjection(String title = 'Test Recipe', String instructions = 'Cook well', Long id = null) {
         [
+                getId         : { id },
                 getTitle      : { title },
                 getInstructions: { instructions }
         ] as RecipeSummaryProjection
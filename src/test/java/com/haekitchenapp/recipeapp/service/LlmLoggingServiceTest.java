@@ -10,9 +10,11 @@ import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmChoices;
 import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmData;
 import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmResponse;
 import com.haekitchenapp.recipeapp.model.response.togetherAi.LlmUsage;
-import com.haekitchenapp.recipeapp.repository.LlmQueryLogRepository;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmBudgetService;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmFeature;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmProvider;
+import com.haekitchenapp.recipeapp.service.llmUsage.LlmUsageMetrics;
 import com.openai.models.chat.completions.ChatCompletion;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -22,49 +24,40 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.lenient;
-import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class LlmLoggingServiceTest {
 
     @Mock
-    private LlmQueryLogRepository llmQueryLogRepository;
+    private LlmQueryLogWriter llmQueryLogWriter;
 
     @Mock
-    private LlmPricingService llmPricingService;
+    private LlmUsageMetrics llmUsageMetrics;
+
+    @Mock
+    private LlmBudgetService llmBudgetService;
 
     @InjectMocks
     private LlmLoggingService llmLoggingService;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    @BeforeEach
-    void setUp() {
-        lenient().when(llmQueryLogRepository.save(any(LlmQueryLog.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
-        lenient().when(llmPricingService.calculateAndUpdateQueryPrice(any()))
-                .thenReturn(Optional.empty());
-    }
-
     @Test
-    void saveQueryLogPersistsUsageAndTriggersPricing() throws Exception {
+    void saveQueryLogQueuesUsage() throws Exception {
         ChatCompletion completion = createChatCompletion(new ChatCompletionStub(
                 "chatcmpl-123", "response text", new ChatCompletionUsageStub(100L, 60L, 40L, 5L)));
 
-        llmLoggingService.saveQueryLog("gpt-test", "system prompt", "user prompt", completion);
+        llmLoggingService.saveQueryLog("gpt-test", "system prompt", "user prompt", completion, LlmFeature.CHAT, 7L);
 
         ArgumentCaptor<LlmQueryLog> logCaptor = ArgumentCaptor.forClass(LlmQueryLog.class);
-        verify(llmQueryLogRepository).save(logCaptor.capture());
+        verify(llmQueryLogWriter).submit(logCaptor.capture());
         LlmQueryLog savedLog = logCaptor.getValue();
 
         assertThat(savedLog.getId()).isEqualTo("chatcmpl-123");
@@ -76,36 +69,35 @@ class LlmLoggingServiceTest {
         assertThat(savedLog.getPromptTokens()).isEqualTo(60);
         assertThat(savedLog.getResponseTokens()).isEqualTo(40);
         assertThat(savedLog.getReasoningTokens()).isEqualTo(5);
-
-        verify(llmPricingService).calculateAndUpdateQueryPrice(eq("chatcmpl-123"));
+        assertThat(savedLog.getUserId()).isEqualTo(7L);
+        verify(llmUsageMetrics).record(LlmProvider.OPENAI, "gpt-test", LlmFeature.CHAT, 60L, 40L, 5L);
+        verify(llmBudgetService).charge(7L, "gpt-test", 60L, 40L, 5L);
     }
 
     @Test
     void saveQueryLogHandlesMissingUsage() throws Exception {
         ChatCompletion completion = createChatCompletion(new ChatCompletionStub("chatcmpl-no-usage", "fallback", null));
 
-        llmLoggingService.saveQueryLog("gpt-test", "system prompt", "user prompt", completion);
+        llmLoggingService.saveQueryLog("gpt-test", "system prompt", "user prompt", completion, LlmFeature.CHAT, null);
 
         ArgumentCaptor<LlmQueryLog> logCaptor = ArgumentCaptor.forClass(LlmQueryLog.class);
-        verify(llmQueryLogRepository).save(logCaptor.capture());
+        verify(llmQueryLogWriter).submit(logCaptor.capture());
         LlmQueryLog savedLog = logCaptor.getValue();
 
         assertThat(savedLog.getTotalTokens()).isZero();
         assertThat(savedLog.getPromptTokens()).isZero();
         assertThat(savedLog.getResponseTokens()).isZero();
         assertThat(savedLog.getReasoningTokens()).isZero();
-
-        verify(llmPricingService).calculateAndUpdateQueryPrice("chatcmpl-no-usage");
     }
 
     @Test
     void saveTogetherAiQueryLogPersistsChatResponseAndRecipeId() {
         LlmResponse response = buildChatTogetherAiResponse("together-1", "assistant reply", 120L, 70L, 50L);
 
-        llmLoggingService.saveTogetherAiQueryLog("together-model", "prompt text", response, 42L);
+        llmLoggingService.saveTogetherAiQueryLog("together-model", "prompt text", response, 42L, LlmFeature.SUMMARIZE);
 
         ArgumentCaptor<LlmQueryLog> logCaptor = ArgumentCaptor.forClass(LlmQueryLog.class);
-        verify(llmQueryLogRepository).save(logCaptor.capture());
+        verify(llmQueryLogWriter).submit(logCaptor.capture());
         LlmQueryLog savedLog = logCaptor.getValue();
 
         assertThat(savedLog.getId()).isEqualTo("together-1");
@@ -115,21 +107,28 @@ class LlmLoggingServiceTest {
         assertThat(savedLog.getPromptTokens()).isEqualTo(70);
         assertThat(savedLog.getResponseTokens()).isEqualTo(50);
         assertThat(savedLog.getTotalTokens()).isEqualTo(120);
+        verify(llmUsageMetrics).record(LlmProvider.TOGETHER, "together-model", LlmFeature.SUMMARIZE, 70L, 50L, 0L);
+    }
+
+    @Test
+    void recordTogetherAiUsageSkipsResponsesWithoutUsage() {
+        LlmResponse response = buildChatTogetherAiResponse("together-2", "reply", 10L, 6L, 4L);
+        response.setUsage(null);
 
-        verify(llmPricingService).calculateAndUpdateQueryPrice("together-1");
+        llmLoggingService.recordTogetherAiUsage("together-model", LlmFeature.REWRITE, response);
+
+        verifyNoInteractions(llmUsageMetrics, llmBudgetService, llmQueryLogWriter);
     }
 
     @Test
-    void saveTogetherAiQueryLogHandlesEmbeddingAndSwallowsRepositoryErrors() {
+    void saveTogetherAiQueryLogHandlesEmbeddingAndSwallowsWriterErrors() {
         LlmResponse response = buildEmbeddingTogetherAiResponse("embed-1", new Double[]{1.0, 2.0, 3.0}, 30L, 20L, 10L);
 
         doThrow(new RuntimeException("db down"))
-                .when(llmQueryLogRepository)
-                .save(any(LlmQueryLog.class));
-
-        assertDoesNotThrow(() -> llmLoggingService.saveTogetherAiQueryLog("embed-model", "embedding prompt", response, 21L));
+                .when(llmQueryLogWriter)
+                .submit(any(LlmQueryLog.class));
 
-        verify(llmPricingService, never()).calculateAndUpdateQueryPrice(any());
+        assertDoesNotThrow(() -> llmLoggingService.saveTogetherAiQueryLog("embed-model", "embedding prompt", response, 21L, LlmFeature.EMBED_RECIPE));
     }
 
     @Test
@@ -137,10 +136,10 @@ class LlmLoggingServiceTest {
         Double[] embedding = new Double[]{0.1, 0.2, 0.3};
         LlmResponse response = buildEmbeddingTogetherAiResponse("embed-2", embedding, 45L, 30L, 15L);
 
-        llmLoggingService.saveTogetherAiQueryLog("embed-model", "embedding prompt", response, 100L);
+        llmLoggingService.saveTogetherAiQueryLog("embed-model", "embedding prompt", response, 100L, LlmFeature.EMBED_RECIPE);
 
         ArgumentCaptor<LlmQueryLog> logCaptor = ArgumentCaptor.forClass(LlmQueryLog.class);
-        verify(llmQueryLogRepository).save(logCaptor.capture());
+        verify(llmQueryLogWriter).submit(logCaptor.capture());
         LlmQueryLog savedLog = logCaptor.getValue();
 
         assertThat(savedLog.getId()).isEqualTo("embed-2");
@@ -150,8 +149,6 @@ class LlmLoggingServiceTest {
         assertThat(savedLog.getTotalTokens()).isEqualTo(45);
         assertThat(savedLog.getPromptTokens()).isEqualTo(30);
         assertThat(savedLog.getResponseTokens()).isEqualTo(15);
-
-        verify(llmPricingService).calculateAndUpdateQueryPrice("embed-2");
     }
 
     private ChatCompletion createChatCompletion(ChatCompletionStub stub) throws JsonProcessingException {
@@ -91,6 +91,37 @@ class LlmPricingServiceTest {
         assertThat(persisted.getTotalCost()).isEqualTo(savedLog.getTotalCost());
     }
 
+    @Test
+    void appliesCostsInMemoryAndCachesThePrice() {
+        LlmQueryLog first = buildQueryLog();
+        first.setPromptTokens(1_000_000);
+        LlmQueryLog second = buildQueryLog();
+        second.setResponseTokens(500_000);
+
+        LlmModelPrice modelPrice = new LlmModelPrice();
+        modelPrice.setModelFamily(first.getModel());
+        modelPrice.setInputPerMtokUsd(2.0);
+        modelPrice.setOutputPerMtokUsd(8.0);
+        when(modelPriceRepository.findById(first.getModel())).thenReturn(Optional.of(modelPrice));
+
+        assertThat(llmPricingService.applyCosts(first)).isTrue();
+        assertThat(llmPricingService.applyCosts(second)).isTrue();
+
+        assertThat(first.getTotalCost()).isCloseTo(2.0, within(1e-9));
+        assertThat(second.getTotalCost()).isCloseTo(4.0, within(1e-9));
+        verify(modelPriceRepository, times(1)).findById(first.getModel());
+        verifyNoInteractions(queryLogRepository);
+    }
+
+    @Test
+    void applyCostsLeavesLogUnpricedWhenModelHasNoPrice() {
+        LlmQueryLog queryLog = buildQueryLog();
+        when(modelPriceRepository.findById(queryLog.getModel())).thenReturn(Optional.empty());
+
+        assertThat(llmPricingService.applyCosts(queryLog)).isFalse();
+        assertThat(queryLog.getTotalCost()).isNull();
+    }
+
     private LlmQueryLog buildQueryLog() {
         LlmQueryLog queryLog = new LlmQueryLog();
         queryLog.setId("query-id");